@@ -0,0 +1,113 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.PublicationAction;
+import dev.streamx.sling.connector.ResourceInfo;
+import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJobManager;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.JobManager.QueryType;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Compares the duplicate check done for each submitted publication job by the {@link PendingPublicationJobsIndex}
+ * with the job queries that were used before the index was introduced, for a growing number of queued jobs. Half of
+ * the submissions are duplicates of queued jobs. The queries are run against the fake job manager, that scans its
+ * queue the way the job storage is searched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PendingPublicationJobsIndexBenchmark {
+
+  private static final String HANDLER_ID = "handler";
+  private static final String CLIENT_NAME = "client";
+  private static final int SUBMISSIONS_COUNT = 100;
+
+  @Param({"10000", "100000"})
+  private int queuedJobsCount;
+
+  private FakeJobManager jobManager;
+  private PendingPublicationJobsIndex index;
+  private List<String> submittedPaths;
+  private List<Map<String, Object>> submissions;
+
+  @Setup
+  public void setUp() {
+    jobManager = new FakeJobManager(Collections.emptyList());
+    IntStream.range(0, queuedJobsCount).forEach(i -> jobManager.addJob(PublicationJobExecutor.JOB_TOPIC,
+        createJobProperties("/content/queued/page-" + i)));
+    BundleContext bundleContext = MockOsgi.newBundleContext();
+    bundleContext.registerService(JobManager.class, jobManager, null);
+    index = new PendingPublicationJobsIndex();
+    MockOsgi.injectServices(index, bundleContext);
+    MockOsgi.activate(index, bundleContext);
+    submittedPaths = IntStream.range(0, SUBMISSIONS_COUNT)
+        .mapToObj(i -> i % 2 == 0
+            ? "/content/queued/page-" + i * (queuedJobsCount / SUBMISSIONS_COUNT)
+            : "/content/submitted/page-" + i)
+        .collect(Collectors.toList());
+    submissions = submittedPaths.stream()
+        .map(PendingPublicationJobsIndexBenchmark::createJobProperties)
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SUBMISSIONS_COUNT)
+  public void checkSubmissionsWithJobQueries(Blackhole blackhole) {
+    for (Map<String, Object> jobProperties : submissions) {
+      blackhole.consume(isAlreadySubmittedByQuery(jobProperties));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SUBMISSIONS_COUNT)
+  public void checkSubmissionsWithIndex(Blackhole blackhole) {
+    for (String resourcePath : submittedPaths) {
+      blackhole.consume(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, resourcePath));
+    }
+  }
+
+  private boolean isAlreadySubmittedByQuery(Map<String, Object> jobProperties) {
+    for (QueryType queryType : List.of(QueryType.ACTIVE, QueryType.QUEUED)) {
+      @SuppressWarnings("unchecked")
+      Collection<Job> foundJobs = jobManager.findJobs(queryType, PublicationJobExecutor.JOB_TOPIC, 1, jobProperties);
+      if (!foundJobs.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Map<String, Object> createJobProperties(String resourcePath) {
+    return new PublicationJobProperties()
+        .withHandlerId(HANDLER_ID)
+        .withClientName(CLIENT_NAME)
+        .withAction(PublicationAction.PUBLISH)
+        .withResource(new ResourceInfo(resourcePath))
+        .asMap();
+  }
+}
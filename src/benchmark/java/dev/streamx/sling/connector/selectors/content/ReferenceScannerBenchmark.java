@@ -0,0 +1,85 @@
+package dev.streamx.sling.connector.selectors.content;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares searching the HTML, CSS and JS files of the sample site for references with the {@link ReferenceScanner}
+ * and with {@link Matcher#find()} run for each of the default patterns separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferenceScannerBenchmark {
+
+  private static final List<Pattern> DEFAULT_PATTERNS = Stream.of(
+      "(/content[^\"'\\s]*\\.coreimg\\.[^\"'\\s]*)",
+      "(/[^\"'\\s]*etc\\.clientlibs[^\"'\\)\\s]*)",
+      "url\\([\"']?([^\\)\"']+)[\"']?\\)"
+  ).map(Pattern::compile).collect(Collectors.toUnmodifiableList());
+
+  private static final Map<String, String> CORPORA = Map.of(
+      "html", "src/test/resources/page-with-nested-references/content/my-site/us/en/main-page.html",
+      "sample-html", "src/test/resources/sample-page.html",
+      "css", "src/test/resources/page-with-nested-references/etc.clientlibs/my-site/clientlibs/clientlib-base.css",
+      "js", "src/test/resources/page-with-nested-references/etc.clientlibs/my-site/clientlibs/clientlib-base.js"
+  );
+
+  @Param({"html", "sample-html", "css", "js"})
+  private String corpus;
+
+  // the files are repeated to the size of a typical page or client library
+  @Param({"100000"})
+  private int contentLength;
+
+  private String content;
+  private ReferenceScanner scanner;
+
+  @Setup
+  public void setUp() throws IOException {
+    String file = Files.readString(Paths.get(CORPORA.get(corpus)), StandardCharsets.UTF_8);
+    content = file.repeat(Math.max(1, contentLength / Math.max(1, file.length())));
+    scanner = new ReferenceScanner(DEFAULT_PATTERNS);
+  }
+
+  @Benchmark
+  public List<String> scanForAllPatterns() {
+    return scanner.scan(content);
+  }
+
+  @Benchmark
+  public List<String> findEachPatternSeparately() {
+    List<String> result = new ArrayList<>();
+    for (Pattern pattern : DEFAULT_PATTERNS) {
+      Matcher matcher = pattern.matcher(content);
+      while (matcher.find()) {
+        result.add(matcher.group(1));
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,28 @@
+package dev.streamx.sling.connector;
+
+import java.util.Map;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * The {@code HttpConnectionPoolStatistics} interface provides methods for monitoring the pool of HTTP connections
+ * shared by the StreamX clients that use the default HTTP client. Clients created with a custom
+ * {@link HttpClientFactory} use their own connections, which are not included.
+ */
+public interface HttpConnectionPoolStatistics {
+
+  /**
+   * Returns the statistics of all connections of the pool.
+   *
+   * @return numbers of the leased, pending and available connections of the pool, and its maximal size
+   */
+  PoolStats getTotalStats();
+
+  /**
+   * Returns the statistics of the connections of the pool by their routes.
+   *
+   * @return numbers of the leased, pending and available connections, and the maximal number of connections,
+   * by the URIs of the target hosts of the routes, such as {@code https://streamx.example.com:443}
+   */
+  Map<String, PoolStats> getStatsByRoute();
+
+}
@@ -0,0 +1,41 @@
+package dev.streamx.sling.connector;
+
+/**
+ * The {@code PublicationDigestStore} interface provides methods for remembering the digests of the publish data
+ * most recently sent to StreamX. If an implementation of this interface is registered, publish data whose digest
+ * is the same as the one most recently sent for the same StreamX client, channel and key is not sent again.
+ * Implementations must be thread safe. Since a missing digest only makes the publish data be sent again,
+ * implementations should log their internal errors instead of throwing exceptions.
+ */
+public interface PublicationDigestStore {
+
+  /**
+   * Returns the digest of the publish data most recently sent with the given client to the given channel.
+   *
+   * @param clientName name of the StreamX client
+   * @param channel    channel of the publish data
+   * @param key        key of the publish data
+   * @return the digest, or {@code null} if it's not known
+   */
+  String getDigest(String clientName, String channel, String key);
+
+  /**
+   * Remembers the digest of the publish data that was just sent with the given client to the given channel.
+   *
+   * @param clientName name of the StreamX client
+   * @param channel    channel of the publish data
+   * @param key        key of the publish data
+   * @param digest     digest of the publish data
+   */
+  void putDigest(String clientName, String channel, String key, String digest);
+
+  /**
+   * Forgets the digest of the publish data with the given key, when it's unpublished from the given channel.
+   *
+   * @param clientName name of the StreamX client
+   * @param channel    channel of the publish data
+   * @param key        key of the publish data
+   */
+  void removeDigest(String clientName, String channel, String key);
+
+}
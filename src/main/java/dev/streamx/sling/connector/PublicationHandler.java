@@ -23,6 +23,19 @@ public interface PublicationHandler<T> {
    */
   boolean canHandle(ResourceInfo resourceInfo);
 
+  /**
+   * Returns the regular expression that the whole path of a resource must match for this handler to handle it.
+   * Handlers that select resources only by their paths can declare it, so that the connector can precompile it
+   * and check the paths without calling {@link #canHandle(ResourceInfo)}. If a regular expression is returned,
+   * {@link #canHandle(ResourceInfo)} must return {@code true} exactly for the resources whose paths match it.
+   *
+   * @return regular expression for the paths of the handled resources, or {@code null} if the resources
+   * are selected by {@link #canHandle(ResourceInfo)}, which is the default
+   */
+  default String getResourcePathRegex() {
+    return null;
+  }
+
   /**
    * Prepares the data to publish for the specified resource path. 
    * May return null if nothing to publish.
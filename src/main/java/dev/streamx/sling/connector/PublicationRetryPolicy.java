@@ -18,4 +18,18 @@ public interface PublicationRetryPolicy {
    */
   Integer getRetryDelay(Job job);
 
+  /**
+   * Calculates the delay in milliseconds before retrying the publication of the specified job
+   * after a failure with the given cause. Implementations can use the cause to handle different
+   * kinds of failures, such as connection errors or rejections by StreamX, differently. By default,
+   * the cause is ignored.
+   *
+   * @param job   the job for which the retry delay is to be calculated
+   * @param cause the cause of the failure; can be {@code null} if it's not known
+   * @return the retry delay in milliseconds
+   */
+  default Integer getRetryDelay(Job job, Throwable cause) {
+    return getRetryDelay(job);
+  }
+
 }
\ No newline at end of file
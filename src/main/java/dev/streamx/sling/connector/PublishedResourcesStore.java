@@ -0,0 +1,110 @@
+package dev.streamx.sling.connector;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code PublishedResourcesStore} interface provides methods for tracking the related resources of the published
+ * resources, so that the related resources are published once for all the resources that reference them, and
+ * unpublished when they're no longer referenced. The registered implementation with the highest service ranking is
+ * used. By default, the data is stored in the JCR under {@code /var/streamx/connector/sling}.
+ * Implementations must be thread safe.
+ */
+public interface PublishedResourcesStore {
+
+  /**
+   * Opens a connection to the store, used to process a single ingestion trigger job.
+   *
+   * @return a new connection, that must be closed by the caller
+   * @throws PublishedResourcesStoreException if the store can't be accessed
+   */
+  Connection open() throws PublishedResourcesStoreException;
+
+  /**
+   * Connection to a {@link PublishedResourcesStore}. Changes made with a connection are visible only to that
+   * connection until they're committed. A connection is not thread safe.
+   */
+  interface Connection extends AutoCloseable {
+
+    /**
+     * Returns the related resources recorded for the parent resources when they were published.
+     *
+     * @param parentResources the parent resources
+     * @return map of related resources by the paths of the parent resources, ordered the same way as the parent
+     * resources. Parent resources with no recorded related resources are mapped to an empty set.
+     * @throws PublishedResourcesStoreException if the store can't be read
+     */
+    Map<String, Set<ResourceInfo>> getRelatedResources(List<ResourceInfo> parentResources) throws PublishedResourcesStoreException;
+
+    /**
+     * Checks if the related resource was published.
+     *
+     * @param relatedResource the related resource
+     * @return true if the related resource was published and not unpublished since then
+     * @throws PublishedResourcesStoreException if the store can't be read
+     */
+    boolean wasPublished(ResourceInfo relatedResource) throws PublishedResourcesStoreException;
+
+    /**
+     * Records the related resources of the published parent resources, and records the new related resources as published.
+     * Related resources that were recorded for a parent resource before, but are not among its current related resources,
+     * are no longer recorded for it. If they're internal to the parent resource, they're no longer recorded as published.
+     *
+     * @param relatedResourcesByParentPath related resources by the paths of the parent resources
+     * @return map of the related resources that have disappeared from the parent resources, by the paths of the parent
+     * resources. It's up to the caller to verify if they can be safely unpublished.
+     * @throws PublishedResourcesStoreException if the store can't be updated
+     */
+    Map<String, Set<ResourceInfo>> updateRelatedResources(Map<String, Set<ResourceInfo>> relatedResourcesByParentPath)
+        throws PublishedResourcesStoreException;
+
+    /**
+     * Removes the related resources recorded for the unpublished parent resources. Related resources internal to
+     * the parent resources are no longer recorded as published.
+     *
+     * @param parentResources the unpublished parent resources
+     * @throws PublishedResourcesStoreException if the store can't be updated
+     */
+    void removeRelatedResources(List<ResourceInfo> parentResources) throws PublishedResourcesStoreException;
+
+    /**
+     * Checks if the related resource was published, but is no longer recorded for any parent resource.
+     *
+     * @param relatedResource the related resource
+     * @return true if the related resource can be unpublished without breaking the content of other parent resources
+     * @throws PublishedResourcesStoreException if the store can't be read
+     */
+    boolean isOrphaned(ResourceInfo relatedResource) throws PublishedResourcesStoreException;
+
+    /**
+     * Records the orphaned related resources as no longer published.
+     *
+     * @param relatedResources the orphaned related resources
+     * @throws PublishedResourcesStoreException if the store can't be updated
+     */
+    void removeOrphaned(Set<ResourceInfo> relatedResources) throws PublishedResourcesStoreException;
+
+    /**
+     * Makes the changes made with this connection since the last commit visible to other connections.
+     *
+     * @return true if the changes were committed, or false if they were discarded because they conflict with changes
+     * committed by another connection in the meantime. Discarded changes can be made again and committed.
+     * @throws PublishedResourcesStoreException if the changes can't be committed for another reason
+     */
+    boolean commit() throws PublishedResourcesStoreException;
+
+    /**
+     * Discards the changes made with this connection since the last commit.
+     *
+     * @throws PublishedResourcesStoreException if the changes can't be discarded
+     */
+    void rollback() throws PublishedResourcesStoreException;
+
+    /**
+     * Discards the uncommitted changes and closes this connection.
+     */
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,27 @@
+package dev.streamx.sling.connector;
+
+/**
+ * The {@code PublishedResourcesStoreException} class indicates that a {@link PublishedResourcesStore} couldn't be
+ * read or updated.
+ */
+public class PublishedResourcesStoreException extends Exception {
+
+  /**
+   * Constructs an instance of this class.
+   *
+   * @param message argument for {@link Exception#Exception(String)}
+   */
+  public PublishedResourcesStoreException(String message) {
+    super(message);
+  }
+
+  /**
+   * Constructs an instance of this class.
+   *
+   * @param message argument for {@link Exception#Exception(String, Throwable)}
+   * @param cause   argument for {@link Exception#Exception(String, Throwable)}
+   */
+  public PublishedResourcesStoreException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
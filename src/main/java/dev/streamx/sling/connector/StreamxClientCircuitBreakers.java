@@ -0,0 +1,47 @@
+package dev.streamx.sling.connector;
+
+import java.util.Map;
+
+/**
+ * The {@code StreamxClientCircuitBreakers} interface provides methods for monitoring the circuit breakers of the
+ * StreamX clients. A circuit breaker opens when sending to its StreamX instance fails repeatedly. While it's open,
+ * publication jobs of that client are rescheduled without rendering the resources or connecting to the instance.
+ * After a while the breaker becomes half-open and lets a single trial publication through: the breaker closes again
+ * if it succeeds, and opens again if it fails.
+ */
+public interface StreamxClientCircuitBreakers {
+
+  /**
+   * State of a circuit breaker.
+   */
+  enum State {
+    /**
+     * Publications are sent to the StreamX instance.
+     */
+    CLOSED,
+    /**
+     * Publications are rescheduled without being sent to the StreamX instance.
+     */
+    OPEN,
+    /**
+     * A single trial publication is sent to the StreamX instance, while the others are rescheduled.
+     */
+    HALF_OPEN
+  }
+
+  /**
+   * Returns the state of the circuit breaker of the given StreamX client.
+   *
+   * @param clientName name of the StreamX client
+   * @return state of the circuit breaker; {@link State#CLOSED} if nothing was sent with the client yet
+   */
+  State getState(String clientName);
+
+  /**
+   * Returns the states of the circuit breakers of the StreamX clients that were used to send publications.
+   *
+   * @return states of the circuit breakers by the names of the StreamX clients
+   */
+  Map<String, State> getStates();
+
+}
@@ -5,9 +5,12 @@ import dev.streamx.sling.connector.PublicationHandler;
 import dev.streamx.sling.connector.PublishData;
 import dev.streamx.sling.connector.StreamxPublicationException;
 import dev.streamx.sling.connector.UnpublishData;
+import dev.streamx.sling.connector.util.RenderCache;
 import dev.streamx.sling.connector.util.SimpleInternalRequest;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.regex.Pattern;
 import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
@@ -27,8 +30,12 @@ import org.slf4j.LoggerFactory;
 public abstract class ResourcePathPublicationHandler<T> implements PublicationHandler<T> {
 
   private static final Logger LOG = LoggerFactory.getLogger(ResourcePathPublicationHandler.class);
+  // larger resource content, such as binaries of assets, is buffered in a temporary file instead of in memory
+  private static final int MAX_IN_MEMORY_CONTENT_SIZE = 1024 * 1024;
   private final ResourceResolverFactory resourceResolverFactory;
   private final SlingRequestProcessor slingRequestProcessor;
+  private final RenderCache renderCache;
+  private volatile Pattern resourcePathPattern;
 
   /**
    * Constructs an instance of this class.
@@ -40,23 +47,63 @@ public abstract class ResourcePathPublicationHandler<T> implements PublicationHa
   protected ResourcePathPublicationHandler(
       ResourceResolverFactory resourceResolverFactory,
       SlingRequestProcessor slingRequestProcessor
+  ) {
+    this(resourceResolverFactory, slingRequestProcessor, null);
+  }
+
+  /**
+   * Constructs an instance of this class.
+   *
+   * @param resourceResolverFactory {@link ResourceResolverFactory} to use when accessing resources
+   * @param slingRequestProcessor   {@link SlingRequestProcessor} to use when retrieving resource
+   *                                content
+   * @param renderCache             {@link RenderCache} to reuse the resource content that was already
+   *                                retrieved, for example to find related resources; can be {@code null}
+   */
+  protected ResourcePathPublicationHandler(
+      ResourceResolverFactory resourceResolverFactory,
+      SlingRequestProcessor slingRequestProcessor,
+      RenderCache renderCache
   ) {
     this.resourceResolverFactory = resourceResolverFactory;
     this.slingRequestProcessor = slingRequestProcessor;
+    this.renderCache = renderCache;
   }
 
   @Override
   public boolean canHandle(ResourceInfo resource) {
     String resourcePath = resource.getPath();
     if (configuration().isEnabled()) {
-      String resourcePathRegex = configuration().resourcePathRegex();
-      return resourcePath.matches(resourcePathRegex);
+      return compileResourcePathRegex().matcher(resourcePath).matches();
     } else {
       LOG.trace("Handler is disabled. Not handling '{}'", resourcePath);
       return false;
     }
   }
 
+  /**
+   * Returns {@link ResourcePathPublicationHandlerConfig#resourcePathRegex()} if the handler is enabled.
+   * A disabled handler doesn't declare the regular expression, since it handles no resources.
+   *
+   * @return regular expression for the paths of the handled resources, or {@code null} if the handler is disabled
+   */
+  @Override
+  public String getResourcePathRegex() {
+    ResourcePathPublicationHandlerConfig configuration = configuration();
+    return configuration.isEnabled() ? configuration.resourcePathRegex() : null;
+  }
+
+  private Pattern compileResourcePathRegex() {
+    String resourcePathRegex = configuration().resourcePathRegex();
+    // the configuration can change, so the compiled pattern is reused only as long as the regex is the same
+    Pattern pattern = resourcePathPattern;
+    if (pattern == null || !pattern.pattern().equals(resourcePathRegex)) {
+      pattern = Pattern.compile(resourcePathRegex);
+      resourcePathPattern = pattern;
+    }
+    return pattern;
+  }
+
   @Override
   @SuppressWarnings({"squid:S1874", "deprecation"})
   public PublishData<T> getPublishData(ResourceInfo resourceInfo) throws StreamxPublicationException {
@@ -76,9 +123,9 @@ public abstract class ResourcePathPublicationHandler<T> implements PublicationHa
   ) throws IOException {
     SlingUri slingUri = SlingUriBuilder.parse(resourcePath, resourceResolver).build();
     SimpleInternalRequest simpleInternalRequest = new SimpleInternalRequest(
-        slingUri, slingRequestProcessor, resourceResolver
+        slingUri, slingRequestProcessor, resourceResolver, Collections.emptyMap(), renderCache
     );
-    try (InputStream inputStream = simpleInternalRequest.getResponseAsInputStream().orElseThrow()) {
+    try (InputStream inputStream = simpleInternalRequest.getResponseAsInputStream(MAX_IN_MEMORY_CONTENT_SIZE).orElseThrow()) {
       String channel = configuration().channel();
       Class<T> modelClass = modelClass();
       T model = model(inputStream);
@@ -111,6 +158,9 @@ public abstract class ResourcePathPublicationHandler<T> implements PublicationHa
 
   /**
    * Model to be ingested by StreamX.
+   * <p>
+   * The {@link InputStream} is closed after this method returns. Content larger than 1 MB is read from a temporary
+   * file, so the model should read it progressively rather than expect it to be held in memory.
    *
    * @param inputStream {@link InputStream} to be wrapped in the model
    * @return model to be ingested by StreamX
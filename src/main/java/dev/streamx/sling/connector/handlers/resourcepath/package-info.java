@@ -2,7 +2,7 @@
  * {@link dev.streamx.sling.connector.handlers.resourcepath.ResourcePathPublicationHandler} and
  * related code.
  */
-@Version("3.0.0")
+@Version("3.2.0")
 package dev.streamx.sling.connector.handlers.resourcepath;
 
 import org.osgi.annotation.versioning.Version;
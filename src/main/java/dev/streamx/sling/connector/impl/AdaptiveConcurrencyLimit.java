@@ -0,0 +1,83 @@
+package dev.streamx.sling.connector.impl;
+
+/**
+ * Limit of concurrent publications of a single StreamX client, adjusted with the additive increase, multiplicative
+ * decrease algorithm. Each publication that completes on time raises the limit by {@code 1 / limit}, which adds about
+ * one to the limit once per round of publications. A publication that fails or exceeds the latency threshold halves
+ * the limit; the publications that started before the last decrease don't decrease it again, so that a single
+ * overload of the StreamX instance halves the limit only once.
+ */
+final class AdaptiveConcurrencyLimit {
+
+  private static final double DECREASE_FACTOR = 0.5;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThreshold;
+
+  private double limit;
+  private int inFlight;
+  private long lastDecreaseTime = Long.MIN_VALUE;
+
+  AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThreshold) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.latencyThreshold = latencyThreshold;
+    this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+  }
+
+  /**
+   * Acquires a permit for a publication, waiting at most the given time for one to be released.
+   *
+   * @return true if the permit was acquired
+   */
+  synchronized boolean tryAcquire(long timeoutMillis) {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while (inFlight >= getLimit()) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return false;
+      }
+      try {
+        wait(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    inFlight++;
+    return true;
+  }
+
+  synchronized void release() {
+    inFlight = Math.max(0, inFlight - 1);
+    notifyAll();
+  }
+
+  /**
+   * Adjusts the limit to the outcome of sending a publication.
+   *
+   * @param startTime  time in milliseconds at which the sending started
+   * @param latency    time in milliseconds that the sending took
+   * @param overloaded true if the sending failed
+   */
+  synchronized void onSample(long startTime, long latency, boolean overloaded) {
+    if (overloaded || latency > latencyThreshold) {
+      if (startTime >= lastDecreaseTime) {
+        limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+        lastDecreaseTime = startTime + latency;
+      }
+    } else {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+    notifyAll();
+  }
+
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+}
@@ -0,0 +1,90 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.StreamxClientCircuitBreakers.State;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of a single StreamX client. It opens after the given number of consecutive failures and becomes
+ * half-open once the open duration elapses. In the half-open state a single trial call is permitted; if its outcome
+ * is never recorded, for example because there was nothing to send, another trial is permitted after the open
+ * duration elapses again.
+ */
+final class CircuitBreaker {
+
+  private final int failureThreshold;
+  private final long openDuration;
+  private final LongSupplier clock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private long trialStartedAt;
+  private boolean trialInProgress;
+
+  CircuitBreaker(int failureThreshold, long openDuration, LongSupplier clock) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openDuration = Math.max(0, openDuration);
+    this.clock = clock;
+  }
+
+  /**
+   * Returns true if a call is permitted now. In the half-open state the call is the trial call.
+   */
+  synchronized boolean tryAcquire() {
+    long now = clock.getAsLong();
+    if (state == State.OPEN && now - openedAt >= openDuration) {
+      state = State.HALF_OPEN;
+      trialInProgress = false;
+    }
+    switch (state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (trialInProgress && now - trialStartedAt < openDuration) {
+          return false;
+        }
+        trialInProgress = true;
+        trialStartedAt = now;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the time in milliseconds after which a call might be permitted again.
+   */
+  synchronized long getRemainingOpenTime() {
+    long now = clock.getAsLong();
+    switch (state) {
+      case OPEN:
+        return Math.max(0, openedAt + openDuration - now);
+      case HALF_OPEN:
+        return trialInProgress ? Math.max(0, trialStartedAt + openDuration - now) : 0;
+      default:
+        return 0;
+    }
+  }
+
+  synchronized void recordSuccess() {
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+    trialInProgress = false;
+  }
+
+  synchronized void recordFailure() {
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = clock.getAsLong();
+      trialInProgress = false;
+    }
+  }
+
+  synchronized State getState() {
+    if (state == State.OPEN && clock.getAsLong() - openedAt >= openDuration) {
+      return State.HALF_OPEN;
+    }
+    return state;
+  }
+}
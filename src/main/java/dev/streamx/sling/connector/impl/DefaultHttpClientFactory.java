@@ -1,14 +1,31 @@
 package dev.streamx.sling.connector.impl;
 
+import dev.streamx.sling.connector.HttpConnectionPoolStatistics;
+import java.io.IOException;
+import java.net.URI;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.net.ssl.SSLContext;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
@@ -16,11 +33,16 @@ import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.propertytypes.ServiceDescription;
@@ -29,20 +51,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Default HTTP client factory.
+ * Default HTTP client factory. All clients created by the factory share a single pool of connections, so the number
+ * of connections to the StreamX instances stays bounded regardless of the number of StreamX clients, and closing
+ * a client doesn't close the pool. The idle and expired connections of the pool are evicted by a single thread.
+ * <p>
+ * Changes of the pool limits are applied to the existing pool. Since the socket factories of a pool cannot be
+ * changed, a change of {@link HttpClientProviderConfig#insecure()} creates a new pool for the clients created
+ * afterwards; the previous pool is closed once all the clients created with it are closed.
  */
 @Component(
-    service = DefaultHttpClientFactory.class,
+    service = {DefaultHttpClientFactory.class, HttpConnectionPoolStatistics.class},
     immediate = true
 )
 @Designate(ocd = HttpClientProviderConfig.class)
 @ServiceDescription("Default HTTP client factory")
-public class DefaultHttpClientFactory {
+public class DefaultHttpClientFactory implements HttpConnectionPoolStatistics {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultHttpClientFactory.class);
+  private static final Pattern ROUTE_OVERRIDE_PATTERN = Pattern.compile("\\s*([^=\\s]+)\\s*=\\s*(\\d+)\\s*");
 
   private final HttpClientBuilderFactory httpClientBuilderFactory;
   private final AtomicReference<HttpClientProviderConfig> config;
+  private final List<ConnectionPool> retiredConnectionPools = new ArrayList<>();
+  private ConnectionPool connectionPool;
 
   /**
    * Constructs an instance of this class.
@@ -56,11 +87,47 @@ public class DefaultHttpClientFactory {
   ) {
     this.httpClientBuilderFactory = httpClientBuilderFactory;
     this.config = new AtomicReference<>(config);
+    this.connectionPool = new ConnectionPool(connectionManager(), config);
   }
 
   @Modified
-  private void configure(HttpClientProviderConfig config) {
+  private synchronized void configure(HttpClientProviderConfig config) {
+    boolean insecureChanged = this.config.get().insecure() != config.insecure();
     this.config.set(config);
+    if (insecureChanged) {
+      LOG.info("Creating a new HTTP connection pool, since trusting all TLS certificates was changed to {}", config.insecure());
+      retire(connectionPool);
+      connectionPool = new ConnectionPool(connectionManager(), config);
+    } else {
+      configureLimits(connectionPool.connectionManager, config);
+    }
+  }
+
+  @Deactivate
+  private synchronized void deactivate() {
+    connectionPool.close();
+    retiredConnectionPools.forEach(ConnectionPool::close);
+    retiredConnectionPools.clear();
+  }
+
+  private void retire(ConnectionPool pool) {
+    if (pool.clientsCount == 0) {
+      pool.close();
+    } else {
+      retiredConnectionPools.add(pool);
+    }
+  }
+
+  private synchronized void releaseClient(ConnectionPool pool) {
+    pool.clientsCount--;
+    if (pool.clientsCount == 0 && retiredConnectionPools.remove(pool)) {
+      LOG.debug("Closing retired HTTP connection pool, since all its clients are closed");
+      pool.close();
+    }
+  }
+
+  synchronized int getRetiredConnectionPoolsCount() {
+    return retiredConnectionPools.size();
   }
 
   private Optional<LayeredConnectionSocketFactory> withTrustAllTlsCertificates() {
@@ -100,21 +167,68 @@ public class DefaultHttpClientFactory {
     } else {
       connMgr = new PoolingHttpClientConnectionManager();
     }
-    connMgr.setMaxTotal(config.get().max_total());
-    connMgr.setDefaultMaxPerRoute(config.get().max_per_route());
+    configureLimits(connMgr, config.get());
     return connMgr;
   }
 
+  private static void configureLimits(PoolingHttpClientConnectionManager connMgr, HttpClientProviderConfig config) {
+    connMgr.setMaxTotal(config.max_total());
+    connMgr.setDefaultMaxPerRoute(config.max_per_route());
+    // routes that are no longer overridden get the default limit
+    for (HttpRoute route : connMgr.getRoutes()) {
+      connMgr.setMaxPerRoute(route, config.max_per_route());
+    }
+    for (String routeOverride : config.max_per_route_overrides()) {
+      Matcher matcher = ROUTE_OVERRIDE_PATTERN.matcher(routeOverride);
+      if (!matcher.matches()) {
+        LOG.warn("Invalid max per route override '{}' is ignored", routeOverride);
+        continue;
+      }
+      try {
+        connMgr.setMaxPerRoute(toRoute(HttpHost.create(matcher.group(1))), Integer.parseInt(matcher.group(2)));
+      } catch (IllegalArgumentException | UnsupportedSchemeException exception) {
+        LOG.warn("Invalid max per route override '{}' is ignored", routeOverride, exception);
+      }
+    }
+  }
+
+  private static HttpRoute toRoute(HttpHost host) throws UnsupportedSchemeException {
+    int port = host.getPort() >= 0 ? host.getPort() : DefaultSchemePortResolver.INSTANCE.resolve(host);
+    HttpHost target = new HttpHost(host.getHostName(), port, host.getSchemeName());
+    boolean secure = "https".equalsIgnoreCase(target.getSchemeName());
+    return new HttpRoute(target, null, secure);
+  }
+
+  /**
+   * Returns the maximum number of concurrent connections of the pool to the host of the given URL, or the default
+   * limit per route if the URL is invalid.
+   */
+  int getMaxPerRoute(String url) {
+    PoolingHttpClientConnectionManager connectionManager = getConnectionManager();
+    try {
+      HttpHost host = URIUtils.extractHost(URI.create(url));
+      if (host != null) {
+        return connectionManager.getMaxPerRoute(toRoute(host));
+      }
+    } catch (IllegalArgumentException | UnsupportedSchemeException exception) {
+      LOG.debug("Cannot find the route to '{}'", url, exception);
+    }
+    return connectionManager.getDefaultMaxPerRoute();
+  }
+
   CloseableHttpClient createNewClient() {
     HttpClientProviderConfig unwrappedConfig = config.get();
+    ConnectionPool pool;
+    synchronized (this) {
+      pool = connectionPool;
+      pool.clientsCount++;
+    }
     return httpClientBuilderFactory.newBuilder()
-        .setConnectionManager(connectionManager())
+        // the pool is closed by this factory, closing a client only releases the pool
+        .setConnectionManager(new ClientConnectionManager(pool.connectionManager, () -> releaseClient(pool)))
         .setKeepAliveStrategy(
             (response, context) -> unwrappedConfig.keep_alive_time()
         )
-        .evictIdleConnections(
-            unwrappedConfig.idle_connection_keep_alive_time(), TimeUnit.MILLISECONDS
-        ).evictExpiredConnections()
         .setDefaultRequestConfig(RequestConfig.custom()
             .setConnectTimeout(unwrappedConfig.connection_timeout())
             .setSocketTimeout(unwrappedConfig.socket_timeout())
@@ -122,4 +236,101 @@ public class DefaultHttpClientFactory {
             .build())
         .build();
   }
+
+  @Override
+  public PoolStats getTotalStats() {
+    return getConnectionManager().getTotalStats();
+  }
+
+  @Override
+  public Map<String, PoolStats> getStatsByRoute() {
+    PoolingHttpClientConnectionManager connectionManager = getConnectionManager();
+    Map<String, PoolStats> statsByRoute = new TreeMap<>();
+    for (HttpRoute route : connectionManager.getRoutes()) {
+      statsByRoute.put(route.getTargetHost().toURI(), connectionManager.getStats(route));
+    }
+    return statsByRoute;
+  }
+
+  private synchronized PoolingHttpClientConnectionManager getConnectionManager() {
+    return connectionPool.connectionManager;
+  }
+
+  private static final class ConnectionPool {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final IdleConnectionEvictor connectionEvictor;
+    private int clientsCount;
+
+    private ConnectionPool(PoolingHttpClientConnectionManager connectionManager, HttpClientProviderConfig config) {
+      this.connectionManager = connectionManager;
+      long maxIdleTime = config.idle_connection_keep_alive_time();
+      this.connectionEvictor = new IdleConnectionEvictor(connectionManager, maxIdleTime, TimeUnit.MILLISECONDS);
+      this.connectionEvictor.start();
+    }
+
+    private void close() {
+      connectionEvictor.shutdown();
+      connectionManager.shutdown();
+    }
+  }
+
+  /**
+   * Connection manager of a single client, that delegates to the shared pool. Shutting it down, which happens when
+   * the client is closed, releases the pool instead of shutting it down.
+   */
+  private static final class ClientConnectionManager implements HttpClientConnectionManager {
+
+    private final HttpClientConnectionManager connectionManager;
+    private final Runnable release;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private ClientConnectionManager(HttpClientConnectionManager connectionManager, Runnable release) {
+      this.connectionManager = connectionManager;
+      this.release = release;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      return connectionManager.requestConnection(route, state);
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+      connectionManager.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+        throws IOException {
+      connectionManager.connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+      connectionManager.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+      connectionManager.routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idleTime, TimeUnit timeUnit) {
+      connectionManager.closeIdleConnections(idleTime, timeUnit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+      connectionManager.closeExpiredConnections();
+    }
+
+    @Override
+    public void shutdown() {
+      if (released.compareAndSet(false, true)) {
+        release.run();
+      }
+    }
+  }
 }
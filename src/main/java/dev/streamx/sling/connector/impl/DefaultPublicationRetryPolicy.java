@@ -1,24 +1,39 @@
 package dev.streamx.sling.connector.impl;
 
 import dev.streamx.sling.connector.PublicationRetryPolicy;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.sling.event.jobs.Job;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.propertytypes.ServiceDescription;
 import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Default {@link PublicationRetryPolicy}.
+ * Default {@link PublicationRetryPolicy}. The retry delay grows exponentially with the number of retries, starting
+ * from a base delay that depends on the kind of the failure. Publications rejected by StreamX with a 4xx status can be
+ * retried after a fixed delay instead, since retrying them sooner is unlikely to help. Optionally, the delay is
+ * randomized, so that the jobs that failed at the same time, for example while StreamX was down, are not retried
+ * at the same time.
  */
 @Component(service = PublicationRetryPolicy.class)
 @Designate(ocd = DefaultPublicationRetryPolicyConfig.class)
 @ServiceDescription("Default Publication Retry Policy")
 public class DefaultPublicationRetryPolicy implements PublicationRetryPolicy {
 
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultPublicationRetryPolicy.class);
+
   private int retryDelay;
   private int retryMultiplication;
   private int maxRetryDelay;
+  private Jitter jitter = Jitter.NONE;
+  private int connectionRetryDelay;
+  private int timeoutRetryDelay;
+  private int serverErrorRetryDelay;
+  private int clientErrorRetryDelay;
 
   /**
    * Constructs an instance of this class.
@@ -36,12 +51,72 @@ public class DefaultPublicationRetryPolicy implements PublicationRetryPolicy {
     this.retryDelay = config.retry_delay();
     this.retryMultiplication = config.retry_multiplication();
     this.maxRetryDelay = config.max_retry_delay();
+    this.jitter = Jitter.of(config.jitter());
+    this.connectionRetryDelay = orRetryDelay(config.connection_retry_delay());
+    this.timeoutRetryDelay = orRetryDelay(config.timeout_retry_delay());
+    this.serverErrorRetryDelay = orRetryDelay(config.server_error_retry_delay());
+    this.clientErrorRetryDelay = config.client_error_retry_delay();
+  }
+
+  private int orRetryDelay(int delay) {
+    return delay > 0 ? delay : retryDelay;
   }
 
   @Override
   public Integer getRetryDelay(Job job) {
-    int retries = job.getRetryCount();
-    int calculatedDelay = (int) (retryDelay * Math.pow(retryMultiplication, retries));
-    return Math.min(calculatedDelay, maxRetryDelay);
+    return getRetryDelay(job, null);
+  }
+
+  @Override
+  public Integer getRetryDelay(Job job, Throwable cause) {
+    PublicationFailureType failureType = cause == null ? PublicationFailureType.OTHER : PublicationFailureType.of(cause);
+    if (failureType == PublicationFailureType.CLIENT_ERROR && clientErrorRetryDelay > 0) {
+      return clientErrorRetryDelay;
+    }
+    int baseDelay = getBaseDelay(failureType);
+    int retries = PublicationJobProperties.getRetryCount(job);
+    int calculatedDelay = calculateDelay(baseDelay, retries);
+    switch (jitter) {
+      case FULL:
+        return ThreadLocalRandom.current().nextInt(calculatedDelay + 1);
+      case EQUAL:
+        int halfDelay = calculatedDelay / 2;
+        return calculatedDelay - halfDelay + ThreadLocalRandom.current().nextInt(halfDelay + 1);
+      default:
+        return calculatedDelay;
+    }
+  }
+
+  private int getBaseDelay(PublicationFailureType failureType) {
+    switch (failureType) {
+      case CONNECTION:
+        return connectionRetryDelay;
+      case TIMEOUT:
+        return timeoutRetryDelay;
+      case SERVER_ERROR:
+        return serverErrorRetryDelay;
+      default:
+        return retryDelay;
+    }
+  }
+
+  private int calculateDelay(int baseDelay, int retries) {
+    int calculatedDelay = (int) (baseDelay * Math.pow(retryMultiplication, retries));
+    return Math.max(0, Math.min(calculatedDelay, maxRetryDelay));
+  }
+
+  private enum Jitter {
+    NONE,
+    FULL,
+    EQUAL;
+
+    private static Jitter of(String value) {
+      try {
+        return Jitter.valueOf(value.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException | NullPointerException ex) {
+        LOG.warn("Unknown retry delay jitter '{}', the delay will not be randomized", value);
+        return NONE;
+      }
+    }
   }
 }
@@ -6,7 +6,8 @@ import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 /**
  * OSGi configuration interface for the default StreamX publication retry policy.
  * This interface defines the configuration attributes for the retry policy, including
- * the base retry delay, the retry multiplication factor, and the maximal retry delay.
+ * the base retry delay, the retry multiplication factor, the maximal retry delay, the jitter
+ * and the retry delays of different kinds of failures.
  */
 @ObjectClassDefinition(name = "Default StreamX publication retry policy config")
 public @interface DefaultPublicationRetryPolicyConfig {
@@ -26,6 +27,11 @@ public @interface DefaultPublicationRetryPolicyConfig {
    */
   int MAX_RETRY_DELAY = 60000;
 
+  /**
+   * The default jitter of the retry delay.
+   */
+  String DEFAULT_JITTER = "none";
+
   /**
    * Returns the base value of the waiting time in milliseconds between job retries.
    *
@@ -50,4 +56,53 @@ public @interface DefaultPublicationRetryPolicyConfig {
   @AttributeDefinition(name = "Maximal retry delay", description = "The maximal waiting time in milliseconds between job retries.")
   int max_retry_delay() default MAX_RETRY_DELAY;
 
+  /**
+   * Returns the jitter of the retry delay.
+   *
+   * @return the jitter of the retry delay
+   */
+  @AttributeDefinition(name = "Jitter", description = "Randomization of the retry delay, so that the jobs that failed "
+      + "at the same time are not retried at the same time. 'none' - the delay is not randomized, "
+      + "'full' - the delay is random between zero and the calculated delay, "
+      + "'equal' - the delay is random between half of the calculated delay and the calculated delay.")
+  String jitter() default DEFAULT_JITTER;
+
+  /**
+   * Returns the base retry delay in milliseconds after a failure to connect to StreamX.
+   *
+   * @return the base retry delay in milliseconds after a connection failure
+   */
+  @AttributeDefinition(name = "Connection failure retry delay", description = "The base value of the waiting time "
+      + "in milliseconds between job retries after a failure to connect to StreamX. If it's not positive, the retry delay is used.")
+  int connection_retry_delay() default 0;
+
+  /**
+   * Returns the base retry delay in milliseconds after a timeout of StreamX.
+   *
+   * @return the base retry delay in milliseconds after a timeout
+   */
+  @AttributeDefinition(name = "Timeout retry delay", description = "The base value of the waiting time in milliseconds "
+      + "between job retries after StreamX didn't respond in time. If it's not positive, the retry delay is used.")
+  int timeout_retry_delay() default 0;
+
+  /**
+   * Returns the base retry delay in milliseconds after a 5xx or 429 response of StreamX.
+   *
+   * @return the base retry delay in milliseconds after a server error
+   */
+  @AttributeDefinition(name = "Server error retry delay", description = "The base value of the waiting time in "
+      + "milliseconds between job retries after StreamX responded with a 5xx or 429 status. If it's not positive, "
+      + "the retry delay is used.")
+  int server_error_retry_delay() default 0;
+
+  /**
+   * Returns the retry delay in milliseconds after a 4xx response of StreamX, other than 429.
+   *
+   * @return the retry delay in milliseconds after a client error
+   */
+  @AttributeDefinition(name = "Client error retry delay", description = "The fixed waiting time in milliseconds "
+      + "between job retries after StreamX rejected the publication with a 4xx status, other than 429. "
+      + "If it's not positive, the delay is calculated the same way as for other failures, from the retry delay.")
+  int client_error_retry_delay() default 0;
+
 }
@@ -0,0 +1,153 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.util.RenderCache;
+import dev.streamx.sling.connector.util.RenderedContent;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.uri.SlingUri;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link RenderCache}. The content is cached by the requested URI and request parameters, along with the last
+ * modification time of the requested resource, so it's rendered again as soon as the resource is modified.
+ * Content of resources without the last modification time is not cached.
+ */
+@Component(service = RenderCache.class, immediate = true)
+@Designate(ocd = DefaultRenderCacheConfig.class)
+public class DefaultRenderCache implements RenderCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultRenderCache.class);
+
+  // key: URI and request parameters; iterated from the least recently used entry
+  private final Map<List<String>, CachedContent> cachedContents = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes;
+
+  private volatile boolean enabled;
+  private long maxSizeBytes;
+  private long maxAge;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public DefaultRenderCache() {
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private synchronized void configure(DefaultRenderCacheConfig config) {
+    enabled = config.enabled();
+    maxSizeBytes = Math.max(0, config.max_size_bytes());
+    maxAge = Math.max(0, config.max_age());
+    if (enabled) {
+      evictExceedingContent();
+    } else {
+      cachedContents.clear();
+      cachedBytes = 0;
+    }
+  }
+
+  @Override
+  public Optional<RenderedContent> get(SlingUri slingUri, Map<String, Object> parameters,
+      ResourceResolver resourceResolver, Supplier<Optional<RenderedContent>> renderer) {
+    if (!enabled) {
+      return renderer.get();
+    }
+    Long lastModified = ResourceLastModified.get(slingUri, resourceResolver);
+    if (lastModified == null) {
+      LOG.trace("Content of '{}' is not cached, since its last modification time is unknown", slingUri);
+      return renderer.get();
+    }
+
+    List<String> key = List.of(slingUri.toString(), new TreeMap<>(parameters).toString());
+    Optional<RenderedContent> cachedContent = getCachedContent(key, lastModified);
+    if (cachedContent.isPresent()) {
+      LOG.trace("Returning cached content of '{}'", slingUri);
+      return cachedContent;
+    }
+
+    Optional<RenderedContent> renderedContent = renderer.get();
+    renderedContent.ifPresent(content -> putCachedContent(key, new CachedContent(content, lastModified)));
+    return renderedContent;
+  }
+
+  private synchronized Optional<RenderedContent> getCachedContent(List<String> key, long lastModified) {
+    CachedContent cachedContent = cachedContents.get(key);
+    if (cachedContent == null) {
+      return Optional.empty();
+    }
+    if (cachedContent.lastModified != lastModified || isExpired(cachedContent)) {
+      removeCachedContent(key);
+      return Optional.empty();
+    }
+    return Optional.of(cachedContent.content);
+  }
+
+  private synchronized void putCachedContent(List<String> key, CachedContent cachedContent) {
+    if (!enabled || cachedContent.size() > maxSizeBytes) {
+      return;
+    }
+    removeCachedContent(key);
+    cachedContents.put(key, cachedContent);
+    cachedBytes += cachedContent.size();
+    evictExceedingContent();
+  }
+
+  private void removeCachedContent(List<String> key) {
+    CachedContent removedContent = cachedContents.remove(key);
+    if (removedContent != null) {
+      cachedBytes -= removedContent.size();
+    }
+  }
+
+  // expired content is evicted when it's requested, or when it becomes the least recently used one
+  private void evictExceedingContent() {
+    Iterator<CachedContent> iterator = cachedContents.values().iterator();
+    while (iterator.hasNext()) {
+      CachedContent cachedContent = iterator.next();
+      if (cachedBytes <= maxSizeBytes && !isExpired(cachedContent)) {
+        return;
+      }
+      iterator.remove();
+      cachedBytes -= cachedContent.size();
+    }
+  }
+
+  private boolean isExpired(CachedContent cachedContent) {
+    return System.currentTimeMillis() - cachedContent.cachedAt > maxAge;
+  }
+
+  synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+
+  private static final class CachedContent {
+
+    private final RenderedContent content;
+    private final long lastModified;
+    private final long cachedAt = System.currentTimeMillis();
+
+    private CachedContent(RenderedContent content, long lastModified) {
+      this.content = content;
+      this.lastModified = lastModified;
+    }
+
+    private long size() {
+      return content.getBytes().length;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link DefaultRenderCache}.
+ * This interface defines whether the rendered content is cached and how much of it is kept and for how long.
+ */
+@ObjectClassDefinition(name = "StreamX render cache config")
+public @interface DefaultRenderCacheConfig {
+
+  /**
+   * The default maximal total size in bytes of the cached content.
+   */
+  long DEFAULT_MAX_SIZE_BYTES = 50L * 1024 * 1024;
+
+  /**
+   * The default maximal age in milliseconds of the cached content.
+   */
+  long DEFAULT_MAX_AGE = 60000;
+
+  /**
+   * Returns true if the rendered content is cached.
+   *
+   * @return true if the rendered content is cached
+   */
+  @AttributeDefinition(name = "Enabled", description = "Indicates whether the content rendered by internal requests is "
+      + "cached, so that it can be reused for example by the publication job of a page that was rendered to find its related resources.")
+  boolean enabled() default false;
+
+  /**
+   * Returns the maximal total size in bytes of the cached content.
+   *
+   * @return the maximal total size in bytes of the cached content
+   */
+  @AttributeDefinition(name = "Max size in bytes", description = "The maximal total size in bytes of the cached content. "
+      + "The least recently used content is evicted when the size is exceeded.")
+  long max_size_bytes() default DEFAULT_MAX_SIZE_BYTES;
+
+  /**
+   * Returns the maximal age in milliseconds of the cached content.
+   *
+   * @return the maximal age in milliseconds of the cached content
+   */
+  @AttributeDefinition(name = "Max age", description = "The maximal time in milliseconds for which the rendered content is cached.")
+  long max_age() default DEFAULT_MAX_AGE;
+
+}
@@ -0,0 +1,114 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.StreamxClientCircuitBreakers;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link StreamxClientCircuitBreakers}. The circuit breakers are created for the StreamX clients on their
+ * first use and are reset whenever the configuration changes.
+ */
+@Component(
+    service = {StreamxClientCircuitBreakers.class, DefaultStreamxClientCircuitBreakers.class},
+    immediate = true
+)
+@Designate(ocd = DefaultStreamxClientCircuitBreakersConfig.class)
+public class DefaultStreamxClientCircuitBreakers implements StreamxClientCircuitBreakers {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultStreamxClientCircuitBreakers.class);
+
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final LongSupplier clock;
+
+  private volatile boolean enabled;
+  private volatile int failureThreshold;
+  private volatile long openDuration;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public DefaultStreamxClientCircuitBreakers() {
+    this(System::currentTimeMillis);
+  }
+
+  DefaultStreamxClientCircuitBreakers(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private void configure(DefaultStreamxClientCircuitBreakersConfig config) {
+    enabled = config.enabled();
+    failureThreshold = config.failure_threshold();
+    openDuration = config.open_duration();
+    circuitBreakers.clear();
+  }
+
+  @Override
+  public State getState(String clientName) {
+    CircuitBreaker circuitBreaker = circuitBreakers.get(clientName);
+    return circuitBreaker == null ? State.CLOSED : circuitBreaker.getState();
+  }
+
+  @Override
+  public Map<String, State> getStates() {
+    Map<String, State> states = new TreeMap<>();
+    circuitBreakers.forEach((clientName, circuitBreaker) -> states.put(clientName, circuitBreaker.getState()));
+    return states;
+  }
+
+  /**
+   * Returns true if a publication can be sent with the given client now.
+   */
+  boolean tryAcquire(String clientName) {
+    return !enabled || getCircuitBreaker(clientName).tryAcquire();
+  }
+
+  /**
+   * Returns the time in milliseconds after which a publication might be sent with the given client again.
+   */
+  long getRemainingOpenTime(String clientName) {
+    CircuitBreaker circuitBreaker = circuitBreakers.get(clientName);
+    return circuitBreaker == null ? 0 : circuitBreaker.getRemainingOpenTime();
+  }
+
+  void recordSuccess(String clientName) {
+    if (enabled) {
+      CircuitBreaker circuitBreaker = getCircuitBreaker(clientName);
+      State previousState = circuitBreaker.getState();
+      circuitBreaker.recordSuccess();
+      if (previousState != State.CLOSED) {
+        LOG.info("Circuit breaker of StreamX client '{}' is closed", clientName);
+      }
+    }
+  }
+
+  void recordFailure(String clientName) {
+    if (enabled) {
+      CircuitBreaker circuitBreaker = getCircuitBreaker(clientName);
+      State previousState = circuitBreaker.getState();
+      circuitBreaker.recordFailure();
+      if (previousState != State.OPEN && circuitBreaker.getState() == State.OPEN) {
+        LOG.warn("Circuit breaker of StreamX client '{}' is open, its publications will be rescheduled for {} ms",
+            clientName, circuitBreaker.getRemainingOpenTime());
+      }
+    }
+  }
+
+  private CircuitBreaker getCircuitBreaker(String clientName) {
+    return circuitBreakers.computeIfAbsent(clientName,
+        key -> new CircuitBreaker(failureThreshold, openDuration, clock));
+  }
+}
@@ -0,0 +1,51 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link DefaultStreamxClientCircuitBreakers}.
+ * This interface defines when the circuit breakers of the StreamX clients open and for how long.
+ */
+@ObjectClassDefinition(name = "StreamX client circuit breakers config")
+public @interface DefaultStreamxClientCircuitBreakersConfig {
+
+  /**
+   * The default number of consecutive failures after which a circuit breaker opens.
+   */
+  int DEFAULT_FAILURE_THRESHOLD = 5;
+
+  /**
+   * The default time in milliseconds for which a circuit breaker stays open.
+   */
+  long DEFAULT_OPEN_DURATION = 30000;
+
+  /**
+   * Returns true if the circuit breakers are enabled.
+   *
+   * @return true if the circuit breakers are enabled
+   */
+  @AttributeDefinition(name = "Enabled", description = "Indicates whether publication jobs of a StreamX client "
+      + "are rescheduled without rendering the resources or connecting to its StreamX instance, while the instance is failing.")
+  boolean enabled() default false;
+
+  /**
+   * Returns the number of consecutive failures after which a circuit breaker opens.
+   *
+   * @return the number of consecutive failures after which a circuit breaker opens
+   */
+  @AttributeDefinition(name = "Failure threshold", description = "The number of consecutive failures of sending "
+      + "publications to a StreamX instance after which its circuit breaker opens. Only connection failures, timeouts "
+      + "and 5xx or 429 responses are counted.")
+  int failure_threshold() default DEFAULT_FAILURE_THRESHOLD;
+
+  /**
+   * Returns the time in milliseconds for which a circuit breaker stays open.
+   *
+   * @return the time in milliseconds for which a circuit breaker stays open
+   */
+  @AttributeDefinition(name = "Open duration", description = "The time in milliseconds for which a circuit breaker "
+      + "stays open, before a single trial publication is sent to check whether the StreamX instance recovered.")
+  long open_duration() default DEFAULT_OPEN_DURATION;
+
+}
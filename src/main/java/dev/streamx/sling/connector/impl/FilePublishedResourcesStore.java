@@ -0,0 +1,507 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.PublishedResourcesStore;
+import dev.streamx.sling.connector.PublishedResourcesStoreException;
+import dev.streamx.sling.connector.ResourceInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PublishedResourcesStore} that keeps the published related resources in memory and records every committed
+ * change in an append-only file local to the instance, so that tracking them doesn't write to the repository.
+ * The file is read through a memory mapping when the store is activated. It's periodically compacted by rewriting it
+ * with the current data, when most of its records are outdated. The file is not flushed to the disk on every commit,
+ * so the last changes may be lost if the operating system crashes; their related resources are then published again.
+ * <p>
+ * Connections that change the store are serialized: a connection waits for the changes of other connections to be
+ * committed or discarded before making its first change, so its changes never conflict with them.
+ * The store is active only if it's configured, and takes precedence over the default {@link JcrPublishedResourcesStore}.
+ * <p>
+ * The file is local to the instance, so on a clustered author every instance tracks only the resources published by
+ * the jobs it processed. Orphaned related resources are therefore detected only if the store is configured as used by
+ * a single instance; otherwise no related resource is seen as orphaned, so shared resources are never unpublished.
+ */
+@Component(
+    service = PublishedResourcesStore.class,
+    configurationPolicy = ConfigurationPolicy.REQUIRE,
+    property = "service.ranking:Integer=100"
+)
+@Designate(ocd = FilePublishedResourcesStoreConfig.class)
+public class FilePublishedResourcesStore implements PublishedResourcesStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FilePublishedResourcesStore.class);
+  private static final String DEFAULT_FILE_PATH = "streamx/published-resources.log";
+  private static final byte RECORD_RELATED_RESOURCES = 'F';
+  private static final byte RECORD_REFERENCE_COUNT = 'I';
+  private static final long REMOVED = -1;
+  // length and checksum of a record
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+  // key: path of a parent resource
+  private final Map<String, Set<String>> relatedResourcesByParentPath = new ConcurrentHashMap<>();
+  // key: path of a published related resource; value: number of parent resources that reference it
+  private final Map<String, Long> referenceCounts = new ConcurrentHashMap<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final AtomicBoolean orphansDetectionWarned = new AtomicBoolean();
+
+  private Path file;
+  private FileChannel channel;
+  private long fileRecords;
+  private volatile boolean singleInstance;
+  private ScheduledExecutorService compactionExecutor;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public FilePublishedResourcesStore() {
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   * @throws IOException if the file can't be read
+   */
+  @Activate
+  @Modified
+  private void configure(FilePublishedResourcesStoreConfig config) throws IOException {
+    deactivate();
+    Path configuredFile = config.file_path().isBlank()
+        ? Paths.get(System.getProperty("sling.home", "."), DEFAULT_FILE_PATH)
+        : Paths.get(config.file_path());
+    writeLock.lock();
+    try {
+      load(configuredFile);
+    } finally {
+      writeLock.unlock();
+    }
+    singleInstance = config.single_instance();
+    orphansDetectionWarned.set(false);
+    int compactionIntervalSeconds = Math.max(1, config.compaction_interval_seconds());
+    compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "streamx-published-resources-compaction");
+      thread.setDaemon(true);
+      return thread;
+    });
+    compactionExecutor.scheduleWithFixedDelay(this::compactIfNeeded, compactionIntervalSeconds, compactionIntervalSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  @Deactivate
+  private void deactivate() throws IOException {
+    if (compactionExecutor != null) {
+      compactionExecutor.shutdownNow();
+      compactionExecutor = null;
+    }
+    writeLock.lock();
+    try {
+      if (channel != null) {
+        channel.force(false);
+        channel.close();
+        channel = null;
+      }
+      file = null;
+      relatedResourcesByParentPath.clear();
+      referenceCounts.clear();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Connection open() {
+    return new FileConnection();
+  }
+
+  private void load(Path path) throws IOException {
+    File parentDirectory = path.toAbsolutePath().getParent().toFile();
+    if (!parentDirectory.isDirectory() && !parentDirectory.mkdirs()) {
+      throw new IOException("Can't create directory " + parentDirectory);
+    }
+    long startTime = System.currentTimeMillis();
+    file = path;
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    fileRecords = 0;
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("File " + path + " is too large to be mapped, it must be removed");
+    }
+    long validSize = 0;
+    if (size > 0) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      while (readRecord(buffer)) {
+        validSize = buffer.position();
+        fileRecords++;
+      }
+    }
+    if (validSize < size) {
+      LOG.warn("Ignoring {} bytes of incomplete or corrupted records at the end of {}", size - validSize, path);
+      channel.truncate(validSize);
+    }
+    channel.position(validSize);
+    LOG.info("Loaded {} published resources and {} related resources from {} in {} ms", relatedResourcesByParentPath.size(),
+        referenceCounts.size(), path, System.currentTimeMillis() - startTime);
+  }
+
+  private boolean readRecord(ByteBuffer buffer) {
+    if (buffer.remaining() < RECORD_HEADER_SIZE) {
+      return false;
+    }
+    int start = buffer.position();
+    int length = buffer.getInt();
+    int checksum = buffer.getInt();
+    if (length <= 0 || buffer.remaining() < length) {
+      buffer.position(start);
+      return false;
+    }
+    byte[] payload = new byte[length];
+    buffer.get(payload);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    if ((int) crc.getValue() != checksum) {
+      buffer.position(start);
+      return false;
+    }
+    applyRecord(ByteBuffer.wrap(payload));
+    return true;
+  }
+
+  private void applyRecord(ByteBuffer payload) {
+    byte type = payload.get();
+    String key = readString(payload);
+    if (type == RECORD_RELATED_RESOURCES) {
+      int count = payload.getInt();
+      Set<String> relatedResources = new LinkedHashSet<>();
+      for (int i = 0; i < count; i++) {
+        relatedResources.add(readString(payload));
+      }
+      putRelatedResources(key, relatedResources);
+    } else if (type == RECORD_REFERENCE_COUNT) {
+      putReferenceCount(key, payload.getLong());
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void putRelatedResources(String parentResourcePath, Set<String> relatedResources) {
+    if (relatedResources.isEmpty()) {
+      relatedResourcesByParentPath.remove(parentResourcePath);
+    } else {
+      relatedResourcesByParentPath.put(parentResourcePath, Collections.unmodifiableSet(relatedResources));
+    }
+  }
+
+  private void putReferenceCount(String relatedResource, long referenceCount) {
+    if (referenceCount == REMOVED) {
+      referenceCounts.remove(relatedResource);
+    } else {
+      referenceCounts.put(relatedResource, referenceCount);
+    }
+  }
+
+  private static byte[] encodeRelatedResources(String parentResourcePath, Set<String> relatedResources) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(RECORD_RELATED_RESOURCES);
+    writeString(output, parentResourcePath);
+    output.writeInt(relatedResources.size());
+    for (String relatedResource : relatedResources) {
+      writeString(output, relatedResource);
+    }
+    return encodeRecord(bytes.toByteArray());
+  }
+
+  private static byte[] encodeReferenceCount(String relatedResource, long referenceCount) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(RECORD_REFERENCE_COUNT);
+    writeString(output, relatedResource);
+    output.writeLong(referenceCount);
+    return encodeRecord(bytes.toByteArray());
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static byte[] encodeRecord(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+        .putInt(payload.length)
+        .putInt((int) crc.getValue())
+        .put(payload)
+        .array();
+  }
+
+  /**
+   * Appends the records to the file. If they can't be all appended, the file is truncated to its previous size,
+   * so that it never ends with an incomplete record followed by complete ones.
+   */
+  private void append(List<byte[]> records) throws IOException {
+    long previousSize = channel.position();
+    try {
+      int totalLength = records.stream().mapToInt(record -> record.length).sum();
+      ByteBuffer buffer = ByteBuffer.allocate(totalLength);
+      records.forEach(buffer::put);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      fileRecords += records.size();
+    } catch (IOException ex) {
+      channel.truncate(previousSize);
+      channel.position(previousSize);
+      throw ex;
+    }
+  }
+
+  /**
+   * Rewrites the file with the current data if most of its records are outdated.
+   */
+  void compactIfNeeded() {
+    writeLock.lock();
+    try {
+      if (channel == null && file != null) {
+        LOG.info("Opening {} again, since it couldn't be opened after the last compaction", file);
+        channel = openForAppending(file);
+      }
+      long liveRecords = (long) relatedResourcesByParentPath.size() + referenceCounts.size();
+      if (channel != null && fileRecords > 2 * liveRecords) {
+        compact();
+      }
+    } catch (IOException | RuntimeException ex) {
+      LOG.error("Can't compact {}", file, ex);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void compact() throws IOException {
+    long startTime = System.currentTimeMillis();
+    long previousRecords = fileRecords;
+    Path compactedFile = file.resolveSibling(file.getFileName() + ".compacted");
+    try (FileChannel compactedChannel = FileChannel.open(compactedFile, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      for (Entry<String, Set<String>> relatedResources : relatedResourcesByParentPath.entrySet()) {
+        compactedChannel.write(ByteBuffer.wrap(encodeRelatedResources(relatedResources.getKey(), relatedResources.getValue())));
+      }
+      for (Entry<String, Long> referenceCount : referenceCounts.entrySet()) {
+        compactedChannel.write(ByteBuffer.wrap(encodeReferenceCount(referenceCount.getKey(), referenceCount.getValue())));
+      }
+      compactedChannel.force(true);
+    }
+    channel.close();
+    try {
+      Files.move(compactedFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      fileRecords = (long) relatedResourcesByParentPath.size() + referenceCounts.size();
+    } finally {
+      // the file is opened again even if it wasn't replaced, so that the following commits still append to it;
+      // if it can't be opened, commits fail until it's opened by the next compaction check
+      channel = null;
+      channel = openForAppending(file);
+    }
+    LOG.info("Compacted {} from {} to {} records in {} ms", file, previousRecords, fileRecords,
+        System.currentTimeMillis() - startTime);
+  }
+
+  private static FileChannel openForAppending(Path path) throws IOException {
+    FileChannel openedChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    openedChannel.position(openedChannel.size());
+    return openedChannel;
+  }
+
+  private final class FileConnection implements Connection {
+
+    // changes made by this connection; an empty set removes the related resources of a parent resource
+    private final Map<String, Set<String>> relatedResourcesChanges = new LinkedHashMap<>();
+    private final Map<String, Long> referenceCountChanges = new LinkedHashMap<>();
+    private boolean writing;
+
+    @Override
+    public Map<String, Set<ResourceInfo>> getRelatedResources(List<ResourceInfo> parentResources) {
+      Map<String, Set<ResourceInfo>> result = new LinkedHashMap<>();
+      for (ResourceInfo parentResource : parentResources) {
+        Set<String> relatedResources = getRelatedResources(parentResource.getPath());
+        result.put(parentResource.getPath(), SetUtils.mapToLinkedHashSet(relatedResources, ResourceInfo::new));
+      }
+      return result;
+    }
+
+    @Override
+    public boolean wasPublished(ResourceInfo relatedResource) {
+      return getReferenceCount(relatedResource.getPath()) != REMOVED;
+    }
+
+    @Override
+    public Map<String, Set<ResourceInfo>> updateRelatedResources(Map<String, Set<ResourceInfo>> relatedResourcesByParentPath) {
+      beginWriting();
+      Map<String, Set<ResourceInfo>> disappearedRelatedResources = new LinkedHashMap<>();
+      for (Entry<String, Set<ResourceInfo>> relatedResourcesForParentPath : relatedResourcesByParentPath.entrySet()) {
+        String parentResourcePath = relatedResourcesForParentPath.getKey();
+        Set<String> previousRelatedResources = getRelatedResources(parentResourcePath);
+        Set<String> relatedResources = SetUtils.mapToLinkedHashSet(relatedResourcesForParentPath.getValue(), ResourceInfo::getPath);
+        for (String relatedResource : relatedResources) {
+          if (!previousRelatedResources.contains(relatedResource)) {
+            referenceCountChanges.put(relatedResource, Math.max(0, getReferenceCount(relatedResource)) + 1);
+          }
+        }
+        Set<String> disappeared = new LinkedHashSet<>(previousRelatedResources);
+        disappeared.removeAll(relatedResources);
+        for (String relatedResource : disappeared) {
+          removeReference(relatedResource, parentResourcePath);
+        }
+        relatedResourcesChanges.put(parentResourcePath, relatedResources);
+        if (!disappeared.isEmpty()) {
+          disappearedRelatedResources.put(parentResourcePath, SetUtils.mapToLinkedHashSet(disappeared, ResourceInfo::new));
+        }
+      }
+      return disappearedRelatedResources;
+    }
+
+    @Override
+    public void removeRelatedResources(List<ResourceInfo> parentResources) {
+      beginWriting();
+      for (ResourceInfo parentResource : parentResources) {
+        String parentResourcePath = parentResource.getPath();
+        for (String relatedResource : getRelatedResources(parentResourcePath)) {
+          removeReference(relatedResource, parentResourcePath);
+        }
+        relatedResourcesChanges.put(parentResourcePath, Set.of());
+      }
+    }
+
+    @Override
+    public boolean isOrphaned(ResourceInfo relatedResource) {
+      if (!singleInstance) {
+        if (!orphansDetectionWarned.getAndSet(true)) {
+          LOG.warn("Orphaned related resources are not detected, since the published resources store is not configured "
+              + "as used by a single instance");
+        }
+        return false;
+      }
+      return getReferenceCount(relatedResource.getPath()) == 0;
+    }
+
+    @Override
+    public void removeOrphaned(Set<ResourceInfo> relatedResources) {
+      beginWriting();
+      for (ResourceInfo relatedResource : relatedResources) {
+        referenceCountChanges.put(relatedResource.getPath(), REMOVED);
+      }
+    }
+
+    private void removeReference(String relatedResource, String parentResourcePath) {
+      long referenceCount = getReferenceCount(relatedResource);
+      if (InternalResourceDetector.isInternalResource(relatedResource, parentResourcePath)) {
+        referenceCountChanges.put(relatedResource, REMOVED);
+      } else if (referenceCount != REMOVED) {
+        referenceCountChanges.put(relatedResource, Math.max(0, referenceCount - 1));
+      }
+    }
+
+    private Set<String> getRelatedResources(String parentResourcePath) {
+      Set<String> changedRelatedResources = relatedResourcesChanges.get(parentResourcePath);
+      if (changedRelatedResources != null) {
+        return changedRelatedResources;
+      }
+      return relatedResourcesByParentPath.getOrDefault(parentResourcePath, Set.of());
+    }
+
+    private long getReferenceCount(String relatedResource) {
+      Long changedReferenceCount = referenceCountChanges.get(relatedResource);
+      if (changedReferenceCount != null) {
+        return changedReferenceCount;
+      }
+      return referenceCounts.getOrDefault(relatedResource, REMOVED);
+    }
+
+    private void beginWriting() {
+      if (!writing) {
+        writeLock.lock();
+        writing = true;
+      }
+    }
+
+    @Override
+    public boolean commit() throws PublishedResourcesStoreException {
+      if (!writing) {
+        return true;
+      }
+      try {
+        if (channel == null) {
+          throw new PublishedResourcesStoreException("Published resources store is not active");
+        }
+        List<byte[]> records = new ArrayList<>(relatedResourcesChanges.size() + referenceCountChanges.size());
+        for (Entry<String, Set<String>> change : relatedResourcesChanges.entrySet()) {
+          records.add(encodeRelatedResources(change.getKey(), change.getValue()));
+        }
+        for (Entry<String, Long> change : referenceCountChanges.entrySet()) {
+          records.add(encodeReferenceCount(change.getKey(), change.getValue()));
+        }
+        append(records);
+        relatedResourcesChanges.forEach(FilePublishedResourcesStore.this::putRelatedResources);
+        referenceCountChanges.forEach(FilePublishedResourcesStore.this::putReferenceCount);
+        return true;
+      } catch (IOException ex) {
+        throw new PublishedResourcesStoreException("Can't write published related resources to " + file, ex);
+      } finally {
+        rollback();
+      }
+    }
+
+    @Override
+    public void rollback() {
+      relatedResourcesChanges.clear();
+      referenceCountChanges.clear();
+      if (writing) {
+        writing = false;
+        writeLock.unlock();
+      }
+    }
+
+    @Override
+    public void close() {
+      rollback();
+    }
+  }
+}
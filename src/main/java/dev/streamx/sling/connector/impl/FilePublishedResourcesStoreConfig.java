@@ -0,0 +1,50 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link FilePublishedResourcesStore}.
+ * This interface defines where the published related resources are tracked, how often the file is compacted and whether
+ * orphaned related resources are detected.
+ */
+@ObjectClassDefinition(name = "StreamX file published resources store config")
+public @interface FilePublishedResourcesStoreConfig {
+
+  /**
+   * Returns the path of the file in which the published related resources are tracked.
+   *
+   * @return the path of the file, or an empty string to use the default one
+   */
+  @AttributeDefinition(name = "File path", description = "The path of the file in which the published related resources "
+      + "are tracked. If empty, streamx/published-resources.log in the Sling home directory is used. "
+      + "The file must not be shared by instances.")
+  String file_path() default "";
+
+  /**
+   * Returns true if the store is used by a single instance, that doesn't share its repository with other instances.
+   *
+   * @return true if orphaned related resources are detected
+   */
+  @AttributeDefinition(name = "Single instance", description = "Confirms that the instance doesn't share its repository "
+      + "with other instances of a cluster. The file is local to the instance, so on a clustered author it tracks only "
+      + "the resources published by the ingestion trigger jobs processed on this instance, and a related resource shared "
+      + "with resources published on other instances would be seen as orphaned. Orphaned related resources are detected, "
+      + "and unpublished if enabled in IngestionTriggerJobExecutor, only if this is set.")
+  boolean single_instance() default false;
+
+  /**
+   * The default interval of checking if the file should be compacted.
+   */
+  int DEFAULT_COMPACTION_INTERVAL_SECONDS = 600;
+
+  /**
+   * Returns the interval, in seconds, of checking if the file should be compacted.
+   *
+   * @return the interval of checking if the file should be compacted
+   */
+  @AttributeDefinition(name = "Compaction interval", description = "The interval, in seconds, of checking if the file "
+      + "should be compacted. The file is compacted when most of its records are outdated.")
+  int compaction_interval_seconds() default DEFAULT_COMPACTION_INTERVAL_SECONDS;
+
+}
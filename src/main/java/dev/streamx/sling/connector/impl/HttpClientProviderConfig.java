@@ -77,6 +77,17 @@ public @interface HttpClientProviderConfig {
       + "connections per route")
   int max_per_route() default DEFAULT_MAX_PER_ROUTE_CONNECTIONS;
 
+  /**
+   * Method that returns the maximum numbers of concurrent connections of specific routes, that override
+   * {@link #max_per_route()}.
+   *
+   * @return entries in the {@code <scheme>://<host>:<port>=<max>} format
+   */
+  @AttributeDefinition(name = "Max per route overrides", description = "The maximum numbers of concurrent "
+      + "connections of specific routes, in the <scheme>://<host>:<port>=<max> format, for example "
+      + "https://streamx.example.com:443=40. The port can be omitted for the default port of the scheme.")
+  String[] max_per_route_overrides() default {};
+
   /**
    * Method that returns an int that contains the time in seconds to establish the connection with
    * the remote host.
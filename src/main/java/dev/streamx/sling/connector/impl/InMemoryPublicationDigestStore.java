@@ -0,0 +1,67 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.PublicationDigestStore;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.Designate;
+
+/**
+ * {@link PublicationDigestStore} that keeps a limited number of the most recently used digests in memory.
+ * The digests are lost on restart, so unchanged publish data is sent again once after it.
+ * The store is active only if it's configured.
+ */
+@Component(service = PublicationDigestStore.class, configurationPolicy = ConfigurationPolicy.REQUIRE)
+@Designate(ocd = InMemoryPublicationDigestStoreConfig.class)
+public class InMemoryPublicationDigestStore implements PublicationDigestStore {
+
+  // key: client name, channel and key of the publish data; iterated from the least recently used entry
+  private final Map<List<String>, String> digests = new LinkedHashMap<>(16, 0.75f, true);
+  private int maxEntries;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public InMemoryPublicationDigestStore() {
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private synchronized void configure(InMemoryPublicationDigestStoreConfig config) {
+    maxEntries = Math.max(0, config.max_entries());
+    evictExceedingDigests();
+  }
+
+  @Override
+  public synchronized String getDigest(String clientName, String channel, String key) {
+    return digests.get(List.of(clientName, channel, key));
+  }
+
+  @Override
+  public synchronized void putDigest(String clientName, String channel, String key, String digest) {
+    digests.put(List.of(clientName, channel, key), digest);
+    evictExceedingDigests();
+  }
+
+  @Override
+  public synchronized void removeDigest(String clientName, String channel, String key) {
+    digests.remove(List.of(clientName, channel, key));
+  }
+
+  private void evictExceedingDigests() {
+    Iterator<String> iterator = digests.values().iterator();
+    while (digests.size() > maxEntries && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+}
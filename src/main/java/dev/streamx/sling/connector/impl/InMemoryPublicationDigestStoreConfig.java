@@ -0,0 +1,27 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link InMemoryPublicationDigestStore}.
+ * This interface defines how many digests of the sent publish data are kept in memory.
+ */
+@ObjectClassDefinition(name = "StreamX in-memory publication digest store config")
+public @interface InMemoryPublicationDigestStoreConfig {
+
+  /**
+   * The default maximal number of digests kept in memory.
+   */
+  int DEFAULT_MAX_ENTRIES = 100_000;
+
+  /**
+   * Returns the maximal number of digests kept in memory.
+   *
+   * @return the maximal number of digests kept in memory
+   */
+  @AttributeDefinition(name = "Max entries", description = "The maximal number of digests of the sent publish data "
+      + "that are kept in memory. The least recently used digests are evicted when the number is exceeded.")
+  int max_entries() default DEFAULT_MAX_ENTRIES;
+
+}
@@ -2,31 +2,39 @@ package dev.streamx.sling.connector.impl;
 
 import dev.streamx.sling.connector.PublicationAction;
 import dev.streamx.sling.connector.PublicationHandler;
+import dev.streamx.sling.connector.PublishedResourcesStore;
+import dev.streamx.sling.connector.PublishedResourcesStoreException;
 import dev.streamx.sling.connector.RelatedResourcesSelector;
 import dev.streamx.sling.connector.ResourceInfo;
-import java.util.Collection;
+import dev.streamx.sling.connector.impl.PublicationJobBatches.Batch;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import javax.jcr.RepositoryException;
-import javax.jcr.Session;
-import org.apache.sling.api.resource.LoginException;
-import org.apache.sling.api.resource.ResourceResolver;
-import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.JobManager;
-import org.apache.sling.event.jobs.JobManager.QueryType;
 import org.apache.sling.event.jobs.consumer.JobExecutionContext;
 import org.apache.sling.event.jobs.consumer.JobExecutionResult;
 import org.apache.sling.event.jobs.consumer.JobExecutor;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.Designate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,12 +46,13 @@ import org.slf4j.LoggerFactory;
     property = JobExecutor.PROPERTY_TOPICS + "=" + IngestionTriggerJobExecutor.JOB_TOPIC,
     immediate = true
 )
+@Designate(ocd = IngestionTriggerJobExecutorConfig.class)
 public class IngestionTriggerJobExecutor implements JobExecutor {
 
   static final String JOB_TOPIC = "dev/streamx/ingestion-trigger";
 
-  private static final int FIND_JOBS_LIMIT = 1;
   private static final Logger LOG = LoggerFactory.getLogger(IngestionTriggerJobExecutor.class);
+  private static final int MAX_COMMIT_ATTEMPTS = 3;
 
   @Reference
   private JobManager jobManager;
@@ -58,7 +67,17 @@ public class IngestionTriggerJobExecutor implements JobExecutor {
   private StreamxClientStore streamxClientStore;
 
   @Reference
-  private ResourceResolverFactory resourceResolverFactory;
+  private PendingPublicationJobsIndex pendingPublicationJobsIndex;
+
+  @Reference(policyOption = ReferencePolicyOption.GREEDY)
+  private PublishedResourcesStore publishedResourcesStore;
+
+  private int publicationBatchMaxSize;
+  private boolean publicationFanOut;
+  private boolean unpublishOrphanedRelatedResources;
+  private int relatedResourcesSaveBatchSize;
+  private int relatedResourcesDiscoveryThreads;
+  private volatile ExecutorService relatedResourcesDiscoveryExecutor;
 
   /**
    * Constructs an instance of this class.
@@ -66,6 +85,47 @@ public class IngestionTriggerJobExecutor implements JobExecutor {
   public IngestionTriggerJobExecutor() {
   }
 
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private void configure(IngestionTriggerJobExecutorConfig config) {
+    this.publicationBatchMaxSize = Math.max(1, config.publication_batch_max_size());
+    this.publicationFanOut = config.publication_fan$_$out();
+    this.unpublishOrphanedRelatedResources = config.unpublish_orphaned_related_resources();
+    this.relatedResourcesSaveBatchSize = Math.max(1, config.related_resources_save_batch_size());
+    int discoveryThreads = Math.max(1, config.related_resources_discovery_threads());
+    if (discoveryThreads != relatedResourcesDiscoveryThreads) {
+      relatedResourcesDiscoveryThreads = discoveryThreads;
+      ExecutorService previousExecutor = relatedResourcesDiscoveryExecutor;
+      relatedResourcesDiscoveryExecutor = discoveryThreads > 1 ? createDiscoveryExecutor(discoveryThreads) : null;
+      if (previousExecutor != null) {
+        previousExecutor.shutdown();
+      }
+    }
+  }
+
+  @Deactivate
+  private void deactivate() {
+    ExecutorService executor = relatedResourcesDiscoveryExecutor;
+    relatedResourcesDiscoveryExecutor = null;
+    relatedResourcesDiscoveryThreads = 0;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ExecutorService createDiscoveryExecutor(int threads) {
+    AtomicInteger threadNumber = new AtomicInteger();
+    return Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "streamx-related-resources-discovery-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
   /**
    * Submits publication jobs for resources described by properties of the input job
    */
@@ -84,90 +144,242 @@ public class IngestionTriggerJobExecutor implements JobExecutor {
     }
 
     if (!resources.isEmpty()) {
-      try (ResourceResolver resourceResolver = resourceResolverFactory.getAdministrativeResourceResolver( null)) {
-        submitPublicationJobsForMainResources(action, resources);
-        submitPublicationJobsForRelatedResources(action, resources, resourceResolver);
+      try {
+        PublicationJobBatches batches = new PublicationJobBatches(publicationBatchMaxSize);
+        submitPublicationJobsForMainResources(action, resources, batches);
+        submitPublicationJobsForRelatedResources(action, resources, batches);
       } catch (PublicationJobSubmitException exception) {
         LOG.error("Error while submitting {} job", action, exception);
         return jobExecutionContext.result().message("Error while processing job: " + exception.getMessage()).failed();
-      } catch (LoginException | RepositoryException ex) {
-        LOG.error("Error updating JCR state for related resources", ex);
+      } catch (PublishedResourcesStoreException ex) {
+        LOG.error("Error updating the published resources store for related resources", ex);
       }
     }
     return jobExecutionContext.result().succeeded();
   }
 
-  private void submitPublicationJobsForMainResources(PublicationAction action, List<ResourceInfo> resources) throws PublicationJobSubmitException {
+  private void submitPublicationJobsForMainResources(PublicationAction action, List<ResourceInfo> resources,
+      PublicationJobBatches batches) throws PublicationJobSubmitException {
     try {
       for (ResourceInfo resource : resources) {
-        submitPublicationJobs(resource, action);
+        submitPublicationJobs(resource, action, batches);
       }
+      submitPublicationBatchJobs(batches.drain());
     } catch (Exception e) {
       throw new PublicationJobSubmitException("Can't submit " + action + " jobs for resources. " + e.getMessage(), e);
     }
   }
 
-  private void submitPublicationJobsForRelatedResources(PublicationAction action, List<ResourceInfo> resources, ResourceResolver resourceResolver)
-      throws RepositoryException, PublicationJobSubmitException {
+  private void submitPublicationJobsForRelatedResources(PublicationAction action, List<ResourceInfo> resources,
+      PublicationJobBatches batches) throws PublishedResourcesStoreException, PublicationJobSubmitException {
     List<RelatedResourcesSelector> relatedResourcesSelectors = relatedResourcesSelectorRegistry.getSelectors();
     if (relatedResourcesSelectors.isEmpty()) {
       return;
     }
 
-    try {
-      Map<String, Set<ResourceInfo>> relatedResourcesMap = findRelatedResources(resources, relatedResourcesSelectors);
-      Session session = Objects.requireNonNull(resourceResolver.adaptTo(Session.class));
+    try (PublishedResourcesStore.Connection connection = publishedResourcesStore.open()) {
+      // resources being unpublished are not rendered, their related resources were recorded when they were published
+      Map<String, Set<ResourceInfo>> relatedResourcesMap = action == PublicationAction.UNPUBLISH
+          ? findPublishedRelatedResources(resources, connection)
+          : findRelatedResources(resources, relatedResourcesSelectors);
+      // data of the parent resources for which related resources could not be found is left untouched
+      List<ResourceInfo> processedResources = resources.stream()
+          .filter(resource -> relatedResourcesMap.containsKey(resource.getPath()))
+          .collect(Collectors.toList());
       if (action == PublicationAction.PUBLISH) {
         Set<ResourceInfo> distinctRelatedResources = SetUtils.flattenToLinkedHashSet(relatedResourcesMap.values());
-        submitPublishJobsForRelatedResources(distinctRelatedResources, session);
-        Map<String, Set<ResourceInfo>> disappearedRelatedResources = PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(relatedResourcesMap, session);
-        if (!disappearedRelatedResources.isEmpty()) {
-          LOG.trace("Detected the following disappeared related resources for parent resources: {}", disappearedRelatedResources);
-          submitUnpublishJobsForRelatedResources(disappearedRelatedResources);
+        submitPublishJobsForRelatedResources(distinctRelatedResources, connection, batches);
+        Map<String, Set<ResourceInfo>> disappearedRelatedResources = new LinkedHashMap<>();
+        for (List<ResourceInfo> parentResources : partition(processedResources, relatedResourcesSaveBatchSize)) {
+          disappearedRelatedResources.putAll(applyAndCommit(connection, MAX_COMMIT_ATTEMPTS,
+              () -> updateRelatedResources(parentResources, relatedResourcesMap, connection, batches)));
         }
+        submitUnpublishJobsForOrphanedRelatedResources(disappearedRelatedResources, connection, batches);
       } else if (action == PublicationAction.UNPUBLISH) {
-        submitUnpublishJobsForRelatedResources(relatedResourcesMap);
-        PublishedRelatedResourcesTreeManager.removePublishedResourcesData(resources, session);
-      }
-      if (session.hasPendingChanges()) {
-        session.save();
+        for (List<ResourceInfo> parentResources : partition(processedResources, relatedResourcesSaveBatchSize)) {
+          applyAndCommit(connection, MAX_COMMIT_ATTEMPTS,
+              () -> removeRelatedResources(parentResources, relatedResourcesMap, connection, batches));
+        }
+        submitUnpublishJobsForOrphanedRelatedResources(relatedResourcesMap, connection, batches);
       }
-    } catch (RepositoryException ex) {
+      submitPublicationBatchJobs(batches.drain());
+    } catch (PublishedResourcesStoreException ex) {
       throw ex;
     } catch (Exception e) {
       throw new PublicationJobSubmitException("Can't submit " + action + " jobs for related resources. " + e.getMessage(), e);
     }
   }
 
+  /**
+   * Updates the related resources of a batch of parent resources in the store and submits the unpublish jobs for their
+   * related resources that have disappeared. The jobs are submitted before the changes are committed, so that the store
+   * is left unchanged if they can't be submitted.
+   */
+  private Map<String, Set<ResourceInfo>> updateRelatedResources(List<ResourceInfo> parentResources,
+      Map<String, Set<ResourceInfo>> relatedResourcesMap, PublishedResourcesStore.Connection connection,
+      PublicationJobBatches batches) throws PublishedResourcesStoreException, JobCreationException {
+    Map<String, Set<ResourceInfo>> disappearedRelatedResources = connection.updateRelatedResources(
+        selectRelatedResources(parentResources, relatedResourcesMap));
+    if (!disappearedRelatedResources.isEmpty()) {
+      LOG.trace("Detected the following disappeared related resources for parent resources: {}", disappearedRelatedResources);
+      submitUnpublishJobsForRelatedResources(disappearedRelatedResources, batches);
+    }
+    submitPublicationBatchJobs(batches.drain());
+    return disappearedRelatedResources;
+  }
+
+  /**
+   * Removes the related resources of a batch of parent resources from the store, after submitting the unpublish jobs
+   * for them.
+   */
+  private Void removeRelatedResources(List<ResourceInfo> parentResources, Map<String, Set<ResourceInfo>> relatedResourcesMap,
+      PublishedResourcesStore.Connection connection, PublicationJobBatches batches)
+      throws PublishedResourcesStoreException, JobCreationException {
+    submitUnpublishJobsForRelatedResources(selectRelatedResources(parentResources, relatedResourcesMap), batches);
+    submitPublicationBatchJobs(batches.drain());
+    connection.removeRelatedResources(parentResources);
+    return null;
+  }
+
+  private static Map<String, Set<ResourceInfo>> selectRelatedResources(List<ResourceInfo> parentResources,
+      Map<String, Set<ResourceInfo>> relatedResourcesMap) {
+    Map<String, Set<ResourceInfo>> result = new LinkedHashMap<>();
+    for (ResourceInfo parentResource : parentResources) {
+      result.put(parentResource.getPath(), relatedResourcesMap.get(parentResource.getPath()));
+    }
+    return result;
+  }
+
+  /**
+   * Applies the change with the connection and commits it. If the change conflicts with changes committed by another
+   * connection in the meantime, it's applied again, at most {@code maxAttempts} times in total. The change must
+   * therefore be computed from the current state of the store every time it's applied.
+   *
+   * @return the result of the change applied in the successful attempt
+   */
+  static <T, E extends Exception> T applyAndCommit(PublishedResourcesStore.Connection connection, int maxAttempts,
+      Change<T, E> change) throws PublishedResourcesStoreException, E {
+    for (int attempt = 1; ; attempt++) {
+      T result;
+      try {
+        result = change.apply();
+      } catch (Exception ex) {
+        connection.rollback();
+        throw ex;
+      }
+      if (connection.commit()) {
+        return result;
+      }
+      if (attempt >= maxAttempts) {
+        throw new PublishedResourcesStoreException("Changes of published related resources still conflict with changes "
+            + "committed in the meantime after " + attempt + " attempts");
+      }
+      LOG.debug("Changes of published related resources conflict with changes committed in the meantime, applying them again");
+    }
+  }
+
+  @FunctionalInterface
+  interface Change<T, E extends Exception> {
+
+    T apply() throws PublishedResourcesStoreException, E;
+  }
+
+  private static <T> List<List<T>> partition(List<T> items, int size) {
+    List<List<T>> partitions = new ArrayList<>();
+    for (int from = 0; from < items.size(); from += size) {
+      partitions.add(items.subList(from, Math.min(from + size, items.size())));
+    }
+    return partitions;
+  }
+
+  private static Map<String, Set<ResourceInfo>> findPublishedRelatedResources(List<ResourceInfo> parentResources,
+      PublishedResourcesStore.Connection connection) throws PublishedResourcesStoreException {
+    LOG.trace("Reading published related resources of parent resources {}", parentResources);
+    Set<String> parentResourcesPaths = SetUtils.mapToLinkedHashSet(parentResources, ResourceInfo::getPath);
+    Map<String, Set<ResourceInfo>> result = connection.getRelatedResources(parentResources);
+    for (Set<ResourceInfo> relatedResources : result.values()) {
+      relatedResources.removeIf(relatedResource -> parentResourcesPaths.contains(relatedResource.getPath()));
+    }
+    return result;
+  }
+
+  /**
+   * Finds related resources of each parent resource, in parallel if more than one discovery thread is configured.
+   * The result is ordered the same way as the parent resources. Parent resources for which any of the selectors
+   * failed are logged and left out of the result, so that they don't prevent processing of the other ones.
+   */
   private Map<String, Set<ResourceInfo>> findRelatedResources(List<ResourceInfo> parentResources, List<RelatedResourcesSelector> relatedResourcesSelectors) {
     LOG.trace("Searching for related resources of parent resources {}", parentResources);
     Set<String> parentResourcesPaths = SetUtils.mapToLinkedHashSet(parentResources, ResourceInfo::getPath);
 
-    Map<String, Set<ResourceInfo>> result = new LinkedHashMap<>();
+    ExecutorService executor = relatedResourcesDiscoveryExecutor;
+    List<CompletableFuture<Set<ResourceInfo>>> relatedResourcesFutures = new ArrayList<>(parentResources.size());
     for (ResourceInfo parentResource : parentResources) {
-      Set<ResourceInfo> relatedResources = new LinkedHashSet<>();
-      for (RelatedResourcesSelector selector : relatedResourcesSelectors) {
-        relatedResources.addAll(selector.getRelatedResources(parentResource));
+      relatedResourcesFutures.add(parentResources.size() > 1
+          ? findRelatedResourcesAsync(parentResource, relatedResourcesSelectors, executor)
+          : findRelatedResourcesSync(parentResource, relatedResourcesSelectors));
+    }
+
+    Map<String, Set<ResourceInfo>> result = new LinkedHashMap<>();
+    for (int i = 0; i < parentResources.size(); i++) {
+      String parentResourcePath = parentResources.get(i).getPath();
+      try {
+        Set<ResourceInfo> relatedResources = relatedResourcesFutures.get(i).join();
+        relatedResources.removeIf(relatedResource -> parentResourcesPaths.contains(relatedResource.getPath()));
+        result.put(parentResourcePath, relatedResources);
+      } catch (CompletionException ex) {
+        LOG.error("Error while searching for related resources of {}, they will not be processed", parentResourcePath, ex.getCause());
       }
-      relatedResources.removeIf(relatedResource -> parentResourcesPaths.contains(relatedResource.getPath()));
-      result.put(parentResource.getPath(), relatedResources);
     }
     return result;
   }
 
-  private void submitPublishJobsForRelatedResources(Set<ResourceInfo> relatedResources, Session session) throws JobCreationException {
+  private static CompletableFuture<Set<ResourceInfo>> findRelatedResourcesAsync(ResourceInfo parentResource,
+      List<RelatedResourcesSelector> relatedResourcesSelectors, ExecutorService executor) {
+    if (executor == null) {
+      return findRelatedResourcesSync(parentResource, relatedResourcesSelectors);
+    }
+    try {
+      return CompletableFuture.supplyAsync(() -> findRelatedResources(parentResource, relatedResourcesSelectors), executor);
+    } catch (RejectedExecutionException ex) {
+      // the executor was replaced by a configuration change in the meantime
+      return findRelatedResourcesSync(parentResource, relatedResourcesSelectors);
+    }
+  }
+
+  private static CompletableFuture<Set<ResourceInfo>> findRelatedResourcesSync(ResourceInfo parentResource,
+      List<RelatedResourcesSelector> relatedResourcesSelectors) {
+    try {
+      return CompletableFuture.completedFuture(findRelatedResources(parentResource, relatedResourcesSelectors));
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+  }
+
+  private static Set<ResourceInfo> findRelatedResources(ResourceInfo parentResource,
+      List<RelatedResourcesSelector> relatedResourcesSelectors) {
+    Set<ResourceInfo> relatedResources = new LinkedHashSet<>();
+    for (RelatedResourcesSelector selector : relatedResourcesSelectors) {
+      relatedResources.addAll(selector.getRelatedResources(parentResource));
+    }
+    return relatedResources;
+  }
+
+  private void submitPublishJobsForRelatedResources(Set<ResourceInfo> relatedResources, PublishedResourcesStore.Connection connection,
+      PublicationJobBatches batches) throws PublishedResourcesStoreException, JobCreationException {
     final PublicationAction action = PublicationAction.PUBLISH;
 
     for (ResourceInfo relatedResource : relatedResources) {
-      if (PublishedRelatedResourcesTreeManager.wasPublished(relatedResource, session)) {
+      if (connection.wasPublished(relatedResource)) {
         LOG.trace("Skipping submitting {} jobs for related resource {} because it is marked as already published", action, relatedResource);
       } else {
-        submitPublicationJobs(relatedResource, action);
+        submitPublicationJobs(relatedResource, action, batches);
       }
     }
   }
 
-  private void submitUnpublishJobsForRelatedResources(Map<String, Set<ResourceInfo>> relatedResourcesMap) throws JobCreationException {
+  private void submitUnpublishJobsForRelatedResources(Map<String, Set<ResourceInfo>> relatedResourcesMap,
+      PublicationJobBatches batches) throws JobCreationException {
     Set<ResourceInfo> relatedResourcesToUnpublish = new LinkedHashSet<>();
     for (Entry<String, Set<ResourceInfo>> relatedResourcesForParentPath : relatedResourcesMap.entrySet()) {
       String parentResourcePath = relatedResourcesForParentPath.getKey();
@@ -178,31 +390,129 @@ public class IngestionTriggerJobExecutor implements JobExecutor {
       }
     }
     for (ResourceInfo relatedResource : relatedResourcesToUnpublish) {
-      submitPublicationJobs(relatedResource, PublicationAction.UNPUBLISH);
+      submitPublicationJobs(relatedResource, PublicationAction.UNPUBLISH, batches);
+    }
+  }
+
+  /**
+   * Submits unpublish jobs for the shared related resources of the map that are no longer referenced by any parent resource,
+   * if enabled in the configuration. Must be called after the related resources of the parent resources are committed.
+   */
+  private void submitUnpublishJobsForOrphanedRelatedResources(Map<String, Set<ResourceInfo>> relatedResourcesMap,
+      PublishedResourcesStore.Connection connection, PublicationJobBatches batches)
+      throws PublishedResourcesStoreException, JobCreationException {
+    if (!unpublishOrphanedRelatedResources) {
+      return;
     }
+    applyAndCommit(connection, MAX_COMMIT_ATTEMPTS, () -> {
+      Set<ResourceInfo> orphanedRelatedResources = findOrphanedRelatedResources(relatedResourcesMap, connection);
+      if (!orphanedRelatedResources.isEmpty()) {
+        LOG.trace("Detected the following orphaned related resources: {}", orphanedRelatedResources);
+      }
+      for (ResourceInfo relatedResource : orphanedRelatedResources) {
+        submitPublicationJobs(relatedResource, PublicationAction.UNPUBLISH, batches);
+      }
+      submitPublicationBatchJobs(batches.drain());
+      connection.removeOrphaned(orphanedRelatedResources);
+      return null;
+    });
   }
 
-  private void submitPublicationJobs(ResourceInfo resource, PublicationAction action) throws JobCreationException {
+  private static Set<ResourceInfo> findOrphanedRelatedResources(Map<String, Set<ResourceInfo>> relatedResourcesMap,
+      PublishedResourcesStore.Connection connection) throws PublishedResourcesStoreException {
+    Set<ResourceInfo> orphanedRelatedResources = new LinkedHashSet<>();
+    for (Entry<String, Set<ResourceInfo>> relatedResourcesForParentPath : relatedResourcesMap.entrySet()) {
+      String parentResourcePath = relatedResourcesForParentPath.getKey();
+      for (ResourceInfo relatedResource : relatedResourcesForParentPath.getValue()) {
+        if (!InternalResourceDetector.isInternalResource(relatedResource.getPath(), parentResourcePath)
+            && connection.isOrphaned(relatedResource)) {
+          orphanedRelatedResources.add(relatedResource);
+        }
+      }
+    }
+    return orphanedRelatedResources;
+  }
+
+  private void submitPublicationJobs(ResourceInfo resource, PublicationAction action,
+      PublicationJobBatches batches) throws JobCreationException {
     LOG.trace("Attempting to submit {} jobs for resource {} for matching handlers and clients", action, resource);
+    List<String> clientNames = streamxClientStore.getForResource(resource).stream()
+        .map(StreamxInstanceClient::getName)
+        .collect(Collectors.toList());
     for (PublicationHandler<?> handler : publicationHandlerRegistry.getForResource(resource)) {
-      for (StreamxInstanceClient client : streamxClientStore.getForResource(resource)) {
-        submitPublicationJob(handler.getId(), action, resource, client.getName());
+      if (publicationFanOut && clientNames.size() > 1) {
+        // the publication data of a fan-out job is created once and sent to all clients that don't have the job pending yet
+        List<String> fanOutClientNames = clientNames.stream()
+            .filter(clientName -> !pendingPublicationJobsIndex.isPending(handler.getId(), clientName, action, resource.getPath()))
+            .collect(Collectors.toList());
+        if (!fanOutClientNames.isEmpty()) {
+          addToBatch(handler.getId(), fanOutClientNames, action, resource, batches);
+        }
+      } else {
+        for (String clientName : clientNames) {
+          addToBatch(handler.getId(), List.of(clientName), action, resource, batches);
+        }
       }
     }
   }
 
+  private void addToBatch(String handlerId, List<String> clientNames, PublicationAction action, ResourceInfo resource,
+      PublicationJobBatches batches) throws JobCreationException {
+    Optional<Batch> fullBatch = batches.add(handlerId, clientNames, action, resource);
+    if (fullBatch.isPresent()) {
+      submitPublicationBatchJob(fullBatch.get());
+    }
+  }
+
+  private void submitPublicationBatchJobs(List<Batch> batches) throws JobCreationException {
+    for (Batch batch : batches) {
+      submitPublicationBatchJob(batch);
+    }
+  }
+
+  private void submitPublicationBatchJob(Batch batch) throws JobCreationException {
+    if (batch.getResources().size() == 1) {
+      ResourceInfo resource = batch.getResources().iterator().next();
+      submitPublicationJob(batch.getHandlerId(), batch.getAction(), resource, batch.getClientNames());
+      return;
+    }
+
+    List<ResourceInfo> resources = batch.getResources().stream()
+        .filter(resource -> !isPending(batch.getHandlerId(), batch.getClientNames(), batch.getAction(), resource.getPath()))
+        .collect(Collectors.toList());
+    if (resources.isEmpty()) {
+      LOG.info("{} jobs for resources {} with handler '{}' and clients {} are already submitted",
+          batch.getAction(), batch.getResources(), batch.getHandlerId(), batch.getClientNames());
+      return;
+    }
+
+    LOG.trace("Submitting {} batch job for resources {}, handler '{}' and clients {}",
+        batch.getAction(), resources, batch.getHandlerId(), batch.getClientNames());
+    Map<String, Object> jobProperties = new PublicationJobProperties()
+        .withHandlerId(batch.getHandlerId())
+        .withClientNames(batch.getClientNames())
+        .withAction(batch.getAction())
+        .withResources(resources)
+        .asMap();
+    Job job = jobManager.addJob(PublicationJobExecutor.JOB_TOPIC, jobProperties);
+    if (job == null) {
+      throw new JobCreationException(batch.getAction() + " batch job could not be created by JobManager for " + resources);
+    }
+    pendingPublicationJobsIndex.register(job);
+  }
+
   private void submitPublicationJob(String handlerId, PublicationAction action,
-      ResourceInfo resource, String clientName) throws JobCreationException {
-    LOG.trace("Submitting {} job for resource {}, handler '{}' and client '{}'", action, resource, handlerId, clientName);
+      ResourceInfo resource, List<String> clientNames) throws JobCreationException {
+    LOG.trace("Submitting {} job for resource {}, handler '{}' and clients {}", action, resource, handlerId, clientNames);
 
     Map<String, Object> jobProperties = new PublicationJobProperties()
         .withHandlerId(handlerId)
-        .withClientName(clientName)
+        .withClientNames(clientNames)
         .withAction(action)
         .withResource(resource)
         .asMap();
 
-    if (isPublicationJobAlreadySubmitted(jobProperties)) {
+    if (isPending(handlerId, clientNames, action, resource.getPath())) {
       LOG.info("{} job for resource {} with job properties {} is already submitted", action, resource, jobProperties);
       return;
     }
@@ -211,18 +521,12 @@ public class IngestionTriggerJobExecutor implements JobExecutor {
     if (job == null) {
       throw new JobCreationException(action + " job could not be created by JobManager for " + resource);
     }
+    pendingPublicationJobsIndex.register(job);
   }
 
-  private boolean isPublicationJobAlreadySubmitted(Map<String, Object> jobProperties) {
-    return isPublicationJobAlreadySubmitted(QueryType.ACTIVE, jobProperties)
-           ||
-           isPublicationJobAlreadySubmitted(QueryType.QUEUED, jobProperties);
-  }
-
-  private boolean isPublicationJobAlreadySubmitted(QueryType queryType, Map<String, Object> jobProperties) {
-    @SuppressWarnings("unchecked")
-    Collection<Job> foundJobs = jobManager.findJobs(queryType, PublicationJobExecutor.JOB_TOPIC, FIND_JOBS_LIMIT, jobProperties);
-    return !foundJobs.isEmpty();
+  private boolean isPending(String handlerId, List<String> clientNames, PublicationAction action, String resourcePath) {
+    return clientNames.stream()
+        .allMatch(clientName -> pendingPublicationJobsIndex.isPending(handlerId, clientName, action, resourcePath));
   }
 
   static PublicationAction extractPublicationAction(Job job) {
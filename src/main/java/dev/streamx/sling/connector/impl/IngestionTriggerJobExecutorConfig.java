@@ -0,0 +1,83 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link IngestionTriggerJobExecutor}.
+ * This interface defines how the publication jobs are submitted for the resources of an ingestion trigger job.
+ */
+@ObjectClassDefinition(name = "StreamX ingestion trigger job executor config")
+public @interface IngestionTriggerJobExecutorConfig {
+
+  /**
+   * The default maximal number of resources submitted in a single publication job.
+   */
+  int DEFAULT_PUBLICATION_BATCH_MAX_SIZE = 1;
+
+  /**
+   * Returns the maximal number of resources that share a handler and a client and are submitted in a single publication job.
+   *
+   * @return the maximal number of resources in a single publication job
+   */
+  @AttributeDefinition(name = "Publication batch max size", description =
+      "The maximal number of resources that share a publication handler and a StreamX client and are submitted in a single "
+      + "publication job. The value of 1 disables batching, so every resource is submitted in its own publication job.")
+  int publication_batch_max_size() default DEFAULT_PUBLICATION_BATCH_MAX_SIZE;
+
+  /**
+   * The default number of threads used to find related resources.
+   */
+  int DEFAULT_RELATED_RESOURCES_DISCOVERY_THREADS = 1;
+
+  /**
+   * Returns the number of threads used to find related resources of the resources of an ingestion trigger job.
+   *
+   * @return the number of threads used to find related resources
+   */
+  @AttributeDefinition(name = "Related resources discovery threads", description =
+      "The number of threads used to find related resources of the resources of an ingestion trigger job. Related resources "
+      + "of different resources are found in parallel. The value of 1 makes them found one after another, in the job's thread.")
+  int related_resources_discovery_threads() default DEFAULT_RELATED_RESOURCES_DISCOVERY_THREADS;
+
+  /**
+   * Returns true if the publication data of a resource is created once for all the StreamX clients
+   * that the resource is published to.
+   *
+   * @return true if the publication jobs fan out to multiple StreamX clients
+   */
+  @AttributeDefinition(name = "Publication fan-out", description =
+      "Indicates whether a resource that is published to multiple StreamX clients is submitted in a single publication job "
+      + "for all of them, instead of a job per client. The publication data, such as the rendered page, is then created once "
+      + "and sent to every client. Clients that fail to receive it are retried in their own publication jobs.")
+  boolean publication_fan$_$out() default false;
+
+  /**
+   * Returns true if shared related resources that are no longer referenced by any published resource are unpublished.
+   *
+   * @return true if orphaned shared related resources are unpublished
+   */
+  @AttributeDefinition(name = "Unpublish orphaned related resources", description =
+      "Indicates whether related resources shared by multiple resources, such as images of the DAM or client libraries, "
+      + "are unpublished when the last published resource that references them is unpublished or stops referencing them. "
+      + "Related resources internal to a resource are always unpublished along with it.")
+  boolean unpublish_orphaned_related_resources() default false;
+
+  /**
+   * The default number of parent resources whose related resources data is saved together.
+   */
+  int DEFAULT_RELATED_RESOURCES_SAVE_BATCH_SIZE = 100;
+
+  /**
+   * Returns the number of parent resources whose related resources data is saved together.
+   *
+   * @return the number of parent resources whose related resources data is saved together
+   */
+  @AttributeDefinition(name = "Related resources save batch size", description =
+      "The number of resources of an ingestion trigger job whose related resources data under /var/streamx/connector/sling "
+      + "is saved together. Data of large jobs is saved in multiple batches, so that it's not all kept in memory until "
+      + "the end of the job. A batch that conflicts with changes saved by another job in the meantime is applied again, "
+      + "and the batches saved before a failure are kept.")
+  int related_resources_save_batch_size() default DEFAULT_RELATED_RESOURCES_SAVE_BATCH_SIZE;
+
+}
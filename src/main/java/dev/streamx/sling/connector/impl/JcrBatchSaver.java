@@ -0,0 +1,47 @@
+package dev.streamx.sling.connector.impl;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Saves the changes of a session every given number of changes, so that a large number of changes,
+ * such as in a migration, is not kept in memory until the end.
+ */
+final class JcrBatchSaver {
+
+  private final Session session;
+  private final int batchSize;
+  private int pendingChanges;
+
+  JcrBatchSaver(Session session, int batchSize) {
+    this.session = session;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Records a change of the session, saving the session if the batch is full.
+   */
+  void changed() throws RepositoryException {
+    pendingChanges++;
+    if (pendingChanges >= batchSize) {
+      save();
+    }
+  }
+
+  /**
+   * Removes the node with the given path, if it exists, and saves all the changes.
+   */
+  void removeAndSave(String path) throws RepositoryException {
+    if (session.nodeExists(path)) {
+      session.getNode(path).remove();
+    }
+    save();
+  }
+
+  void save() throws RepositoryException {
+    if (session.hasPendingChanges()) {
+      session.save();
+    }
+    pendingChanges = 0;
+  }
+}
@@ -1,6 +1,7 @@
 package dev.streamx.sling.connector.impl;
 
 import javax.jcr.Node;
+import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import org.apache.jackrabbit.commons.JcrUtils;
@@ -17,17 +18,27 @@ final class JcrNodeHelper {
 
   /**
    * Removes the specified JCR node and recursively deletes its parent nodes if they become orphaned (childless) as a result. <br />
-   * The deletion proceeds upwards in the node hierarchy until a parent node has other children
+   * The deletion proceeds upwards in the node hierarchy until a parent node has other children or data of its own,
    * or the specified {@code basePath} is reached. The node at {@code basePath} is also removed if it becomes empty.
    */
   static void removeNodeAlongWithOrphanedParents(Node nodeToRemove, String basePath) throws RepositoryException {
     nodeToRemove = removeNodeAndReturnParent(nodeToRemove);
 
-    while (isInHierarchy(nodeToRemove, basePath) && !nodeToRemove.hasNodes()) {
+    while (isInHierarchy(nodeToRemove, basePath) && !nodeToRemove.hasNodes() && !hasOwnProperties(nodeToRemove)) {
       nodeToRemove = removeNodeAndReturnParent(nodeToRemove);
     }
   }
 
+  private static boolean hasOwnProperties(Node node) throws RepositoryException {
+    PropertyIterator properties = node.getProperties();
+    while (properties.hasNext()) {
+      if (!properties.nextProperty().getDefinition().isProtected()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static boolean isInHierarchy(Node node, String basePath) throws RepositoryException {
     String nodePath = node.getPath();
     return nodePath.startsWith(basePath + "/") || nodePath.equals(basePath);
@@ -0,0 +1,207 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.PublicationDigestStore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PublicationDigestStore} that stores the digests in the JCR, so that they survive restarts.
+ * Each digest is stored in its own node, named after the hash of the client name, channel and key of the publish
+ * data, and placed in two levels of intermediate nodes named after the first characters of that hash, so that
+ * no node gets too many children. The store is active only if it's configured.
+ * <p>
+ * The digests of the sent publish data are saved together, once per configured interval, instead of one by one.
+ * Digests that are lost by a restart before they are saved only make the publish data be sent again. The removals
+ * of digests are saved immediately, since a digest that's left after an unpublication would make the following
+ * publication of the same data be skipped. The JCR is accessed with the service user mapped to the
+ * {@code publication-digest-store} subservice of the bundle.
+ */
+@Component(service = PublicationDigestStore.class, configurationPolicy = ConfigurationPolicy.REQUIRE)
+@Designate(ocd = JcrPublicationDigestStoreConfig.class)
+public class JcrPublicationDigestStore implements PublicationDigestStore {
+
+  static final String SUBSERVICE = "publication-digest-store";
+
+  private static final Logger LOG = LoggerFactory.getLogger(JcrPublicationDigestStore.class);
+  private static final String PN_DIGEST = "digest";
+  private static final String PN_CLIENT_NAME = "clientName";
+  private static final String PN_CHANNEL = "channel";
+  private static final String PN_KEY = "key";
+
+  // key: path of the node of the digest
+  private final Map<String, PendingDigest> pendingDigests = new ConcurrentHashMap<>();
+  private final Object saveLock = new Object();
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  private volatile String basePath;
+  private volatile long saveInterval;
+  private ScheduledExecutorService saveExecutor;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public JcrPublicationDigestStore() {
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private synchronized void configure(JcrPublicationDigestStoreConfig config) {
+    deactivate();
+    basePath = config.base_path();
+    saveInterval = Math.max(0, config.save_interval());
+    if (saveInterval > 0) {
+      saveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "streamx-publication-digests-save");
+        thread.setDaemon(true);
+        return thread;
+      });
+      saveExecutor.scheduleWithFixedDelay(this::savePendingDigests, saveInterval, saveInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Deactivate
+  private synchronized void deactivate() {
+    if (saveExecutor != null) {
+      saveExecutor.shutdownNow();
+      saveExecutor = null;
+    }
+    savePendingDigests();
+  }
+
+  @Override
+  public String getDigest(String clientName, String channel, String key) {
+    String nodePath = getNodePath(clientName, channel, key);
+    PendingDigest pendingDigest = pendingDigests.get(nodePath);
+    if (pendingDigest != null) {
+      return pendingDigest.digest;
+    }
+    try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+      Session session = Objects.requireNonNull(resourceResolver.adaptTo(Session.class));
+      if (!session.nodeExists(nodePath)) {
+        return null;
+      }
+      Node node = session.getNode(nodePath);
+      return node.hasProperty(PN_DIGEST) ? node.getProperty(PN_DIGEST).getString() : null;
+    } catch (LoginException | RepositoryException ex) {
+      LOG.warn("Error reading digest of {} sent with client '{}' to channel {}", key, clientName, channel, ex);
+      return null;
+    }
+  }
+
+  @Override
+  public void putDigest(String clientName, String channel, String key, String digest) {
+    pendingDigests.put(getNodePath(clientName, channel, key), new PendingDigest(clientName, channel, key, digest));
+    if (saveInterval == 0) {
+      savePendingDigests();
+    }
+  }
+
+  @Override
+  public void removeDigest(String clientName, String channel, String key) {
+    String nodePath = getNodePath(clientName, channel, key);
+    synchronized (saveLock) {
+      pendingDigests.remove(nodePath);
+      try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+        Session session = Objects.requireNonNull(resourceResolver.adaptTo(Session.class));
+        if (session.nodeExists(nodePath)) {
+          JcrNodeHelper.removeNodeAlongWithOrphanedParents(session.getNode(nodePath), basePath);
+          session.save();
+        }
+      } catch (LoginException | RepositoryException ex) {
+        LOG.warn("Error removing digest of {} sent with client '{}' to channel {}", key, clientName, channel, ex);
+      }
+    }
+  }
+
+  /**
+   * Saves the digests that were put since the last save in a single JCR session save. Digests that are already
+   * stored are not written again. Digests that could not be saved are forgotten.
+   */
+  void savePendingDigests() {
+    synchronized (saveLock) {
+      if (pendingDigests.isEmpty()) {
+        return;
+      }
+      Map<String, PendingDigest> digestsToSave = new HashMap<>(pendingDigests);
+      try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+        Session session = Objects.requireNonNull(resourceResolver.adaptTo(Session.class));
+        for (Map.Entry<String, PendingDigest> entry : digestsToSave.entrySet()) {
+          save(entry.getKey(), entry.getValue(), session);
+        }
+        if (session.hasPendingChanges()) {
+          session.save();
+        }
+      } catch (LoginException | RepositoryException ex) {
+        LOG.warn("Error storing {} digests of sent publish data", digestsToSave.size(), ex);
+      } finally {
+        // digests put again meanwhile are saved with the next batch
+        digestsToSave.forEach(pendingDigests::remove);
+      }
+    }
+  }
+
+  private static void save(String nodePath, PendingDigest pendingDigest, Session session) throws RepositoryException {
+    if (session.nodeExists(nodePath)) {
+      Node node = session.getNode(nodePath);
+      if (node.hasProperty(PN_DIGEST) && pendingDigest.digest.equals(node.getProperty(PN_DIGEST).getString())) {
+        return;
+      }
+    }
+    Node node = JcrNodeHelper.createNode(nodePath, session);
+    node.setProperty(PN_DIGEST, pendingDigest.digest);
+    node.setProperty(PN_CLIENT_NAME, pendingDigest.clientName);
+    node.setProperty(PN_CHANNEL, pendingDigest.channel);
+    node.setProperty(PN_KEY, pendingDigest.key);
+  }
+
+  private ResourceResolver getServiceResourceResolver() throws LoginException {
+    return resourceResolverFactory.getServiceResourceResolver(Map.of(ResourceResolverFactory.SUBSERVICE, SUBSERVICE));
+  }
+
+  private String getNodePath(String clientName, String channel, String key) {
+    // the parts are separated, so that different combinations of them don't form the same text
+    String hash = PublishDataDigest.compute(clientName + '\0' + channel + '\0' + key);
+    return basePath + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+  }
+
+  private static final class PendingDigest {
+
+    private final String clientName;
+    private final String channel;
+    private final String key;
+    private final String digest;
+
+    private PendingDigest(String clientName, String channel, String key, String digest) {
+      this.clientName = clientName;
+      this.channel = channel;
+      this.key = key;
+      this.digest = digest;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link JcrPublicationDigestStore}.
+ * This interface defines where in the JCR the digests of the sent publish data are stored.
+ */
+@ObjectClassDefinition(name = "StreamX JCR publication digest store config")
+public @interface JcrPublicationDigestStoreConfig {
+
+  /**
+   * The default path of the JCR node under which the digests are stored.
+   */
+  String DEFAULT_BASE_PATH = "/var/streamx/connector/sling/publication-digests";
+
+  /**
+   * The default interval in milliseconds at which the digests of the sent publish data are saved.
+   */
+  long DEFAULT_SAVE_INTERVAL = 1000;
+
+  /**
+   * Returns the path of the JCR node under which the digests are stored.
+   *
+   * @return the path of the JCR node under which the digests are stored
+   */
+  @AttributeDefinition(name = "Base path", description = "The path of the JCR node under which the digests "
+      + "of the sent publish data are stored.")
+  String base_path() default DEFAULT_BASE_PATH;
+
+  /**
+   * Returns the interval in milliseconds at which the digests of the sent publish data are saved.
+   *
+   * @return the interval in milliseconds at which the digests are saved
+   */
+  @AttributeDefinition(name = "Save interval", description = "The interval in milliseconds at which the digests "
+      + "of the publish data sent since the last save are saved together. Digests that are not saved before "
+      + "a restart only make the publish data be sent again. Removals of digests are saved immediately. "
+      + "0 saves each digest as soon as the publish data is sent.")
+  long save_interval() default DEFAULT_SAVE_INTERVAL;
+
+}
@@ -0,0 +1,427 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.PublishedResourcesStore;
+import dev.streamx.sling.connector.PublishedResourcesStoreException;
+import dev.streamx.sling.connector.ResourceInfo;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jcr.InvalidItemStateException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link PublishedResourcesStore}, that tracks the published related resources in two trees of nodes under
+ * {@code /var/streamx/connector/sling}, managed by {@link PublishedRelatedResourcesTreeManager} and
+ * {@link PublishedRelatedResourcesInversedTreeManager}. Each connection uses its own administrative session.
+ * <p>
+ * Data stored in another layout than the configured one is migrated by a background task. Connections keep using
+ * the previous layout while the data is copied; the parent resources they change meanwhile are applied to the copy
+ * once the open connections are closed, and only then are the new connections switched to the configured layout.
+ * Orphaned related resources are not detected until the migration is finished, since their references are counted
+ * as a part of it.
+ */
+@Component(service = PublishedResourcesStore.class)
+@Designate(ocd = JcrPublishedResourcesStoreConfig.class)
+public class JcrPublishedResourcesStore implements PublishedResourcesStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JcrPublishedResourcesStore.class);
+  private static final int MAX_UNPAUSED_COUNT_ATTEMPTS = 3;
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  @Reference
+  private PublishedRelatedResourcesIndex publishedRelatedResourcesIndex;
+
+  private final Object connectionsMonitor = new Object();
+  private final Set<String> parentPathsChangedDuringMigration = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger pendingMigrations = new AtomicInteger();
+  private int openConnections;
+  private boolean connectionsPaused;
+  private volatile RelatedResourcesStorageLayout storageLayout;
+  private volatile boolean storageLayoutMigrated;
+  private volatile boolean migrationRunning;
+  private ExecutorService migrationExecutor;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public JcrPublishedResourcesStore() {
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private synchronized void configure(JcrPublishedResourcesStoreConfig config) {
+    RelatedResourcesStorageLayout configuredStorageLayout = RelatedResourcesStorageLayout.of(config.storage_layout())
+        .orElseGet(() -> {
+          LOG.warn("Unknown related resources storage layout '{}', using {}", config.storage_layout(),
+              RelatedResourcesStorageLayout.HIERARCHICAL);
+          return RelatedResourcesStorageLayout.HIERARCHICAL;
+        });
+    if (pendingMigrations.get() == 0 && isMigrated(configuredStorageLayout)) {
+      storageLayoutMigrated = true;
+      return;
+    }
+    if (migrationExecutor == null) {
+      migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "streamx-published-resources-migration");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    storageLayoutMigrated = false;
+    pendingMigrations.incrementAndGet();
+    migrationExecutor.execute(() -> migrateStorageLayout(configuredStorageLayout));
+  }
+
+  @Deactivate
+  private synchronized void deactivate() {
+    if (migrationExecutor != null) {
+      migrationExecutor.shutdownNow();
+      migrationExecutor = null;
+    }
+  }
+
+  /**
+   * Checks if the data is stored in the configured layout only and its references are counted. On activation, it
+   * also finds the layout used by the connections until the migration is finished: the one that stores the parent
+   * resources, if it's not the configured one.
+   */
+  @SuppressWarnings("deprecation")
+  private boolean isMigrated(RelatedResourcesStorageLayout configuredStorageLayout) {
+    try (ResourceResolver resourceResolver = resourceResolverFactory.getAdministrativeResourceResolver(null)) {
+      Session session = Objects.requireNonNull(resourceResolver.adaptTo(Session.class));
+      if (storageLayout == null) {
+        storageLayout = configuredStorageLayout;
+        for (RelatedResourcesStorageLayout layout : RelatedResourcesStorageLayout.values()) {
+          if (layout != configuredStorageLayout
+              && session.nodeExists(layout.getBasePath(PublishedRelatedResourcesTreeManager.BASE_NODE_PATH))) {
+            storageLayout = layout;
+          }
+        }
+      }
+      if (storageLayout != configuredStorageLayout
+          || !PublishedRelatedResourcesTreeManager.areReferencesCounted(configuredStorageLayout, session)) {
+        return false;
+      }
+      for (RelatedResourcesStorageLayout layout : RelatedResourcesStorageLayout.values()) {
+        if (layout != configuredStorageLayout && PublishedRelatedResourcesTreeManager.isStored(layout, session)) {
+          return false;
+        }
+      }
+      return true;
+    } catch (LoginException | RepositoryException | RuntimeException ex) {
+      LOG.warn("Can't check the layout of the published related resources, it will be checked by a background task", ex);
+      if (storageLayout == null) {
+        storageLayout = configuredStorageLayout;
+      }
+      return false;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public Connection open() throws PublishedResourcesStoreException {
+    ResourceResolver resourceResolver;
+    try {
+      resourceResolver = resourceResolverFactory.getAdministrativeResourceResolver(null);
+    } catch (LoginException ex) {
+      throw new PublishedResourcesStoreException("Can't open a session to the published resources store", ex);
+    }
+    try {
+      Session session = Objects.requireNonNull(resourceResolver.adaptTo(Session.class));
+      return new JcrConnection(resourceResolver, session, acquireConnection());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      resourceResolver.close();
+      throw new PublishedResourcesStoreException("Interrupted while waiting for the published resources store", ex);
+    } catch (RuntimeException ex) {
+      resourceResolver.close();
+      throw new PublishedResourcesStoreException("Can't prepare the published resources store", ex);
+    }
+  }
+
+  /**
+   * Registers a new connection, waiting while the connections are paused to switch the layout. Returns the layout
+   * to be used by the connection.
+   */
+  private RelatedResourcesStorageLayout acquireConnection() throws InterruptedException {
+    synchronized (connectionsMonitor) {
+      while (connectionsPaused) {
+        connectionsMonitor.wait();
+      }
+      openConnections++;
+      return storageLayout;
+    }
+  }
+
+  private void releaseConnection() {
+    synchronized (connectionsMonitor) {
+      openConnections--;
+      connectionsMonitor.notifyAll();
+    }
+  }
+
+  /**
+   * Stops opening new connections and waits until the open ones are closed.
+   */
+  private void pauseConnections() throws InterruptedException {
+    synchronized (connectionsMonitor) {
+      connectionsPaused = true;
+      while (openConnections > 0) {
+        connectionsMonitor.wait();
+      }
+    }
+  }
+
+  private void resumeConnections() {
+    synchronized (connectionsMonitor) {
+      connectionsPaused = false;
+      connectionsMonitor.notifyAll();
+    }
+  }
+
+  /**
+   * Moves the data of the published related resources that is stored in other layouts to the configured one, and
+   * counts the references of the related resources stored before they were counted. Runs in the background, pausing
+   * the connections only to apply the changes they made while the data was copied and to switch them to the
+   * configured layout.
+   */
+  @SuppressWarnings("deprecation")
+  private void migrateStorageLayout(RelatedResourcesStorageLayout target) {
+    boolean migrated = false;
+    migrationRunning = true;
+    parentPathsChangedDuringMigration.clear();
+    try (ResourceResolver resourceResolver = resourceResolverFactory.getAdministrativeResourceResolver(null)) {
+      Session session = Objects.requireNonNull(resourceResolver.adaptTo(Session.class));
+      RelatedResourcesStorageLayout source = storageLayout;
+      if (source != target) {
+        moveStorageLayout(source, target, session);
+      }
+      boolean recountNeeded = !PublishedRelatedResourcesTreeManager.areReferencesCounted(target, session);
+      for (RelatedResourcesStorageLayout leftover : RelatedResourcesStorageLayout.values()) {
+        if (leftover != target && PublishedRelatedResourcesTreeManager.isStored(leftover, session)) {
+          // data left by an interrupted migration, that is not used by the connections anymore
+          PublishedRelatedResourcesTreeManager.copy(leftover, target, session);
+          PublishedRelatedResourcesTreeManager.remove(leftover, session);
+          recountNeeded = true;
+        }
+      }
+      if (recountNeeded) {
+        recountReferences(target, session);
+      }
+      migrated = true;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Migration of the published related resources to {} layout was interrupted", target);
+    } catch (LoginException | RepositoryException | RuntimeException ex) {
+      LOG.error("Can't migrate the published related resources to {} layout, orphaned related resources won't be "
+          + "detected until it's retried after the next activation of the store", target, ex);
+    } finally {
+      migrationRunning = false;
+      parentPathsChangedDuringMigration.clear();
+      publishedRelatedResourcesIndex.invalidate();
+      synchronized (this) {
+        if (pendingMigrations.decrementAndGet() == 0 && migrated) {
+          storageLayoutMigrated = true;
+        }
+      }
+    }
+  }
+
+  private void moveStorageLayout(RelatedResourcesStorageLayout source, RelatedResourcesStorageLayout target,
+      Session session) throws RepositoryException, InterruptedException {
+    PublishedRelatedResourcesTreeManager.copy(source, target, session);
+    PublishedRelatedResourcesTreeManager.recountReferences(target, session);
+    pauseConnections();
+    try {
+      session.refresh(false);
+      PublishedRelatedResourcesTreeManager.synchronize(new LinkedHashSet<>(parentPathsChangedDuringMigration), source,
+          target, session, publishedRelatedResourcesIndex);
+      session.save();
+      publishedRelatedResourcesIndex.applyPendingChanges(session);
+      PublishedRelatedResourcesTreeManager.remove(source, session);
+      storageLayout = target;
+      parentPathsChangedDuringMigration.clear();
+    } finally {
+      publishedRelatedResourcesIndex.discardPendingChanges(session);
+      resumeConnections();
+    }
+  }
+
+  /**
+   * Counts the references while the connections keep changing the tree. The count is repeated if any parent resource
+   * was changed in the meantime, and the last attempt is made with the connections paused.
+   */
+  private void recountReferences(RelatedResourcesStorageLayout layout, Session session)
+      throws RepositoryException, InterruptedException {
+    for (int attempt = 1; ; attempt++) {
+      boolean paused = attempt > MAX_UNPAUSED_COUNT_ATTEMPTS;
+      if (paused) {
+        pauseConnections();
+      }
+      try {
+        parentPathsChangedDuringMigration.clear();
+        session.refresh(false);
+        PublishedRelatedResourcesTreeManager.recountReferences(layout, session);
+        if (!paused) {
+          pauseConnections();
+        }
+        if (parentPathsChangedDuringMigration.isEmpty()) {
+          return;
+        }
+        LOG.debug("Parent resources were changed while counting references in {} layout, counting them again", layout);
+      } finally {
+        resumeConnections();
+      }
+    }
+  }
+
+  private final class JcrConnection implements Connection {
+
+    private final ResourceResolver resourceResolver;
+    private final Session session;
+    private final RelatedResourcesStorageLayout layout;
+    private final Set<String> changedParentPaths = new LinkedHashSet<>();
+    private boolean closed;
+
+    private JcrConnection(ResourceResolver resourceResolver, Session session, RelatedResourcesStorageLayout layout) {
+      this.resourceResolver = resourceResolver;
+      this.session = session;
+      this.layout = layout;
+    }
+
+    @Override
+    public Map<String, Set<ResourceInfo>> getRelatedResources(List<ResourceInfo> parentResources)
+        throws PublishedResourcesStoreException {
+      try {
+        return PublishedRelatedResourcesTreeManager.getPublishedRelatedResources(parentResources, session, layout);
+      } catch (RepositoryException ex) {
+        throw new PublishedResourcesStoreException("Can't read related resources of " + parentResources, ex);
+      }
+    }
+
+    @Override
+    public boolean wasPublished(ResourceInfo relatedResource) {
+      return PublishedRelatedResourcesTreeManager.wasPublished(relatedResource, session, layout, publishedRelatedResourcesIndex);
+    }
+
+    @Override
+    public Map<String, Set<ResourceInfo>> updateRelatedResources(Map<String, Set<ResourceInfo>> relatedResourcesByParentPath)
+        throws PublishedResourcesStoreException {
+      changedParentPaths.addAll(relatedResourcesByParentPath.keySet());
+      try {
+        return PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(
+            relatedResourcesByParentPath, session, layout, publishedRelatedResourcesIndex);
+      } catch (RepositoryException ex) {
+        throw new PublishedResourcesStoreException("Can't update related resources of " + relatedResourcesByParentPath.keySet(), ex);
+      }
+    }
+
+    @Override
+    public void removeRelatedResources(List<ResourceInfo> parentResources) throws PublishedResourcesStoreException {
+      parentResources.forEach(parentResource -> changedParentPaths.add(parentResource.getPath()));
+      try {
+        PublishedRelatedResourcesTreeManager.removePublishedResourcesData(parentResources, session, layout, publishedRelatedResourcesIndex);
+      } catch (RepositoryException ex) {
+        throw new PublishedResourcesStoreException("Can't remove related resources of " + parentResources, ex);
+      }
+    }
+
+    @Override
+    public boolean isOrphaned(ResourceInfo relatedResource) throws PublishedResourcesStoreException {
+      if (!storageLayoutMigrated) {
+        // references may not be counted yet
+        return false;
+      }
+      try {
+        return PublishedRelatedResourcesTreeManager.isOrphaned(relatedResource, session, layout);
+      } catch (RepositoryException ex) {
+        throw new PublishedResourcesStoreException("Can't check if " + relatedResource + " is orphaned", ex);
+      }
+    }
+
+    @Override
+    public void removeOrphaned(Set<ResourceInfo> relatedResources) throws PublishedResourcesStoreException {
+      try {
+        PublishedRelatedResourcesTreeManager.removeOrphaned(relatedResources, session, layout, publishedRelatedResourcesIndex);
+      } catch (RepositoryException ex) {
+        throw new PublishedResourcesStoreException("Can't remove orphaned related resources " + relatedResources, ex);
+      }
+    }
+
+    @Override
+    public boolean commit() throws PublishedResourcesStoreException {
+      try {
+        if (session.hasPendingChanges()) {
+          session.save();
+        }
+        publishedRelatedResourcesIndex.applyPendingChanges(session);
+        if (migrationRunning) {
+          parentPathsChangedDuringMigration.addAll(changedParentPaths);
+        }
+        changedParentPaths.clear();
+        return true;
+      } catch (InvalidItemStateException ex) {
+        LOG.debug("Changes of published related resources conflict with changes saved in the meantime", ex);
+        rollback();
+        return false;
+      } catch (RepositoryException ex) {
+        throw new PublishedResourcesStoreException("Can't save published related resources", ex);
+      }
+    }
+
+    @Override
+    public void rollback() throws PublishedResourcesStoreException {
+      changedParentPaths.clear();
+      try {
+        session.refresh(false);
+      } catch (RepositoryException ex) {
+        throw new PublishedResourcesStoreException("Can't discard changes of published related resources", ex);
+      } finally {
+        publishedRelatedResourcesIndex.discardPendingChanges(session);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        if (session.hasPendingChanges()) {
+          rollback();
+        }
+      } catch (RepositoryException | PublishedResourcesStoreException ex) {
+        LOG.warn("Can't discard changes of published related resources", ex);
+      } finally {
+        publishedRelatedResourcesIndex.discardPendingChanges(session);
+        resourceResolver.close();
+        releaseConnection();
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link JcrPublishedResourcesStore}.
+ * This interface defines how the published related resources are tracked in the JCR.
+ */
+@ObjectClassDefinition(name = "StreamX JCR published resources store config")
+public @interface JcrPublishedResourcesStoreConfig {
+
+  /**
+   * The default layout of the nodes that track the published related resources.
+   */
+  String DEFAULT_STORAGE_LAYOUT = "hierarchical";
+
+  /**
+   * Returns the layout of the nodes that track the published related resources.
+   *
+   * @return the layout of the nodes that track the published related resources
+   */
+  @AttributeDefinition(name = "Storage layout", description =
+      "The layout of the nodes under /var/streamx/connector/sling that track the published related resources. "
+      + "'hierarchical' mirrors the paths of the resources, so a folder with many resources becomes a node with many "
+      + "children. 'sharded' places the nodes in buckets named after the hashes of the paths, so that the time of adding "
+      + "and removing them doesn't grow with the number of resources in a folder. Data stored in the other layout is "
+      + "migrated once, by a background task started after the layout is changed. The previous layout is used until "
+      + "the migration is finished.")
+  String storage_layout() default DEFAULT_STORAGE_LAYOUT;
+
+}
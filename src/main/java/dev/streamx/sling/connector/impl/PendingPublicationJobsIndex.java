@@ -0,0 +1,347 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.PublicationAction;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.JobManager.QueryType;
+import org.apache.sling.event.jobs.NotificationConstants;
+import org.apache.sling.event.jobs.ScheduledJobInfo;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the publication jobs that are queued or active, so that duplicates of such jobs can be detected
+ * without querying the job storage. The index is rebuilt from the job queue on activation, then it's updated by the
+ * jobs submitted by the connector and by the job notification events.
+ * <p>
+ * For every handler, client and resource path the index also remembers the most recently submitted job. Older jobs
+ * for the same resource are superseded by it, so that only the newest publication intent reaches StreamX.
+ * <p>
+ * The jobs are tracked by their {@link PublicationJobProperties#getPublicationId(Job) publication IDs}. A job that is
+ * submitted again with a delay to continue the publications of another job is tracked from the moment it's scheduled,
+ * and it takes over the place of that job. Jobs that are scheduled but not yet added to the queue are not restored
+ * when the index is rebuilt.
+ * <p>
+ * Job notification events are sent only on the instance that processes the job, and they can be dropped by the
+ * event admin. So the index is periodically reconciled with the job storage: jobs that are neither queued, active nor
+ * scheduled in two consecutive reconciliations are removed from the index, so that they don't suppress the following
+ * publications of their resources.
+ */
+@Component(
+    service = {PendingPublicationJobsIndex.class, EventHandler.class},
+    property = {
+        EventConstants.EVENT_TOPIC + "=" + NotificationConstants.TOPIC_JOB_ADDED,
+        EventConstants.EVENT_TOPIC + "=" + NotificationConstants.TOPIC_JOB_FINISHED,
+        EventConstants.EVENT_TOPIC + "=" + NotificationConstants.TOPIC_JOB_CANCELLED,
+        EventConstants.EVENT_TOPIC + "=" + NotificationConstants.TOPIC_JOB_REMOVED,
+        EventConstants.EVENT_FILTER + "=(" + NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC + "=" + PublicationJobExecutor.JOB_TOPIC + ")"
+    },
+    immediate = true
+)
+public class PendingPublicationJobsIndex implements EventHandler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PendingPublicationJobsIndex.class);
+  private static final int FIND_ALL_JOBS_LIMIT = -1;
+  private static final int MAX_RECENTLY_COMPLETED_JOBS = 10_000;
+  private static final long RECONCILIATION_INTERVAL_MINUTES = 5;
+
+  // key: handler ID, client name and resource path
+  private final Map<List<String>, PendingJobs> pendingJobs = new ConcurrentHashMap<>();
+
+  // completion events can be delivered before the submitting thread registers the job
+  private final Map<String, Boolean> recentlyCompletedJobIds = new LinkedHashMap<>() {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+      return size() > MAX_RECENTLY_COMPLETED_JOBS;
+    }
+  };
+
+  // publication IDs of the jobs that were not found in the job storage by the last reconciliation
+  private Set<String> missingJobIds = Set.of();
+
+  @Reference
+  private JobManager jobManager;
+
+  private ScheduledExecutorService reconciliationExecutor;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public PendingPublicationJobsIndex() {
+  }
+
+  @Activate
+  private void activate() {
+    rebuild();
+    reconciliationExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "streamx-pending-publication-jobs-reconciliation");
+      thread.setDaemon(true);
+      return thread;
+    });
+    reconciliationExecutor.scheduleWithFixedDelay(this::reconcile, RECONCILIATION_INTERVAL_MINUTES,
+        RECONCILIATION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @Deactivate
+  private void deactivate() {
+    if (reconciliationExecutor != null) {
+      reconciliationExecutor.shutdownNow();
+      reconciliationExecutor = null;
+    }
+  }
+
+  synchronized void rebuild() {
+    pendingJobs.clear();
+    missingJobIds = Set.of();
+    List<Job> jobs = findPendingJobs();
+    // register the jobs in the order of their creation, so that the newest job for each resource becomes the latest one
+    jobs.sort(Comparator.comparing(Job::getCreated, Comparator.nullsFirst(Comparator.<Calendar>naturalOrder())));
+    jobs.forEach(this::register);
+    LOG.info("Index of pending publication jobs rebuilt from {} jobs", jobs.size());
+  }
+
+  /**
+   * Removes the jobs, that were not found in the job storage by this and by the previous reconciliation, from the index.
+   * A job that is missing only once might have been submitted while the job storage was read, so it's kept until the
+   * next reconciliation.
+   */
+  void reconcile() {
+    Set<String> trackedJobIds;
+    synchronized (this) {
+      trackedJobIds = pendingJobs.values().stream()
+          .flatMap(jobs -> jobs.actionsByJobId.keySet().stream())
+          .collect(Collectors.toSet());
+    }
+    Set<String> existingJobIds;
+    try {
+      existingJobIds = findPendingJobs().stream()
+          .map(PublicationJobProperties::getPublicationId)
+          .collect(Collectors.toSet());
+      for (ScheduledJobInfo scheduledJob : jobManager.getScheduledJobs(PublicationJobExecutor.JOB_TOPIC,
+          FIND_ALL_JOBS_LIMIT, Collections.emptyMap())) {
+        existingJobIds.add(PublicationJobProperties.getPublicationId(scheduledJob));
+      }
+    } catch (RuntimeException exception) {
+      LOG.warn("Failed to reconcile the index of pending publication jobs with the job storage", exception);
+      return;
+    }
+    trackedJobIds.removeAll(existingJobIds);
+    Set<String> lostJobIds = new HashSet<>(trackedJobIds);
+    synchronized (this) {
+      lostJobIds.retainAll(missingJobIds);
+      trackedJobIds.removeAll(lostJobIds);
+      missingJobIds = trackedJobIds;
+      if (lostJobIds.isEmpty()) {
+        return;
+      }
+      lostJobIds.forEach(jobId -> recentlyCompletedJobIds.put(jobId, Boolean.TRUE));
+      for (List<String> key : pendingJobs.keySet()) {
+        pendingJobs.computeIfPresent(key, (k, jobs) -> jobs.without(lostJobIds));
+      }
+    }
+    LOG.info("Removed {} publication jobs, that are no longer in the job storage, from the index of pending jobs",
+        lostJobIds.size());
+  }
+
+  private List<Job> findPendingJobs() {
+    List<Job> jobs = new ArrayList<>();
+    for (QueryType queryType : List.of(QueryType.ACTIVE, QueryType.QUEUED)) {
+      @SuppressWarnings("unchecked")
+      Collection<Job> foundJobs = jobManager.findJobs(queryType, PublicationJobExecutor.JOB_TOPIC, FIND_ALL_JOBS_LIMIT, Collections.emptyMap());
+      jobs.addAll(foundJobs);
+    }
+    return jobs;
+  }
+
+  /**
+   * Returns true if the most recently submitted job for the resource, that is still queued or active,
+   * has the given action. Submitting another job for that action would be a duplicate.
+   */
+  boolean isPending(String handlerId, String clientName, PublicationAction action, String resourcePath) {
+    PendingJobs jobs = pendingJobs.get(List.of(handlerId, clientName, resourcePath));
+    return jobs != null && action.toString().equals(jobs.latestAction);
+  }
+
+  /**
+   * Returns true if a job for the resource was submitted after the job with the given ID, so the given job
+   * no longer carries the newest publication intent for the resource
+   */
+  boolean isSuperseded(String handlerId, String clientName, String resourcePath, String jobId) {
+    PendingJobs jobs = pendingJobs.get(List.of(handlerId, clientName, resourcePath));
+    return jobs != null && !jobs.latestJobId.equals(jobId);
+  }
+
+  /**
+   * Adds the job, that was just submitted to the job manager, to the index
+   */
+  void register(Job job) {
+    add(PublicationJobProperties.getPublicationId(job),
+        PublicationJobProperties.getHandlerId(job),
+        PublicationJobProperties.getClientNames(job),
+        PublicationJobProperties.getAction(job),
+        PublicationJobProperties.getResourcePaths(job));
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (!PublicationJobExecutor.JOB_TOPIC.equals(event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC))) {
+      return;
+    }
+    String jobId = PublicationJobProperties.getPublicationId(event);
+    String handlerId = PublicationJobProperties.getHandlerId(event);
+    List<String> clientNames = PublicationJobProperties.getClientNames(event);
+    String action = PublicationJobProperties.getAction(event);
+    List<String> resourcePaths = PublicationJobProperties.getResourcePaths(event);
+    if (NotificationConstants.TOPIC_JOB_ADDED.equals(event.getTopic())) {
+      add(jobId, handlerId, clientNames, action, resourcePaths);
+    } else {
+      remove(jobId, handlerId, clientNames, action, resourcePaths);
+    }
+  }
+
+  private synchronized void add(String jobId, String handlerId, List<String> clientNames, String action,
+      List<String> resourcePaths) {
+    if (!isValid(jobId, handlerId, clientNames, action) || recentlyCompletedJobIds.containsKey(jobId)) {
+      return;
+    }
+    // a fan-out job carries the publication intent for each of its clients
+    for (String clientName : clientNames) {
+      add(jobId, handlerId, clientName, action, resourcePaths);
+    }
+  }
+
+  private void add(String jobId, String handlerId, String clientName, String action, List<String> resourcePaths) {
+    for (String resourcePath : resourcePaths) {
+      pendingJobs.compute(List.of(handlerId, clientName, resourcePath), (key, jobs) -> {
+        if (jobs == null) {
+          return new PendingJobs(Map.of(jobId, action), jobId, action);
+        }
+        if (jobs.actionsByJobId.containsKey(jobId)) {
+          return jobs;
+        }
+        if (!action.equals(jobs.latestAction)) {
+          LOG.debug("{} job {} supersedes pending {} jobs for resource {}", action, jobId, jobs.latestAction, resourcePath);
+        }
+        Map<String, String> actionsByJobId = new HashMap<>(jobs.actionsByJobId);
+        actionsByJobId.put(jobId, action);
+        return new PendingJobs(actionsByJobId, jobId, action);
+      });
+    }
+  }
+
+  private synchronized void remove(String jobId, String handlerId, List<String> clientNames, String action,
+      List<String> resourcePaths) {
+    if (!isValid(jobId, handlerId, clientNames, action)) {
+      return;
+    }
+    recentlyCompletedJobIds.put(jobId, Boolean.TRUE);
+    for (String clientName : clientNames) {
+      remove(jobId, handlerId, clientName, resourcePaths);
+    }
+  }
+
+  private void remove(String jobId, String handlerId, String clientName, List<String> resourcePaths) {
+    for (String resourcePath : resourcePaths) {
+      pendingJobs.computeIfPresent(List.of(handlerId, clientName, resourcePath),
+          (key, jobs) -> jobs.without(Set.of(jobId)));
+    }
+  }
+
+  /**
+   * Adds the job, that is about to be submitted to continue the publications of the given job, to the index. For each
+   * of the resources, the new job takes over the place of the given job as the most recently submitted one, unless
+   * the given job is already superseded by another job.
+   *
+   * @param jobId      publication ID of the job whose publications are continued
+   * @param retryJobId publication ID of the new job
+   */
+  synchronized void registerRetry(String jobId, String retryJobId, String handlerId, String clientName, String action,
+      List<String> resourcePaths) {
+    for (String resourcePath : resourcePaths) {
+      pendingJobs.compute(List.of(handlerId, clientName, resourcePath), (key, jobs) -> {
+        if (jobs == null) {
+          return new PendingJobs(Map.of(retryJobId, action), retryJobId, action);
+        }
+        Map<String, String> actionsByJobId = new HashMap<>(jobs.actionsByJobId);
+        actionsByJobId.put(retryJobId, action);
+        return jobs.latestJobId.equals(jobId)
+            ? new PendingJobs(actionsByJobId, retryJobId, action)
+            : new PendingJobs(actionsByJobId, jobs.latestJobId, jobs.latestAction);
+      });
+    }
+  }
+
+  /**
+   * Removes the job that could not be submitted from the index, giving its place back to the job whose publications
+   * it was going to continue.
+   *
+   * @param jobId      publication ID of the job whose publications were going to be continued
+   * @param retryJobId publication ID of the job that could not be submitted
+   */
+  synchronized void unregisterRetry(String jobId, String retryJobId, String handlerId, String clientName,
+      List<String> resourcePaths) {
+    for (String resourcePath : resourcePaths) {
+      pendingJobs.computeIfPresent(List.of(handlerId, clientName, resourcePath), (key, jobs) -> {
+        Map<String, String> actionsByJobId = new HashMap<>(jobs.actionsByJobId);
+        String action = actionsByJobId.remove(retryJobId);
+        if (actionsByJobId.isEmpty()) {
+          return null;
+        }
+        return jobs.latestJobId.equals(retryJobId)
+            ? new PendingJobs(actionsByJobId, jobId, action)
+            : new PendingJobs(actionsByJobId, jobs.latestJobId, jobs.latestAction);
+      });
+    }
+  }
+
+  private static boolean isValid(String jobId, String handlerId, List<String> clientNames, String action) {
+    return jobId != null && handlerId != null && !clientNames.isEmpty() && action != null;
+  }
+
+  private static final class PendingJobs {
+
+    private final Map<String, String> actionsByJobId;
+    private final String latestJobId;
+    private final String latestAction;
+
+    private PendingJobs(Map<String, String> actionsByJobId, String latestJobId, String latestAction) {
+      this.actionsByJobId = actionsByJobId;
+      this.latestJobId = latestJobId;
+      this.latestAction = latestAction;
+    }
+
+    private PendingJobs without(Set<String> jobIds) {
+      if (jobIds.stream().noneMatch(actionsByJobId::containsKey)) {
+        return this;
+      }
+      Map<String, String> remainingActionsByJobId = new HashMap<>(actionsByJobId);
+      remainingActionsByJobId.keySet().removeAll(jobIds);
+      // the latest job is remembered until all the jobs for the resource are completed,
+      // so that an older job that is still pending remains superseded
+      return remainingActionsByJobId.isEmpty() ? null : new PendingJobs(remainingActionsByJobId, latestJobId, latestAction);
+    }
+  }
+}
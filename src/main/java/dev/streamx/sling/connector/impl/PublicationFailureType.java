@@ -0,0 +1,73 @@
+package dev.streamx.sling.connector.impl;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Kind of failure of sending a publication to StreamX. Since the exceptions of the StreamX client don't expose
+ * the HTTP status of the response, it's searched for in their messages, for example "status code: 503".
+ */
+enum PublicationFailureType {
+
+  /**
+   * The StreamX instance could not be connected to.
+   */
+  CONNECTION,
+  /**
+   * The StreamX instance didn't respond in time.
+   */
+  TIMEOUT,
+  /**
+   * The StreamX instance rejected the publication with a 4xx status, other than 429.
+   */
+  CLIENT_ERROR,
+  /**
+   * The StreamX instance failed with a 5xx status, or it rejected the publication with the 429 status.
+   */
+  SERVER_ERROR,
+  /**
+   * The kind of failure is not known.
+   */
+  OTHER;
+
+  private static final Pattern STATUS_PATTERN = Pattern.compile("(?i)(?:status|code)\\D{0,16}\\b([45]\\d{2})\\b");
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int MAX_CAUSE_DEPTH = 10;
+
+  static PublicationFailureType of(Throwable failure) {
+    Throwable cause = failure;
+    for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; depth++) {
+      PublicationFailureType type = ofSingle(cause);
+      if (type != OTHER) {
+        return type;
+      }
+      cause = cause.getCause();
+    }
+    return OTHER;
+  }
+
+  private static PublicationFailureType ofSingle(Throwable cause) {
+    if (cause instanceof ConnectException || cause instanceof UnknownHostException
+        || cause instanceof NoRouteToHostException) {
+      return CONNECTION;
+    }
+    // connect and socket timeouts of the HTTP clients extend InterruptedIOException
+    if (cause instanceof SocketTimeoutException || cause instanceof InterruptedIOException) {
+      return TIMEOUT;
+    }
+    String message = cause.getMessage();
+    if (message != null) {
+      Matcher matcher = STATUS_PATTERN.matcher(message);
+      if (matcher.find()) {
+        int status = Integer.parseInt(matcher.group(1));
+        return status >= 500 || status == TOO_MANY_REQUESTS ? SERVER_ERROR : CLIENT_ERROR;
+      }
+    }
+    return OTHER;
+  }
+}
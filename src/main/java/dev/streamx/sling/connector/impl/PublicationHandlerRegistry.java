@@ -2,10 +2,16 @@ package dev.streamx.sling.connector.impl;
 
 import dev.streamx.sling.connector.PublicationHandler;
 import dev.streamx.sling.connector.ResourceInfo;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
@@ -16,13 +22,20 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Registry for {@link PublicationHandler}s.
+ * <p>
+ * Handlers are looked up by ID in a map. Handlers that declare the regular expression for the paths of the resources
+ * they handle (see {@link PublicationHandler#getResourcePathRegex()}) are matched with precompiled patterns, and the
+ * results are cached by resource path. The routing is rebuilt whenever a handler is bound, unbound or updated,
+ * or when the regular expression declared by a handler changes.
  */
 @Component(service = PublicationHandlerRegistry.class)
 public class PublicationHandlerRegistry {
 
   private static final Logger LOG = LoggerFactory.getLogger(PublicationHandlerRegistry.class);
+  static final int MAX_CACHED_RESOURCE_PATHS = 10_000;
 
   private final List<PublicationHandler<?>> handlers;
+  private volatile Routing routing;
 
   /**
    * Constructs an instance of this class.
@@ -30,30 +43,135 @@ public class PublicationHandlerRegistry {
   @Activate
   public PublicationHandlerRegistry() {
     handlers = new CopyOnWriteArrayList<>();
+    routing = new Routing(List.of());
   }
 
   @Reference(
       service = PublicationHandler.class,
       cardinality = ReferenceCardinality.AT_LEAST_ONE,
-      policy = ReferencePolicy.DYNAMIC)
+      policy = ReferencePolicy.DYNAMIC,
+      updated = "updatedOperation")
   private void bindOperation(PublicationHandler<?> handler) {
     handlers.add(handler);
+    rebuildRouting();
     LOG.info("Added: {}, handlers count: {}", handler.getClass().getName(), handlers.size());
   }
 
   private void unbindOperation(PublicationHandler<?> handler) {
     handlers.remove(handler);
+    rebuildRouting();
     LOG.info("Removed: {}, handlers count: {}", handler.getClass().getName(), handlers.size());
   }
 
+  private void updatedOperation(PublicationHandler<?> handler) {
+    rebuildRouting();
+    LOG.info("Updated: {}", handler.getClass().getName());
+  }
+
+  private synchronized void rebuildRouting() {
+    routing = new Routing(handlers);
+  }
+
   List<PublicationHandler<?>> getHandlers() {
     return Collections.unmodifiableList(handlers);
   }
 
+  /**
+   * Returns the handler with the given ID, or {@code null} if there is no such handler. If multiple handlers
+   * have the same ID, the first registered one is returned.
+   */
+  PublicationHandler<?> getById(String handlerId) {
+    return routing.handlersById.get(handlerId);
+  }
+
   List<PublicationHandler<?>> getForResource(ResourceInfo resource) {
-    return handlers.stream()
-        .filter(handler -> handler.canHandle(resource))
-        .collect(Collectors.toList());
+    Routing currentRouting = routing;
+    if (!currentRouting.isUpToDate()) {
+      synchronized (this) {
+        if (routing == currentRouting) {
+          rebuildRouting();
+        }
+        currentRouting = routing;
+      }
+    }
+    return currentRouting.getForResource(resource);
   }
 
+  /**
+   * Immutable routing of resources to the handlers registered at the time it was created,
+   * except for the cache of matches of the declared regular expressions.
+   */
+  private static final class Routing {
+
+    private final List<PublicationHandler<?>> handlers;
+    private final Map<String, PublicationHandler<?>> handlersById = new HashMap<>();
+    private final String[] resourcePathRegexes;
+    private final Pattern[] resourcePathPatterns;
+    private final Map<String, boolean[]> matchesCache = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, boolean[]> eldest) {
+            return size() > MAX_CACHED_RESOURCE_PATHS;
+          }
+        });
+
+    private Routing(List<PublicationHandler<?>> handlers) {
+      this.handlers = List.copyOf(handlers);
+      int size = this.handlers.size();
+      resourcePathRegexes = new String[size];
+      resourcePathPatterns = new Pattern[size];
+      for (int i = 0; i < size; i++) {
+        PublicationHandler<?> handler = this.handlers.get(i);
+        handlersById.putIfAbsent(handler.getId(), handler);
+        resourcePathRegexes[i] = handler.getResourcePathRegex();
+        resourcePathPatterns[i] = compile(handler, resourcePathRegexes[i]);
+      }
+    }
+
+    private static Pattern compile(PublicationHandler<?> handler, String resourcePathRegex) {
+      if (resourcePathRegex == null) {
+        return null;
+      }
+      try {
+        return Pattern.compile(resourcePathRegex);
+      } catch (PatternSyntaxException exception) {
+        // the handler itself decides what to do with the invalid regex
+        LOG.warn("Invalid resource path regex of handler {}: {}", handler.getId(), resourcePathRegex, exception);
+        return null;
+      }
+    }
+
+    /**
+     * Checks if the handlers still declare the same regular expressions as when the routing was created.
+     */
+    private boolean isUpToDate() {
+      for (int i = 0; i < handlers.size(); i++) {
+        if (!Objects.equals(resourcePathRegexes[i], handlers.get(i).getResourcePathRegex())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private List<PublicationHandler<?>> getForResource(ResourceInfo resource) {
+      boolean[] matches = matchesCache.computeIfAbsent(resource.getPath(), this::matchResourcePath);
+      List<PublicationHandler<?>> result = new ArrayList<>();
+      for (int i = 0; i < handlers.size(); i++) {
+        PublicationHandler<?> handler = handlers.get(i);
+        boolean canHandle = resourcePathPatterns[i] != null ? matches[i] : handler.canHandle(resource);
+        if (canHandle) {
+          result.add(handler);
+        }
+      }
+      return result;
+    }
+
+    private boolean[] matchResourcePath(String resourcePath) {
+      boolean[] matches = new boolean[handlers.size()];
+      for (int i = 0; i < handlers.size(); i++) {
+        matches[i] = resourcePathPatterns[i] != null && resourcePathPatterns[i].matcher(resourcePath).matches();
+      }
+      return matches;
+    }
+  }
 }
@@ -0,0 +1,83 @@
+package dev.streamx.sling.connector.impl;
+
+import dev.streamx.sling.connector.PublicationAction;
+import dev.streamx.sling.connector.ResourceInfo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Groups resources that share a handler, clients and an action into batches of limited size,
+ * so that each batch can be submitted as a single publication job
+ */
+final class PublicationJobBatches {
+
+  private final int maxSize;
+  private final Map<List<String>, Batch> openBatches = new LinkedHashMap<>();
+
+  PublicationJobBatches(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Adds the resource to the batch of its group, whose publication data is sent to all the given clients.
+   * @return the batch of the group, if adding the resource made it reach the max size.
+   * Such batch is no longer open and must be submitted by the caller
+   */
+  Optional<Batch> add(String handlerId, List<String> clientNames, PublicationAction action, ResourceInfo resource) {
+    List<String> key = new ArrayList<>(clientNames);
+    key.add(0, handlerId);
+    key.add(1, action.toString());
+    Batch batch = openBatches.computeIfAbsent(key, k -> new Batch(handlerId, List.copyOf(clientNames), action));
+    batch.resources.add(resource);
+    if (batch.resources.size() < maxSize) {
+      return Optional.empty();
+    }
+    openBatches.remove(key);
+    return Optional.of(batch);
+  }
+
+  /**
+   * Returns all open batches, in the order in which their groups were started, and clears them
+   */
+  List<Batch> drain() {
+    List<Batch> batches = new ArrayList<>(openBatches.values());
+    openBatches.clear();
+    return batches;
+  }
+
+  static final class Batch {
+
+    private final String handlerId;
+    private final List<String> clientNames;
+    private final PublicationAction action;
+    private final Set<ResourceInfo> resources = new LinkedHashSet<>();
+
+    private Batch(String handlerId, List<String> clientNames, PublicationAction action) {
+      this.handlerId = handlerId;
+      this.clientNames = clientNames;
+      this.action = action;
+    }
+
+    String getHandlerId() {
+      return handlerId;
+    }
+
+    List<String> getClientNames() {
+      return clientNames;
+    }
+
+    PublicationAction getAction() {
+      return action;
+    }
+
+    Set<ResourceInfo> getResources() {
+      return Collections.unmodifiableSet(resources);
+    }
+  }
+}
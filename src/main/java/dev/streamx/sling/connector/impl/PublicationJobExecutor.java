@@ -6,21 +6,35 @@ import dev.streamx.clients.ingestion.exceptions.StreamxClientException;
 import dev.streamx.clients.ingestion.publisher.Message;
 import dev.streamx.clients.ingestion.publisher.Publisher;
 import dev.streamx.sling.connector.PublicationAction;
+import dev.streamx.sling.connector.PublicationData;
+import dev.streamx.sling.connector.PublicationDigestStore;
 import dev.streamx.sling.connector.PublicationHandler;
 import dev.streamx.sling.connector.PublicationRetryPolicy;
 import dev.streamx.sling.connector.PublishData;
 import dev.streamx.sling.connector.ResourceInfo;
 import dev.streamx.sling.connector.StreamxPublicationException;
-import dev.streamx.sling.connector.UnpublishData;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
 import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext.ResultBuilder;
 import org.apache.sling.event.jobs.consumer.JobExecutionResult;
 import org.apache.sling.event.jobs.consumer.JobExecutor;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,12 +60,50 @@ public class PublicationJobExecutor implements JobExecutor {
   @Reference
   private PublicationRetryPolicy publicationRetryPolicy;
 
+  @Reference
+  private JobManager jobManager;
+
+  @Reference
+  private PendingPublicationJobsIndex pendingPublicationJobsIndex;
+
+  @Reference(
+      cardinality = ReferenceCardinality.OPTIONAL,
+      policy = ReferencePolicy.DYNAMIC,
+      policyOption = ReferencePolicyOption.GREEDY)
+  private volatile PublicationDigestStore publicationDigestStore;
+
+  @Reference(
+      cardinality = ReferenceCardinality.OPTIONAL,
+      policy = ReferencePolicy.DYNAMIC,
+      policyOption = ReferencePolicyOption.GREEDY)
+  private volatile DefaultStreamxClientCircuitBreakers circuitBreakers;
+
+  @Reference(
+      cardinality = ReferenceCardinality.OPTIONAL,
+      policy = ReferencePolicy.DYNAMIC,
+      policyOption = ReferencePolicyOption.GREEDY)
+  private volatile StreamxClientConcurrencyLimits concurrencyLimits;
+
+  @Reference(
+      cardinality = ReferenceCardinality.OPTIONAL,
+      policy = ReferencePolicy.DYNAMIC,
+      policyOption = ReferencePolicyOption.GREEDY)
+  private volatile PublicationRetryBudget retryBudget;
+
+  private final AtomicLong sentMessagesCount = new AtomicLong();
+  private final AtomicLong skippedMessagesCount = new AtomicLong();
+
   /**
    * Constructs an instance of this class.
    */
   public PublicationJobExecutor() {
   }
 
+  /**
+   * Processes the publications of the job: each of its resources is sent to each of its clients. Single resource
+   * jobs, batch jobs and fan-out jobs are processed the same way: the outcome of each delivery is recorded, and the
+   * outcomes decide about the result of the job.
+   */
   @Override
   public JobExecutionResult process(Job job, JobExecutionContext context) {
     LOG.trace("Processing {}", job);
@@ -63,119 +115,651 @@ public class PublicationJobExecutor implements JobExecutor {
     }
     PublicationAction action = actionOptional.get();
 
-    String path = PublicationJobProperties.getResourcePath(job);
-    if (StringUtils.isEmpty(path)) {
-      LOG.warn("This publication job has no path: {}", job);
+    String handlerId = PublicationJobProperties.getHandlerId(job);
+    if (StringUtils.isEmpty(handlerId)) {
+      LOG.warn("This publication job has no Handler ID: {}", job);
+      return context.result().cancelled();
+    }
+
+    List<String> clientNames = PublicationJobProperties.getClientNames(job);
+    if (clientNames.isEmpty() || clientNames.stream().anyMatch(StringUtils::isEmpty)) {
+      LOG.warn("This publication job has no Client Name: {}", job);
       return context.result().cancelled();
     }
 
-    String serializedProperties = PublicationJobProperties.getResourceProperties(job);
-    Map<String, String> resourceProperties;
+    List<ResourceInfo> resources;
     try {
-      resourceProperties = ResourceInfo.deserializeProperties(serializedProperties);
+      resources = getResources(job);
     } catch (IllegalArgumentException ex) {
-      LOG.warn("Error deserializing properties for resource {} from the string: {}", path, serializedProperties);
+      LOG.warn("Error deserializing resources of the publication job: {}", job, ex);
       return context.result().cancelled();
     }
-    ResourceInfo resource = new ResourceInfo(path, resourceProperties);
-
-    String handlerId = PublicationJobProperties.getHandlerId(job);
-    if (StringUtils.isEmpty(handlerId)) {
-      LOG.warn("This publication job has no Handler ID: {}", job);
+    if (resources.isEmpty()) {
+      LOG.warn("This publication job has no path: {}", job);
       return context.result().cancelled();
     }
 
-    String clientName = PublicationJobProperties.getClientName(job);
-    if (StringUtils.isEmpty(clientName)) {
-      LOG.warn("This publication job has no Client Name: {}", job);
+    PublicationHandler<?> publicationHandler = findHandler(handlerId);
+    if (publicationHandler == null) {
+      LOG.warn("Cannot find publication handler with id: {}", handlerId);
       return context.result().cancelled();
     }
+    List<StreamxInstanceClient> streamxInstanceClients = new ArrayList<>();
+    for (String clientName : clientNames) {
+      StreamxInstanceClient streamxInstanceClient = streamxClientStore.getByName(clientName);
+      if (streamxInstanceClient == null) {
+        LOG.warn("Cannot find StreamX client with name: {}", clientName);
+      } else {
+        streamxInstanceClients.add(streamxInstanceClient);
+      }
+    }
+    if (streamxInstanceClients.isEmpty()) {
+      return context.result().cancelled();
+    }
+
+    LOG.trace("Processing {} publication of {} resources, handler '{}' and clients {}",
+        action, resources.size(), handlerId, clientNames);
+    String publicationId = PublicationJobProperties.getPublicationId(job);
+    boolean retried = PublicationJobProperties.getRetryCount(job) > 0;
+    PublicationOutcomes outcomes = new PublicationOutcomes(context, action, resources.size(),
+        streamxInstanceClients.size());
+    PublicationRetryBudget budget = retryBudget;
+    if (budget != null && retried
+        && hasCurrentDeliveries(streamxInstanceClients, handlerId, resources, publicationId)
+        && !budget.tryAcquireRetry()) {
+      LOG.debug("Retry budget is exhausted, retry of {} publication job is postponed: {}", action, job);
+      for (ResourceInfo resource : resources) {
+        for (StreamxInstanceClient streamxInstanceClient : streamxInstanceClients) {
+          String clientName = streamxInstanceClient.getName();
+          if (pendingPublicationJobsIndex.isSuperseded(handlerId, clientName, resource.getPath(), publicationId)) {
+            outcomes.superseded(resource, clientName);
+          } else {
+            outcomes.postponed(resource, clientName, budget.getPostponeDelay());
+          }
+        }
+      }
+      return complete(job, handlerId, action, outcomes, context);
+    }
+    for (ResourceInfo resource : resources) {
+      deliver(publicationHandler, streamxInstanceClients, handlerId, action, resource, publicationId, retried,
+          outcomes, context);
+    }
+    return complete(job, handlerId, action, outcomes, context);
+  }
+
+  /**
+   * Returns true if any of the resources is to be sent to any of the clients, that is a newer publication job was not
+   * submitted for it. The retry budget is used only by retried jobs that still have something to send, so that the
+   * retries superseded by newer jobs are dropped instead of being postponed.
+   */
+  private boolean hasCurrentDeliveries(List<StreamxInstanceClient> streamxInstanceClients, String handlerId,
+      List<ResourceInfo> resources, String publicationId) {
+    for (ResourceInfo resource : resources) {
+      for (StreamxInstanceClient streamxInstanceClient : streamxInstanceClients) {
+        if (!pendingPublicationJobsIndex.isSuperseded(handlerId, streamxInstanceClient.getName(), resource.getPath(),
+            publicationId)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
 
-    LOG.trace("Processing {} publication for resource {}, handler '{}' and client '{}'", action, resource, handlerId, clientName);
+  /**
+   * Sends the resource to each of the clients and records the outcome of each delivery. The publication data of the
+   * resource is created once for all the clients. The resource is not sent to a client for which a newer publication
+   * job was submitted. It's postponed for a client once the job is stopped, the circuit breaker of the client is open
+   * or the limit of concurrent publications of the client is reached, and then the following resources of the job
+   * are postponed for that client as well. Resources that failed with a retryable error are recorded as failed, while
+   * resources that failed with an unknown error are skipped.
+   */
+  private void deliver(PublicationHandler<?> publicationHandler, List<StreamxInstanceClient> streamxInstanceClients,
+      String handlerId, PublicationAction action, ResourceInfo resource, String publicationId, boolean retried,
+      PublicationOutcomes outcomes, JobExecutionContext context) {
+    List<StreamxInstanceClient> targetClients = new ArrayList<>();
+    for (StreamxInstanceClient streamxInstanceClient : streamxInstanceClients) {
+      String clientName = streamxInstanceClient.getName();
+      if (pendingPublicationJobsIndex.isSuperseded(handlerId, clientName, resource.getPath(), publicationId)) {
+        LOG.info("Skipping {} publication for resource {}, handler '{}' and client '{}' since it is superseded by a newer job",
+            action, resource, handlerId, clientName);
+        outcomes.superseded(resource, clientName);
+      } else if (outcomes.isPostponed(clientName)) {
+        outcomes.postponed(resource, clientName, 0);
+      } else if (context.isStopped()) {
+        LOG.info("Processing of the publication job was stopped, {} publication for resource {} and the following ones "
+            + "is postponed for client '{}'", action, resource, clientName);
+        outcomes.postponed(resource, clientName, 0);
+      } else if (!tryAcquireCircuit(clientName)) {
+        LOG.info("Circuit breaker of StreamX client '{}' is open, {} publication for resource {} and the following ones "
+            + "is postponed", clientName, action, resource);
+        outcomes.postponed(resource, clientName, getCircuitRetryDelay(clientName));
+      } else {
+        targetClients.add(streamxInstanceClient);
+      }
+    }
+    if (targetClients.isEmpty()) {
+      return;
+    }
 
+    PublicationData<?> publicationData;
+    String digest;
     try {
-      return processPublication(handlerId, action, resource, clientName, context);
-    } catch (StreamxPublicationException | StreamxClientException e) {
-      LOG.error("Error while processing publication, job will be retried. "
+      publicationData = createPublicationData(publicationHandler, action, resource);
+      digest = publicationData == null ? null : computeDigest(publicationData);
+    } catch (StreamxPublicationException e) {
+      LOG.warn("Error while processing {} publication for resource {}, handler '{}' and clients {}. Error message: {}",
+          action, resource, handlerId, getNames(targetClients), e.getMessage());
+      LOG.trace("Publication error details: ", e);
+      for (StreamxInstanceClient streamxInstanceClient : targetClients) {
+        outcomes.failed(resource, streamxInstanceClient.getName(), e);
+      }
+      return;
+    } catch (RuntimeException e) {
+      LOG.error("Unknown error while processing {} publication for resource {}, handler '{}' and clients {}",
+          action, resource, handlerId, getNames(targetClients), e);
+      for (StreamxInstanceClient streamxInstanceClient : targetClients) {
+        outcomes.skipped(resource, streamxInstanceClient.getName(), e);
+      }
+      return;
+    }
+
+    for (StreamxInstanceClient streamxInstanceClient : targetClients) {
+      String clientName = streamxInstanceClient.getName();
+      try {
+        if (publicationData != null) {
+          send(publicationData, digest, streamxInstanceClient, retried);
+        }
+        outcomes.succeeded(resource, clientName);
+      } catch (PublicationDeferredException e) {
+        LOG.debug("Limit of concurrent publications of StreamX client '{}' is reached, {} publication for resource {} "
+            + "and the following ones is deferred", clientName, action, resource);
+        outcomes.postponed(resource, clientName, getDeferDelay());
+      } catch (StreamxClientException e) {
+        LOG.warn("Error while sending {} publication for resource {} using client '{}'. Error message: {}",
+            action, resource, clientName, e.getMessage());
+        LOG.trace("Publication error details: ", e);
+        outcomes.failed(resource, clientName, e);
+      } catch (RuntimeException e) {
+        LOG.error("Unknown error while sending {} publication for resource {} using client '{}'",
+            action, resource, clientName, e);
+        outcomes.skipped(resource, clientName, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the result of the job for the outcomes of its deliveries. If all deliveries failed with a retryable error,
+   * the whole job is retried. Otherwise, the resources that a client failed to receive are submitted again in a new
+   * job for that client, that is executed after the retry delay and carries over the retries used up by this job, and
+   * the resources postponed for a client are submitted again in a new job for that client without using up a retry.
+   * A job of a single delivery that was skipped or superseded is cancelled.
+   */
+  private JobExecutionResult complete(Job job, String handlerId, PublicationAction action,
+      PublicationOutcomes outcomes, JobExecutionContext context) {
+    String summary = outcomes.getSummary();
+    ResultBuilder result = outcomes.getDeliveriesCount() > 1 ? context.result().message(summary) : context.result();
+    if (outcomes.getFailedCount() == 0 && outcomes.getPostponedCount() == 0) {
+      if (outcomes.getDeliveriesCount() == 1 && outcomes.getSupersededCount() == 1) {
+        return result.message("Superseded by a newer publication job").cancelled();
+      }
+      if (outcomes.getDeliveriesCount() == 1 && outcomes.getSkippedCount() == 1) {
+        return result.cancelled();
+      }
+      return result.succeeded();
+    }
+    if (outcomes.getFailedCount() == outcomes.getDeliveriesCount()) {
+      Exception lastFailure = outcomes.getLastFailure();
+      LOG.error("Error while processing publication job, job will be retried. "
                 + "Retry count: {}. "
                 + "Number of retries: {}. "
-                + "Error message: {}", job.getRetryCount(), job.getNumberOfRetries(), e.getMessage());
-      LOG.trace("Publication error details: ", e);
-      return context.result().failed(publicationRetryPolicy.getRetryDelay(job));
+                + "Error message: {}", PublicationJobProperties.getRetryCount(job), job.getNumberOfRetries(),
+          lastFailure.getMessage());
+      LOG.trace("Publication error details: ", lastFailure);
+      return failed(job, result, publicationRetryPolicy.getRetryDelay(job, lastFailure));
+    }
+
+    for (Map.Entry<String, List<ResourceInfo>> failedResources : outcomes.getFailedResourcesByClientName().entrySet()) {
+      String clientName = failedResources.getKey();
+      long retryDelay = publicationRetryPolicy.getRetryDelay(job, outcomes.getLastFailure(clientName));
+      if (!canRetry(job)) {
+        LOG.error("{}. Resources that failed for client '{}' used up all {} retries and will not be retried: {}", summary,
+            clientName, job.getNumberOfRetries(), failedResources.getValue());
+      } else if (submitRetryJob(job, handlerId, clientName, action, failedResources.getValue(),
+          PublicationJobProperties.getRetryCount(job) + 1, retryDelay)) {
+        LOG.info("{}. Resources that failed for client '{}' were submitted in a new job: {}", summary,
+            clientName, failedResources.getValue());
+      } else {
+        LOG.error("Job for the failed resources of client '{}' could not be created by JobManager, the whole job will be retried",
+            clientName);
+        return failed(job, result, retryDelay);
+      }
+    }
+    for (Map.Entry<String, List<ResourceInfo>> postponedResources : outcomes.getPostponedResourcesByClientName().entrySet()) {
+      String clientName = postponedResources.getKey();
+      long postponeDelay = outcomes.getPostponeDelay(clientName);
+      if (submitRetryJob(job, handlerId, clientName, action, postponedResources.getValue(),
+          PublicationJobProperties.getRetryCount(job), postponeDelay)) {
+        LOG.info("{}. Resources postponed for client '{}' were submitted in a new job: {}", summary,
+            clientName, postponedResources.getValue());
+      } else {
+        LOG.error("Job for the postponed resources of client '{}' could not be created by JobManager, the whole job will be retried",
+            clientName);
+        return failed(job, result, postponeDelay);
+      }
+    }
+    return result.succeeded();
+  }
+
+  /**
+   * Submits a new job for the given resources of the job, that is executed after the delay. The new job carries over
+   * the given number of used up retries, so that the publications continue with the backoff and within the limit of
+   * retries of the given job, and it takes over the place of the given job in the index of pending jobs.
+   *
+   * @return false if the job could not be submitted
+   */
+  private boolean submitRetryJob(Job job, String handlerId, String clientName, PublicationAction action,
+      List<ResourceInfo> resources, int retryCount, long delay) {
+    return submitRetryJob(job, handlerId, List.of(clientName), action, resources, retryCount, delay);
+  }
+
+  private boolean submitRetryJob(Job job, String handlerId, List<String> clientNames, PublicationAction action,
+      List<ResourceInfo> resources, int retryCount, long delay) {
+    String publicationId = PublicationJobProperties.getPublicationId(job);
+    String retryPublicationId = UUID.randomUUID().toString();
+    List<String> resourcePaths = resources.stream()
+        .map(ResourceInfo::getPath)
+        .collect(Collectors.toList());
+    for (String clientName : clientNames) {
+      pendingPublicationJobsIndex.registerRetry(publicationId, retryPublicationId, handlerId, clientName,
+          action.toString(), resourcePaths);
+    }
+    Map<String, Object> retryJobProperties = createRetryJobProperties(handlerId, clientNames, action, resources)
+        .withPublicationId(retryPublicationId)
+        .withRetryCount(retryCount)
+        .asMap();
+    boolean submitted;
+    try {
+      if (delay > 0) {
+        submitted = jobManager.createJob(JOB_TOPIC)
+            .properties(retryJobProperties)
+            .schedule()
+            .at(new Date(System.currentTimeMillis() + delay))
+            .add() != null;
+      } else {
+        submitted = jobManager.addJob(JOB_TOPIC, retryJobProperties) != null;
+      }
     } catch (RuntimeException e) {
-      LOG.error("Unknown error while processing {} publication for resource {}, handler '{}' and client '{}'",
-          action, resource, handlerId, clientName, e);
-      return context.result().cancelled();
+      LOG.error("Error while submitting job for the resources of clients {}: {}", clientNames, resourcePaths, e);
+      submitted = false;
+    }
+    if (!submitted) {
+      for (String clientName : clientNames) {
+        pendingPublicationJobsIndex.unregisterRetry(publicationId, retryPublicationId, handlerId, clientName,
+            resourcePaths);
+      }
     }
+    return submitted;
   }
 
-  private JobExecutionResult processPublication(String handlerId, PublicationAction action, ResourceInfo resource,
-      String clientName, JobExecutionContext context)
-      throws StreamxPublicationException, StreamxClientException {
-    PublicationHandler<?> publicationHandler = findHandler(handlerId);
-    if (publicationHandler == null) {
-      LOG.warn("Cannot find publication handler with id: {}", handlerId);
-      return context.result().cancelled();
+  /**
+   * Returns the result of the failed job, that is retried by the job manager after the delay. The job manager counts
+   * only the retries of the job itself, so a job that was submitted again from another job is cancelled instead,
+   * once its publications used up all the retries of the queue.
+   */
+  private static JobExecutionResult failed(Job job, ResultBuilder result, long retryDelay) {
+    if (PublicationJobProperties.getPreviousRetryCount(job) > 0 && !canRetry(job)) {
+      LOG.error("Publication job used up all {} retries and will not be retried: {}", job.getNumberOfRetries(), job);
+      return result.cancelled();
     }
-    StreamxInstanceClient streamxInstanceClient = streamxClientStore.getByName(clientName);
-    if (streamxInstanceClient == null) {
-      LOG.warn("Cannot find StreamX client with name: {}", clientName);
-      return context.result().cancelled();
+    return result.failed(retryDelay);
+  }
+
+  /**
+   * Returns true if the publications of the job did not use up all the retries of the queue yet.
+   */
+  private static boolean canRetry(Job job) {
+    int numberOfRetries = job.getNumberOfRetries();
+    return numberOfRetries < 0 || PublicationJobProperties.getRetryCount(job) < numberOfRetries;
+  }
+
+  private static List<String> getNames(List<StreamxInstanceClient> streamxInstanceClients) {
+    return streamxInstanceClients.stream()
+        .map(StreamxInstanceClient::getName)
+        .collect(Collectors.toList());
+  }
+
+  private boolean tryAcquireCircuit(String clientName) {
+    DefaultStreamxClientCircuitBreakers breakers = circuitBreakers;
+    return breakers == null || breakers.tryAcquire(clientName);
+  }
+
+  private long getDeferDelay() {
+    StreamxClientConcurrencyLimits limits = concurrencyLimits;
+    return limits == null ? 0 : limits.getDeferDelay();
+  }
+
+  private long getCircuitRetryDelay(String clientName) {
+    DefaultStreamxClientCircuitBreakers breakers = circuitBreakers;
+    return breakers == null ? 0 : breakers.getRemainingOpenTime(clientName);
+  }
+
+  private static List<ResourceInfo> getResources(Job job) {
+    String[] serializedResources = PublicationJobProperties.getResources(job);
+    if (serializedResources != null) {
+      return Stream.of(serializedResources)
+          .map(ResourceInfo::deserialize)
+          .collect(Collectors.toList());
     }
+    String path = PublicationJobProperties.getResourcePath(job);
+    if (StringUtils.isEmpty(path)) {
+      return List.of();
+    }
+    Map<String, String> resourceProperties = ResourceInfo.deserializeProperties(
+        PublicationJobProperties.getResourceProperties(job));
+    return List.of(new ResourceInfo(path, resourceProperties));
+  }
+
+  private static PublicationJobProperties createRetryJobProperties(String handlerId, List<String> clientNames,
+      PublicationAction action, List<ResourceInfo> resources) {
+    PublicationJobProperties properties = new PublicationJobProperties()
+        .withHandlerId(handlerId)
+        .withClientNames(clientNames)
+        .withAction(action);
+    if (resources.size() == 1) {
+      properties.withResource(resources.get(0));
+    } else {
+      properties.withResources(resources);
+    }
+    return properties;
+  }
 
+  private PublicationHandler<?> findHandler(String handlerId) {
+    return publicationHandlerRegistry.getById(handlerId);
+  }
+
+  private static PublicationData<?> createPublicationData(PublicationHandler<?> publicationHandler,
+      PublicationAction action, ResourceInfo resource) throws StreamxPublicationException {
+    PublicationData<?> publicationData;
     switch (action) {
       case PUBLISH:
-        handlePublish(publicationHandler, streamxInstanceClient, resource);
+        publicationData = publicationHandler.getPublishData(resource);
         break;
       case UNPUBLISH:
-        handleUnpublish(publicationHandler, streamxInstanceClient, resource);
+        publicationData = publicationHandler.getUnpublishData(resource);
         break;
       default:
-        LOG.trace("Unsupported publication action: {}", action);
-        return context.result().cancelled();
+        throw new IllegalArgumentException("Unsupported publication action: " + action);
     }
-    return context.result().succeeded();
+    if (publicationData == null) {
+      LOG.trace("{} data returned by handler {} is null", action, publicationHandler.getClass().getName());
+    }
+    return publicationData;
   }
 
-  private PublicationHandler<?> findHandler(String handlerId) {
-    return publicationHandlerRegistry.getHandlers().stream()
-        .filter(handler -> handlerId.equals(handler.getId()))
-        .findFirst()
-        .orElse(null);
-  }
-
-  private <T> void handlePublish(PublicationHandler<T> publicationHandler,
-      StreamxInstanceClient streamxInstanceClient, ResourceInfo resource)
-      throws StreamxPublicationException, StreamxClientException {
-    PublishData<T> publishData = publicationHandler.getPublishData(resource);
-    if (publishData == null) {
-      LOG.trace("Publish data returned by handler {} is null", publicationHandler.getClass().getName());
-      return;
+  /**
+   * Returns the digest of the publish data, if the digests of the sent publish data are stored.
+   */
+  private String computeDigest(PublicationData<?> publicationData) {
+    if (publicationDigestStore == null || !(publicationData instanceof PublishData)) {
+      return null;
     }
-    Publisher<T> publisher = streamxInstanceClient.getPublisher(publishData);
-    Message<T> messageToSend = Message.newPublishMessage(publishData.getKey(), publishData.getModel())
-            .withProperties(publishData.getProperties())
-            .build();
-    publisher.send(messageToSend);
-    LOG.info("Published resource {} using client '{}' to channel {}", publishData.getKey(),
-        streamxInstanceClient.getName(), publishData.getChannel());
-  }
-
-  private <T> void handleUnpublish(PublicationHandler<T> publicationHandler,
-      StreamxInstanceClient streamxInstanceClient, ResourceInfo resource)
-      throws StreamxPublicationException, StreamxClientException {
-    UnpublishData<T> unpublishData = publicationHandler.getUnpublishData(resource);
-    if (unpublishData == null) {
-      LOG.trace("Unpublish data returned by handler {} is null", publicationHandler.getClass().getName());
-      return;
+    return PublishDataDigest.compute((PublishData<?>) publicationData);
+  }
+
+  /**
+   * Sends the publication, keeping the client from being closed until it's sent, even if it's replaced meanwhile.
+   */
+  private <T> void send(PublicationData<T> publicationData, String digest,
+      StreamxInstanceClient streamxInstanceClient, boolean retried)
+      throws StreamxClientException, PublicationDeferredException {
+    streamxInstanceClient.sendStarted();
+    try {
+      send(publicationData, digest, streamxInstanceClient.getName(), streamxInstanceClient.getPublisher(publicationData),
+          retried);
+    } finally {
+      streamxInstanceClient.sendCompleted();
+    }
+  }
+
+  private <T> void send(PublicationData<T> publicationData, String digest, String clientName,
+      Publisher<T> publisher, boolean retried) throws StreamxClientException, PublicationDeferredException {
+    PublicationDigestStore digestStore = publicationDigestStore;
+    if (publicationData instanceof PublishData) {
+      PublishData<T> publishData = (PublishData<T>) publicationData;
+      if (digest != null && digestStore != null
+          && digest.equals(digestStore.getDigest(clientName, publishData.getChannel(), publishData.getKey()))) {
+        long skippedCount = skippedMessagesCount.incrementAndGet();
+        LOG.info("Skipped publishing unchanged resource {} using client '{}' to channel {}. Unchanged resources skipped so far: {}",
+            publishData.getKey(), clientName, publishData.getChannel(), skippedCount);
+        return;
+      }
+      Message<T> messageToSend = Message.newPublishMessage(publishData.getKey(), publishData.getModel())
+          .withProperties(publishData.getProperties())
+          .build();
+      sendMessage(publisher, messageToSend, clientName, retried);
+      LOG.info("Published resource {} using client '{}' to channel {}", publishData.getKey(),
+          clientName, publishData.getChannel());
+      if (digest != null && digestStore != null) {
+        digestStore.putDigest(clientName, publishData.getChannel(), publishData.getKey(), digest);
+      }
+    } else {
+      if (digestStore != null) {
+        // forgotten before sending, so that the resource is published again even if unpublishing fails halfway
+        digestStore.removeDigest(clientName, publicationData.getChannel(), publicationData.getKey());
+      }
+      Message<T> messageToSend = Message.<T>newUnpublishMessage(publicationData.getKey())
+          .withProperties(publicationData.getProperties())
+          .build();
+      sendMessage(publisher, messageToSend, clientName, retried);
+      LOG.info("Unpublished resource {} using client '{}' from channel {}", publicationData.getKey(),
+          clientName, publicationData.getChannel());
+    }
+  }
+
+  /**
+   * Sends the message, holding a permit of the concurrency limit of the client only while it's being sent.
+   * Only the first attempts of sending are counted as sent publications by the retry budget, so that the retries
+   * don't raise their own budget.
+   *
+   * @throws PublicationDeferredException if the permit could not be acquired, so the message was not sent
+   */
+  private <T> void sendMessage(Publisher<T> publisher, Message<T> message, String clientName, boolean retried)
+      throws StreamxClientException, PublicationDeferredException {
+    DefaultStreamxClientCircuitBreakers breakers = circuitBreakers;
+    StreamxClientConcurrencyLimits limits = concurrencyLimits;
+    PublicationRetryBudget budget = retryBudget;
+    if (limits != null && !limits.tryAcquire(clientName)) {
+      throw new PublicationDeferredException();
+    }
+    try {
+      if (budget != null && !retried) {
+        budget.recordSend();
+      }
+      long startTime = System.currentTimeMillis();
+      try {
+        publisher.send(message);
+      } catch (StreamxClientException e) {
+        if (breakers != null) {
+          recordFailure(breakers, clientName, e);
+        }
+        if (limits != null) {
+          limits.onSendCompleted(clientName, startTime, System.currentTimeMillis() - startTime, true);
+        }
+        throw e;
+      }
+      if (breakers != null) {
+        breakers.recordSuccess(clientName);
+      }
+      if (limits != null) {
+        limits.onSendCompleted(clientName, startTime, System.currentTimeMillis() - startTime, false);
+      }
+    } finally {
+      if (limits != null) {
+        limits.release(clientName);
+      }
+    }
+    sentMessagesCount.incrementAndGet();
+  }
+
+  /**
+   * Records the failure in the circuit breaker of the client, if it shows that the StreamX instance is unavailable.
+   * A publication rejected with a 4xx status shows that the instance is available, while a failure of an unknown
+   * kind is not recorded.
+   */
+  private static void recordFailure(DefaultStreamxClientCircuitBreakers breakers, String clientName,
+      StreamxClientException failure) {
+    switch (PublicationFailureType.of(failure)) {
+      case CONNECTION:
+      case TIMEOUT:
+      case SERVER_ERROR:
+        breakers.recordFailure(clientName);
+        break;
+      case CLIENT_ERROR:
+        breakers.recordSuccess(clientName);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Returns the number of publish and unpublish messages sent to StreamX since the activation of this service.
+   */
+  long getSentMessagesCount() {
+    return sentMessagesCount.get();
+  }
+
+  /**
+   * Returns the number of publish messages that were not sent to StreamX since the activation of this service,
+   * because the same publish data had already been sent.
+   */
+  long getSkippedMessagesCount() {
+    return skippedMessagesCount.get();
+  }
+
+  /**
+   * Thrown when a message is not sent, since the limit of concurrent publications of the client is reached.
+   */
+  private static final class PublicationDeferredException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private PublicationDeferredException() {
+      super("Limit of concurrent publications of the StreamX client is reached", null, false, false);
+    }
+  }
+
+  /**
+   * Outcomes of the deliveries of the resources of a publication job to its clients, also logged in the context of
+   * the job.
+   */
+  private static final class PublicationOutcomes {
+
+    private final JobExecutionContext context;
+    private final PublicationAction action;
+    private final int resourcesCount;
+    private final int clientsCount;
+    private final Map<String, List<ResourceInfo>> failedResourcesByClientName = new LinkedHashMap<>();
+    private final Map<String, Exception> lastFailureByClientName = new LinkedHashMap<>();
+    private final Map<String, List<ResourceInfo>> postponedResourcesByClientName = new LinkedHashMap<>();
+    private final Map<String, Long> postponeDelayByClientName = new LinkedHashMap<>();
+    private Exception lastFailure;
+    private int failedCount;
+    private int postponedCount;
+    private int skippedCount;
+    private int supersededCount;
+
+    private PublicationOutcomes(JobExecutionContext context, PublicationAction action, int resourcesCount,
+        int clientsCount) {
+      this.context = context;
+      this.action = action;
+      this.resourcesCount = resourcesCount;
+      this.clientsCount = clientsCount;
+    }
+
+    private void succeeded(ResourceInfo resource, String clientName) {
+      context.log("{0} of {1} to {2} succeeded", action, resource.getPath(), clientName);
+    }
+
+    private void failed(ResourceInfo resource, String clientName, Exception failure) {
+      context.log("{0} of {1} to {2} failed: {3}", action, resource.getPath(), clientName, failure.getMessage());
+      failedResourcesByClientName.computeIfAbsent(clientName, key -> new ArrayList<>()).add(resource);
+      lastFailureByClientName.put(clientName, failure);
+      lastFailure = failure;
+      failedCount++;
+    }
+
+    private void postponed(ResourceInfo resource, String clientName, long delay) {
+      context.log("{0} of {1} to {2} postponed", action, resource.getPath(), clientName);
+      postponedResourcesByClientName.computeIfAbsent(clientName, key -> new ArrayList<>()).add(resource);
+      postponeDelayByClientName.merge(clientName, delay, Math::max);
+      postponedCount++;
+    }
+
+    private void skipped(ResourceInfo resource, String clientName, RuntimeException failure) {
+      context.log("{0} of {1} to {2} skipped: {3}", action, resource.getPath(), clientName, failure.getMessage());
+      skippedCount++;
+    }
+
+    private void superseded(ResourceInfo resource, String clientName) {
+      context.log("{0} of {1} to {2} superseded by a newer publication job", action, resource.getPath(), clientName);
+      supersededCount++;
+    }
+
+    private boolean isPostponed(String clientName) {
+      return postponedResourcesByClientName.containsKey(clientName);
+    }
+
+    private int getDeliveriesCount() {
+      return resourcesCount * clientsCount;
+    }
+
+    private int getFailedCount() {
+      return failedCount;
+    }
+
+    private int getPostponedCount() {
+      return postponedCount;
+    }
+
+    private int getSkippedCount() {
+      return skippedCount;
+    }
+
+    private int getSupersededCount() {
+      return supersededCount;
+    }
+
+    private Map<String, List<ResourceInfo>> getFailedResourcesByClientName() {
+      return failedResourcesByClientName;
+    }
+
+    private Map<String, List<ResourceInfo>> getPostponedResourcesByClientName() {
+      return postponedResourcesByClientName;
+    }
+
+    private Exception getLastFailure() {
+      return lastFailure;
+    }
+
+    private Exception getLastFailure(String clientName) {
+      return lastFailureByClientName.get(clientName);
+    }
+
+    private long getPostponeDelay(String clientName) {
+      return postponeDelayByClientName.get(clientName);
+    }
+
+    private String getSummary() {
+      int succeededCount = getDeliveriesCount() - failedCount - postponedCount - skippedCount - supersededCount;
+      if (clientsCount > 1) {
+        return String.format("Fan-out of %d resources to %d clients processed: "
+                + "%d deliveries succeeded, %d failed, %d postponed, %d skipped, %d superseded",
+            resourcesCount, clientsCount, succeededCount, failedCount, postponedCount, skippedCount, supersededCount);
+      }
+      return String.format("Batch of %d resources processed: %d succeeded, %d failed, %d postponed, %d skipped, %d superseded",
+          resourcesCount, succeededCount, failedCount, postponedCount, skippedCount, supersededCount);
     }
-    Publisher<T> publisher = streamxInstanceClient.getPublisher(unpublishData);
-    Message<T> messageToSend = Message.<T>newUnpublishMessage(unpublishData.getKey())
-        .withProperties(unpublishData.getProperties())
-        .build();
-    publisher.send(messageToSend);
-    LOG.info("Unpublished resource {} using client '{}' from channel {}", unpublishData.getKey(),
-        streamxInstanceClient.getName(), unpublishData.getChannel());
   }
 
 }
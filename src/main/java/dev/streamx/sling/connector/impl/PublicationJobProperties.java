@@ -2,22 +2,38 @@ package dev.streamx.sling.connector.impl;
 
 import dev.streamx.sling.connector.PublicationAction;
 import dev.streamx.sling.connector.ResourceInfo;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.NotificationConstants;
+import org.apache.sling.event.jobs.ScheduledJobInfo;
+import org.osgi.service.event.Event;
 
 class PublicationJobProperties {
 
   private static final String PN_STREAMX_PUBLICATION_HANDLER_ID = "streamx.publication.handler.id";
   private static final String PN_STREAMX_PUBLICATION_CLIENT_NAME = "streamx.publication.client.name";
+  private static final String PN_STREAMX_PUBLICATION_CLIENT_NAMES = "streamx.publication.client.names";
   private static final String PN_STREAMX_PUBLICATION_ACTION = "streamx.publication.action";
   private static final String PN_STREAMX_PUBLICATION_PATH = "streamx.publication.path";
   private static final String PN_STREAMX_PUBLICATION_PROPERTIES = "streamx.publication.properties";
+  private static final String PN_STREAMX_PUBLICATION_RESOURCES = "streamx.publication.resources";
+  private static final String PN_STREAMX_PUBLICATION_ID = "streamx.publication.id";
+  private static final String PN_STREAMX_PUBLICATION_RETRY_COUNT = "streamx.publication.retry.count";
 
   private String handlerId;
   private String clientName;
+  private String[] clientNames;
   private String action;
   private String resourcePath;
   private String resourceProperties;
+  private String[] resources;
+  private String publicationId;
+  private int retryCount;
 
   PublicationJobProperties withHandlerId(String handlerId) {
     this.handlerId = handlerId;
@@ -29,6 +45,21 @@ class PublicationJobProperties {
     return this;
   }
 
+  /**
+   * Sets the names of the clients to which the publication data is sent. If there is more than one client,
+   * the job is a fan-out job: the publication data is created once and sent to every client.
+   */
+  PublicationJobProperties withClientNames(List<String> clientNames) {
+    if (clientNames.size() == 1) {
+      this.clientName = clientNames.get(0);
+      this.clientNames = null;
+    } else {
+      this.clientName = null;
+      this.clientNames = clientNames.toArray(String[]::new);
+    }
+    return this;
+  }
+
   PublicationJobProperties withAction(PublicationAction action) {
     this.action = action.toString();
     return this;
@@ -40,14 +71,51 @@ class PublicationJobProperties {
     return this;
   }
 
+  PublicationJobProperties withResources(Collection<ResourceInfo> resources) {
+    this.resources = resources.stream().map(ResourceInfo::serialize).toArray(String[]::new);
+    return this;
+  }
+
+  /**
+   * Sets the ID under which the job is tracked by the {@link PendingPublicationJobsIndex} instead of the job ID.
+   * It's set for the jobs that are submitted again to continue the publications of other jobs, so that they can be
+   * tracked before they're added to the queue.
+   */
+  PublicationJobProperties withPublicationId(String publicationId) {
+    this.publicationId = publicationId;
+    return this;
+  }
+
+  /**
+   * Sets the number of retries that the publications of the job used up in the jobs from which it was submitted again.
+   */
+  PublicationJobProperties withRetryCount(int retryCount) {
+    this.retryCount = retryCount;
+    return this;
+  }
+
   Map<String, Object> asMap() {
-    return Map.of(
-        PN_STREAMX_PUBLICATION_HANDLER_ID, handlerId,
-        PN_STREAMX_PUBLICATION_CLIENT_NAME, clientName,
-        PN_STREAMX_PUBLICATION_ACTION, action,
-        PN_STREAMX_PUBLICATION_PATH, resourcePath,
-        PN_STREAMX_PUBLICATION_PROPERTIES, resourceProperties
-    );
+    Map<String, Object> map = new HashMap<>();
+    map.put(PN_STREAMX_PUBLICATION_HANDLER_ID, handlerId);
+    if (clientNames != null) {
+      map.put(PN_STREAMX_PUBLICATION_CLIENT_NAMES, clientNames);
+    } else {
+      map.put(PN_STREAMX_PUBLICATION_CLIENT_NAME, clientName);
+    }
+    map.put(PN_STREAMX_PUBLICATION_ACTION, action);
+    if (resources != null) {
+      map.put(PN_STREAMX_PUBLICATION_RESOURCES, resources);
+    } else {
+      map.put(PN_STREAMX_PUBLICATION_PATH, resourcePath);
+      map.put(PN_STREAMX_PUBLICATION_PROPERTIES, resourceProperties);
+    }
+    if (publicationId != null) {
+      map.put(PN_STREAMX_PUBLICATION_ID, publicationId);
+    }
+    if (retryCount > 0) {
+      map.put(PN_STREAMX_PUBLICATION_RETRY_COUNT, retryCount);
+    }
+    return Map.copyOf(map);
   }
 
   static String getHandlerId(Job job) {
@@ -58,6 +126,16 @@ class PublicationJobProperties {
     return job.getProperty(PN_STREAMX_PUBLICATION_CLIENT_NAME, String.class);
   }
 
+  /**
+   * Returns the names of all clients of the job, that is a single client name,
+   * or the client names of a fan-out job.
+   */
+  static List<String> getClientNames(Job job) {
+    return getClientNames(
+        getClientName(job),
+        job.getProperty(PN_STREAMX_PUBLICATION_CLIENT_NAMES, String[].class));
+  }
+
   static String getAction(Job job) {
     return job.getProperty(PN_STREAMX_PUBLICATION_ACTION, String.class);
   }
@@ -69,4 +147,86 @@ class PublicationJobProperties {
   static String getResourceProperties(Job job) {
     return job.getProperty(PN_STREAMX_PUBLICATION_PROPERTIES, String.class);
   }
+
+  static String[] getResources(Job job) {
+    return job.getProperty(PN_STREAMX_PUBLICATION_RESOURCES, String[].class);
+  }
+
+  static List<String> getResourcePaths(Job job) {
+    return getResourcePaths(getResourcePath(job), getResources(job));
+  }
+
+  /**
+   * Returns the ID under which the job is tracked by the {@link PendingPublicationJobsIndex}.
+   */
+  static String getPublicationId(Job job) {
+    String publicationId = job.getProperty(PN_STREAMX_PUBLICATION_ID, String.class);
+    return publicationId != null ? publicationId : job.getId();
+  }
+
+  /**
+   * Returns the number of retries that the publications of the job used up, including the retries of the jobs
+   * from which it was submitted again.
+   */
+  static int getRetryCount(Job job) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) job.getRetryCount() + getPreviousRetryCount(job));
+  }
+
+  /**
+   * Returns the number of retries that the publications of the job used up in the jobs from which it was submitted again.
+   */
+  static int getPreviousRetryCount(Job job) {
+    Integer retryCount = job.getProperty(PN_STREAMX_PUBLICATION_RETRY_COUNT, Integer.class);
+    return retryCount != null ? retryCount : 0;
+  }
+
+  static String getPublicationId(ScheduledJobInfo scheduledJob) {
+    return (String) scheduledJob.getJobProperties().get(PN_STREAMX_PUBLICATION_ID);
+  }
+
+  static String getPublicationId(Event event) {
+    String publicationId = (String) event.getProperty(PN_STREAMX_PUBLICATION_ID);
+    return publicationId != null ? publicationId : (String) event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID);
+  }
+
+  static String getHandlerId(Event event) {
+    return (String) event.getProperty(PN_STREAMX_PUBLICATION_HANDLER_ID);
+  }
+
+  static String getClientName(Event event) {
+    return (String) event.getProperty(PN_STREAMX_PUBLICATION_CLIENT_NAME);
+  }
+
+  static List<String> getClientNames(Event event) {
+    return getClientNames(
+        getClientName(event),
+        (String[]) event.getProperty(PN_STREAMX_PUBLICATION_CLIENT_NAMES));
+  }
+
+  static String getAction(Event event) {
+    return (String) event.getProperty(PN_STREAMX_PUBLICATION_ACTION);
+  }
+
+  static List<String> getResourcePaths(Event event) {
+    return getResourcePaths(
+        (String) event.getProperty(PN_STREAMX_PUBLICATION_PATH),
+        (String[]) event.getProperty(PN_STREAMX_PUBLICATION_RESOURCES));
+  }
+
+  private static List<String> getClientNames(String clientName, String[] clientNames) {
+    if (clientNames != null) {
+      return List.of(clientNames);
+    }
+    return clientName != null ? List.of(clientName) : List.of();
+  }
+
+  private static List<String> getResourcePaths(String resourcePath, String[] resources) {
+    if (resources != null) {
+      return Stream.of(resources)
+          .map(ResourceInfo::deserialize)
+          .map(ResourceInfo::getPath)
+          .collect(Collectors.toList());
+    }
+    return resourcePath != null ? List.of(resourcePath) : List.of();
+  }
 }
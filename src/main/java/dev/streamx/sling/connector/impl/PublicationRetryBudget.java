@@ -0,0 +1,120 @@
+package dev.streamx.sling.connector.impl;
+
+import java.util.function.LongSupplier;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.Designate;
+
+/**
+ * Global budget of retries of publication jobs. Retries are executed only as long as their number in the recent time
+ * window is within the configured percentage of the publications sent in it, or within the configured minimal number
+ * of retries, whichever is higher. Only the first attempts of sending publications are counted as sent, so the retries
+ * don't raise their own budget. Otherwise, the retries are postponed without using up a retry, so that after StreamX
+ * recovers from a failure they don't crowd out new publications or overload it again. The counts are kept in buckets
+ * of a tenth of the window.
+ */
+@Component(service = PublicationRetryBudget.class, immediate = true)
+@Designate(ocd = PublicationRetryBudgetConfig.class)
+public class PublicationRetryBudget {
+
+  private static final int BUCKETS_COUNT = 10;
+
+  private final LongSupplier clock;
+  private final long[] sendCounts = new long[BUCKETS_COUNT];
+  private final long[] retryCounts = new long[BUCKETS_COUNT];
+  private long currentBucket;
+
+  private volatile boolean enabled;
+  private double retryRatio;
+  private long minRetriesPerWindow;
+  private long bucketLength;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public PublicationRetryBudget() {
+    this(System::currentTimeMillis);
+  }
+
+  PublicationRetryBudget(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private synchronized void configure(PublicationRetryBudgetConfig config) {
+    enabled = config.enabled();
+    retryRatio = Math.max(0, config.retry_ratio()) / 100.0;
+    long window = Math.max(BUCKETS_COUNT, config.window());
+    minRetriesPerWindow = Math.max(0, config.min_retries_per_second()) * window / 1000;
+    bucketLength = window / BUCKETS_COUNT;
+    currentBucket = clock.getAsLong() / bucketLength;
+    for (int i = 0; i < BUCKETS_COUNT; i++) {
+      sendCounts[i] = 0;
+      retryCounts[i] = 0;
+    }
+  }
+
+  /**
+   * Counts a publication sent to StreamX for the first time.
+   */
+  void recordSend() {
+    if (enabled) {
+      synchronized (this) {
+        sendCounts[advance()]++;
+      }
+    }
+  }
+
+  /**
+   * Counts a retry of a publication job, if it's within the budget.
+   *
+   * @return true if the retry can be executed now
+   */
+  boolean tryAcquireRetry() {
+    if (!enabled) {
+      return true;
+    }
+    synchronized (this) {
+      int bucket = advance();
+      long sends = 0;
+      long retries = 0;
+      for (int i = 0; i < BUCKETS_COUNT; i++) {
+        sends += sendCounts[i];
+        retries += retryCounts[i];
+      }
+      if (retries >= Math.max(minRetriesPerWindow, (long) (sends * retryRatio))) {
+        return false;
+      }
+      retryCounts[bucket]++;
+      return true;
+    }
+  }
+
+  /**
+   * Returns the delay in milliseconds after which a postponed retry should be executed again. It's the length of
+   * a bucket, after which the oldest counts leave the window, so it doesn't grow with the number of retries.
+   */
+  synchronized long getPostponeDelay() {
+    return bucketLength;
+  }
+
+  /**
+   * Clears the buckets that went out of the window and returns the index of the current bucket.
+   */
+  private int advance() {
+    long bucket = clock.getAsLong() / bucketLength;
+    for (long expired = Math.max(currentBucket + 1, bucket - BUCKETS_COUNT + 1); expired <= bucket; expired++) {
+      int index = (int) (expired % BUCKETS_COUNT);
+      sendCounts[index] = 0;
+      retryCounts[index] = 0;
+    }
+    currentBucket = Math.max(currentBucket, bucket);
+    return (int) (currentBucket % BUCKETS_COUNT);
+  }
+}
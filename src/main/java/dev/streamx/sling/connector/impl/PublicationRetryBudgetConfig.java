@@ -0,0 +1,65 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link PublicationRetryBudget}.
+ * This interface defines how many retries of publication jobs are executed in relation to the number of sent
+ * publications.
+ */
+@ObjectClassDefinition(name = "StreamX publication retry budget config")
+public @interface PublicationRetryBudgetConfig {
+
+  /**
+   * The default percentage of the sent publications that retries can make up.
+   */
+  int DEFAULT_RETRY_RATIO = 20;
+
+  /**
+   * The default number of retries per second that are executed regardless of the sent publications.
+   */
+  int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+
+  /**
+   * The default time window in milliseconds in which the sent publications and retries are counted.
+   */
+  long DEFAULT_WINDOW = 10000;
+
+  /**
+   * Returns true if the retries are limited.
+   *
+   * @return true if the retries are limited
+   */
+  @AttributeDefinition(name = "Enabled", description = "Indicates whether the number of executed retries of publication "
+      + "jobs is limited, so that the retries don't crowd out new publications.")
+  boolean enabled() default false;
+
+  /**
+   * Returns the percentage of the sent publications that retries can make up.
+   *
+   * @return the percentage of the sent publications that retries can make up
+   */
+  @AttributeDefinition(name = "Retry ratio", description = "The number of retries executed in the time window, "
+      + "as a percentage of the publications sent in it. Retries over the budget are postponed.")
+  int retry_ratio() default DEFAULT_RETRY_RATIO;
+
+  /**
+   * Returns the number of retries per second that are executed regardless of the sent publications.
+   *
+   * @return the number of retries per second that are executed regardless of the sent publications
+   */
+  @AttributeDefinition(name = "Min retries per second", description = "The number of retries per second that are "
+      + "executed regardless of the sent publications, so that retries are executed when there is nothing else to send.")
+  int min_retries_per_second() default DEFAULT_MIN_RETRIES_PER_SECOND;
+
+  /**
+   * Returns the time window in milliseconds in which the sent publications and retries are counted.
+   *
+   * @return the time window in milliseconds
+   */
+  @AttributeDefinition(name = "Window", description = "The time window in milliseconds in which the sent publications "
+      + "and the executed retries are counted.")
+  long window() default DEFAULT_WINDOW;
+
+}
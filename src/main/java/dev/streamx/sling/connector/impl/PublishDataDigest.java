@@ -0,0 +1,73 @@
+package dev.streamx.sling.connector.impl;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.streamx.sling.connector.PublishData;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes SHA-256 digests of the serialized model and properties of {@link PublishData}. Properties of the model
+ * and entries of maps are serialized in a stable order, so that equal publish data always has the same digest.
+ * The serialized data is streamed into the digest, instead of being buffered, so that large models are not copied.
+ */
+final class PublishDataDigest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PublishDataDigest.class);
+  private static final String ALGORITHM = "SHA-256";
+  private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+      .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+      .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+      .build();
+
+  private PublishDataDigest() {
+    // no instances
+  }
+
+  /**
+   * Returns the digest of the publish data, or {@code null} if its model cannot be serialized.
+   */
+  static String compute(PublishData<?> publishData) {
+    Map<String, Object> serializedData = new LinkedHashMap<>();
+    serializedData.put("model", publishData.getModel());
+    serializedData.put("properties", publishData.getProperties());
+    MessageDigest messageDigest = newMessageDigest();
+    try (OutputStream digestStream = new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest)) {
+      OBJECT_MAPPER.writeValue(digestStream, serializedData);
+    } catch (IOException ex) {
+      LOG.debug("Cannot compute digest of publish data {}, its model cannot be serialized", publishData.getKey(), ex);
+      return null;
+    }
+    return toHex(messageDigest.digest());
+  }
+
+  /**
+   * Returns the digest of the text, for example to use it as a key of fixed length.
+   */
+  static String compute(String text) {
+    return toHex(newMessageDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ALGORITHM + " is not supported", ex);
+    }
+  }
+
+  private static String toHex(byte[] digest) {
+    return String.format("%064x", new BigInteger(1, digest));
+  }
+}
@@ -0,0 +1,206 @@
+package dev.streamx.sling.connector.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps in memory the paths of the published related resources tracked by
+ * {@link PublishedRelatedResourcesInversedTreeManager}, so that checking if a related resource was published doesn't
+ * need a repository lookup. The index is loaded from the tree when it's first needed, then it's updated along with
+ * the tree. Changes of the tree are recorded for the session that made them and applied to the index only once the
+ * session is saved; they're dropped if the session is discarded. If the tree is changed by another instance of
+ * a cluster, the index is invalidated and loaded again when it's needed. A load that runs while a local change is
+ * applied may miss that change, so its result is not kept.
+ * <p>
+ * The same as the tree, the index of the {@link RelatedResourcesStorageLayout#HIERARCHICAL} layout also contains
+ * the paths of the intermediate nodes of the tree.
+ */
+@Component(
+    service = {PublishedRelatedResourcesIndex.class, ResourceChangeListener.class},
+    property = {
+        ResourceChangeListener.PATHS + "=" + PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH,
+        ResourceChangeListener.PATHS + "=" + PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH + "-sharded",
+        ResourceChangeListener.CHANGES + "=ADDED",
+        ResourceChangeListener.CHANGES + "=CHANGED",
+        ResourceChangeListener.CHANGES + "=REMOVED"
+    }
+)
+public class PublishedRelatedResourcesIndex implements ResourceChangeListener, ExternalResourceChangeListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PublishedRelatedResourcesIndex.class);
+
+  private final Object loadLock = new Object();
+  private final Map<Session, List<PendingChange>> pendingChanges = new ConcurrentHashMap<>();
+  private volatile NavigableSet<String> paths;
+  private volatile RelatedResourcesStorageLayout layout;
+  private long generation;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public PublishedRelatedResourcesIndex() {
+  }
+
+  /**
+   * Checks if the tree of the given layout contains the resource, as saved in the repository, loading the index
+   * from the tree if needed.
+   */
+  boolean contains(String resourcePath, Session session, RelatedResourcesStorageLayout layout) throws RepositoryException {
+    NavigableSet<String> loadedPaths = getLoadedPaths(layout);
+    if (loadedPaths == null) {
+      if (session.hasPendingChanges()) {
+        // the index can't be loaded with a session whose changes may still be discarded
+        return session.nodeExists(layout.getNodePath(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH, resourcePath));
+      }
+      loadedPaths = load(session, layout);
+    }
+    return loadedPaths.contains(resourcePath);
+  }
+
+  private NavigableSet<String> load(Session session, RelatedResourcesStorageLayout layout) throws RepositoryException {
+    synchronized (loadLock) {
+      long loadedGeneration;
+      synchronized (this) {
+        NavigableSet<String> loadedPaths = getLoadedPaths(layout);
+        if (loadedPaths != null) {
+          return loadedPaths;
+        }
+        loadedGeneration = generation;
+      }
+      long startTime = System.currentTimeMillis();
+      // changes saved by other sessions before the load are read
+      session.refresh(false);
+      NavigableSet<String> loadedPaths = new ConcurrentSkipListSet<>();
+      layout.forEachNode(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH, session,
+          (resourcePath, node) -> loadedPaths.add(resourcePath));
+      LOG.debug("Loaded {} published related resources in {} ms", loadedPaths.size(), System.currentTimeMillis() - startTime);
+      synchronized (this) {
+        if (generation == loadedGeneration) {
+          this.layout = layout;
+          this.paths = loadedPaths;
+        } else {
+          LOG.debug("Published related resources were changed while the index was loaded, it will be loaded again");
+        }
+      }
+      return loadedPaths;
+    }
+  }
+
+  /**
+   * Records that the resource was added to the tree of the given layout with the session.
+   */
+  void add(String resourcePath, RelatedResourcesStorageLayout layout, Session session) {
+    pendingChanges.computeIfAbsent(session, key -> new ArrayList<>()).add(new PendingChange(true, resourcePath, layout));
+  }
+
+  /**
+   * Records that the resource was removed from the tree of the given layout with the session.
+   */
+  void remove(String resourcePath, RelatedResourcesStorageLayout layout, Session session) {
+    pendingChanges.computeIfAbsent(session, key -> new ArrayList<>()).add(new PendingChange(false, resourcePath, layout));
+  }
+
+  /**
+   * Applies the changes recorded with the session, once it's saved.
+   */
+  synchronized void applyPendingChanges(Session session) {
+    List<PendingChange> changes = pendingChanges.remove(session);
+    if (changes == null) {
+      return;
+    }
+    generation++;
+    for (PendingChange change : changes) {
+      NavigableSet<String> loadedPaths = getLoadedPaths(change.layout);
+      if (loadedPaths == null) {
+        continue;
+      }
+      if (change.added) {
+        add(loadedPaths, change.resourcePath, change.layout);
+      } else {
+        remove(loadedPaths, change.resourcePath, change.layout);
+      }
+    }
+  }
+
+  /**
+   * Drops the changes recorded with the session, once they're discarded.
+   */
+  void discardPendingChanges(Session session) {
+    pendingChanges.remove(session);
+  }
+
+  private static void add(NavigableSet<String> loadedPaths, String resourcePath, RelatedResourcesStorageLayout layout) {
+    if (layout == RelatedResourcesStorageLayout.HIERARCHICAL) {
+      for (int index = resourcePath.indexOf('/', 1); index > 0; index = resourcePath.indexOf('/', index + 1)) {
+        loadedPaths.add(resourcePath.substring(0, index));
+      }
+    }
+    loadedPaths.add(resourcePath);
+  }
+
+  /**
+   * The same as in the tree, descendants of the removed resource and its ancestors that are left without descendants
+   * are removed from the index of the hierarchical layout.
+   */
+  private static void remove(NavigableSet<String> loadedPaths, String resourcePath, RelatedResourcesStorageLayout layout) {
+    loadedPaths.remove(resourcePath);
+    if (layout == RelatedResourcesStorageLayout.HIERARCHICAL) {
+      loadedPaths.subSet(resourcePath + "/", resourcePath + "0").clear();
+      String ancestor = resourcePath;
+      for (int index = ancestor.lastIndexOf('/'); index > 0; index = ancestor.lastIndexOf('/')) {
+        ancestor = ancestor.substring(0, index);
+        String firstDescendant = loadedPaths.ceiling(ancestor + "/");
+        if (firstDescendant != null && firstDescendant.startsWith(ancestor + "/")) {
+          break;
+        }
+        loadedPaths.remove(ancestor);
+      }
+    }
+  }
+
+  private NavigableSet<String> getLoadedPaths(RelatedResourcesStorageLayout layout) {
+    return this.layout == layout ? paths : null;
+  }
+
+  /**
+   * Discards the index, so that it's loaded from the tree when it's needed again.
+   */
+  synchronized void invalidate() {
+    generation++;
+    paths = null;
+  }
+
+  @Override
+  public void onChange(List<ResourceChange> changes) {
+    // local changes are already applied to the index
+    if (changes.stream().anyMatch(ResourceChange::isExternal)) {
+      LOG.debug("Published related resources were changed by another instance, the index will be loaded again");
+      invalidate();
+    }
+  }
+
+  private static final class PendingChange {
+
+    private final boolean added;
+    private final String resourcePath;
+    private final RelatedResourcesStorageLayout layout;
+
+    private PendingChange(boolean added, String resourcePath, RelatedResourcesStorageLayout layout) {
+      this.added = added;
+      this.resourcePath = resourcePath;
+      this.layout = layout;
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package dev.streamx.sling.connector.impl;
 
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -9,41 +11,215 @@ import javax.jcr.Session;
  * This class serves as a manager of inversed tree that PublishedRelatedResourcesManager produces.
  * Methods of this class should be called in transaction with methods that modify the original tree,
  * so that both trees are always in a consistent state.
+ * <p>
+ * Every node of a related resource counts the parent resources that reference it in the original tree, so that
+ * checking if a shared related resource is still referenced by any parent resource takes a single read. The count is
+ * split into {@value #REFERENCE_COUNT_SHARDS} properties, each counting the parent resources whose paths hash to it, so
+ * that trigger jobs processed in parallel for different parent resources rarely change the same property of a widely
+ * shared related resource. Oak merges concurrent changes of different properties of a node. Concurrent changes of the
+ * same property are merged too if they set the same value, which would lose one of two equal increments, so every
+ * change of a shard also sets a random revision of it: such changes always conflict, and the later commit fails and is
+ * applied again to the current count. A count stored in a single property by previous versions is kept and added to
+ * the shards.
  */
 final class PublishedRelatedResourcesInversedTreeManager {
 
   static final String BASE_NODE_PATH = "/var/streamx/connector/sling/related-resources";
+  private static final String PN_REFERENCE_COUNT = "referenceCount";
+  private static final String PN_REFERENCES_COUNTED = "referencesCounted";
+  private static final String PN_REVISION_SUFFIX = "-revision";
+  static final int REFERENCE_COUNT_SHARDS = 8;
 
   private PublishedRelatedResourcesInversedTreeManager() {
     // no instances
   }
 
-  static void addData(Set<String> relatedResources, Session session) throws RepositoryException {
+  /**
+   * Adds the related resources referenced by the given parent resource to the tree, counting the reference. A tree
+   * created here counts the references from the start, so it's marked as counted.
+   */
+  static void addData(Set<String> relatedResources, String parentResourcePath, Session session,
+      RelatedResourcesStorageLayout layout, PublishedRelatedResourcesIndex index) throws RepositoryException {
+    if (relatedResources.isEmpty()) {
+      return;
+    }
+    String basePath = layout.getBasePath(BASE_NODE_PATH);
+    boolean baseNodeCreated = !session.nodeExists(basePath);
+    int shard = getReferenceCountShard(parentResourcePath);
     for (String relatedResource : relatedResources) {
-      String relatedResourceJcrPath = BASE_NODE_PATH + relatedResource;
-      JcrNodeHelper.createNode(relatedResourceJcrPath, session);
+      Node node = layout.createNode(BASE_NODE_PATH, relatedResource, session);
+      changeReferenceCount(node, shard, 1);
+      index.add(relatedResource, layout, session);
+    }
+    if (baseNodeCreated) {
+      session.getNode(basePath).setProperty(PN_REFERENCES_COUNTED, true);
     }
   }
 
   /**
    * Removes the paths of the specified related resources from the tree, but only if they are internal to the given parent resource.
    * Assuming each related resource extracted from the parent’s content has a unique, extension-based path,
-   * the method should never remove any nested nodes.
+   * the method should never remove any nested nodes. Reference counts of the other related resources are decremented.
    */
-  static void removeData(Set<String> relatedResources, String parentResourcePath, Session session) throws RepositoryException {
+  static void removeData(Set<String> relatedResources, String parentResourcePath, Session session,
+      RelatedResourcesStorageLayout layout, PublishedRelatedResourcesIndex index) throws RepositoryException {
+    int shard = getReferenceCountShard(parentResourcePath);
     for (String relatedResource : relatedResources) {
       if (InternalResourceDetector.isInternalResource(relatedResource, parentResourcePath)) {
-        String relatedResourceJcrPath = BASE_NODE_PATH + relatedResource;
+        removeNode(relatedResource, session, layout, index);
+      } else {
+        String relatedResourceJcrPath = layout.getNodePath(BASE_NODE_PATH, relatedResource);
         if (session.nodeExists(relatedResourceJcrPath)) {
-          Node nodeToRemove = session.getNode(relatedResourceJcrPath);
-          JcrNodeHelper.removeNodeAlongWithOrphanedParents(nodeToRemove, BASE_NODE_PATH);
+          Node node = session.getNode(relatedResourceJcrPath);
+          changeReferenceCount(node, shard, -1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks if the related resource is tracked in the tree, but is no longer referenced by any parent resource.
+   * Nodes of the hierarchical layout that have child nodes are never reported, since they can't be removed without
+   * removing the related resources tracked in their children.
+   */
+  static boolean isOrphaned(String relatedResource, Session session, RelatedResourcesStorageLayout layout)
+      throws RepositoryException {
+    String relatedResourceJcrPath = layout.getNodePath(BASE_NODE_PATH, relatedResource);
+    if (!session.nodeExists(relatedResourceJcrPath)) {
+      return false;
+    }
+    Node node = session.getNode(relatedResourceJcrPath);
+    return getReferenceCount(node) == 0 && !node.hasNodes();
+  }
+
+  static void removeOrphaned(Set<String> relatedResources, Session session, RelatedResourcesStorageLayout layout,
+      PublishedRelatedResourcesIndex index) throws RepositoryException {
+    for (String relatedResource : relatedResources) {
+      removeNode(relatedResource, session, layout, index);
+    }
+  }
+
+  private static void removeNode(String relatedResource, Session session, RelatedResourcesStorageLayout layout,
+      PublishedRelatedResourcesIndex index) throws RepositoryException {
+    String relatedResourceJcrPath = layout.getNodePath(BASE_NODE_PATH, relatedResource);
+    if (!session.nodeExists(relatedResourceJcrPath)) {
+      return;
+    }
+    JcrNodeHelper.removeNodeAlongWithOrphanedParents(session.getNode(relatedResourceJcrPath), layout.getBasePath(BASE_NODE_PATH));
+    index.remove(relatedResource, layout, session);
+    if (layout == RelatedResourcesStorageLayout.HIERARCHICAL) {
+      // ancestors that track related resources themselves are kept in the tree, so they must be kept in the index too
+      String ancestor = relatedResource;
+      for (int separator = ancestor.lastIndexOf('/'); separator > 0; separator = ancestor.lastIndexOf('/')) {
+        ancestor = ancestor.substring(0, separator);
+        if (session.nodeExists(layout.getNodePath(BASE_NODE_PATH, ancestor))) {
+          index.add(ancestor, layout, session);
+          break;
         }
       }
     }
   }
 
-  static boolean wasPublished(String relatedResource, Session session) throws RepositoryException {
-    String relatedResourceJcrPath = BASE_NODE_PATH + relatedResource;
-    return session.nodeExists(relatedResourceJcrPath);
+  /**
+   * Checks if the reference counts of the tree of the given layout are known. They are not known for a tree
+   * that was created by a version that didn't count the references.
+   */
+  static boolean areReferencesCounted(RelatedResourcesStorageLayout layout, Session session) throws RepositoryException {
+    String basePath = layout.getBasePath(BASE_NODE_PATH);
+    return !session.nodeExists(basePath) || session.getNode(basePath).hasProperty(PN_REFERENCES_COUNTED);
+  }
+
+  /**
+   * Replaces the reference counts of all the related resources of the tree with the given ones, indexed by the shards
+   * of the parent resources. Related resources missing in the given map are not referenced by any parent resource.
+   */
+  static void setReferenceCounts(Map<String, long[]> referenceCounts, RelatedResourcesStorageLayout layout, Session session,
+      JcrBatchSaver saver) throws RepositoryException {
+    String basePath = layout.getBasePath(BASE_NODE_PATH);
+    if (!session.nodeExists(basePath)) {
+      return;
+    }
+    long[] noReferences = new long[REFERENCE_COUNT_SHARDS];
+    layout.forEachNode(BASE_NODE_PATH, session, (relatedResource, node) -> {
+      long[] shardCounts = referenceCounts.getOrDefault(relatedResource, noReferences);
+      boolean changed = false;
+      if (node.hasProperty(PN_REFERENCE_COUNT)) {
+        node.getProperty(PN_REFERENCE_COUNT).remove();
+        changed = true;
+      }
+      for (int shard = 0; shard < REFERENCE_COUNT_SHARDS; shard++) {
+        String referenceCountProperty = getReferenceCountProperty(shard);
+        if (getCount(node, referenceCountProperty) != shardCounts[shard]) {
+          setCount(node, referenceCountProperty, shardCounts[shard]);
+          changed = true;
+        }
+      }
+      if (changed) {
+        saver.changed();
+      }
+    });
+    session.getNode(basePath).setProperty(PN_REFERENCES_COUNTED, true);
+    saver.save();
+  }
+
+  /**
+   * Returns the shard of the reference count that counts the references of the given parent resource.
+   */
+  static int getReferenceCountShard(String parentResourcePath) {
+    return Math.floorMod(parentResourcePath.hashCode(), REFERENCE_COUNT_SHARDS);
+  }
+
+  private static String getReferenceCountProperty(int shard) {
+    return PN_REFERENCE_COUNT + "-" + shard;
+  }
+
+  private static void changeReferenceCount(Node node, int shard, long delta) throws RepositoryException {
+    String referenceCountProperty = getReferenceCountProperty(shard);
+    setCount(node, referenceCountProperty, getCount(node, referenceCountProperty) + delta);
+    node.setProperty(referenceCountProperty + PN_REVISION_SUFFIX, ThreadLocalRandom.current().nextLong());
+  }
+
+  private static long getReferenceCount(Node node) throws RepositoryException {
+    long referenceCount = getCount(node, PN_REFERENCE_COUNT);
+    for (int shard = 0; shard < REFERENCE_COUNT_SHARDS; shard++) {
+      referenceCount += getCount(node, getReferenceCountProperty(shard));
+    }
+    return referenceCount;
+  }
+
+  private static long getCount(Node node, String property) throws RepositoryException {
+    return node.hasProperty(property) ? node.getProperty(property).getLong() : 0;
+  }
+
+  /**
+   * Sets a count, removing it if zero. A shard may be negative while the references it stopped counting are still
+   * included in the count stored by previous versions.
+   */
+  private static void setCount(Node node, String property, long count) throws RepositoryException {
+    if (count != 0) {
+      node.setProperty(property, count);
+    } else if (node.hasProperty(property)) {
+      node.getProperty(property).remove();
+    }
+  }
+
+  static boolean wasPublished(String relatedResource, Session session, RelatedResourcesStorageLayout layout,
+      PublishedRelatedResourcesIndex index) throws RepositoryException {
+    return index.contains(relatedResource, session, layout);
+  }
+
+  /**
+   * Copies the tree from the source layout to the target one, leaving the source layout intact. Related resources
+   * of the hierarchical layout are known only from its leaf nodes; the ones whose paths are also parents of other
+   * related resources are copied by {@link PublishedRelatedResourcesTreeManager#copy}.
+   */
+  static void copy(RelatedResourcesStorageLayout source, RelatedResourcesStorageLayout target, Session session,
+      JcrBatchSaver saver) throws RepositoryException {
+    source.forEachNode(BASE_NODE_PATH, session, (relatedResource, node) -> {
+      if (source == RelatedResourcesStorageLayout.SHARDED || !node.hasNodes()) {
+        target.createNode(BASE_NODE_PATH, relatedResource, session);
+        saver.changed();
+      }
+    });
   }
 }
@@ -1,6 +1,7 @@
 package dev.streamx.sling.connector.impl;
 
 import dev.streamx.sling.connector.ResourceInfo;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -19,6 +20,7 @@ final class PublishedRelatedResourcesTreeManager {
 
   static final String BASE_NODE_PATH = "/var/streamx/connector/sling/referenced-related-resources";
   private static final String PN_RELATED_RESOURCES = "relatedResources";
+  private static final int MIGRATION_BATCH_SIZE = 1000;
   private static final Logger LOG = LoggerFactory.getLogger(PublishedRelatedResourcesTreeManager.class);
 
   private PublishedRelatedResourcesTreeManager() {
@@ -33,20 +35,21 @@ final class PublishedRelatedResourcesTreeManager {
    * The returned set contains sum of all disappeared related resources from all the parent pages.
    * It's up to the caller to verify if the returned related resources can be safely unpublished.
    */
-  static Map<String, Set<ResourceInfo>> updatePublishedResourcesData(Map<String, Set<ResourceInfo>> relatedResourcesByParentPath, Session session)
-      throws RepositoryException {
+  static Map<String, Set<ResourceInfo>> updatePublishedResourcesData(Map<String, Set<ResourceInfo>> relatedResourcesByParentPath, Session session,
+      RelatedResourcesStorageLayout layout, PublishedRelatedResourcesIndex index) throws RepositoryException {
     Map<String, Set<ResourceInfo>> disappearedRelatedResources = new LinkedHashMap<>();
     for (Entry<String, Set<ResourceInfo>> relatedResourcesForParentPath : relatedResourcesByParentPath.entrySet()) {
       String parentResourcePath = relatedResourcesForParentPath.getKey();
       Set<ResourceInfo> relatedResources = relatedResourcesForParentPath.getValue();
-      updatePublishedResourcesData(parentResourcePath, relatedResources, session, disappearedRelatedResources);
+      updatePublishedResourcesData(parentResourcePath, relatedResources, session, layout, index, disappearedRelatedResources);
     }
     return disappearedRelatedResources;
   }
 
   private static void updatePublishedResourcesData(String parentResourcePath, Set<ResourceInfo> relatedResources, Session session,
-      Map<String, Set<ResourceInfo>> disappearedRelatedResources) throws RepositoryException {
-    String parentResourceJcrPath = BASE_NODE_PATH + parentResourcePath;
+      RelatedResourcesStorageLayout layout, PublishedRelatedResourcesIndex index, Map<String, Set<ResourceInfo>> disappearedRelatedResources)
+      throws RepositoryException {
+    String parentResourceJcrPath = layout.getNodePath(BASE_NODE_PATH, parentResourcePath);
 
     Node parentResourceJcrNode;
     Set<String> relatedResourcesInJcr;
@@ -54,7 +57,7 @@ final class PublishedRelatedResourcesTreeManager {
       parentResourceJcrNode = session.getNode(parentResourceJcrPath);
       relatedResourcesInJcr = collectRelatedResources(parentResourceJcrNode);
     } else {
-      parentResourceJcrNode = JcrNodeHelper.createNode(parentResourceJcrPath, session);
+      parentResourceJcrNode = layout.createNode(BASE_NODE_PATH, parentResourcePath, session);
       relatedResourcesInJcr = new LinkedHashSet<>();
     }
 
@@ -62,15 +65,15 @@ final class PublishedRelatedResourcesTreeManager {
 
     Set<String> relatedResourcesToAddToJcr = itemsOnlyInFirstSet(relatedResourcesToProcess, relatedResourcesInJcr);
     relatedResourcesInJcr.addAll(relatedResourcesToAddToJcr);
-    PublishedRelatedResourcesInversedTreeManager.addData(relatedResourcesToAddToJcr, session);
+    PublishedRelatedResourcesInversedTreeManager.addData(relatedResourcesToAddToJcr, parentResourcePath, session, layout, index);
 
     Set<String> relatedResourcesToDeleteFromJcr = itemsOnlyInFirstSet(relatedResourcesInJcr, relatedResourcesToProcess);
     relatedResourcesInJcr.removeAll(relatedResourcesToDeleteFromJcr);
-    PublishedRelatedResourcesInversedTreeManager.removeData(relatedResourcesToDeleteFromJcr, parentResourcePath, session);
+    PublishedRelatedResourcesInversedTreeManager.removeData(relatedResourcesToDeleteFromJcr, parentResourcePath, session, layout, index);
 
     if (relatedResourcesInJcr.isEmpty()) {
       if (!parentResourceJcrNode.hasNodes()) {
-        JcrNodeHelper.removeNodeAlongWithOrphanedParents(parentResourceJcrNode, BASE_NODE_PATH);
+        JcrNodeHelper.removeNodeAlongWithOrphanedParents(parentResourceJcrNode, layout.getBasePath(BASE_NODE_PATH));
       } else {
         unsetRelatedResourcesProperty(parentResourceJcrNode);
       }
@@ -97,20 +100,39 @@ final class PublishedRelatedResourcesTreeManager {
     return relatedResources;
   }
 
-  static void removePublishedResourcesData(List<ResourceInfo> parentResources, Session session)
-      throws RepositoryException {
+  /**
+   * Reads the related resources recorded for the parent resources when they were published, without rendering them.
+   * @return Map of related resources by the paths of the parent resources, ordered the same way as the parent resources.
+   * Parent resources with no recorded related resources are mapped to an empty set.
+   */
+  static Map<String, Set<ResourceInfo>> getPublishedRelatedResources(List<ResourceInfo> parentResources, Session session,
+      RelatedResourcesStorageLayout layout) throws RepositoryException {
+    Map<String, Set<ResourceInfo>> relatedResourcesByParentPath = new LinkedHashMap<>();
     for (ResourceInfo parentResource : parentResources) {
       String parentResourcePath = parentResource.getPath();
-      String parentResourceJcrPath = BASE_NODE_PATH + parentResourcePath;
+      String parentResourceJcrPath = layout.getNodePath(BASE_NODE_PATH, parentResourcePath);
+      Set<String> relatedResources = session.nodeExists(parentResourceJcrPath)
+          ? collectRelatedResources(session.getNode(parentResourceJcrPath))
+          : Set.of();
+      relatedResourcesByParentPath.put(parentResourcePath, SetUtils.mapToLinkedHashSet(relatedResources, ResourceInfo::new));
+    }
+    return relatedResourcesByParentPath;
+  }
+
+  static void removePublishedResourcesData(List<ResourceInfo> parentResources, Session session,
+      RelatedResourcesStorageLayout layout, PublishedRelatedResourcesIndex index) throws RepositoryException {
+    for (ResourceInfo parentResource : parentResources) {
+      String parentResourcePath = parentResource.getPath();
+      String parentResourceJcrPath = layout.getNodePath(BASE_NODE_PATH, parentResourcePath);
       if (session.nodeExists(parentResourceJcrPath)) {
         Node parentResourceJcrNode = session.getNode(parentResourceJcrPath);
         Set<String> relatedResources = collectRelatedResources(parentResourceJcrNode);
-        PublishedRelatedResourcesInversedTreeManager.removeData(relatedResources, parentResourcePath, session);
+        PublishedRelatedResourcesInversedTreeManager.removeData(relatedResources, parentResourcePath, session, layout, index);
         if (parentResourceJcrNode.hasProperty(PN_RELATED_RESOURCES)) {
           if (parentResourceJcrNode.hasNodes()) {
             unsetRelatedResourcesProperty(parentResourceJcrNode);
           } else {
-            JcrNodeHelper.removeNodeAlongWithOrphanedParents(parentResourceJcrNode, BASE_NODE_PATH);
+            JcrNodeHelper.removeNodeAlongWithOrphanedParents(parentResourceJcrNode, layout.getBasePath(BASE_NODE_PATH));
           }
         }
       }
@@ -126,15 +148,145 @@ final class PublishedRelatedResourcesTreeManager {
     parentResourceJcrNode.setProperty(PN_RELATED_RESOURCES, (String[]) null);
   }
 
-  static boolean wasPublished(ResourceInfo relatedResource, Session session) {
+  /**
+   * Checks if the related resource was published, but is no longer referenced by any parent resource, so that it can be
+   * unpublished without breaking the content of other parent resources.
+   */
+  static boolean isOrphaned(ResourceInfo relatedResource, Session session, RelatedResourcesStorageLayout layout)
+      throws RepositoryException {
+    return PublishedRelatedResourcesInversedTreeManager.isOrphaned(relatedResource.getPath(), session, layout);
+  }
+
+  static void removeOrphaned(Set<ResourceInfo> relatedResources, Session session, RelatedResourcesStorageLayout layout,
+      PublishedRelatedResourcesIndex index) throws RepositoryException {
+    PublishedRelatedResourcesInversedTreeManager.removeOrphaned(
+        SetUtils.mapToLinkedHashSet(relatedResources, ResourceInfo::getPath), session, layout, index);
+  }
+
+  static boolean wasPublished(ResourceInfo relatedResource, Session session, RelatedResourcesStorageLayout layout,
+      PublishedRelatedResourcesIndex index) {
     try {
-      return PublishedRelatedResourcesInversedTreeManager.wasPublished(relatedResource.getPath(), session);
+      return PublishedRelatedResourcesInversedTreeManager.wasPublished(relatedResource.getPath(), session, layout, index);
     } catch (Exception ex) {
       LOG.error("Error checking if resource was published", ex);
       return false;
     }
   }
 
+  /**
+   * Checks if data of any of the two trees is stored in the given layout.
+   */
+  static boolean isStored(RelatedResourcesStorageLayout layout, Session session) throws RepositoryException {
+    return session.nodeExists(layout.getBasePath(BASE_NODE_PATH))
+        || session.nodeExists(layout.getBasePath(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH));
+  }
+
+  /**
+   * Moves the data of both trees from the source layout to the target one, saving the session every
+   * {@value #MIGRATION_BATCH_SIZE} changes. Data that already exists in the target layout is kept.
+   */
+  static void migrate(RelatedResourcesStorageLayout source, RelatedResourcesStorageLayout target, Session session)
+      throws RepositoryException {
+    if (!isStored(source, session)) {
+      return;
+    }
+    copy(source, target, session);
+    remove(source, session);
+    recountReferences(target, session);
+  }
+
+  /**
+   * Copies the data of both trees from the source layout to the target one, saving the session every
+   * {@value #MIGRATION_BATCH_SIZE} changes. Data that already exists in the target layout is kept. The source layout
+   * is left intact, so that it can still be used while the data is copied. References of the target tree must be
+   * counted afterwards.
+   */
+  static void copy(RelatedResourcesStorageLayout source, RelatedResourcesStorageLayout target, Session session)
+      throws RepositoryException {
+    LOG.info("Copying published related resources data from {} to {} layout", source, target);
+    JcrBatchSaver saver = new JcrBatchSaver(session, MIGRATION_BATCH_SIZE);
+    source.forEachNode(BASE_NODE_PATH, session, (parentResourcePath, node) -> {
+      Set<String> relatedResources = collectRelatedResources(node);
+      if (!relatedResources.isEmpty()) {
+        Node targetNode = target.createNode(BASE_NODE_PATH, parentResourcePath, session);
+        relatedResources.addAll(collectRelatedResources(targetNode));
+        setRelatedResourcesProperty(targetNode, relatedResources);
+        for (String relatedResource : relatedResources) {
+          target.createNode(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH, relatedResource, session);
+        }
+        saver.changed();
+      }
+    });
+    PublishedRelatedResourcesInversedTreeManager.copy(source, target, session, saver);
+    saver.save();
+    LOG.info("Copied published related resources data from {} to {} layout", source, target);
+  }
+
+  /**
+   * Applies the related resources recorded in the source layout for the given parent resources to the target layout,
+   * adjusting the reference counts of the target tree. Used for the parent resources that were changed in the source
+   * layout while it was copied. Changes are left unsaved.
+   */
+  static void synchronize(Set<String> parentResourcePaths, RelatedResourcesStorageLayout source,
+      RelatedResourcesStorageLayout target, Session session, PublishedRelatedResourcesIndex index)
+      throws RepositoryException {
+    for (String parentResourcePath : parentResourcePaths) {
+      String sourceJcrPath = source.getNodePath(BASE_NODE_PATH, parentResourcePath);
+      Set<String> relatedResources = session.nodeExists(sourceJcrPath)
+          ? collectRelatedResources(session.getNode(sourceJcrPath))
+          : Set.of();
+      if (relatedResources.isEmpty()) {
+        removePublishedResourcesData(List.of(new ResourceInfo(parentResourcePath)), session, target, index);
+      } else {
+        updatePublishedResourcesData(parentResourcePath, SetUtils.mapToLinkedHashSet(relatedResources, ResourceInfo::new),
+            session, target, index, new LinkedHashMap<>());
+      }
+    }
+  }
+
+  /**
+   * Removes the data of both trees stored in the given layout and saves the session.
+   */
+  static void remove(RelatedResourcesStorageLayout layout, Session session) throws RepositoryException {
+    JcrBatchSaver saver = new JcrBatchSaver(session, MIGRATION_BATCH_SIZE);
+    saver.removeAndSave(layout.getBasePath(BASE_NODE_PATH));
+    saver.removeAndSave(layout.getBasePath(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH));
+    LOG.info("Removed published related resources data of {} layout", layout);
+  }
+
+  /**
+   * Counts the parent resources that reference each of the published related resources of the given layout,
+   * unless they are already counted. Trees created by versions that didn't count the references are counted once.
+   */
+  static void countReferences(RelatedResourcesStorageLayout layout, Session session) throws RepositoryException {
+    if (!areReferencesCounted(layout, session)) {
+      recountReferences(layout, session);
+    }
+  }
+
+  static boolean areReferencesCounted(RelatedResourcesStorageLayout layout, Session session) throws RepositoryException {
+    return PublishedRelatedResourcesInversedTreeManager.areReferencesCounted(layout, session);
+  }
+
+  /**
+   * Counts the parent resources that reference each of the published related resources of the given layout,
+   * replacing the stored counts.
+   */
+  static void recountReferences(RelatedResourcesStorageLayout layout, Session session) throws RepositoryException {
+    LOG.info("Counting references of published related resources in {} layout", layout);
+    Map<String, long[]> referenceCounts = new HashMap<>();
+    layout.forEachNode(BASE_NODE_PATH, session, (parentResourcePath, node) -> {
+      int shard = PublishedRelatedResourcesInversedTreeManager.getReferenceCountShard(parentResourcePath);
+      for (String relatedResource : collectRelatedResources(node)) {
+        referenceCounts.computeIfAbsent(relatedResource,
+            key -> new long[PublishedRelatedResourcesInversedTreeManager.REFERENCE_COUNT_SHARDS])[shard]++;
+      }
+    });
+    JcrBatchSaver saver = new JcrBatchSaver(session, MIGRATION_BATCH_SIZE);
+    PublishedRelatedResourcesInversedTreeManager.setReferenceCounts(referenceCounts, layout, session, saver);
+    LOG.info("Counted references of {} published related resources in {} layout", referenceCounts.size(), layout);
+  }
+
   private static Set<String> itemsOnlyInFirstSet(Set<String> set1, Set<String> set2) {
     Set<String> result = new LinkedHashSet<>(set1);
     result.removeAll(set2);
@@ -0,0 +1,127 @@
+package dev.streamx.sling.connector.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Finds literal text that every match of a regular expression starts with, so that text which doesn't start with it
+ * can be rejected without running the regular expression.
+ */
+public final class RegexLiteralPrefix {
+
+  private RegexLiteralPrefix() {
+    // no instances
+  }
+
+  /**
+   * Returns the literal text that every match of the pattern starts with, or {@code null} if such text
+   * cannot be determined. Only simple patterns are analyzed: patterns with flags, alternations or special
+   * constructs have no literal prefix.
+   */
+  public static String find(Pattern pattern) {
+    String regex = pattern.pattern();
+    if (pattern.flags() != 0 || containsAlternationOrSpecialGroup(regex)) {
+      return null;
+    }
+
+    List<Integer> openedGroups = new ArrayList<>();
+    int index = 0;
+    while (index < regex.length() && regex.charAt(index) == '(') {
+      openedGroups.add(index);
+      index += regex.startsWith("(?:", index) ? 3 : 1;
+    }
+
+    StringBuilder prefix = new StringBuilder();
+    while (index < regex.length()) {
+      char character = regex.charAt(index);
+      int nextIndex;
+      if (character == '\\') {
+        if (index + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(index + 1))) {
+          break; // character classes, boundaries, back references and quotations
+        }
+        character = regex.charAt(index + 1);
+        nextIndex = index + 2;
+      } else if ("[](){}.*+?^$|".indexOf(character) >= 0) {
+        break;
+      } else {
+        nextIndex = index + 1;
+      }
+      if (nextIndex < regex.length() && "?*{".indexOf(regex.charAt(nextIndex)) >= 0) {
+        break; // the character is optional or repeated a variable number of times
+      }
+      prefix.append(character);
+      index = nextIndex;
+      if (index < regex.length() && regex.charAt(index) == '+') {
+        break;
+      }
+    }
+
+    if (prefix.length() == 0) {
+      return null;
+    }
+    for (int openedGroup : openedGroups) {
+      int closingIndex = findClosingParenthesis(regex, openedGroup);
+      if (closingIndex < 0 || (closingIndex + 1 < regex.length() && "?*{".indexOf(regex.charAt(closingIndex + 1)) >= 0)) {
+        return null; // the group containing the prefix is optional
+      }
+    }
+    return prefix.toString();
+  }
+
+  private static boolean containsAlternationOrSpecialGroup(String regex) {
+    boolean inCharacterClass = false;
+    for (int index = 0; index < regex.length(); index++) {
+      char character = regex.charAt(index);
+      if (character == '\\') {
+        index++;
+      } else if (inCharacterClass) {
+        inCharacterClass = character != ']';
+      } else if (character == '[') {
+        inCharacterClass = true;
+        // a closing bracket right after the opening one (or after its negation) is a literal
+        if (index + 1 < regex.length() && regex.charAt(index + 1) == '^') {
+          index++;
+        }
+        if (index + 1 < regex.length() && regex.charAt(index + 1) == ']') {
+          index++;
+        }
+      } else if (character == '|') {
+        return true;
+      } else if (character == '(' && index + 1 < regex.length() && regex.charAt(index + 1) == '?'
+          && !regex.startsWith("(?:", index)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int findClosingParenthesis(String regex, int openingIndex) {
+    int depth = 0;
+    boolean inCharacterClass = false;
+    for (int index = openingIndex; index < regex.length(); index++) {
+      char character = regex.charAt(index);
+      if (character == '\\') {
+        index++;
+      } else if (inCharacterClass) {
+        inCharacterClass = character != ']';
+      } else if (character == '[') {
+        inCharacterClass = true;
+        if (index + 1 < regex.length() && regex.charAt(index + 1) == '^') {
+          index++;
+        }
+        if (index + 1 < regex.length() && regex.charAt(index + 1) == ']') {
+          index++;
+        }
+      } else if (character == '(') {
+        depth++;
+      } else if (character == ')') {
+        depth--;
+        if (depth == 0) {
+          return index;
+        }
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,136 @@
+package dev.streamx.sling.connector.impl;
+
+import java.util.Locale;
+import java.util.Optional;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Layout of the nodes in which the published related resources are tracked.
+ */
+enum RelatedResourcesStorageLayout {
+
+  /**
+   * Every resource is tracked in a node whose path mirrors the path of the resource. Resources of a large folder
+   * become children of a single node.
+   */
+  HIERARCHICAL {
+    @Override
+    String getBasePath(String basePath) {
+      return basePath;
+    }
+
+    @Override
+    String getNodePath(String basePath, String resourcePath) {
+      return basePath + resourcePath;
+    }
+
+    @Override
+    Node createNode(String basePath, String resourcePath, Session session) throws RepositoryException {
+      return JcrNodeHelper.createNode(getNodePath(basePath, resourcePath), session);
+    }
+
+    @Override
+    void forEachNode(String basePath, Session session, NodeVisitor visitor) throws RepositoryException {
+      if (session.nodeExists(basePath)) {
+        visitDescendants(session.getNode(basePath), basePath.length(), visitor);
+      }
+    }
+
+    private void visitDescendants(Node node, int basePathLength, NodeVisitor visitor) throws RepositoryException {
+      NodeIterator children = node.getNodes();
+      while (children.hasNext()) {
+        Node child = children.nextNode();
+        visitor.visit(child.getPath().substring(basePathLength), child);
+        visitDescendants(child, basePathLength, visitor);
+      }
+    }
+  },
+
+  /**
+   * Every resource is tracked in a node named after the hash of the resource path, placed in two levels of
+   * intermediate nodes named after the first characters of that hash. No node gets more than 256 intermediate
+   * children, regardless of the number of resources in a folder. The path of the resource is kept in a property.
+   */
+  SHARDED {
+    @Override
+    String getBasePath(String basePath) {
+      return basePath + "-sharded";
+    }
+
+    @Override
+    String getNodePath(String basePath, String resourcePath) {
+      String hash = PublishDataDigest.compute(resourcePath);
+      return getBasePath(basePath) + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    @Override
+    Node createNode(String basePath, String resourcePath, Session session) throws RepositoryException {
+      Node node = JcrNodeHelper.createNode(getNodePath(basePath, resourcePath), session);
+      if (!node.hasProperty(PN_PATH)) {
+        node.setProperty(PN_PATH, resourcePath);
+      }
+      return node;
+    }
+
+    @Override
+    void forEachNode(String basePath, Session session, NodeVisitor visitor) throws RepositoryException {
+      String shardedBasePath = getBasePath(basePath);
+      if (!session.nodeExists(shardedBasePath)) {
+        return;
+      }
+      NodeIterator firstLevel = session.getNode(shardedBasePath).getNodes();
+      while (firstLevel.hasNext()) {
+        NodeIterator secondLevel = firstLevel.nextNode().getNodes();
+        while (secondLevel.hasNext()) {
+          NodeIterator resourceNodes = secondLevel.nextNode().getNodes();
+          while (resourceNodes.hasNext()) {
+            Node resourceNode = resourceNodes.nextNode();
+            if (resourceNode.hasProperty(PN_PATH)) {
+              visitor.visit(resourceNode.getProperty(PN_PATH).getString(), resourceNode);
+            }
+          }
+        }
+      }
+    }
+  };
+
+  private static final String PN_PATH = "path";
+
+  /**
+   * Returns the path of the node under which the nodes of this layout are stored.
+   */
+  abstract String getBasePath(String basePath);
+
+  /**
+   * Returns the path of the node in which the resource is tracked.
+   */
+  abstract String getNodePath(String basePath, String resourcePath);
+
+  /**
+   * Returns the node in which the resource is tracked, creating it if it doesn't exist.
+   */
+  abstract Node createNode(String basePath, String resourcePath, Session session) throws RepositoryException;
+
+  /**
+   * Visits the nodes of all the tracked resources, parents before their children.
+   */
+  abstract void forEachNode(String basePath, Session session, NodeVisitor visitor) throws RepositoryException;
+
+  static Optional<RelatedResourcesStorageLayout> of(String name) {
+    for (RelatedResourcesStorageLayout layout : values()) {
+      if (layout.name().equals(name.trim().toUpperCase(Locale.ROOT))) {
+        return Optional.of(layout);
+      }
+    }
+    return Optional.empty();
+  }
+
+  @FunctionalInterface
+  interface NodeVisitor {
+
+    void visit(String resourcePath, Node node) throws RepositoryException;
+  }
+}
@@ -0,0 +1,54 @@
+package dev.streamx.sling.connector.impl;
+
+import java.util.Calendar;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.uri.SlingUri;
+
+/**
+ * Reads the last modification time of the resources, used to tell if content derived from a resource is still valid.
+ */
+public final class ResourceLastModified {
+
+  private static final String PN_CQ_LAST_MODIFIED = "cq:lastModified";
+
+  private ResourceLastModified() {
+    // no instances
+  }
+
+  /**
+   * Returns the last modification time of the resource requested by the given URI or of its content node,
+   * whichever is later.
+   *
+   * @param slingUri         {@link SlingUri} of the resource
+   * @param resourceResolver {@link ResourceResolver} to use for resource resolution
+   * @return last modification time in milliseconds, or {@code null} if the resource doesn't exist
+   * or its last modification time is unknown
+   */
+  public static Long get(SlingUri slingUri, ResourceResolver resourceResolver) {
+    String resourcePath = slingUri.getResourcePath();
+    Resource resource = resourcePath == null ? null : resourceResolver.getResource(resourcePath);
+    if (resource == null) {
+      return null;
+    }
+    Long lastModified = get(resource.getValueMap());
+    Resource contentResource = resource.getChild(JcrConstants.JCR_CONTENT);
+    if (contentResource != null) {
+      Long contentLastModified = get(contentResource.getValueMap());
+      if (lastModified == null || (contentLastModified != null && contentLastModified > lastModified)) {
+        lastModified = contentLastModified;
+      }
+    }
+    return lastModified;
+  }
+
+  private static Long get(ValueMap properties) {
+    Calendar lastModified = properties.get(PN_CQ_LAST_MODIFIED, Calendar.class);
+    if (lastModified == null) {
+      lastModified = properties.get(JcrConstants.JCR_LASTMODIFIED, Calendar.class);
+    }
+    return lastModified == null ? null : lastModified.getTimeInMillis();
+  }
+}
@@ -0,0 +1,104 @@
+package dev.streamx.sling.connector.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adaptive limits of concurrent publications of the StreamX clients, that protect the StreamX instances from being
+ * overloaded during mass publications. Publications over the limit of their client are deferred, so the throughput
+ * stays close to the maximum that the StreamX instance can take. The limits are created for the StreamX clients on
+ * their first use and are reset whenever the configuration changes.
+ */
+@Component(service = StreamxClientConcurrencyLimits.class, immediate = true)
+@Designate(ocd = StreamxClientConcurrencyLimitsConfig.class)
+public class StreamxClientConcurrencyLimits {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StreamxClientConcurrencyLimits.class);
+
+  private final Map<String, AdaptiveConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+  private volatile StreamxClientConcurrencyLimitsConfig config;
+
+  /**
+   * Constructs an instance of this class.
+   */
+  public StreamxClientConcurrencyLimits() {
+  }
+
+  /**
+   * Configure this service.
+   * @param config configuration for this service
+   */
+  @Activate
+  @Modified
+  private void configure(StreamxClientConcurrencyLimitsConfig config) {
+    this.config = config;
+    limits.clear();
+  }
+
+  /**
+   * Acquires a permit for a publication of the given client, waiting for it at most the configured time.
+   * An acquired permit must be released with {@link #release(String)}.
+   *
+   * @return true if the permit was acquired or the publications are not limited
+   */
+  boolean tryAcquire(String clientName) {
+    StreamxClientConcurrencyLimitsConfig currentConfig = config;
+    if (!currentConfig.enabled()) {
+      return true;
+    }
+    boolean acquired = getLimit(clientName).tryAcquire(currentConfig.acquire_timeout());
+    if (!acquired) {
+      LOG.debug("Limit of concurrent publications of StreamX client '{}' is reached: {}",
+          clientName, getLimit(clientName).getLimit());
+    }
+    return acquired;
+  }
+
+  void release(String clientName) {
+    AdaptiveConcurrencyLimit limit = limits.get(clientName);
+    if (config.enabled() && limit != null) {
+      limit.release();
+    }
+  }
+
+  /**
+   * Adjusts the limit of the given client to the outcome of sending a publication.
+   *
+   * @param startTime time in milliseconds at which the sending started
+   * @param latency   time in milliseconds that the sending took
+   * @param failed    true if the sending failed
+   */
+  void onSendCompleted(String clientName, long startTime, long latency, boolean failed) {
+    if (config.enabled()) {
+      getLimit(clientName).onSample(startTime, latency, failed);
+    }
+  }
+
+  /**
+   * Returns the delay in milliseconds after which a deferred publication job should be executed again.
+   */
+  long getDeferDelay() {
+    return Math.max(0, config.defer_delay());
+  }
+
+  /**
+   * Returns the current limit of concurrent publications of the given client.
+   */
+  int getCurrentLimit(String clientName) {
+    AdaptiveConcurrencyLimit limit = limits.get(clientName);
+    return limit == null ? config.initial_limit() : limit.getLimit();
+  }
+
+  private AdaptiveConcurrencyLimit getLimit(String clientName) {
+    StreamxClientConcurrencyLimitsConfig currentConfig = config;
+    return limits.computeIfAbsent(clientName, key -> new AdaptiveConcurrencyLimit(currentConfig.initial_limit(),
+        currentConfig.min_limit(), currentConfig.max_limit(), currentConfig.latency_threshold()));
+  }
+}
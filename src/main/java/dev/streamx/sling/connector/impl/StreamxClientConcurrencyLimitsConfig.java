@@ -0,0 +1,106 @@
+package dev.streamx.sling.connector.impl;
+
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * OSGi configuration interface for the {@link StreamxClientConcurrencyLimits}.
+ * This interface defines the bounds of the limits of concurrent publications of the StreamX clients and how they
+ * are adjusted.
+ */
+@ObjectClassDefinition(name = "StreamX client concurrency limits config")
+public @interface StreamxClientConcurrencyLimitsConfig {
+
+  /**
+   * The default initial limit of concurrent publications.
+   */
+  int DEFAULT_INITIAL_LIMIT = 10;
+
+  /**
+   * The default minimal limit of concurrent publications.
+   */
+  int DEFAULT_MIN_LIMIT = 1;
+
+  /**
+   * The default maximal limit of concurrent publications.
+   */
+  int DEFAULT_MAX_LIMIT = 100;
+
+  /**
+   * The default latency in milliseconds above which the limit is decreased.
+   */
+  long DEFAULT_LATENCY_THRESHOLD = 2000;
+
+  /**
+   * The default time in milliseconds for which a publication waits for a permit.
+   */
+  long DEFAULT_ACQUIRE_TIMEOUT = 100;
+
+  /**
+   * The default delay in milliseconds after which a deferred publication job is executed again.
+   */
+  long DEFAULT_DEFER_DELAY = 1000;
+
+  /**
+   * Returns true if the concurrent publications are limited.
+   *
+   * @return true if the concurrent publications are limited
+   */
+  @AttributeDefinition(name = "Enabled", description = "Indicates whether the number of concurrent publications "
+      + "of each StreamX client is limited, adapting the limit to the latency and failures of its StreamX instance.")
+  boolean enabled() default false;
+
+  /**
+   * Returns the initial limit of concurrent publications.
+   *
+   * @return the initial limit of concurrent publications
+   */
+  @AttributeDefinition(name = "Initial limit", description = "The initial limit of concurrent publications of each StreamX client.")
+  int initial_limit() default DEFAULT_INITIAL_LIMIT;
+
+  /**
+   * Returns the minimal limit of concurrent publications.
+   *
+   * @return the minimal limit of concurrent publications
+   */
+  @AttributeDefinition(name = "Min limit", description = "The limit of concurrent publications of each StreamX client "
+      + "is never decreased below this value.")
+  int min_limit() default DEFAULT_MIN_LIMIT;
+
+  /**
+   * Returns the maximal limit of concurrent publications.
+   *
+   * @return the maximal limit of concurrent publications
+   */
+  @AttributeDefinition(name = "Max limit", description = "The limit of concurrent publications of each StreamX client "
+      + "is never increased above this value.")
+  int max_limit() default DEFAULT_MAX_LIMIT;
+
+  /**
+   * Returns the latency in milliseconds above which the limit is decreased.
+   *
+   * @return the latency in milliseconds above which the limit is decreased
+   */
+  @AttributeDefinition(name = "Latency threshold", description = "The time in milliseconds of sending a publication "
+      + "above which the limit of concurrent publications is decreased, the same as when the sending fails.")
+  long latency_threshold() default DEFAULT_LATENCY_THRESHOLD;
+
+  /**
+   * Returns the time in milliseconds for which a publication waits for a permit.
+   *
+   * @return the time in milliseconds for which a publication waits for a permit
+   */
+  @AttributeDefinition(name = "Acquire timeout", description = "The time in milliseconds for which a publication waits "
+      + "for another publication of the same StreamX client to complete, when the limit is reached.")
+  long acquire_timeout() default DEFAULT_ACQUIRE_TIMEOUT;
+
+  /**
+   * Returns the delay in milliseconds after which a deferred publication job is executed again.
+   *
+   * @return the delay in milliseconds after which a deferred publication job is executed again
+   */
+  @AttributeDefinition(name = "Defer delay", description = "The delay in milliseconds after which a publication job "
+      + "that was deferred, because the limit was reached, is executed again.")
+  long defer_delay() default DEFAULT_DEFER_DELAY;
+
+}
@@ -34,4 +34,10 @@ public interface StreamxClientConfig {
    */
   List<String> getResourcePathPatterns();
 
+  /**
+   * Returns the number of connections to the StreamX instance that are opened in advance, when the client is created.
+   * @return number of connections to the StreamX instance that are opened in advance
+   */
+  int getWarmUpConnections();
+
 }
@@ -3,6 +3,7 @@ package dev.streamx.sling.connector.impl;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -33,6 +34,7 @@ public class StreamxClientConfigImpl implements StreamxClientConfig {
   private final AtomicReference<String> streamxUrl = new AtomicReference<>();
   private final AtomicReference<OSGiSecret> authToken = new AtomicReference<>();
   private final AtomicReference<List<String>> resourcePathPatterns = new AtomicReference<>();
+  private final AtomicInteger warmUpConnections = new AtomicInteger();
 
   /**
    * Constructs an instance of this class.
@@ -49,6 +51,7 @@ public class StreamxClientConfigImpl implements StreamxClientConfig {
     streamxUrl.set(config.streamxUrl());
     authToken.set(new OSGiSecret(config.authToken()));
     resourcePathPatterns.set(Arrays.asList(config.resourcePathPatterns()));
+    warmUpConnections.set(Math.max(0, config.warmUpConnections()));
     LOG.trace(
         "Applied configuration. Name: '{}'. URL: '{}'. Resource path patterns: '{}'.",
         name, streamxUrl, resourcePathPatterns
@@ -74,4 +77,9 @@ public class StreamxClientConfigImpl implements StreamxClientConfig {
   public List<String> getResourcePathPatterns() {
     return Collections.unmodifiableList(resourcePathPatterns.get());
   }
+
+  @Override
+  public int getWarmUpConnections() {
+    return warmUpConnections.get();
+  }
 }
@@ -68,4 +68,19 @@ public @interface StreamxClientConfigOcd {
   )
   String[] resourcePathPatterns() default {".*"};
 
+  /**
+   * Returns the number of connections to the StreamX instance that are opened in advance, when the client is created.
+   *
+   * @return number of connections to the StreamX instance that are opened in advance
+   */
+  @AttributeDefinition(
+      name = "Warm-up connections",
+      description = "Number of connections to the StreamX instance that are opened in the background when the client "
+          + "is created, so that the first publications don't have to wait for them. Should not exceed the maximum "
+          + "number of connections per route of the HTTP client. 0 disables the warm-up.",
+      type = AttributeType.INTEGER,
+      defaultValue = "0"
+  )
+  int warmUpConnections() default 0;
+
 }
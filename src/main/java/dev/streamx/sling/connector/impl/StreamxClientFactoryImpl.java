@@ -39,14 +39,16 @@ public class StreamxClientFactoryImpl implements StreamxClientFactory {
         : null;
     if (providedHttpClient != null) {
       LOG.info("Using provided HttpClient from: {}", customHttpClientFactory.getClass().getName());
-      return createStreamxClient(providedHttpClient, config);
+      return new StreamxInstanceClient(createStreamxClient(providedHttpClient, config), providedHttpClient, config);
     } else {
       LOG.info("No HttpClient provided, using a default from StreamX connector");
-      return createStreamxClient(defaultHttpClientFactory.createNewClient(), config);
+      CloseableHttpClient httpClient = defaultHttpClientFactory.createNewClient();
+      return new StreamxInstanceClient(createStreamxClient(httpClient, config), httpClient,
+          defaultHttpClientFactory.getMaxPerRoute(config.getStreamxUrl()), config);
     }
   }
 
-  private StreamxInstanceClient createStreamxClient(CloseableHttpClient httpClient,
+  private static StreamxClient createStreamxClient(CloseableHttpClient httpClient,
       StreamxClientConfig config)
       throws StreamxClientException {
     StreamxClient streamxClient = StreamxClient.builder(config.getStreamxUrl())
@@ -54,7 +56,7 @@ public class StreamxClientFactoryImpl implements StreamxClientFactory {
         .setApacheHttpClient(httpClient)
         .build();
     LOG.trace("Created StreamX client for: '{}'", config.getStreamxUrl());
-    return new StreamxInstanceClient(streamxClient, config);
+    return streamxClient;
   }
 
 }
@@ -0,0 +1,149 @@
+package dev.streamx.sling.connector.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the resource path patterns of {@link StreamxInstanceClient}s, that finds the clients for a resource path
+ * without evaluating every pattern of every client. The patterns are stored in a trie by their literal prefixes, so
+ * that only the patterns whose prefix the path starts with are evaluated. Patterns that are plain literals, optionally
+ * followed by {@code .*}, are evaluated without the regular expression engine.
+ * <p>
+ * Instances are immutable and are rebuilt whenever the clients change.
+ */
+final class StreamxClientRouter {
+
+  private static final String ANY_SUFFIX = ".*";
+  private static final String REGEX_METACHARACTERS = "\\[](){}.*+?^$|";
+
+  private final List<StreamxInstanceClient> clients;
+  private final TrieNode root = new TrieNode();
+
+  StreamxClientRouter(Collection<StreamxInstanceClient> clients) {
+    this.clients = List.copyOf(clients);
+    for (int clientIndex = 0; clientIndex < this.clients.size(); clientIndex++) {
+      for (Pattern pattern : this.clients.get(clientIndex).getResourcePathPatterns()) {
+        addRoute(Route.of(clientIndex, pattern));
+      }
+    }
+  }
+
+  private void addRoute(Route route) {
+    TrieNode node = root;
+    for (int i = 0; i < route.literalPrefix.length(); i++) {
+      node = node.children.computeIfAbsent(route.literalPrefix.charAt(i), key -> new TrieNode());
+    }
+    node.routes.add(route);
+  }
+
+  /**
+   * Returns the clients that can process the resource with the given path, in the order in which
+   * the clients were given to the constructor.
+   */
+  List<StreamxInstanceClient> route(String resourcePath) {
+    boolean[] matchingClients = new boolean[clients.size()];
+    int lastLineTerminatorIndex = findLastLineTerminator(resourcePath);
+    TrieNode node = root;
+    int depth = 0;
+    while (node != null) {
+      for (Route route : node.routes) {
+        if (!matchingClients[route.clientIndex] && route.matches(resourcePath, lastLineTerminatorIndex)) {
+          matchingClients[route.clientIndex] = true;
+        }
+      }
+      node = depth < resourcePath.length() ? node.children.get(resourcePath.charAt(depth)) : null;
+      depth++;
+    }
+
+    List<StreamxInstanceClient> result = new ArrayList<>();
+    for (int clientIndex = 0; clientIndex < clients.size(); clientIndex++) {
+      if (matchingClients[clientIndex]) {
+        result.add(clients.get(clientIndex));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the index of the last character of the path that the {@code .} of a regular expression
+   * without flags doesn't match, or -1 if there is no such character.
+   */
+  private static int findLastLineTerminator(String resourcePath) {
+    for (int i = resourcePath.length() - 1; i >= 0; i--) {
+      char character = resourcePath.charAt(i);
+      if (character == '\n' || character == '\r' || character == '\u0085' || character == '\u2028' || character == '\u2029') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isLiteral(String regex) {
+    for (int i = 0; i < regex.length(); i++) {
+      if (REGEX_METACHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class TrieNode {
+
+    private final Map<Character, TrieNode> children = new HashMap<>();
+    private final List<Route> routes = new ArrayList<>();
+  }
+
+  private static final class Route {
+
+    private final int clientIndex;
+    private final String literalPrefix;
+    private final Pattern pattern;
+    private final RouteType type;
+
+    private Route(int clientIndex, String literalPrefix, Pattern pattern, RouteType type) {
+      this.clientIndex = clientIndex;
+      this.literalPrefix = literalPrefix;
+      this.pattern = pattern;
+      this.type = type;
+    }
+
+    private static Route of(int clientIndex, Pattern pattern) {
+      String regex = pattern.pattern();
+      if (pattern.flags() == 0 && isLiteral(regex)) {
+        return new Route(clientIndex, regex, pattern, RouteType.LITERAL);
+      }
+      if (pattern.flags() == 0 && regex.endsWith(ANY_SUFFIX)) {
+        String literal = regex.substring(0, regex.length() - ANY_SUFFIX.length());
+        if (isLiteral(literal)) {
+          return new Route(clientIndex, literal, pattern, RouteType.LITERAL_FOLLOWED_BY_ANYTHING);
+        }
+      }
+      String literalPrefix = RegexLiteralPrefix.find(pattern);
+      return new Route(clientIndex, literalPrefix == null ? "" : literalPrefix, pattern, RouteType.REGEX);
+    }
+
+    /**
+     * Checks if the path matches the pattern. The path is known to start with the literal prefix of the route.
+     */
+    private boolean matches(String resourcePath, int lastLineTerminatorIndex) {
+      switch (type) {
+        case LITERAL:
+          return resourcePath.length() == literalPrefix.length();
+        case LITERAL_FOLLOWED_BY_ANYTHING:
+          return lastLineTerminatorIndex < literalPrefix.length();
+        default:
+          return pattern.matcher(resourcePath).matches();
+      }
+    }
+  }
+
+  private enum RouteType {
+    LITERAL,
+    LITERAL_FOLLOWED_BY_ANYTHING,
+    REGEX
+  }
+}
@@ -5,12 +5,13 @@ import dev.streamx.clients.ingestion.exceptions.StreamxClientException;
 import dev.streamx.sling.connector.ResourceInfo;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
@@ -19,7 +20,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Default {@link StreamxClientStore}.
+ * Default {@link StreamxClientStore}. When a client is created, the publishers of the channels that the previous
+ * client of the same name used are created, and the configured number of its connections are opened, in the background.
+ * Replaced and removed clients are closed once the publications that are being sent with them are completed.
  */
 @Component(
     service = StreamxClientStore.class,
@@ -41,6 +44,13 @@ public class StreamxClientStoreImpl implements StreamxClientStore {
 
   private final Map<String, StreamxInstanceClient> clientsByName;
   private final StreamxClientFactory streamxClientFactory;
+  private final Map<String, Map<String, Class<?>>> knownModelClassesByChannel = new ConcurrentHashMap<>();
+  private final ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "streamx-client-warm-up");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile StreamxClientRouter router = new StreamxClientRouter(List.of());
 
   /**
    * Constructs an instance of this class.
@@ -59,36 +69,84 @@ public class StreamxClientStoreImpl implements StreamxClientStore {
     String configName = config.getName();
     LOG.debug("Adding StreamX client for: '{}'", configName);
     initStreamxInstanceClient(config).ifPresentOrElse(
-        client -> clientsByName.put(configName, client),
+        client -> {
+          clientsByName.put(configName, client);
+          warmUp(client, config);
+        },
         () -> LOG.error("An error occurred during adding of the StreamX client: '{}'", configName)
     );
+    rebuildRouter();
   }
 
   @SuppressWarnings("unused")
   void unbindStreamxClientStore(StreamxClientConfig config) {
     String configName = config.getName();
     LOG.debug("Removing StreamX client for: '{}'", configName);
-    clientsByName.remove(configName);
+    StreamxInstanceClient removedClient = clientsByName.remove(configName);
+    rebuildRouter();
+    if (removedClient != null) {
+      rememberChannels(removedClient);
+      removedClient.closeWhenIdle();
+    }
   }
 
   @SuppressWarnings("unused")
   void updateStreamxClientStore(StreamxClientConfig config) {
     String configName = config.getName();
     LOG.debug("Updating StreamX client for: '{}'", configName);
-    initStreamxInstanceClient(config).ifPresentOrElse(
-        client -> clientsByName.put(configName, client),
-        () -> LOG.error(
-            "An error occurred during the update of the StreamX client: '{}'", configName
-        )
-    );
+    Optional<StreamxInstanceClient> client = initStreamxInstanceClient(config);
+    if (client.isEmpty()) {
+      LOG.error("An error occurred during the update of the StreamX client: '{}'", configName);
+      return;
+    }
+    StreamxInstanceClient replacedClient = clientsByName.put(configName, client.get());
+    rebuildRouter();
+    if (replacedClient != null) {
+      rememberChannels(replacedClient);
+      // publications that are being sent with the replaced client are completed before it's closed
+      replacedClient.closeWhenIdle();
+    }
+    warmUp(client.get(), config);
+  }
+
+  private void rememberChannels(StreamxInstanceClient client) {
+    Map<String, Class<?>> modelClassesByChannel = client.getModelClassesByChannel();
+    if (!modelClassesByChannel.isEmpty()) {
+      knownModelClassesByChannel.put(client.getName(), modelClassesByChannel);
+    }
+  }
+
+  private void warmUp(StreamxInstanceClient client, StreamxClientConfig config) {
+    Map<String, Class<?>> modelClassesByChannel = knownModelClassesByChannel.getOrDefault(client.getName(), Map.of());
+    int connections = config.getWarmUpConnections();
+    if (modelClassesByChannel.isEmpty() && connections == 0) {
+      return;
+    }
+    warmUpExecutor.execute(() -> {
+      client.createPublishers(modelClassesByChannel);
+      int openedConnections = client.warmUpConnections(connections);
+      LOG.info(
+          "Warmed up StreamX client '{}'. Publishers: {}. Connections: {} of {}.",
+          client.getName(), modelClassesByChannel.size(), openedConnections, connections
+      );
+    });
+  }
+
+  @Deactivate
+  private void deactivate() {
+    warmUpExecutor.shutdownNow();
+    clientsByName.values().forEach(StreamxInstanceClient::close);
+    clientsByName.clear();
+    rebuildRouter();
+  }
+
+  private synchronized void rebuildRouter() {
+    router = new StreamxClientRouter(clientsByName.values());
   }
 
   @Override
   public List<StreamxInstanceClient> getForResource(ResourceInfo resourceInfo) {
-    return clientsByName.values().stream()
-        .filter(Objects::nonNull)
-        .filter(client -> client.canProcess(resourceInfo))
-        .collect(Collectors.toList());
+    return router.route(resourceInfo.getPath());
   }
 
   @Override
@@ -5,50 +5,250 @@ import dev.streamx.clients.ingestion.exceptions.StreamxClientException;
 import dev.streamx.clients.ingestion.publisher.Publisher;
 import dev.streamx.sling.connector.PublicationData;
 import dev.streamx.sling.connector.ResourceInfo;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Client of single StreamX instance.
  */
 public class StreamxInstanceClient {
 
+  private static final Logger LOG = LoggerFactory.getLogger(StreamxInstanceClient.class);
+
   private final StreamxClient streamxClient;
-  private final List<String> resourcePathPatterns;
+  private final CloseableHttpClient httpClient;
+  private final List<Pattern> resourcePathPatterns;
   private final String name;
+  private final String streamxUrl;
+  private final int maxWarmUpConnections;
 
   private final ConcurrentHashMap<String, Publisher<?>> publishersByChannel =
       new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Class<?>> modelClassesByChannel =
+      new ConcurrentHashMap<>();
+  private int sendsInProgress;
+  private boolean closeRequested;
+  private boolean closed;
 
   StreamxInstanceClient(StreamxClient streamxClient, StreamxClientConfig config) {
+    this(streamxClient, null, config);
+  }
+
+  StreamxInstanceClient(StreamxClient streamxClient, CloseableHttpClient httpClient, StreamxClientConfig config) {
+    this(streamxClient, httpClient, Integer.MAX_VALUE, config);
+  }
+
+  /**
+   * @param maxConnectionsPerRoute maximum number of concurrent connections of the HTTP client to the StreamX instance,
+   *                               that bounds the number of connections opened by {@link #warmUpConnections(int)}
+   */
+  StreamxInstanceClient(StreamxClient streamxClient, CloseableHttpClient httpClient, int maxConnectionsPerRoute,
+      StreamxClientConfig config) {
     this.streamxClient = streamxClient;
-    this.resourcePathPatterns = config.getResourcePathPatterns();
+    this.httpClient = httpClient;
     this.name = config.getName();
+    this.streamxUrl = config.getStreamxUrl();
+    this.resourcePathPatterns = compilePatterns(config.getResourcePathPatterns(), name);
+    // a quarter of the connections, and at least one, are left for the publications sent during the warm-up
+    this.maxWarmUpConnections = maxConnectionsPerRoute - Math.max(1, maxConnectionsPerRoute / 4);
+  }
+
+  private static List<Pattern> compilePatterns(List<String> regexes, String clientName) {
+    if (regexes == null) {
+      return Collections.emptyList();
+    }
+    List<Pattern> patterns = new ArrayList<>(regexes.size());
+    for (String regex : regexes) {
+      try {
+        patterns.add(Pattern.compile(regex));
+      } catch (PatternSyntaxException ex) {
+        LOG.error("Invalid resource path pattern '{}' of StreamX client '{}' is ignored", regex, clientName, ex);
+      }
+    }
+    return Collections.unmodifiableList(patterns);
   }
 
   <T> Publisher<T> getPublisher(PublicationData<T> publication) throws StreamxClientException {
-    String channel = publication.getChannel();
+    return getPublisher(publication.getChannel(), publication.getModelClass());
+  }
 
+  private <T> Publisher<T> getPublisher(String channel, Class<T> modelClass) throws StreamxClientException {
     if (!publishersByChannel.containsKey(channel)) {
       publishersByChannel.put(
           channel,
-          streamxClient.newPublisher(channel, publication.getModelClass())
+          streamxClient.newPublisher(channel, modelClass)
       );
+      modelClassesByChannel.put(channel, modelClass);
     }
 
     return (Publisher<T>) publishersByChannel.get(channel);
   }
 
+  /**
+   * Returns the model classes of the channels that this client has publishers for.
+   */
+  Map<String, Class<?>> getModelClassesByChannel() {
+    return new HashMap<>(modelClassesByChannel);
+  }
+
+  /**
+   * Creates the publishers of the given channels in advance, so that they are not created by the first publications.
+   */
+  void createPublishers(Map<String, Class<?>> modelClassesByChannel) {
+    modelClassesByChannel.forEach((channel, modelClass) -> {
+      try {
+        getPublisher(channel, modelClass);
+      } catch (StreamxClientException exception) {
+        LOG.warn("Failed to create publisher of channel '{}' for StreamX client '{}'", channel, name, exception);
+      }
+    });
+  }
+
+  /**
+   * Opens up to the given number of connections to the StreamX instance, by sending that many concurrent requests
+   * to its URL. Any response validates the connection, which is returned to the connection pool of the HTTP client
+   * as soon as the response is received and kept there for the following publications. The number of requests is
+   * limited, so that the publications sent meanwhile still get connections to the instance. Requests are sent only
+   * if the HTTP client is known.
+   *
+   * @return number of the connections that were validated
+   */
+  int warmUpConnections(int connections) {
+    int requestsCount = Math.min(connections, maxWarmUpConnections);
+    if (httpClient == null || requestsCount <= 0) {
+      return 0;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(requestsCount, runnable -> {
+      Thread thread = new Thread(runnable, "streamx-client-warm-up-request");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Callable<Boolean> request = this::warmUpConnection;
+    int validatedConnections = 0;
+    try {
+      for (Future<Boolean> validated : executor.invokeAll(Collections.nCopies(requestsCount, request))) {
+        if (Boolean.TRUE.equals(validated.get())) {
+          validatedConnections++;
+        }
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException exception) {
+      LOG.warn("Failed to warm up connections of StreamX client '{}' to '{}'", name, streamxUrl, exception);
+    } finally {
+      executor.shutdownNow();
+    }
+    if (validatedConnections < requestsCount) {
+      LOG.warn("Failed to warm up {} of {} connections of StreamX client '{}' to '{}'",
+          requestsCount - validatedConnections, requestsCount, name, streamxUrl);
+    }
+    return validatedConnections;
+  }
+
+  private boolean warmUpConnection() {
+    try (CloseableHttpResponse response = httpClient.execute(new HttpGet(streamxUrl))) {
+      // consuming the entity returns the connection to the pool, instead of closing it
+      EntityUtils.consume(response.getEntity());
+      return true;
+    } catch (IOException | RuntimeException exception) {
+      LOG.debug("Failed to warm up connection of StreamX client '{}' to '{}'", name, streamxUrl, exception);
+      return false;
+    }
+  }
+
   String getName() {
     return name;
   }
 
+  List<Pattern> getResourcePathPatterns() {
+    return resourcePathPatterns;
+  }
+
   boolean canProcess(ResourceInfo resourceInfo) {
-    if (resourcePathPatterns == null) {
-      return false;
+    String resourcePath = resourceInfo.getPath();
+    return resourcePathPatterns.stream().anyMatch(pattern -> pattern.matcher(resourcePath).matches());
+  }
+
+  /**
+   * Marks the start of sending a publication with this client, so that {@link #closeWhenIdle()} waits for it.
+   */
+  synchronized void sendStarted() {
+    sendsInProgress++;
+  }
+
+  /**
+   * Marks the end of sending a publication with this client, and closes the client if it was requested to be closed
+   * and no other publication is being sent.
+   */
+  void sendCompleted() {
+    boolean idle;
+    synchronized (this) {
+      sendsInProgress--;
+      idle = closeRequested && sendsInProgress == 0;
+    }
+    if (idle) {
+      close();
+    }
+  }
+
+  /**
+   * Closes the client once the publications that are being sent with it are completed, so that they don't fail
+   * because the client was replaced or removed.
+   */
+  void closeWhenIdle() {
+    boolean idle;
+    synchronized (this) {
+      closeRequested = true;
+      idle = sendsInProgress == 0;
     }
+    if (idle) {
+      close();
+    } else {
+      LOG.debug("StreamX client '{}' will be closed once its publications in progress are completed", name);
+    }
+  }
 
-    return resourcePathPatterns.stream().anyMatch(resourceInfo.getPath()::matches);
+  /**
+   * Closes the StreamX client and the HTTP client it uses. Connections of a shared connection pool are returned
+   * to the pool, instead of being closed.
+   */
+  void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    try {
+      streamxClient.close();
+    } catch (StreamxClientException exception) {
+      LOG.warn("Failed to close StreamX client '{}'", name, exception);
+    }
+    if (httpClient != null) {
+      try {
+        httpClient.close();
+      } catch (IOException exception) {
+        LOG.warn("Failed to close HTTP client of StreamX client '{}'", name, exception);
+      }
+    }
   }
 
 }
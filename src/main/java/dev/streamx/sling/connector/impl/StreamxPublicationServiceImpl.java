@@ -4,12 +4,19 @@ import dev.streamx.sling.connector.ResourceInfo;
 import dev.streamx.sling.connector.PublicationAction;
 import dev.streamx.sling.connector.StreamxPublicationService;
 import dev.streamx.sling.connector.impl.StreamxPublicationServiceImpl.Config;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.JobManager;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.metatype.annotations.AttributeDefinition;
@@ -34,6 +41,14 @@ public class StreamxPublicationServiceImpl implements StreamxPublicationService
   private JobManager jobManager;
 
   private boolean enabled;
+  private long coalescingQuietPeriod;
+  private long coalescingMaxDelay;
+
+  // resources waiting for the end of the coalescing window, by path; the last requested action wins
+  private final Map<String, CoalescedIngestion> coalescedIngestions = new LinkedHashMap<>();
+  private ScheduledExecutorService coalescingScheduler;
+  private ScheduledFuture<?> scheduledFlush;
+  private long coalescingWindowStartMillis;
 
   /**
    * Constructs an instance of this class.
@@ -45,6 +60,45 @@ public class StreamxPublicationServiceImpl implements StreamxPublicationService
   @Modified
   private void activate(Config config) {
     enabled = config.enabled();
+    synchronized (coalescedIngestions) {
+      coalescingQuietPeriod = Math.max(0, config.coalescing_quiet_period());
+      coalescingMaxDelay = Math.max(coalescingQuietPeriod, config.coalescing_max_delay());
+      if (coalescingQuietPeriod > 0 && coalescingScheduler == null) {
+        coalescingScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "streamx-publication-coalescing");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+    if (coalescingQuietPeriod == 0) {
+      flush();
+      shutdownCoalescingScheduler();
+    }
+  }
+
+  @Deactivate
+  private void deactivate() {
+    flush();
+    shutdownCoalescingScheduler();
+  }
+
+  private void shutdownCoalescingScheduler() {
+    synchronized (coalescedIngestions) {
+      if (coalescingScheduler != null) {
+        coalescingScheduler.shutdownNow();
+        coalescingScheduler = null;
+      }
+    }
+  }
+
+  /**
+   * Returns true if the publication requests are coalesced, so the thread that submits them is running.
+   */
+  boolean isCoalescing() {
+    synchronized (coalescedIngestions) {
+      return coalescingScheduler != null;
+    }
   }
 
   @Override
@@ -54,15 +108,81 @@ public class StreamxPublicationServiceImpl implements StreamxPublicationService
 
   @Override
   public void publish(List<ResourceInfo> resourcesToPublish) {
-    submitIngestionTriggerJob(PublicationAction.PUBLISH, resourcesToPublish);
+    submitOrCoalesce(PublicationAction.PUBLISH, resourcesToPublish);
   }
 
   @Override
   public void unpublish(List<ResourceInfo> resourcesToUnpublish) {
-    submitIngestionTriggerJob(PublicationAction.UNPUBLISH, resourcesToUnpublish);
+    submitOrCoalesce(PublicationAction.UNPUBLISH, resourcesToUnpublish);
+  }
+
+  private void submitOrCoalesce(PublicationAction action, List<ResourceInfo> resources) {
+    if (!enabled || resources.isEmpty()) {
+      submitIngestionTriggerJob(action, resources);
+      return;
+    }
+    synchronized (coalescedIngestions) {
+      if (coalescingQuietPeriod == 0) {
+        submitIngestionTriggerJob(action, resources);
+        return;
+      }
+      long nowMillis = System.currentTimeMillis();
+      if (coalescedIngestions.isEmpty()) {
+        coalescingWindowStartMillis = nowMillis;
+      }
+      for (ResourceInfo resource : resources) {
+        // re-inserting moves the resource to the end, so the flushed jobs follow the order of the last requests
+        coalescedIngestions.remove(resource.getPath());
+        coalescedIngestions.put(resource.getPath(), new CoalescedIngestion(action, resource));
+      }
+      LOG.trace("Coalescing {} ingestion of resources {}", action, resources);
+      scheduleFlush(nowMillis);
+    }
+  }
+
+  private void scheduleFlush(long nowMillis) {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+    }
+    long maxDelayLeft = coalescingWindowStartMillis + coalescingMaxDelay - nowMillis;
+    long delay = Math.max(0, Math.min(coalescingQuietPeriod, maxDelayLeft));
+    scheduledFlush = coalescingScheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
   }
 
-  private void submitIngestionTriggerJob(PublicationAction action, List<ResourceInfo> resources) {
+  /**
+   * Submits ingestion trigger jobs for all the coalesced resources, one job per action. The resources of a job that
+   * could not be submitted are logged, since their requests are no longer coalesced.
+   */
+  void flush() {
+    Map<PublicationAction, List<ResourceInfo>> resourcesByAction = new LinkedHashMap<>();
+    synchronized (coalescedIngestions) {
+      if (scheduledFlush != null) {
+        scheduledFlush.cancel(false);
+        scheduledFlush = null;
+      }
+      for (CoalescedIngestion ingestion : coalescedIngestions.values()) {
+        resourcesByAction.computeIfAbsent(ingestion.action, action -> new ArrayList<>()).add(ingestion.resource);
+      }
+      coalescedIngestions.clear();
+    }
+    resourcesByAction.forEach((action, resources) -> {
+      try {
+        if (!submitIngestionTriggerJob(action, resources)) {
+          LOG.error("Coalesced {} requests were dropped for resources {}", action, resources);
+        }
+      } catch (RuntimeException e) {
+        LOG.error("Error submitting ingestion trigger job, coalesced {} requests were dropped for resources {}",
+            action, resources, e);
+      }
+    });
+  }
+
+  /**
+   * Submits an ingestion trigger job for the resources, if the publication is enabled.
+   *
+   * @return false if the job could not be created by the job manager
+   */
+  private boolean submitIngestionTriggerJob(PublicationAction action, List<ResourceInfo> resources) {
     if (enabled) {
       Map<String, Object> jobProps = new IngestionTriggerJobProperties()
           .withAction(action)
@@ -73,8 +193,10 @@ public class StreamxPublicationServiceImpl implements StreamxPublicationService
       Job addedJob = jobManager.addJob(IngestionTriggerJobExecutor.JOB_TOPIC, jobProps);
       if (addedJob == null) {
         LOG.error("Ingestion trigger job could not be created by JobManager for " + jobProps);
+        return false;
       }
     }
+    return true;
   }
 
   @ObjectClassDefinition(name = "StreamX Connector Configuration")
@@ -83,5 +205,27 @@ public class StreamxPublicationServiceImpl implements StreamxPublicationService
     @AttributeDefinition(name = "Enable publication to StreamX", description =
         "If the flag is unset the publication requests will be skipped.")
     boolean enabled() default true;
+
+    @AttributeDefinition(name = "Coalescing quiet period", description =
+        "Time in milliseconds to wait for further publication requests before submitting an ingestion trigger job. "
+        + "Requests for the same path within that time are merged into one, the last requested action wins. "
+        + "The value of 0 disables coalescing, so every request is submitted immediately.")
+    long coalescing_quiet_period() default 0;
+
+    @AttributeDefinition(name = "Coalescing max delay", description =
+        "Maximal time in milliseconds for which the publication requests can be held back by the coalescing, "
+        + "even if new requests keep arriving within the quiet period.")
+    long coalescing_max_delay() default 10000;
+  }
+
+  private static final class CoalescedIngestion {
+
+    private final PublicationAction action;
+    private final ResourceInfo resource;
+
+    private CoalescedIngestion(PublicationAction action, ResourceInfo resource) {
+      this.action = action;
+      this.resource = resource;
+    }
   }
 }
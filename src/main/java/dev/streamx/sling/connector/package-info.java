@@ -1,7 +1,7 @@
 /**
  * API.
  */
-@Version("3.0.0")
+@Version("3.5.0")
 package dev.streamx.sling.connector;
 
 import org.osgi.annotation.versioning.Version;
@@ -0,0 +1,65 @@
+package dev.streamx.sling.connector.selectors.content;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the paths of the related resources referenced directly by the content of a related resource, so that
+ * resources shared by many parent resources, like CSS and JS files, are retrieved and scanned once. A remembered
+ * entry is valid until the last modification time of its resource changes, but no longer than the max age.
+ */
+final class NestedRelatedResourcesMemo {
+
+  private static final int MAX_ENTRIES = 10_000;
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+  private final long maxAge;
+
+  NestedRelatedResourcesMemo(long maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Returns the remembered paths of the related resources referenced by the resource, or extracts
+   * and remembers them if they are not remembered yet or are no longer valid
+   */
+  Set<String> get(String resourcePath, Long lastModified, Supplier<Set<String>> extractor) {
+    if (maxAge <= 0) {
+      return extractor.get();
+    }
+    synchronized (entries) {
+      Entry entry = entries.get(resourcePath);
+      if (entry != null && Objects.equals(entry.lastModified, lastModified)
+          && System.currentTimeMillis() - entry.createdAt <= maxAge) {
+        return entry.relatedResourcePaths;
+      }
+    }
+    Set<String> relatedResourcePaths = Collections.unmodifiableSortedSet(new TreeSet<>(extractor.get()));
+    synchronized (entries) {
+      entries.put(resourcePath, new Entry(relatedResourcePaths, lastModified));
+    }
+    return relatedResourcePaths;
+  }
+
+  private static final class Entry {
+
+    private final Set<String> relatedResourcePaths;
+    private final Long lastModified;
+    private final long createdAt = System.currentTimeMillis();
+
+    private Entry(Set<String> relatedResourcePaths, Long lastModified) {
+      this.relatedResourcePaths = relatedResourcePaths;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package dev.streamx.sling.connector.selectors.content;
+
+import dev.streamx.sling.connector.impl.RegexLiteralPrefix;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the matches of multiple patterns in a single pass over the content. The result is the same as if each pattern
+ * was searched for separately with {@link Matcher#find()}: matches of the same pattern don't overlap, while matches of
+ * different patterns can. To avoid trying every pattern at every position, the patterns are dispatched by the first
+ * character of their literal prefix, if such prefix can be determined. Patterns without a literal prefix are tried at
+ * every position.
+ * <p>
+ * The content can also be scanned incrementally, in parts, without keeping all of it in memory. Lookbehinds are
+ * then limited to the last {@value #LOOKBEHIND_LENGTH} characters before the matched position.
+ */
+final class ReferenceScanner {
+
+  static final int DEFAULT_MAX_PENDING_LENGTH = 1024 * 1024;
+  private static final int ASCII_SIZE = 128;
+  private static final int CHUNK_LENGTH = 8192;
+  private static final int LOOKBEHIND_LENGTH = 1024;
+  private static final int[] NO_PATTERNS = new int[0];
+
+  private final Pattern[] patterns;
+  private final String[] literalPrefixes;
+  private final int[][] asciiDispatchTable = new int[ASCII_SIZE][];
+  private final Map<Character, int[]> nonAsciiDispatchTable = new HashMap<>();
+  private final int[] patternsWithoutPrefix;
+
+  /**
+   * Creates the scanner for the patterns that have at least one capturing group, since only the first group
+   * of every match is returned. Other patterns are ignored.
+   */
+  ReferenceScanner(List<Pattern> patterns) {
+    this.patterns = patterns.stream()
+        .filter(pattern -> pattern.matcher("").groupCount() > 0)
+        .toArray(Pattern[]::new);
+    this.literalPrefixes = new String[this.patterns.length];
+    List<Integer> withoutPrefix = new ArrayList<>();
+    for (int i = 0; i < this.patterns.length; i++) {
+      String literalPrefix = RegexLiteralPrefix.find(this.patterns[i]);
+      literalPrefixes[i] = literalPrefix;
+      if (literalPrefix == null) {
+        withoutPrefix.add(i);
+      } else {
+        addToDispatchTable(literalPrefix.charAt(0), i);
+      }
+    }
+    this.patternsWithoutPrefix = withoutPrefix.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private void addToDispatchTable(char firstChar, int patternIndex) {
+    if (firstChar < ASCII_SIZE) {
+      asciiDispatchTable[firstChar] = append(asciiDispatchTable[firstChar], patternIndex);
+    } else {
+      nonAsciiDispatchTable.put(firstChar, append(nonAsciiDispatchTable.get(firstChar), patternIndex));
+    }
+  }
+
+  private static int[] append(int[] array, int value) {
+    if (array == null) {
+      return new int[]{value};
+    }
+    int[] result = Arrays.copyOf(array, array.length + 1);
+    result[array.length] = value;
+    return result;
+  }
+
+  /**
+   * Returns the values of the first capturing group of all matches of all patterns, in the order in which the matches
+   * start. Values of matches in which the first group did not participate are returned as {@code null}.
+   */
+  List<String> scan(String content) {
+    IncrementalScan scan = startIncrementalScan(Math.max(content.length(), DEFAULT_MAX_PENDING_LENGTH));
+    scan.write(content);
+    return scan.finish();
+  }
+
+  /**
+   * Starts a scan of content that is provided in parts, by writing it to the returned {@link Writer}. Only the part of
+   * the content that can still be matched is kept in memory.
+   *
+   * @param maxPendingLength maximum length of content that is kept in memory while it's not known yet if a match
+   *                         starting in it ends in the following parts; if it's exceeded, the match is decided without
+   *                         waiting for them
+   */
+  IncrementalScan startIncrementalScan(int maxPendingLength) {
+    return new IncrementalScan(maxPendingLength);
+  }
+
+  private int[] dispatch(char character) {
+    int[] patternIndexes = character < ASCII_SIZE ? asciiDispatchTable[character] : nonAsciiDispatchTable.get(character);
+    return patternIndexes == null ? NO_PATTERNS : patternIndexes;
+  }
+
+  /**
+   * Scan of content provided in parts. A match can span multiple parts: the decision at a position is postponed until
+   * more content is provided whenever {@link Matcher#hitEnd()} reports that more content could change it.
+   */
+  final class IncrementalScan extends Writer {
+
+    private final int maxPendingLength;
+    private final StringBuilder buffer = new StringBuilder();
+    private final int[] nextSearchIndexes = new int[patterns.length];
+    private final List<String> result = new ArrayList<>();
+    private int position;
+    private boolean finished;
+
+    private IncrementalScan(int maxPendingLength) {
+      this.maxPendingLength = maxPendingLength;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      addContent(CharBuffer.wrap(chars, offset, length));
+    }
+
+    @Override
+    public void write(String string) {
+      addContent(string);
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+      addContent(CharBuffer.wrap(string, offset, offset + length));
+    }
+
+    private void addContent(CharSequence chars) {
+      if (finished) {
+        throw new IllegalStateException("Scan is already finished");
+      }
+      buffer.append(chars);
+      if (buffer.length() - position >= CHUNK_LENGTH) {
+        scanBuffer(false);
+      }
+    }
+
+    @Override
+    public void flush() {
+      // content is scanned in chunks as it's written
+    }
+
+    @Override
+    public void close() {
+      finish();
+    }
+
+    /**
+     * Scans the rest of the content and returns the values of the first capturing group of all matches
+     * of all patterns.
+     */
+    List<String> finish() {
+      if (!finished) {
+        scanBuffer(true);
+        finished = true;
+      }
+      return result;
+    }
+
+    int getBufferedLength() {
+      return buffer.length();
+    }
+
+    private void scanBuffer(boolean endOfContent) {
+      int length = buffer.length();
+      Matcher[] matchers = new Matcher[patterns.length];
+      for (int i = 0; i < patterns.length; i++) {
+        // transparent and non-anchoring bounds make matching in a region behave the same as matching in the whole content
+        matchers[i] = patterns[i].matcher(buffer).useTransparentBounds(true).useAnchoringBounds(false);
+      }
+
+      for (; position < length || (endOfContent && position == length); position++) {
+        boolean decided = endOfContent || length - position >= maxPendingLength;
+        int[] patternIndexes = position < length ? dispatch(buffer.charAt(position)) : NO_PATTERNS;
+        if (!tryMatch(patternIndexes, matchers, decided) || !tryMatch(patternsWithoutPrefix, matchers, decided)) {
+          break;
+        }
+      }
+      discardScannedContent();
+    }
+
+    /**
+     * Tries to match the patterns at the current position. Returns false if it's not possible to decide whether
+     * one of them matches without the following content; the position is then tried again when it's provided.
+     */
+    private boolean tryMatch(int[] patternIndexes, Matcher[] matchers, boolean decided) {
+      for (int patternIndex : patternIndexes) {
+        if (position < nextSearchIndexes[patternIndex]) {
+          continue;
+        }
+        String literalPrefix = literalPrefixes[patternIndex];
+        if (literalPrefix != null && !regionMatches(literalPrefix, literalPrefix.length())) {
+          int availableLength = buffer.length() - position;
+          if (!decided && availableLength < literalPrefix.length() && regionMatches(literalPrefix, availableLength)) {
+            return false;
+          }
+          continue;
+        }
+        Matcher matcher = matchers[patternIndex];
+        matcher.region(position, buffer.length());
+        boolean found = matcher.lookingAt();
+        if (!decided && matcher.hitEnd()) {
+          return false;
+        }
+        if (found) {
+          result.add(matcher.group(1));
+          int end = matcher.end();
+          // the same as Matcher.find(), the search continues after the match, or after its position if the match is empty
+          nextSearchIndexes[patternIndex] = end == position ? position + 1 : end;
+        }
+      }
+      return true;
+    }
+
+    private boolean regionMatches(String literalPrefix, int length) {
+      if (position + length > buffer.length()) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (buffer.charAt(position + i) != literalPrefix.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void discardScannedContent() {
+      // some of the scanned content is kept, so that lookbehinds and boundaries can be matched at the current position
+      int discardedLength = position - LOOKBEHIND_LENGTH;
+      if (discardedLength <= 0) {
+        return;
+      }
+      buffer.delete(0, discardedLength);
+      position -= discardedLength;
+      for (int i = 0; i < nextSearchIndexes.length; i++) {
+        nextSearchIndexes[i] = Math.max(0, nextSearchIndexes[i] - discardedLength);
+      }
+    }
+  }
+}
@@ -2,6 +2,9 @@ package dev.streamx.sling.connector.selectors.content;
 
 import dev.streamx.sling.connector.RelatedResourcesSelector;
 import dev.streamx.sling.connector.ResourceInfo;
+import dev.streamx.sling.connector.impl.ResourceLastModified;
+import dev.streamx.sling.connector.selectors.content.ReferenceScanner.IncrementalScan;
+import dev.streamx.sling.connector.util.RenderCache;
 import dev.streamx.sling.connector.util.SimpleInternalRequest;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -14,7 +17,6 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
@@ -31,6 +33,8 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.osgi.service.metatype.annotations.Designate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,12 +58,14 @@ public class ResourceContentRelatedResourcesSelector implements RelatedResources
   private final AtomicReference<ResourceContentRelatedResourcesSelectorConfig> config;
   private final SlingRequestProcessor slingRequestProcessor;
   private final ResourceResolverFactory resourceResolverFactory;
+  private final @Nullable RenderCache renderCache;
 
-  private List<Pattern> relatedResourcePathIncludePatterns;
+  private ReferenceScanner relatedResourcePathScanner;
   private @Nullable Pattern relatedResourcePathExcludePattern;
   private @Nullable Pattern resourceRequiredPathRegex;
   private @Nullable Pattern resourceRequiredPrimaryNodeTypeRegex;
   private @Nullable Pattern relatedResourceProcessablePathPattern;
+  private NestedRelatedResourcesMemo nestedRelatedResourcesMemo;
 
   /**
    * Constructs an instance of this class.
@@ -69,27 +75,50 @@ public class ResourceContentRelatedResourcesSelector implements RelatedResources
    *                                content
    * @param resourceResolverFactory {@link ResourceResolverFactory} to use when accessing resources
    */
+  public ResourceContentRelatedResourcesSelector(
+      ResourceContentRelatedResourcesSelectorConfig config,
+      SlingRequestProcessor slingRequestProcessor,
+      ResourceResolverFactory resourceResolverFactory
+  ) {
+    this(config, slingRequestProcessor, resourceResolverFactory, null);
+  }
+
+  /**
+   * Constructs an instance of this class.
+   *
+   * @param config                  configuration for this service
+   * @param slingRequestProcessor   {@link SlingRequestProcessor} to use when retrieving resource
+   *                                content
+   * @param resourceResolverFactory {@link ResourceResolverFactory} to use when accessing resources
+   * @param renderCache             {@link RenderCache} to share the retrieved resource content with
+   *                                the publication handlers; can be {@code null}
+   */
   @Activate
   public ResourceContentRelatedResourcesSelector(
       ResourceContentRelatedResourcesSelectorConfig config,
       @Reference SlingRequestProcessor slingRequestProcessor,
-      @Reference ResourceResolverFactory resourceResolverFactory
+      @Reference ResourceResolverFactory resourceResolverFactory,
+      @Reference(cardinality = ReferenceCardinality.OPTIONAL, policyOption = ReferencePolicyOption.GREEDY)
+      @Nullable RenderCache renderCache
   ) {
     this.config = new AtomicReference<>(config);
     this.slingRequestProcessor = slingRequestProcessor;
     this.resourceResolverFactory = resourceResolverFactory;
+    this.renderCache = renderCache;
     loadPatterns();
   }
 
   private void loadPatterns() {
     ResourceContentRelatedResourcesSelectorConfig currentConfig = config.get();
-    relatedResourcePathIncludePatterns = Arrays.stream(currentConfig.references_search$_$regexes())
+    relatedResourcePathScanner = new ReferenceScanner(Arrays.stream(currentConfig.references_search$_$regexes())
         .map(Pattern::compile)
-        .collect(Collectors.toUnmodifiableList());
+        .collect(Collectors.toUnmodifiableList()));
     relatedResourcePathExcludePattern = compilePattern(currentConfig.references_exclude$_$from$_$result_regex());
     resourceRequiredPathRegex = compilePattern(currentConfig.resource_required$_$path_regex());
     resourceRequiredPrimaryNodeTypeRegex = compilePattern(currentConfig.resource_required$_$primary$_$node$_$type_regex());
     relatedResourceProcessablePathPattern = compilePattern(currentConfig.related$_$resource_processable$_$path_regex());
+    // remembered paths depend on the patterns, so they are forgotten whenever the configuration changes
+    nestedRelatedResourcesMemo = new NestedRelatedResourcesMemo(currentConfig.nested$_$references_memo_max$_$age());
   }
 
   @Nullable
@@ -163,16 +192,21 @@ public class ResourceContentRelatedResourcesSelector implements RelatedResources
    * are found
    */
   private Set<String> extractPathsOfRelatedResources(String resourcePath, ResourceResolver resourceResolver) {
-    String resourceContent = readResourceContent(resourcePath + getResourcePathPostfixToAppend(), resourceResolver);
-    return extractMatchingRelatedResourcePaths(resourcePath, resourceContent);
+    SlingUri slingUri = SlingUriBuilder.parse(resourcePath + getResourcePathPostfixToAppend(), resourceResolver).build();
+    List<String> references = findReferences(slingUri, resourceResolver);
+    return extractMatchingRelatedResourcePaths(resourcePath, references);
   }
 
   private void extractPathsFromNestedRelatedResource(String resourcePath, ResourceResolver resourceResolver, Set<String> extractedPaths) {
     if (!matches(resourcePath, relatedResourceProcessablePathPattern)) {
       return;
     }
-    String resourceAsString = readResourceContent(resourcePath, resourceResolver);
-    Set<String> nestedRelatedResourcePaths = extractMatchingRelatedResourcePaths(resourcePath, resourceAsString);
+    SlingUri slingUri = SlingUriBuilder.parse(resourcePath, resourceResolver).build();
+    Long lastModified = ResourceLastModified.get(slingUri, resourceResolver);
+    Set<String> nestedRelatedResourcePaths = nestedRelatedResourcesMemo.get(resourcePath, lastModified, () -> {
+      List<String> references = findReferences(slingUri, resourceResolver);
+      return extractMatchingRelatedResourcePaths(resourcePath, references);
+    });
     for (String nestedRelatedResourcePath : nestedRelatedResourcePaths) {
       if (!extractedPaths.contains(nestedRelatedResourcePath)) { // avoid circular references
         extractedPaths.add(nestedRelatedResourcePath);
@@ -181,20 +215,14 @@ public class ResourceContentRelatedResourcesSelector implements RelatedResources
     }
   }
 
-  private Set<String> extractMatchingRelatedResourcePaths(String resourcePath, String resourceContent) {
+  private Set<String> extractMatchingRelatedResourcePaths(String resourcePath, List<String> references) {
     Set<String> matchingPaths = new TreeSet<>();
-    for (Pattern includePattern : relatedResourcePathIncludePatterns) {
-      Matcher matcher = includePattern.matcher(resourceContent);
-      while (matcher.find()) {
-        if (matcher.groupCount() > 0) {
-          String relatedResourcePath = matcher.group(1);
-          if (isRelatedResourcePathValidForCollecting(relatedResourcePath)) {
-            String normalizedPath = normalizePath(resourcePath, relatedResourcePath);
-            matchingPaths.add(normalizedPath);
-          } else {
-            LOG.trace("Skipping related resource {} - path is not valid for collection", relatedResourcePath);
-          }
-        }
+    for (String relatedResourcePath : references) {
+      if (isRelatedResourcePathValidForCollecting(relatedResourcePath)) {
+        String normalizedPath = normalizePath(resourcePath, relatedResourcePath);
+        matchingPaths.add(normalizedPath);
+      } else {
+        LOG.trace("Skipping related resource {} - path is not valid for collection", relatedResourcePath);
       }
     }
     return matchingPaths;
@@ -205,9 +233,23 @@ public class ResourceContentRelatedResourcesSelector implements RelatedResources
            && !isExternalUrl(relatedResourcePath);
   }
 
-  private String readResourceContent(String resourcePath, ResourceResolver resourceResolver) {
-    SlingUri slingUri = SlingUriBuilder.parse(resourcePath, resourceResolver).build();
-    return new SimpleInternalRequest(slingUri, slingRequestProcessor, resourceResolver).getResponseAsString();
+  /**
+   * Searches the content of the resource for all the configured patterns in a single pass and returns
+   * the first capturing group of every match.
+   */
+  private List<String> findReferences(SlingUri slingUri, ResourceResolver resourceResolver) {
+    ResourceContentRelatedResourcesSelectorConfig currentConfig = config.get();
+    SimpleInternalRequest request = new SimpleInternalRequest(
+        slingUri, slingRequestProcessor, resourceResolver, Collections.emptyMap(), renderCache);
+    if (currentConfig.references_streaming$_$extraction()) {
+      IncrementalScan scan = relatedResourcePathScanner.startIncrementalScan(
+          currentConfig.references_streaming$_$extraction_max$_$pending$_$length());
+      if (request.writeResponseTo(scan)) {
+        return scan.finish();
+      }
+      return relatedResourcePathScanner.scan(StringUtils.EMPTY);
+    }
+    return relatedResourcePathScanner.scan(request.getResponseAsString());
   }
 
   private String getResourcePathPostfixToAppend() {
@@ -118,4 +118,55 @@ public @interface ResourceContentRelatedResourcesSelectorConfig {
       defaultValue = ".*\\.(css|js)$"
   )
   String related$_$resource_processable$_$path_regex() default ".*\\.(css|js)$";
+
+  /**
+   * Maximal time in milliseconds for which the paths of the resources referenced by a processable related
+   * {@link Resource} are remembered, so that a related {@link Resource} shared by many resources is retrieved
+   * and searched once. The remembered paths are forgotten earlier if the last modification time of the
+   * related {@link Resource} changes. The value of 0 disables remembering the paths.
+   *
+   * @return maximal time in milliseconds for which the paths of the resources referenced by a
+   * processable related {@link Resource} are remembered
+   */
+  @AttributeDefinition(
+      name = "Nested References Memo Max Age",
+      description = "Maximal time in milliseconds for which the paths of the resources referenced by a processable related "
+          + "Resource are remembered, so that a Resource shared by many resources is retrieved and searched once. "
+          + "The value of 0 disables remembering the paths.",
+      type = AttributeType.LONG,
+      defaultValue = "60000"
+  )
+  long nested$_$references_memo_max$_$age() default 60000;
+
+  /**
+   * Indicates whether the content of a {@link Resource} is searched for references while it's being rendered,
+   * in chunks, instead of after the whole content is rendered and held in memory.
+   *
+   * @return {@code true} if the content is searched for references while it's being rendered
+   */
+  @AttributeDefinition(
+      name = "Streaming References Extraction",
+      description = "If enabled, the content of a Resource is searched for references in chunks while it's being "
+          + "rendered, instead of after the whole content is rendered and held in memory.",
+      type = AttributeType.BOOLEAN,
+      defaultValue = "false"
+  )
+  boolean references_streaming$_$extraction() default false;
+
+  /**
+   * Maximal number of characters of the content of a {@link Resource} that are held in memory during streaming
+   * references extraction while it's not known yet whether a reference starting in them ends in the following
+   * chunks. If it's exceeded, the reference is searched for only in the characters that are held in memory.
+   *
+   * @return maximal number of characters held in memory during streaming references extraction
+   */
+  @AttributeDefinition(
+      name = "Streaming References Extraction Max Pending Length",
+      description = "Maximal number of characters of the content of a Resource that are held in memory during streaming "
+          + "references extraction while it's not known yet whether a reference starting in them ends in the "
+          + "following chunks.",
+      type = AttributeType.INTEGER,
+      defaultValue = "1048576"
+  )
+  int references_streaming$_$extraction_max$_$pending$_$length() default 1048576;
 }
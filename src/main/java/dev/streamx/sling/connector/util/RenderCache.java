@@ -0,0 +1,28 @@
+package dev.streamx.sling.connector.util;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.uri.SlingUri;
+
+/**
+ * Cache of the content rendered by internal requests. It lets the same content be rendered once, even if it's
+ * requested by different components, for example to find related resources of a page and to publish the page.
+ */
+public interface RenderCache {
+
+  /**
+   * Returns the content rendered for the given URI and request parameters. If the content is not cached yet,
+   * or the requested resource was modified after it was cached, the content is rendered with the given renderer.
+   *
+   * @param slingUri         {@link SlingUri} to request
+   * @param parameters       parameters of the request
+   * @param resourceResolver {@link ResourceResolver} to use for resource resolution
+   * @param renderer         renders the content if it cannot be returned from the cache
+   * @return {@link Optional} containing the rendered content; empty {@link Optional} is returned if the renderer
+   * could not render the content
+   */
+  Optional<RenderedContent> get(SlingUri slingUri, Map<String, Object> parameters, ResourceResolver resourceResolver,
+      Supplier<Optional<RenderedContent>> renderer);
+}
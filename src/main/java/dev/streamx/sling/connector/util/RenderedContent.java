@@ -0,0 +1,56 @@
+package dev.streamx.sling.connector.util;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Content of a resource successfully rendered by an internal request.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class RenderedContent {
+
+  private final byte[] bytes;
+  private final String characterEncoding;
+
+  /**
+   * Constructs a new instance of this class.
+   *
+   * @param bytes             body of the response; the array must not be modified after it's passed to this constructor
+   * @param characterEncoding character encoding of the response, can be {@code null}
+   */
+  public RenderedContent(byte[] bytes, String characterEncoding) {
+    this.bytes = bytes;
+    this.characterEncoding = characterEncoding;
+  }
+
+  /**
+   * Returns the body of the response. The returned array is shared and must not be modified.
+   *
+   * @return body of the response
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the character encoding of the response.
+   *
+   * @return character encoding of the response, can be {@code null}
+   */
+  public String getCharacterEncoding() {
+    return characterEncoding;
+  }
+
+  /**
+   * Returns the body of the response decoded with its character encoding, or with UTF-8 if the encoding is not set.
+   *
+   * @return body of the response represented as {@link String}
+   */
+  public String getBytesAsString() {
+    Charset charset = Optional.ofNullable(characterEncoding)
+        .map(Charset::forName)
+        .orElse(StandardCharsets.UTF_8);
+    return new String(bytes, charset);
+  }
+}
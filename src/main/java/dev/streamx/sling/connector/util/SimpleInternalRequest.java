@@ -3,11 +3,20 @@ package dev.streamx.sling.connector.util;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import javax.servlet.ServletException;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.uri.SlingUri;
@@ -26,10 +35,17 @@ public class SimpleInternalRequest {
 
   private static final Logger LOG = LoggerFactory.getLogger(SimpleInternalRequest.class);
 
+  /**
+   * Maximum number of bytes of the body passed to a {@link Writer} that are kept in memory and cached, if a
+   * {@link RenderCache} is used.
+   */
+  private static final int MAX_CACHED_STREAMED_SIZE = 1024 * 1024;
+
   private final ResourceResolver resourceResolver;
   private final SlingRequestProcessor slingRequestProcessor;
   private final SlingUri slingUri;
   private final Map<String, String> additionalProperties;
+  private final RenderCache renderCache;
 
   /**
    * Constructs a new instance of this class.
@@ -59,11 +75,32 @@ public class SimpleInternalRequest {
       SlingRequestProcessor slingRequestProcessor,
       ResourceResolver resourceResolver,
       Map<String, String> additionalProperties
+  ) {
+    this(slingUri, slingRequestProcessor, resourceResolver, additionalProperties, null);
+  }
+
+  /**
+   * Constructs a new instance of this class.
+   *
+   * @param slingUri                {@link SlingUri} to request
+   * @param slingRequestProcessor   {@link SlingRequestProcessor} to use for request processing
+   * @param resourceResolver        {@link ResourceResolver} to use for resource resolution
+   * @param additionalProperties    Map of additional properties that will be added as parameters of the issued {@link SlingInternalRequest}
+   * @param renderCache             {@link RenderCache} to reuse the content that was already rendered for the same request;
+   *                                if {@code null}, the content is always rendered
+   */
+  public SimpleInternalRequest(
+      SlingUri slingUri,
+      SlingRequestProcessor slingRequestProcessor,
+      ResourceResolver resourceResolver,
+      Map<String, String> additionalProperties,
+      RenderCache renderCache
   ) {
     this.slingUri = slingUri;
     this.slingRequestProcessor = slingRequestProcessor;
     this.resourceResolver = resourceResolver;
     this.additionalProperties = Collections.unmodifiableMap(additionalProperties);
+    this.renderCache = renderCache;
   }
 
   /**
@@ -73,14 +110,9 @@ public class SimpleInternalRequest {
    * returned if the response body cannot be retrieved
    */
   public String getResponseAsString() {
-    InternalRequest internalRequest = createInternalRequest();
-    try {
-      return internalRequest.execute().getResponseAsString();
-    } catch (IOException exception) {
-      LOG.error("Failed to get response as string for '{}'", slingUri, exception);
-    }
-
-    return StringUtils.EMPTY;
+    return getRenderedContent()
+        .map(RenderedContent::getBytesAsString)
+        .orElse(StringUtils.EMPTY);
   }
 
   /**
@@ -100,25 +132,209 @@ public class SimpleInternalRequest {
    * returned if the response body cannot be retrieved
    */
   public Optional<byte[]> getResponseAsBytes() {
-    InternalRequest internalRequest = createInternalRequest();
+    return getRenderedContent().map(RenderedContent::getBytes);
+  }
+
+  /**
+   * Passes the body of the HTTP response to the given {@link Writer} while it's being rendered, without holding
+   * the whole body in memory. If a {@link RenderCache} was given via constructor, the body is rendered and passed
+   * through the cache instead, and it's cached only if it's not larger than {@value #MAX_CACHED_STREAMED_SIZE} bytes;
+   * a larger body is buffered in a temporary file, the same way as by {@link #getResponseAsInputStream(int)}.
+   *
+   * @param writer {@link Writer} to pass the body of the HTTP response to; it's not closed by this method
+   * @return {@code true} if the whole body was passed; {@code false} if the response body cannot be retrieved,
+   * in which case a part of it might have been passed already
+   */
+  public boolean writeResponseTo(Writer writer) {
+    if (renderCache != null) {
+      return writeBufferedResponseTo(writer);
+    }
+    Map<String, Object> pathParameters = createPathParametersMap();
+    LOG.trace("Creating streaming internal request for '{}' with path parameters {}", slingUri, pathParameters);
+    InternalRequest internalRequest = new StreamingInternalRequest(
+        resourceResolver, slingRequestProcessor, slingUri.toString(), response -> new StreamingResponse(response, writer)
+    ).withParameters(pathParameters);
+    try {
+      // fails if the response status is not OK
+      internalRequest.execute().getResponse();
+      return true;
+    } catch (IOException exception) {
+      LOG.error("Failed to get response for '{}'", slingUri, exception);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the {@link Optional} containing the body of the HTTP response, without holding the whole body in memory
+   * if it's large. Up to {@code maxInMemorySize} bytes of the body are kept in memory; a larger body is buffered in
+   * a temporary file while it's being rendered, and is read from that file. The file is deleted when the returned
+   * {@link InputStream} is closed, so the caller must close it. If a {@link RenderCache} was given via constructor,
+   * the body is rendered and passed through the cache instead, and it's cached only if it's kept in memory.
+   *
+   * @param maxInMemorySize maximum number of bytes of the body that are kept in memory
+   * @return {@link Optional} containing the body of the HTTP response; empty {@link Optional} is
+   * returned if the response body cannot be retrieved
+   */
+  public Optional<InputStream> getResponseAsInputStream(int maxInMemorySize) {
+    return getBufferedResponse(maxInMemorySize).map(BufferedResponse::getInputStream);
+  }
+
+  private boolean writeBufferedResponseTo(Writer writer) {
+    Optional<BufferedResponse> bufferedResponse = getBufferedResponse(MAX_CACHED_STREAMED_SIZE);
+    if (bufferedResponse.isEmpty()) {
+      return false;
+    }
+    try (Reader reader = new InputStreamReader(bufferedResponse.get().getInputStream(), bufferedResponse.get().getCharset())) {
+      reader.transferTo(writer);
+      return true;
+    } catch (IOException exception) {
+      LOG.error("Failed to pass response for '{}'", slingUri, exception);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the body of the HTTP response. If a {@link RenderCache} was given via constructor, the body that is kept
+   * in memory is cached, while the body buffered in a temporary file is returned without caching it.
+   */
+  private Optional<BufferedResponse> getBufferedResponse(int maxInMemorySize) {
+    Map<String, Object> pathParameters = createPathParametersMap();
+    if (renderCache == null) {
+      return renderBuffered(pathParameters, maxInMemorySize);
+    }
+    AtomicReference<BufferedResponse> spilledResponse = new AtomicReference<>();
+    Optional<RenderedContent> renderedContent = renderCache.get(slingUri, pathParameters, resourceResolver, () -> {
+      Optional<BufferedResponse> bufferedResponse = renderBuffered(pathParameters, maxInMemorySize);
+      if (bufferedResponse.isPresent() && bufferedResponse.get().isSpilled()) {
+        spilledResponse.set(bufferedResponse.get());
+        return Optional.empty();
+      }
+      return bufferedResponse.map(BufferedResponse::toRenderedContent);
+    });
+    if (renderedContent.isPresent()) {
+      Optional.ofNullable(spilledResponse.get()).ifPresent(BufferedResponse::close);
+      return renderedContent.map(BufferedResponse::new);
+    }
+    return Optional.ofNullable(spilledResponse.get());
+  }
+
+  private Optional<BufferedResponse> renderBuffered(Map<String, Object> pathParameters, int maxInMemorySize) {
+    LOG.trace("Creating buffering internal request for '{}' with path parameters {}", slingUri, pathParameters);
+    SpillingOutputStream buffer = new SpillingOutputStream(maxInMemorySize);
+    InternalRequest internalRequest = new StreamingInternalRequest(
+        resourceResolver, slingRequestProcessor, slingUri.toString(), response -> new StreamingResponse(response, buffer)
+    ).withParameters(pathParameters);
+    boolean buffered = false;
+    try {
+      // fails if the response status is not OK
+      SlingHttpServletResponse response = internalRequest.execute().getResponse();
+      buffer.close();
+      BufferedResponse bufferedResponse = new BufferedResponse(buffer, response.getCharacterEncoding());
+      buffered = true;
+      return Optional.of(bufferedResponse);
+    } catch (IOException exception) {
+      LOG.error("Failed to get response for '{}'", slingUri, exception);
+      return Optional.empty();
+    } finally {
+      if (!buffered) {
+        buffer.discard();
+      }
+    }
+  }
+
+  private Optional<RenderedContent> getRenderedContent() {
+    Map<String, Object> pathParameters = createPathParametersMap();
+    if (renderCache == null) {
+      return render(pathParameters);
+    }
+    return renderCache.get(slingUri, pathParameters, resourceResolver, () -> render(pathParameters));
+  }
+
+  private Optional<RenderedContent> render(Map<String, Object> pathParameters) {
+    LOG.trace("Creating internal request for '{}' with path parameters {}", slingUri, pathParameters);
+    InternalRequest internalRequest = new SlingInternalRequest(resourceResolver, slingRequestProcessor, slingUri.toString())
+        .withParameters(pathParameters);
     try {
       SlingHttpServletResponse response = internalRequest.execute().getResponse();
       if (response instanceof MockSlingHttpServletResponse) {
         byte[] output = ((MockSlingHttpServletResponse) response).getOutput();
-        return Optional.of(output);
+        return Optional.of(new RenderedContent(output, response.getCharacterEncoding()));
       }
     } catch (IOException exception) {
-      LOG.error("Failed to get response as bytes for '{}'", slingUri, exception);
+      LOG.error("Failed to get response for '{}'", slingUri, exception);
     }
 
     return Optional.empty();
   }
 
-  private InternalRequest createInternalRequest() {
-    Map<String, Object> pathParameters = createPathParametersMap();
-    LOG.trace("Creating internal request for '{}' with path parameters {}", slingUri, pathParameters);
-    return new SlingInternalRequest(resourceResolver, slingRequestProcessor, slingUri.toString())
-        .withParameters(pathParameters);
+  private static final class StreamingInternalRequest extends SlingInternalRequest {
+
+    private final Function<SlingHttpServletResponse, StreamingResponse> responseFactory;
+
+    private StreamingInternalRequest(ResourceResolver resourceResolver, SlingRequestProcessor slingRequestProcessor,
+        String path, Function<SlingHttpServletResponse, StreamingResponse> responseFactory) {
+      super(resourceResolver, slingRequestProcessor, path);
+      this.responseFactory = responseFactory;
+    }
+
+    @Override
+    protected void delegateExecute(SlingHttpServletRequest request, SlingHttpServletResponse response,
+        ResourceResolver resourceResolver) throws ServletException, IOException {
+      StreamingResponse streamingResponse = responseFactory.apply(response);
+      super.delegateExecute(request, streamingResponse, resourceResolver);
+      streamingResponse.finish();
+    }
+  }
+
+  /**
+   * Body of a response that is kept in memory or buffered in a temporary file, along with its character encoding.
+   */
+  private static final class BufferedResponse {
+
+    private final InputStream inputStream;
+    private final boolean spilled;
+    private final byte[] bytes;
+    private final String characterEncoding;
+
+    private BufferedResponse(SpillingOutputStream buffer, String characterEncoding) throws IOException {
+      this.spilled = buffer.isSpilled();
+      this.bytes = spilled ? null : buffer.toByteArray();
+      this.inputStream = spilled ? buffer.toInputStream() : new ByteArrayInputStream(bytes);
+      this.characterEncoding = characterEncoding;
+    }
+
+    private BufferedResponse(RenderedContent renderedContent) {
+      this.spilled = false;
+      this.bytes = renderedContent.getBytes();
+      this.inputStream = new ByteArrayInputStream(bytes);
+      this.characterEncoding = renderedContent.getCharacterEncoding();
+    }
+
+    private InputStream getInputStream() {
+      return inputStream;
+    }
+
+    private boolean isSpilled() {
+      return spilled;
+    }
+
+    private RenderedContent toRenderedContent() {
+      return new RenderedContent(bytes, characterEncoding);
+    }
+
+    private Charset getCharset() {
+      return Optional.ofNullable(characterEncoding)
+          .map(Charset::forName)
+          .orElse(StandardCharsets.UTF_8);
+    }
+
+    private void close() {
+      try {
+        inputStream.close();
+      } catch (IOException exception) {
+        LOG.debug("Error closing buffered response", exception);
+      }
+    }
   }
 
   private Map<String, Object> createPathParametersMap() {
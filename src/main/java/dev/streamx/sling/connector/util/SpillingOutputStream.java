@@ -0,0 +1,154 @@
+package dev.streamx.sling.connector.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffer for data of unknown size that keeps up to the given number of bytes in memory. When more data is written,
+ * all of it is moved to a temporary file, so that the memory usage doesn't depend on the size of the data.
+ * The data can be read once, after the stream is closed; the temporary file is deleted when the returned
+ * {@link InputStream} is closed.
+ */
+final class SpillingOutputStream extends OutputStream {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SpillingOutputStream.class);
+  private static final int INITIAL_MEMORY_BUFFER_SIZE = 8192;
+  private static final int FILE_BUFFER_SIZE = 8192;
+  private static final String TEMPORARY_FILE_PREFIX = "streamx-response-";
+
+  private final int maxInMemorySize;
+  private byte[] memoryBuffer;
+  private int memoryBufferLength;
+  private Path file;
+  private OutputStream fileOutputStream;
+  private boolean closed;
+
+  SpillingOutputStream(int maxInMemorySize) {
+    this.maxInMemorySize = Math.max(0, maxInMemorySize);
+    this.memoryBuffer = new byte[Math.min(INITIAL_MEMORY_BUFFER_SIZE, this.maxInMemorySize)];
+  }
+
+  @Override
+  public void write(int value) throws IOException {
+    write(new byte[]{(byte) value}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    if (closed) {
+      throw new IOException("Stream is already closed");
+    }
+    if (fileOutputStream == null && memoryBufferLength + length > maxInMemorySize) {
+      spillToFile();
+    }
+    if (fileOutputStream != null) {
+      fileOutputStream.write(bytes, offset, length);
+      return;
+    }
+    if (memoryBufferLength + length > memoryBuffer.length) {
+      int newLength = Math.max(memoryBufferLength + length, Math.min(memoryBuffer.length * 2, maxInMemorySize));
+      memoryBuffer = Arrays.copyOf(memoryBuffer, newLength);
+    }
+    System.arraycopy(bytes, offset, memoryBuffer, memoryBufferLength, length);
+    memoryBufferLength += length;
+  }
+
+  private void spillToFile() throws IOException {
+    file = Files.createTempFile(TEMPORARY_FILE_PREFIX, ".tmp");
+    LOG.trace("Data exceeds {} bytes, buffering it in {}", maxInMemorySize, file);
+    fileOutputStream = new BufferedOutputStream(Files.newOutputStream(file), FILE_BUFFER_SIZE);
+    fileOutputStream.write(memoryBuffer, 0, memoryBufferLength);
+    memoryBuffer = null;
+    memoryBufferLength = 0;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (fileOutputStream != null) {
+      fileOutputStream.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      if (fileOutputStream != null) {
+        fileOutputStream.close();
+      }
+    }
+  }
+
+  /**
+   * Returns true if the data was moved to a temporary file.
+   */
+  boolean isSpilled() {
+    return file != null;
+  }
+
+  /**
+   * Returns the written data that is kept in memory. The stream must be closed before, and its data must not be
+   * moved to a temporary file.
+   */
+  byte[] toByteArray() {
+    if (!closed || file != null) {
+      throw new IllegalStateException("Data must be kept in memory by a closed stream to be returned as an array");
+    }
+    return Arrays.copyOf(memoryBuffer, memoryBufferLength);
+  }
+
+  /**
+   * Returns the written data. The stream must be closed before.
+   */
+  InputStream toInputStream() throws IOException {
+    if (!closed) {
+      throw new IllegalStateException("Stream must be closed before its data is read");
+    }
+    if (file == null) {
+      return new ByteArrayInputStream(memoryBuffer, 0, memoryBufferLength);
+    }
+    Path spilledFile = file;
+    return new FilterInputStream(Files.newInputStream(spilledFile)) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          deleteFile(spilledFile);
+        }
+      }
+    };
+  }
+
+  /**
+   * Closes the stream and deletes the written data, when it's not going to be read.
+   */
+  void discard() {
+    try {
+      close();
+    } catch (IOException exception) {
+      LOG.debug("Error closing {}", file, exception);
+    }
+    if (file != null) {
+      deleteFile(file);
+    }
+    memoryBuffer = null;
+  }
+
+  private static void deleteFile(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException exception) {
+      LOG.warn("Cannot delete temporary file {}", file, exception);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package dev.streamx.sling.connector.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.wrappers.SlingHttpServletResponseWrapper;
+
+/**
+ * Response that passes its body to a {@link Writer} or an {@link OutputStream} as it's written, instead of buffering
+ * it. When the target is a {@link Writer}, bytes written to the output stream are decoded with the character encoding
+ * of the response, or with UTF-8 if the encoding is not set. When the target is an {@link OutputStream}, characters
+ * written to the writer are encoded the same way.
+ */
+final class StreamingResponse extends SlingHttpServletResponseWrapper {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Writer target;
+  private final OutputStream byteTarget;
+  private PrintWriter writer;
+  private ServletOutputStream outputStream;
+
+  StreamingResponse(SlingHttpServletResponse response, Writer target) {
+    super(response);
+    this.target = target;
+    this.byteTarget = null;
+  }
+
+  StreamingResponse(SlingHttpServletResponse response, OutputStream byteTarget) {
+    super(response);
+    this.target = null;
+    this.byteTarget = byteTarget;
+  }
+
+  @Override
+  public PrintWriter getWriter() {
+    if (outputStream != null) {
+      throw new IllegalStateException("getOutputStream() was already called");
+    }
+    if (writer == null) {
+      writer = new PrintWriter(target != null ? target : new OutputStreamWriter(byteTarget, getCharset()));
+    }
+    return writer;
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() {
+    if (writer != null) {
+      throw new IllegalStateException("getWriter() was already called");
+    }
+    if (outputStream == null) {
+      outputStream = target != null
+          ? new DecodingOutputStream(getCharset().newDecoder()
+              .onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE))
+          : new PassingOutputStream();
+    }
+    return outputStream;
+  }
+
+  private Charset getCharset() {
+    return Optional.ofNullable(getCharacterEncoding())
+        .map(Charset::forName)
+        .orElse(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    if (writer != null) {
+      writer.flush();
+    }
+  }
+
+  /**
+   * Passes the rest of the body to the target.
+   */
+  void finish() throws IOException {
+    if (writer != null) {
+      writer.flush();
+      if (writer.checkError()) {
+        throw new IOException("Failed to pass the response body");
+      }
+    }
+    if (outputStream instanceof DecodingOutputStream) {
+      ((DecodingOutputStream) outputStream).finish();
+    }
+  }
+
+  private final class PassingOutputStream extends ServletOutputStream {
+
+    @Override
+    public void write(int value) throws IOException {
+      byteTarget.write(value);
+    }
+
+    @Override
+    public void write(byte[] values, int offset, int length) throws IOException {
+      byteTarget.write(values, offset, length);
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private final class DecodingOutputStream extends ServletOutputStream {
+
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    private DecodingOutputStream(CharsetDecoder decoder) {
+      this.decoder = decoder;
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+      if (!bytes.hasRemaining()) {
+        decode(false);
+      }
+      bytes.put((byte) value);
+    }
+
+    @Override
+    public void write(byte[] values, int offset, int length) throws IOException {
+      int written = 0;
+      while (written < length) {
+        if (!bytes.hasRemaining()) {
+          decode(false);
+        }
+        int part = Math.min(bytes.remaining(), length - written);
+        bytes.put(values, offset + written, part);
+        written += part;
+      }
+    }
+
+    private void decode(boolean endOfInput) throws IOException {
+      bytes.flip();
+      CoderResult result;
+      do {
+        result = decoder.decode(bytes, chars, endOfInput);
+        passChars();
+      } while (result.isOverflow());
+      // incomplete characters are kept until the following bytes are written
+      bytes.compact();
+    }
+
+    private void finish() throws IOException {
+      decode(true);
+      while (decoder.flush(chars).isOverflow()) {
+        passChars();
+      }
+      passChars();
+    }
+
+    private void passChars() throws IOException {
+      chars.flip();
+      target.write(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+      chars.clear();
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
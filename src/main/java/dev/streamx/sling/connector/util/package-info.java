@@ -1,7 +1,7 @@
 /**
  * Utilities.
  */
-@Version("2.2.0")
+@Version("2.5.0")
 package dev.streamx.sling.connector.util;
 
 import org.osgi.annotation.versioning.Version;
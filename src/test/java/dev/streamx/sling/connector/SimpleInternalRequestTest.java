@@ -2,13 +2,18 @@ package dev.streamx.sling.connector;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import dev.streamx.sling.connector.test.util.RandomBytesWriter;
 import dev.streamx.sling.connector.util.SimpleInternalRequest;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -35,6 +40,13 @@ class SimpleInternalRequestTest {
   private static final String BINARY_URL = "/content/firsthops/us/en/_jcr_content/root/container/container/image.coreimg.85.800.jpeg/1741014797808/lava-rock-formation.jpeg";
   private static final int BINARY_PAGE_LENGTH = 1024;
 
+  private static final String ENCODED_PAGE_URL = "/content/encoded-page.html";
+  private static final String ENCODED_PAGE_HTML = "<p>Zażółć gęślą jaźń</p>".repeat(1000);
+
+  private static final String ERROR_PAGE_URL = "/content/error-page.html";
+
+  private static final String FAILING_PAGE_URL = "/content/failing-page.html";
+
   private static final String ADDITIONAL_PROPERTY_NAME = "foo";
   private static final String ADDITIONAL_PROPERTY_VALUE = "bar";
 
@@ -55,6 +67,23 @@ class SimpleInternalRequestTest {
       case BINARY_URL:
         RandomBytesWriter.writeRandomBytes(response, BINARY_PAGE_LENGTH);
         break;
+      case ENCODED_PAGE_URL:
+        response.setContentType("text/html");
+        response.setCharacterEncoding(UTF_8.name());
+        byte[] bytes = ENCODED_PAGE_HTML.getBytes(UTF_8);
+        for (int offset = 0; offset < bytes.length; offset += 7) {
+          // multibyte characters are split between the writes
+          response.getOutputStream().write(bytes, offset, Math.min(7, bytes.length - offset));
+        }
+        break;
+      case FAILING_PAGE_URL:
+        response.getWriter().write(USUAL_MARS_HTML);
+        response.getWriter().flush();
+        throw new IllegalStateException("Rendering failed");
+      case ERROR_PAGE_URL:
+        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        response.getWriter().write("Error");
+        break;
       default:
         response.setContentType("text/html");
         response.getWriter().write(NOT_FOUND_HTML);
@@ -135,6 +164,118 @@ class SimpleInternalRequestTest {
     assertThat(request.getResponseAsString()).contains("Received foo = bar flag");
   }
 
+  @Test
+  void mustWriteResponseOfUsualMarsPage() {
+    // given
+    SlingUri usualMarsUri = SlingUriBuilder.parse(USUAL_MARS_URL, resourceResolver).build();
+    StringWriter writer = new StringWriter();
+
+    // when
+    boolean written = new SimpleInternalRequest(usualMarsUri, slingRequestProcessor, resourceResolver).writeResponseTo(writer);
+
+    // then
+    assertThat(written).isTrue();
+    assertThat(writer).hasToString(USUAL_MARS_HTML);
+  }
+
+  @Test
+  void mustWriteDecodedResponseOfPageWrittenAsBytes() {
+    // given
+    SlingUri encodedPageUri = SlingUriBuilder.parse(ENCODED_PAGE_URL, resourceResolver).build();
+    StringWriter writer = new StringWriter();
+
+    // when
+    SimpleInternalRequest encodedPageRequest = new SimpleInternalRequest(encodedPageUri, slingRequestProcessor, resourceResolver);
+    boolean written = encodedPageRequest.writeResponseTo(writer);
+
+    // then
+    assertThat(written).isTrue();
+    assertThat(writer).hasToString(ENCODED_PAGE_HTML);
+    assertThat(encodedPageRequest.getResponseAsString()).isEqualTo(ENCODED_PAGE_HTML);
+  }
+
+  @Test
+  void mustNotWriteResponseOfPageWithErrorStatus() {
+    // given
+    SlingUri errorPageUri = SlingUriBuilder.parse(ERROR_PAGE_URL, resourceResolver).build();
+
+    // when
+    SimpleInternalRequest errorPageRequest = new SimpleInternalRequest(errorPageUri, slingRequestProcessor, resourceResolver);
+    boolean written = errorPageRequest.writeResponseTo(new StringWriter());
+
+    // then
+    assertThat(written).isFalse();
+    assertThat(errorPageRequest.getResponseAsString()).isEmpty();
+  }
+
+  @Test
+  void mustProduceStreamOfPageSmallerThanInMemorySize() throws IOException {
+    // given
+    SlingUri encodedPageUri = SlingUriBuilder.parse(ENCODED_PAGE_URL, resourceResolver).build();
+
+    // when
+    SimpleInternalRequest encodedPageRequest = new SimpleInternalRequest(encodedPageUri, slingRequestProcessor, resourceResolver);
+    Optional<InputStream> inputStream = encodedPageRequest.getResponseAsInputStream(1024 * 1024);
+
+    // then
+    assertThat(new String(bytesOf(inputStream), UTF_8)).isEqualTo(ENCODED_PAGE_HTML);
+  }
+
+  @Test
+  void mustProduceStreamOfPageLargerThanInMemorySizeFromTemporaryFile() throws IOException {
+    // given
+    SlingUri usualMarsUri = SlingUriBuilder.parse(USUAL_MARS_URL, resourceResolver).build();
+    SlingUri binaryUri = SlingUriBuilder.parse(BINARY_URL, resourceResolver).build();
+    long temporaryFilesCount = countTemporaryFiles();
+
+    // when
+    SimpleInternalRequest usualMarsRequest = new SimpleInternalRequest(usualMarsUri, slingRequestProcessor, resourceResolver);
+    SimpleInternalRequest binaryRequest = new SimpleInternalRequest(binaryUri, slingRequestProcessor, resourceResolver);
+    Optional<InputStream> usualMarsInputStream = usualMarsRequest.getResponseAsInputStream(10);
+    Optional<InputStream> binaryInputStream = binaryRequest.getResponseAsInputStream(BINARY_PAGE_LENGTH / 2);
+
+    // then
+    assertThat(countTemporaryFiles()).isEqualTo(temporaryFilesCount + 2);
+    assertThat(new String(bytesOf(usualMarsInputStream), UTF_8)).isEqualTo(USUAL_MARS_HTML);
+    assertThat(bytesOf(binaryInputStream)).hasSize(BINARY_PAGE_LENGTH);
+    assertThat(countTemporaryFiles()).isEqualTo(temporaryFilesCount);
+  }
+
+  @Test
+  void mustNotProduceStreamOfPageWithErrorStatus() throws IOException {
+    // given
+    SlingUri errorPageUri = SlingUriBuilder.parse(ERROR_PAGE_URL, resourceResolver).build();
+    long temporaryFilesCount = countTemporaryFiles();
+
+    // when
+    SimpleInternalRequest errorPageRequest = new SimpleInternalRequest(errorPageUri, slingRequestProcessor, resourceResolver);
+    Optional<InputStream> inputStream = errorPageRequest.getResponseAsInputStream(1);
+
+    // then
+    assertThat(inputStream).isEmpty();
+    assertThat(countTemporaryFiles()).isEqualTo(temporaryFilesCount);
+  }
+
+  @Test
+  void mustDeleteTemporaryFileIfRenderingFails() throws IOException {
+    // given
+    SlingUri failingPageUri = SlingUriBuilder.parse(FAILING_PAGE_URL, resourceResolver).build();
+    long temporaryFilesCount = countTemporaryFiles();
+
+    // when
+    SimpleInternalRequest failingPageRequest = new SimpleInternalRequest(failingPageUri, slingRequestProcessor, resourceResolver);
+
+    // then
+    assertThatThrownBy(() -> failingPageRequest.getResponseAsInputStream(10)).isInstanceOf(IllegalStateException.class);
+    assertThat(countTemporaryFiles()).isEqualTo(temporaryFilesCount);
+  }
+
+  private static long countTemporaryFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+      return files.filter(file -> file.getFileName().toString().startsWith("streamx-response-")).count();
+    }
+  }
+
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   private static byte[] bytesOf(Optional<InputStream> optionalInputStream) throws IOException {
     try (InputStream inputStream = optionalInputStream.orElseThrow()) {
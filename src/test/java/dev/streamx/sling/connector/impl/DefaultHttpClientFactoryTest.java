@@ -3,6 +3,7 @@ package dev.streamx.sling.connector.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import dev.streamx.sling.connector.HttpConnectionPoolStatistics;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -16,6 +17,7 @@ import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLException;
 import org.apache.http.HttpResponse;
@@ -25,6 +27,8 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
 import org.apache.sling.testing.mock.sling.junit5.SlingContext;
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.x500.X500Name;
@@ -223,6 +227,95 @@ class DefaultHttpClientFactoryTest {
     }
   }
 
+  @Test
+  @SuppressWarnings({"OverlyBroadThrowsClause", "NestedTryStatement"})
+  void shouldShareConnectionPoolBetweenClients() throws IOException {
+    // given
+    SlingContext context = new SlingContext();
+    context.registerService(HttpClientBuilderFactory.class, HttpClients::custom);
+    DefaultHttpClientFactory factory = context.registerInjectActivateService(
+        DefaultHttpClientFactory.class,
+        Map.of("max.per.route.overrides", new String[]{"http://localhost:" + HTTP_PORT + "=3"})
+    );
+    String route = "http://localhost:" + HTTP_PORT;
+
+    // when
+    try (CloseableHttpClient client1 = factory.createNewClient();
+        CloseableHttpClient client2 = factory.createNewClient()) {
+      try (CloseableHttpResponse response = client1.execute(new HttpGet(route))) {
+        verifyResponse(response, HttpServletResponse.SC_OK, "Hello from Jetty");
+      }
+      try (CloseableHttpResponse response = client2.execute(new HttpGet(route))) {
+        verifyResponse(response, HttpServletResponse.SC_OK, "Hello from Jetty");
+      }
+    }
+
+    // then: the connection of the first client was reused by the second one and kept after the clients were closed
+    HttpConnectionPoolStatistics statistics = context.getService(HttpConnectionPoolStatistics.class);
+    assertThat(statistics).isSameAs(factory);
+    Map<String, PoolStats> statsByRoute = statistics.getStatsByRoute();
+    assertThat(statsByRoute).containsOnlyKeys(Set.of(route));
+    PoolStats routeStats = statsByRoute.get(route);
+    assertThat(routeStats.getMax()).isEqualTo(3);
+    assertThat(routeStats.getLeased()).isZero();
+    assertThat(routeStats.getAvailable()).isEqualTo(1);
+    assertThat(statistics.getTotalStats().getMax()).isEqualTo(HttpClientProviderConfig.DEFAULT_NUMBER_OF_OPEN_CONNECTIONS);
+  }
+
+  @Test
+  void shouldReturnMaxConnectionsPerRouteOfStreamxUrl() {
+    // given
+    SlingContext context = new SlingContext();
+    context.registerService(HttpClientBuilderFactory.class, HttpClients::custom);
+    DefaultHttpClientFactory factory = context.registerInjectActivateService(
+        DefaultHttpClientFactory.class,
+        Map.of("max.per.route", 10, "max.per.route.overrides", new String[]{"https://streamx.dev=30"})
+    );
+
+    // expect
+    assertThat(factory.getMaxPerRoute("https://streamx.dev/ingestion")).isEqualTo(30);
+    assertThat(factory.getMaxPerRoute("https://streamx.dev:443")).isEqualTo(30);
+    assertThat(factory.getMaxPerRoute("http://streamx.dev")).isEqualTo(10);
+    assertThat(factory.getMaxPerRoute("not a url")).isEqualTo(10);
+  }
+
+  @Test
+  @SuppressWarnings({"OverlyBroadThrowsClause", "NestedTryStatement"})
+  void shouldCloseRetiredConnectionPoolOnceItsClientsAreClosed() throws IOException {
+    // given
+    SlingContext context = new SlingContext();
+    context.registerService(HttpClientBuilderFactory.class, HttpClients::custom);
+    DefaultHttpClientFactory factory = context.registerInjectActivateService(DefaultHttpClientFactory.class);
+    HttpUriRequest request = new HttpGet("http://localhost:" + HTTP_PORT);
+    CloseableHttpClient previousClient = factory.createNewClient();
+
+    // when
+    MockOsgi.modified(factory, context.bundleContext(), Map.of("insecure", true));
+
+    // then: the retired pool is kept for the client created with it
+    assertThat(factory.getRetiredConnectionPoolsCount()).isEqualTo(1);
+    try (CloseableHttpResponse response = previousClient.execute(request)) {
+      verifyResponse(response, HttpServletResponse.SC_OK, "Hello from Jetty");
+    }
+
+    // when
+    previousClient.close();
+
+    // then
+    assertThat(factory.getRetiredConnectionPoolsCount()).isZero();
+    assertThatThrownBy(() -> previousClient.execute(request)).isInstanceOf(IllegalStateException.class);
+    try (CloseableHttpClient client = factory.createNewClient();
+        CloseableHttpResponse response = client.execute(request)) {
+      verifyResponse(response, HttpServletResponse.SC_OK, "Hello from Jetty");
+    }
+
+    // when: a pool without clients is retired
+    MockOsgi.modified(factory, context.bundleContext(), Map.of("insecure", false));
+
+    // then
+    assertThat(factory.getRetiredConnectionPoolsCount()).isZero();
+  }
+
   private static void verifyResponse(HttpResponse response, int expectedStatus, String expectedContent)
       throws IOException {
     assertThat(response.getStatusLine().getStatusCode()).isEqualTo(expectedStatus);
@@ -0,0 +1,96 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.streamx.clients.ingestion.exceptions.StreamxClientException;
+import dev.streamx.sling.connector.testing.sling.event.jobs.FakeRetriedJob;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class DefaultPublicationRetryPolicyTest {
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.NONE);
+
+  @Test
+  void shouldRandomizeDelayWithFullJitter() {
+    // given
+    DefaultPublicationRetryPolicy policy = registerPolicy(Map.of("jitter", "full"));
+
+    // expect
+    for (int i = 0; i < 100; i++) {
+      assertThat(policy.getRetryDelay(job(2))).isBetween(0, 8000);
+      assertThat(policy.getRetryDelay(job(10))).isBetween(0, 60000);
+    }
+  }
+
+  @Test
+  void shouldRandomizeDelayWithEqualJitter() {
+    // given
+    DefaultPublicationRetryPolicy policy = registerPolicy(Map.of("jitter", "equal"));
+
+    // expect
+    for (int i = 0; i < 100; i++) {
+      assertThat(policy.getRetryDelay(job(0))).isBetween(1000, 2000);
+      assertThat(policy.getRetryDelay(job(2))).isBetween(4000, 8000);
+      assertThat(policy.getRetryDelay(job(10))).isBetween(30000, 60000);
+    }
+  }
+
+  @Test
+  void shouldUseBaseDelayOfFailureType() {
+    // given
+    DefaultPublicationRetryPolicy policy = registerPolicy(Map.of(
+        "connection.retry.delay", 5000,
+        "timeout.retry.delay", 1000,
+        "server.error.retry.delay", 3000,
+        "client.error.retry.delay", 30000));
+
+    // expect
+    assertThat(policy.getRetryDelay(job(1), new StreamxClientException("Failure", new ConnectException())))
+        .isEqualTo(10000);
+    assertThat(policy.getRetryDelay(job(1), new StreamxClientException("Failure", new SocketTimeoutException())))
+        .isEqualTo(2000);
+    assertThat(policy.getRetryDelay(job(1), new StreamxClientException("Ingestion failed. Status code: 503")))
+        .isEqualTo(6000);
+    assertThat(policy.getRetryDelay(job(1), new StreamxClientException("Ingestion failed. Status code: 429")))
+        .isEqualTo(6000);
+    assertThat(policy.getRetryDelay(job(1), new StreamxClientException("Ingestion failed. Status code: 400")))
+        .isEqualTo(30000);
+    assertThat(policy.getRetryDelay(job(1), new StreamxClientException("Failure")))
+        .isEqualTo(4000);
+    assertThat(policy.getRetryDelay(job(1)))
+        .isEqualTo(4000);
+  }
+
+  @Test
+  void shouldUseRetryDelayForFailureTypesWithoutBaseDelay() {
+    // given
+    DefaultPublicationRetryPolicy policy = registerPolicy(Map.of("retry.delay", 1000));
+
+    // expect
+    assertThat(policy.getRetryDelay(job(0), new StreamxClientException("Failure", new ConnectException())))
+        .isEqualTo(1000);
+    assertThat(policy.getRetryDelay(job(0), new StreamxClientException("Status: 502 Bad Gateway")))
+        .isEqualTo(1000);
+    assertThat(policy.getRetryDelay(job(0), new StreamxClientException("Status: 404 Not Found")))
+        .isEqualTo(1000);
+    assertThat(policy.getRetryDelay(job(2), new StreamxClientException("Status: 404 Not Found")))
+        .isEqualTo(4000);
+  }
+
+  private DefaultPublicationRetryPolicy registerPolicy(Map<String, Object> properties) {
+    return slingContext.registerInjectActivateService(DefaultPublicationRetryPolicy.class, properties);
+  }
+
+  private static Job job(int retries) {
+    return new FakeRetriedJob(PublicationJobExecutor.JOB_TOPIC, Map.of(), retries);
+  }
+}
@@ -0,0 +1,304 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import dev.streamx.sling.connector.PublishData;
+import dev.streamx.sling.connector.StreamxPublicationException;
+import dev.streamx.sling.connector.handlers.resourcepath.ResourcePathPublicationHandler;
+import dev.streamx.sling.connector.handlers.resourcepath.ResourcePathPublicationHandlerConfig;
+import dev.streamx.sling.connector.selectors.content.ResourceContentRelatedResourcesSelector;
+import dev.streamx.sling.connector.test.util.PageResourceInfo;
+import dev.streamx.sling.connector.test.util.ResourceContentRelatedResourcesSelectorConfigImpl;
+import dev.streamx.sling.connector.test.util.ResourceResolverMocks;
+import dev.streamx.sling.connector.util.RenderCache;
+import dev.streamx.sling.connector.util.SimpleInternalRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.uri.SlingUriBuilder;
+import org.apache.sling.engine.SlingRequestProcessor;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class DefaultRenderCacheTest {
+
+  private static final String PN_CQ_LAST_MODIFIED = "cq:lastModified";
+
+  private final SlingContext slingContext = new SlingContext();
+  private final ResourceResolver resourceResolver = slingContext.resourceResolver();
+  private final AtomicInteger rendersCount = new AtomicInteger();
+  private final SlingRequestProcessor countingRequestProcessor = (HttpServletRequest request, HttpServletResponse response, ResourceResolver resolver) -> {
+    rendersCount.incrementAndGet();
+    response.setContentType("text/html");
+    response.getWriter().write("<html><body>" + request.getRequestURI() + "</body></html>");
+  };
+
+  private DefaultRenderCache renderCache;
+
+  @BeforeEach
+  void setUp() {
+    renderCache = slingContext.registerInjectActivateService(DefaultRenderCache.class, Map.of("enabled", true));
+  }
+
+  @Test
+  void shouldRenderContentOnceUntilResourceIsModified() {
+    // given
+    givenPage("/content/page-1");
+
+    // when
+    String firstContent = whenRendered("/content/page-1.html");
+    String secondContent = whenRendered("/content/page-1.html");
+
+    // then
+    assertThat(rendersCount).hasValue(1);
+    assertThat(secondContent).isEqualTo(firstContent).isEqualTo("<html><body>/content/page-1.html</body></html>");
+
+    // when
+    givenPageIsModified("/content/page-1");
+    whenRendered("/content/page-1.html");
+
+    // then
+    assertThat(rendersCount).hasValue(2);
+  }
+
+  @Test
+  void shouldRenderContentForEachUriAndParameters() {
+    // given
+    givenPage("/content/page-1");
+
+    // when
+    whenRendered("/content/page-1.html");
+    whenRendered("/content/page-1.plain.html");
+    new SimpleInternalRequest(
+        SlingUriBuilder.parse("/content/page-1.html", resourceResolver).build(),
+        countingRequestProcessor, resourceResolver, Map.of("foo", "bar"), renderCache
+    ).getResponseAsString();
+
+    // then
+    assertThat(rendersCount).hasValue(3);
+  }
+
+  @Test
+  void shouldNotCacheContentOfResourceWithoutLastModificationTime() {
+    // given
+    slingContext.create().resource("/content/page-1", JcrConstants.JCR_PRIMARYTYPE, "cq:Page");
+
+    // when
+    whenRendered("/content/page-1.html");
+    whenRendered("/content/page-1.html");
+    whenRendered("/content/non-existing-page.html");
+    whenRendered("/content/non-existing-page.html");
+
+    // then
+    assertThat(rendersCount).hasValue(4);
+    assertThat(renderCache.getCachedBytes()).isZero();
+  }
+
+  @Test
+  void shouldRenderContentAgainWhenItExpires() throws InterruptedException {
+    // given
+    givenRenderCacheConfig(Map.of("enabled", true, "max.age", 50L));
+    givenPage("/content/page-1");
+
+    // when
+    whenRendered("/content/page-1.html");
+    Thread.sleep(100);
+    whenRendered("/content/page-1.html");
+
+    // then
+    assertThat(rendersCount).hasValue(2);
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedContentWhenMaxSizeIsExceeded() {
+    // given
+    long contentSize = "<html><body>/content/page-1.html</body></html>".length();
+    givenRenderCacheConfig(Map.of("enabled", true, "max.size.bytes", 2 * contentSize));
+    givenPage("/content/page-1");
+    givenPage("/content/page-2");
+    givenPage("/content/page-3");
+
+    // when
+    whenRendered("/content/page-1.html");
+    whenRendered("/content/page-2.html");
+    whenRendered("/content/page-1.html");
+    whenRendered("/content/page-3.html");
+
+    // then
+    assertThat(rendersCount).hasValue(3);
+    assertThat(renderCache.getCachedBytes()).isEqualTo(2 * contentSize);
+
+    // when
+    whenRendered("/content/page-1.html");
+    whenRendered("/content/page-3.html");
+    whenRendered("/content/page-2.html");
+
+    // then
+    assertThat(rendersCount).hasValue(4);
+  }
+
+  @Test
+  void shouldAlwaysRenderContentIfDisabled() {
+    // given
+    givenRenderCacheConfig(Map.of("enabled", false));
+    givenPage("/content/page-1");
+
+    // when
+    whenRendered("/content/page-1.html");
+    whenRendered("/content/page-1.html");
+
+    // then
+    assertThat(rendersCount).hasValue(2);
+  }
+
+  @Test
+  void shouldCacheOnlyStreamedContentKeptInMemory() throws IOException {
+    // given
+    givenPage("/content/page-1");
+    String content = "<html><body>/content/page-1.html</body></html>";
+
+    // when
+    String firstContent = whenStreamed("/content/page-1.html", 10);
+    String secondContent = whenStreamed("/content/page-1.html", 10);
+
+    // then
+    assertThat(rendersCount).hasValue(2);
+    assertThat(renderCache.getCachedBytes()).isZero();
+    assertThat(firstContent).isEqualTo(secondContent).isEqualTo(content);
+
+    // when
+    whenStreamed("/content/page-1.html", content.length());
+    String cachedContent = whenStreamed("/content/page-1.html", 10);
+
+    // then
+    assertThat(rendersCount).hasValue(3);
+    assertThat(renderCache.getCachedBytes()).isEqualTo(content.length());
+    assertThat(cachedContent).isEqualTo(content);
+  }
+
+  @Test
+  void shouldReuseContentRenderedToFindRelatedResourcesForPublication() throws StreamxPublicationException {
+    // given
+    givenPage("/content/page-1");
+    ResourceResolverFactory resourceResolverFactory = mock(ResourceResolverFactory.class);
+    ResourceResolverMocks.configure(slingContext, resourceResolverFactory);
+    ResourceContentRelatedResourcesSelector selector = new ResourceContentRelatedResourcesSelector(
+        new ResourceContentRelatedResourcesSelectorConfigImpl()
+            .withReferencesSearchRegexes("(/content/dam/[^\"'\\s<]*)")
+            .withResourcePathPostfixToAppend(".html")
+            .withResourceRequiredPathRegex("^/content/.*")
+            .withResourceRequiredPrimaryNodeTypeRegex("cq:Page"),
+        countingRequestProcessor, resourceResolverFactory, renderCache);
+    ResourcePathPublicationHandler<String> handler = new HtmlPublicationHandler(resourceResolverFactory, countingRequestProcessor, renderCache);
+
+    // when
+    selector.getRelatedResources(new PageResourceInfo("/content/page-1"));
+    PublishData<String> publishData = handler.getPublishData(new PageResourceInfo("/content/page-1.html"));
+
+    // then
+    assertThat(rendersCount).hasValue(1);
+    assertThat(publishData.getModel()).isEqualTo("<html><body>/content/page-1.html</body></html>");
+  }
+
+  private void givenRenderCacheConfig(Map<String, Object> properties) {
+    MockOsgi.modified(renderCache, slingContext.bundleContext(), properties);
+  }
+
+  private void givenPage(String path) {
+    slingContext.create().resource(path, JcrConstants.JCR_PRIMARYTYPE, "cq:Page");
+    slingContext.create().resource(path + "/" + JcrConstants.JCR_CONTENT, PN_CQ_LAST_MODIFIED, Calendar.getInstance());
+  }
+
+  private void givenPageIsModified(String path) {
+    ModifiableValueMap properties = resourceResolver.getResource(path + "/" + JcrConstants.JCR_CONTENT).adaptTo(ModifiableValueMap.class);
+    Calendar lastModified = Calendar.getInstance();
+    lastModified.setTimeInMillis(properties.get(PN_CQ_LAST_MODIFIED, Calendar.class).getTimeInMillis() + 1000);
+    properties.put(PN_CQ_LAST_MODIFIED, lastModified);
+    try {
+      resourceResolver.commit();
+    } catch (PersistenceException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private String whenRendered(String uri) {
+    return new SimpleInternalRequest(
+        SlingUriBuilder.parse(uri, resourceResolver).build(),
+        countingRequestProcessor, resourceResolver, Collections.emptyMap(), renderCache
+    ).getResponseAsString();
+  }
+
+  private String whenStreamed(String uri, int maxInMemorySize) throws IOException {
+    try (InputStream inputStream = new SimpleInternalRequest(
+        SlingUriBuilder.parse(uri, resourceResolver).build(),
+        countingRequestProcessor, resourceResolver, Collections.emptyMap(), renderCache
+    ).getResponseAsInputStream(maxInMemorySize).orElseThrow()) {
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static class HtmlPublicationHandler extends ResourcePathPublicationHandler<String> {
+
+    HtmlPublicationHandler(ResourceResolverFactory resourceResolverFactory, SlingRequestProcessor slingRequestProcessor,
+        RenderCache renderCache) {
+      super(resourceResolverFactory, slingRequestProcessor, renderCache);
+    }
+
+    @Override
+    public ResourcePathPublicationHandlerConfig configuration() {
+      return new ResourcePathPublicationHandlerConfig() {
+        @Override
+        public String resourcePathRegex() {
+          return ".*";
+        }
+
+        @Override
+        public String channel() {
+          return "pages";
+        }
+
+        @Override
+        public boolean isEnabled() {
+          return true;
+        }
+      };
+    }
+
+    @Override
+    public Class<String> modelClass() {
+      return String.class;
+    }
+
+    @Override
+    public String model(InputStream inputStream) {
+      try {
+        return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+
+    @Override
+    public String getId() {
+      return "html";
+    }
+  }
+}
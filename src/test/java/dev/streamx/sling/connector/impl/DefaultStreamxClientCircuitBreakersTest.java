@@ -0,0 +1,123 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.streamx.sling.connector.StreamxClientCircuitBreakers.State;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class DefaultStreamxClientCircuitBreakersTest {
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.NONE);
+  private final AtomicLong currentTime = new AtomicLong(1000);
+
+  @Test
+  void shouldOpenCircuitAfterConsecutiveFailures() {
+    // given
+    DefaultStreamxClientCircuitBreakers circuitBreakers = registerCircuitBreakers(true);
+
+    // when
+    circuitBreakers.recordFailure("client-1");
+    circuitBreakers.recordFailure("client-1");
+    circuitBreakers.recordSuccess("client-1");
+    circuitBreakers.recordFailure("client-1");
+    circuitBreakers.recordFailure("client-1");
+
+    // then
+    assertThat(circuitBreakers.getState("client-1")).isEqualTo(State.CLOSED);
+    assertThat(circuitBreakers.tryAcquire("client-1")).isTrue();
+
+    // when
+    circuitBreakers.recordFailure("client-1");
+
+    // then
+    assertThat(circuitBreakers.getState("client-1")).isEqualTo(State.OPEN);
+    assertThat(circuitBreakers.tryAcquire("client-1")).isFalse();
+    assertThat(circuitBreakers.getRemainingOpenTime("client-1")).isEqualTo(10000);
+    assertThat(circuitBreakers.tryAcquire("client-2")).isTrue();
+    assertThat(circuitBreakers.getStates()).isEqualTo(Map.of("client-1", State.OPEN, "client-2", State.CLOSED));
+  }
+
+  @Test
+  void shouldPermitSingleTrialCallInHalfOpenState() {
+    // given
+    DefaultStreamxClientCircuitBreakers circuitBreakers = registerCircuitBreakers(true);
+    openCircuit(circuitBreakers, "client");
+
+    // when
+    currentTime.addAndGet(10000);
+
+    // then
+    assertThat(circuitBreakers.getState("client")).isEqualTo(State.HALF_OPEN);
+    assertThat(circuitBreakers.tryAcquire("client")).isTrue();
+    assertThat(circuitBreakers.tryAcquire("client")).isFalse();
+
+    // when
+    circuitBreakers.recordSuccess("client");
+
+    // then
+    assertThat(circuitBreakers.getState("client")).isEqualTo(State.CLOSED);
+    assertThat(circuitBreakers.tryAcquire("client")).isTrue();
+  }
+
+  @Test
+  void shouldOpenCircuitAgainIfTrialCallFails() {
+    // given
+    DefaultStreamxClientCircuitBreakers circuitBreakers = registerCircuitBreakers(true);
+    openCircuit(circuitBreakers, "client");
+    currentTime.addAndGet(10000);
+    circuitBreakers.tryAcquire("client");
+
+    // when
+    circuitBreakers.recordFailure("client");
+
+    // then
+    assertThat(circuitBreakers.getState("client")).isEqualTo(State.OPEN);
+    assertThat(circuitBreakers.tryAcquire("client")).isFalse();
+  }
+
+  @Test
+  void shouldPermitAnotherTrialCallIfOutcomeOfTrialCallIsUnknown() {
+    // given
+    DefaultStreamxClientCircuitBreakers circuitBreakers = registerCircuitBreakers(true);
+    openCircuit(circuitBreakers, "client");
+    currentTime.addAndGet(10000);
+    circuitBreakers.tryAcquire("client");
+
+    // when
+    currentTime.addAndGet(10000);
+
+    // then
+    assertThat(circuitBreakers.tryAcquire("client")).isTrue();
+  }
+
+  @Test
+  void shouldPermitAllCallsIfDisabled() {
+    // given
+    DefaultStreamxClientCircuitBreakers circuitBreakers = registerCircuitBreakers(false);
+
+    // when
+    openCircuit(circuitBreakers, "client");
+
+    // then
+    assertThat(circuitBreakers.tryAcquire("client")).isTrue();
+    assertThat(circuitBreakers.getStates()).isEmpty();
+  }
+
+  private DefaultStreamxClientCircuitBreakers registerCircuitBreakers(boolean enabled) {
+    return slingContext.registerInjectActivateService(new DefaultStreamxClientCircuitBreakers(currentTime::get),
+        Map.of("enabled", enabled, "failure.threshold", 3, "open.duration", 10000L));
+  }
+
+  private static void openCircuit(DefaultStreamxClientCircuitBreakers circuitBreakers, String clientName) {
+    for (int i = 0; i < 3; i++) {
+      circuitBreakers.recordFailure(clientName);
+    }
+  }
+}
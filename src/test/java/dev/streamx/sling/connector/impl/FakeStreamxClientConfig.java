@@ -35,4 +35,9 @@ class FakeStreamxClientConfig implements StreamxClientConfig {
   public List<String> getResourcePathPatterns() {
     return resourcePathPatterns;
   }
+
+  @Override
+  public int getWarmUpConnections() {
+    return 0;
+  }
 }
@@ -0,0 +1,201 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.streamx.sling.connector.PublishedResourcesStore;
+import dev.streamx.sling.connector.PublishedResourcesStoreException;
+import dev.streamx.sling.connector.ResourceInfo;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(SlingContextExtension.class)
+class FilePublishedResourcesStoreTest {
+
+  private static final String PAGE = "/content/my-site/page";
+  private static final String OTHER_PAGE = "/content/my-site/other-page";
+  private static final String OWN_IMAGE = "/content/my-site/page/images/image.png";
+  private static final String GLOBAL_IMAGE = "/content/dam/image.png";
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.NONE);
+
+  @TempDir
+  private Path tempDir;
+
+  @Test
+  void shouldTrackRelatedResourcesAcrossRestarts() throws PublishedResourcesStoreException {
+    // given
+    FilePublishedResourcesStore store = registerStore();
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      connection.updateRelatedResources(Map.of(
+          PAGE, Set.of(new ResourceInfo(OWN_IMAGE), new ResourceInfo(GLOBAL_IMAGE)),
+          OTHER_PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))
+      ));
+      connection.commit();
+    }
+
+    // when
+    store = restart(store);
+
+    // then
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      assertThat(connection.wasPublished(new ResourceInfo(OWN_IMAGE))).isTrue();
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE))).isTrue();
+      assertThat(connection.getRelatedResources(List.of(new ResourceInfo(PAGE))).get(PAGE))
+          .extracting(ResourceInfo::getPath)
+          .containsExactlyInAnyOrder(OWN_IMAGE, GLOBAL_IMAGE);
+    }
+  }
+
+  @Test
+  void shouldCountReferencesOfRelatedResources() throws PublishedResourcesStoreException {
+    // given
+    FilePublishedResourcesStore store = registerStore();
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      connection.updateRelatedResources(Map.of(
+          PAGE, Set.of(new ResourceInfo(OWN_IMAGE), new ResourceInfo(GLOBAL_IMAGE)),
+          OTHER_PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))
+      ));
+      connection.commit();
+
+      // when
+      connection.removeRelatedResources(List.of(new ResourceInfo(PAGE)));
+      connection.commit();
+
+      // then
+      assertThat(connection.wasPublished(new ResourceInfo(OWN_IMAGE))).isFalse();
+      assertThat(connection.isOrphaned(new ResourceInfo(GLOBAL_IMAGE))).isFalse();
+
+      // when
+      Map<String, Set<ResourceInfo>> disappearedRelatedResources = connection.updateRelatedResources(Map.of(OTHER_PAGE, Set.of()));
+      connection.commit();
+
+      // then
+      assertThat(disappearedRelatedResources).containsOnlyKeys(OTHER_PAGE);
+      assertThat(connection.isOrphaned(new ResourceInfo(GLOBAL_IMAGE))).isTrue();
+
+      // when
+      connection.removeOrphaned(Set.of(new ResourceInfo(GLOBAL_IMAGE)));
+      connection.commit();
+
+      // then
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE))).isFalse();
+    }
+  }
+
+  @Test
+  void shouldNotDetectOrphanedRelatedResourcesUnlessUsedBySingleInstance() throws PublishedResourcesStoreException {
+    // given
+    FilePublishedResourcesStore store = slingContext.registerInjectActivateService(FilePublishedResourcesStore.class,
+        Map.of("file.path", getFile().toString()));
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      connection.updateRelatedResources(Map.of(PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))));
+      connection.commit();
+
+      // when
+      connection.removeRelatedResources(List.of(new ResourceInfo(PAGE)));
+      connection.commit();
+
+      // then
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE))).isTrue();
+      assertThat(connection.isOrphaned(new ResourceInfo(GLOBAL_IMAGE))).isFalse();
+    }
+  }
+
+  @Test
+  void shouldDiscardUncommittedChanges() throws PublishedResourcesStoreException {
+    // given
+    FilePublishedResourcesStore store = registerStore();
+
+    // when
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      connection.updateRelatedResources(Map.of(PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))));
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE))).isTrue();
+    }
+
+    // then
+    store = restart(store);
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE))).isFalse();
+      assertThat(connection.getRelatedResources(List.of(new ResourceInfo(PAGE))).get(PAGE)).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldCompactFile() throws PublishedResourcesStoreException, IOException {
+    // given
+    FilePublishedResourcesStore store = registerStore();
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      for (int i = 0; i < 10; i++) {
+        connection.updateRelatedResources(Map.of(PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE + i))));
+        connection.commit();
+      }
+    }
+    long sizeBeforeCompaction = Files.size(getFile());
+
+    // when
+    store.compactIfNeeded();
+
+    // then
+    assertThat(Files.size(getFile())).isLessThan(sizeBeforeCompaction);
+    store = restart(store);
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      assertThat(connection.getRelatedResources(List.of(new ResourceInfo(PAGE))).get(PAGE))
+          .extracting(ResourceInfo::getPath)
+          .containsExactly(GLOBAL_IMAGE + 9);
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE + 0))).isTrue();
+      assertThat(connection.isOrphaned(new ResourceInfo(GLOBAL_IMAGE + 0))).isTrue();
+    }
+  }
+
+  @Test
+  void shouldIgnoreIncompleteRecordAtEndOfFile() throws PublishedResourcesStoreException, IOException {
+    // given
+    FilePublishedResourcesStore store = registerStore();
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      connection.updateRelatedResources(Map.of(PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))));
+      connection.commit();
+    }
+    MockOsgi.deactivate(store, slingContext.bundleContext());
+    Files.write(getFile(), new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+    // when
+    store = registerStore();
+
+    // then
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE))).isTrue();
+      connection.updateRelatedResources(Map.of(OTHER_PAGE, Set.of(new ResourceInfo(OWN_IMAGE))));
+      connection.commit();
+    }
+    store = restart(store);
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      assertThat(connection.wasPublished(new ResourceInfo(OWN_IMAGE))).isTrue();
+    }
+  }
+
+  private FilePublishedResourcesStore registerStore() {
+    return slingContext.registerInjectActivateService(FilePublishedResourcesStore.class,
+        Map.of("file.path", getFile().toString(), "single.instance", true));
+  }
+
+  private FilePublishedResourcesStore restart(FilePublishedResourcesStore store) {
+    MockOsgi.deactivate(store, slingContext.bundleContext());
+    return registerStore();
+  }
+
+  private Path getFile() {
+    return tempDir.resolve("published-resources.log");
+  }
+}
@@ -0,0 +1,56 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class InMemoryPublicationDigestStoreTest {
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.NONE);
+
+  @Test
+  void shouldStoreDigestsByClientChannelAndKey() {
+    // given
+    InMemoryPublicationDigestStore store = slingContext.registerInjectActivateService(InMemoryPublicationDigestStore.class);
+
+    // when
+    store.putDigest("client-1", "pages", "/page.html", "digest-1");
+    store.putDigest("client-2", "pages", "/page.html", "digest-2");
+
+    // then
+    assertThat(store.getDigest("client-1", "pages", "/page.html")).isEqualTo("digest-1");
+    assertThat(store.getDigest("client-2", "pages", "/page.html")).isEqualTo("digest-2");
+    assertThat(store.getDigest("client-1", "assets", "/page.html")).isNull();
+
+    // when
+    store.removeDigest("client-1", "pages", "/page.html");
+
+    // then
+    assertThat(store.getDigest("client-1", "pages", "/page.html")).isNull();
+    assertThat(store.getDigest("client-2", "pages", "/page.html")).isEqualTo("digest-2");
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedDigests() {
+    // given
+    InMemoryPublicationDigestStore store = slingContext.registerInjectActivateService(
+        InMemoryPublicationDigestStore.class, Map.of("max.entries", 2));
+    store.putDigest("client", "pages", "/page-1.html", "digest-1");
+    store.putDigest("client", "pages", "/page-2.html", "digest-2");
+
+    // when
+    store.getDigest("client", "pages", "/page-1.html");
+    store.putDigest("client", "pages", "/page-3.html", "digest-3");
+
+    // then
+    assertThat(store.getDigest("client", "pages", "/page-1.html")).isEqualTo("digest-1");
+    assertThat(store.getDigest("client", "pages", "/page-2.html")).isNull();
+    assertThat(store.getDigest("client", "pages", "/page-3.html")).isEqualTo("digest-3");
+  }
+}
@@ -1,12 +1,21 @@
 package dev.streamx.sling.connector.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import dev.streamx.sling.connector.PublicationAction;
+import dev.streamx.sling.connector.PublishedResourcesStore;
+import dev.streamx.sling.connector.PublishedResourcesStoreException;
 import dev.streamx.sling.connector.ResourceInfo;
 import dev.streamx.sling.connector.test.util.PageResourceInfo;
 import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJob;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.jackrabbit.JcrConstants;
 import org.junit.jupiter.api.Test;
 
@@ -36,6 +45,52 @@ class IngestionTriggerJobExecutorTest {
     assertResource(resourcesInfo.get(1), "/content/wknd/us/en", "cq:Page");
   }
 
+  @Test
+  void shouldApplyChangeAgainAfterConflict() throws PublishedResourcesStoreException {
+    // given
+    PublishedResourcesStore.Connection connection = mock(PublishedResourcesStore.Connection.class);
+    doReturn(false, true).when(connection).commit();
+    AtomicInteger appliedChanges = new AtomicInteger();
+
+    // when
+    int result = IngestionTriggerJobExecutor.applyAndCommit(connection, 3, appliedChanges::incrementAndGet);
+
+    // then
+    assertThat(result).isEqualTo(2);
+    verify(connection, times(2)).commit();
+  }
+
+  @Test
+  void shouldFailIfChangeConflictsInAllAttempts() throws PublishedResourcesStoreException {
+    // given
+    PublishedResourcesStore.Connection connection = mock(PublishedResourcesStore.Connection.class);
+    doReturn(false).when(connection).commit();
+    AtomicInteger appliedChanges = new AtomicInteger();
+
+    // when
+    assertThatThrownBy(() -> IngestionTriggerJobExecutor.applyAndCommit(connection, 3, appliedChanges::incrementAndGet))
+
+        // then
+        .isInstanceOf(PublishedResourcesStoreException.class);
+    assertThat(appliedChanges).hasValue(3);
+  }
+
+  @Test
+  void shouldRollbackChangeThatFailed() throws PublishedResourcesStoreException {
+    // given
+    PublishedResourcesStore.Connection connection = mock(PublishedResourcesStore.Connection.class);
+
+    // when
+    assertThatThrownBy(() -> IngestionTriggerJobExecutor.applyAndCommit(connection, 3, () -> {
+      throw new JobCreationException("failure");
+    }))
+
+        // then
+        .isInstanceOf(JobCreationException.class);
+    verify(connection).rollback();
+    verify(connection, never()).commit();
+  }
+
   private static void assertResource(ResourceInfo actualResource, String expectedPath, String expectedPrimaryNodeType) {
     assertThat(actualResource.getPath()).isEqualTo(expectedPath);
     assertThat(actualResource.getProperties()).containsEntry(JcrConstants.JCR_PRIMARYTYPE, expectedPrimaryNodeType);
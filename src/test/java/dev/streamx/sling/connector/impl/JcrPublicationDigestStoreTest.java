@@ -0,0 +1,91 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class JcrPublicationDigestStoreTest {
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.JCR_OAK);
+
+  @Test
+  void shouldStoreDigestsInJcr() {
+    // given
+    JcrPublicationDigestStore store = slingContext.registerInjectActivateService(JcrPublicationDigestStore.class);
+
+    // when
+    store.putDigest("client-1", "pages", "/content/page.html", "digest-1");
+    store.putDigest("client-2", "pages", "/content/page.html", "digest-2");
+    store.putDigest("client-1", "pages", "/content/page.html", "digest-3");
+
+    // then
+    assertThat(store.getDigest("client-1", "pages", "/content/page.html")).isEqualTo("digest-3");
+    assertThat(store.getDigest("client-2", "pages", "/content/page.html")).isEqualTo("digest-2");
+    assertThat(store.getDigest("client-1", "assets", "/content/page.html")).isNull();
+    assertThat(slingContext.resourceResolver().getResource(JcrPublicationDigestStoreConfig.DEFAULT_BASE_PATH)).isNull();
+
+    // when
+    store.savePendingDigests();
+
+    // then
+    ResourceResolver resourceResolver = slingContext.resourceResolver();
+    resourceResolver.refresh();
+    assertThat(resourceResolver.getResource(JcrPublicationDigestStoreConfig.DEFAULT_BASE_PATH)).isNotNull();
+    assertThat(store.getDigest("client-1", "pages", "/content/page.html")).isEqualTo("digest-3");
+    assertThat(store.getDigest("client-2", "pages", "/content/page.html")).isEqualTo("digest-2");
+  }
+
+  @Test
+  void shouldSaveEachDigestImmediatelyIfSaveIntervalIsZero() {
+    // given
+    JcrPublicationDigestStore store = slingContext.registerInjectActivateService(JcrPublicationDigestStore.class,
+        Map.of("save.interval", 0L));
+
+    // when
+    store.putDigest("client", "pages", "/content/page.html", "digest");
+
+    // then
+    ResourceResolver resourceResolver = slingContext.resourceResolver();
+    resourceResolver.refresh();
+    assertThat(resourceResolver.getResource(JcrPublicationDigestStoreConfig.DEFAULT_BASE_PATH)).isNotNull();
+  }
+
+  @Test
+  void shouldSavePendingDigestsWhenDeactivated() {
+    // given
+    JcrPublicationDigestStore store = slingContext.registerInjectActivateService(JcrPublicationDigestStore.class);
+    store.putDigest("client", "pages", "/content/page.html", "digest");
+
+    // when
+    MockOsgi.deactivate(store, slingContext.bundleContext());
+
+    // then
+    store = slingContext.registerInjectActivateService(JcrPublicationDigestStore.class);
+    assertThat(store.getDigest("client", "pages", "/content/page.html")).isEqualTo("digest");
+  }
+
+  @Test
+  void shouldRemoveDigestsAlongWithEmptyParentNodes() {
+    // given
+    JcrPublicationDigestStore store = slingContext.registerInjectActivateService(JcrPublicationDigestStore.class);
+    store.putDigest("client", "pages", "/content/page.html", "digest");
+
+    // when
+    store.removeDigest("client", "pages", "/content/page.html");
+    store.removeDigest("client", "pages", "/content/other-page.html");
+
+    // then
+    assertThat(store.getDigest("client", "pages", "/content/page.html")).isNull();
+    ResourceResolver resourceResolver = slingContext.resourceResolver();
+    resourceResolver.refresh();
+    assertThat(resourceResolver.getResource(JcrPublicationDigestStoreConfig.DEFAULT_BASE_PATH)).isNull();
+  }
+}
@@ -0,0 +1,139 @@
+package dev.streamx.sling.connector.impl;
+
+import static dev.streamx.sling.connector.impl.RelatedResourcesStorageLayout.HIERARCHICAL;
+import static dev.streamx.sling.connector.impl.RelatedResourcesStorageLayout.SHARDED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.streamx.sling.connector.PublishedResourcesStore;
+import dev.streamx.sling.connector.PublishedResourcesStoreException;
+import dev.streamx.sling.connector.ResourceInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.jcr.Session;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class JcrPublishedResourcesStoreTest {
+
+  private static final String PAGE = "/content/my-site/page";
+  private static final String OTHER_PAGE = "/content/my-site/other-page";
+  private static final String GLOBAL_IMAGE = "/content/dam/image.png";
+  private static final long MIGRATION_TIMEOUT_MILLIS = 10_000;
+  private static final int PARALLEL_CONNECTIONS = 16;
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.JCR_OAK);
+
+  @Test
+  void shouldMigrateStorageLayoutInBackgroundWhileConnectionsUsePreviousLayout() throws Exception {
+    // given
+    slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    JcrPublishedResourcesStore store = slingContext.registerInjectActivateService(JcrPublishedResourcesStore.class);
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      connection.updateRelatedResources(Map.of(
+          PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE)),
+          OTHER_PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))
+      ));
+      connection.commit();
+    }
+
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      // when
+      MockOsgi.modified(store, slingContext.bundleContext(), Map.of("storage.layout", "sharded"));
+      connection.removeRelatedResources(List.of(new ResourceInfo(PAGE)));
+      connection.removeRelatedResources(List.of(new ResourceInfo(OTHER_PAGE)));
+      connection.commit();
+
+      // then
+      assertThat(connection.getRelatedResources(List.of(new ResourceInfo(OTHER_PAGE))).get(OTHER_PAGE)).isEmpty();
+      assertThat(connection.wasPublished(new ResourceInfo(GLOBAL_IMAGE))).isTrue();
+      assertThat(connection.isOrphaned(new ResourceInfo(GLOBAL_IMAGE))).isFalse();
+    }
+
+    // then
+    awaitOrphaned(store, new ResourceInfo(GLOBAL_IMAGE));
+    Session session = Objects.requireNonNull(slingContext.resourceResolver().adaptTo(Session.class));
+    session.refresh(false);
+    assertThat(PublishedRelatedResourcesTreeManager.isStored(HIERARCHICAL, session)).isFalse();
+    assertThat(PublishedRelatedResourcesTreeManager.isStored(SHARDED, session)).isTrue();
+  }
+
+  @Test
+  void shouldCountReferencesOfSharedRelatedResourceUpdatedByParallelConnections() throws Exception {
+    // given
+    slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    JcrPublishedResourcesStore store = slingContext.registerInjectActivateService(JcrPublishedResourcesStore.class);
+    List<String> parentPaths = IntStream.range(0, PARALLEL_CONNECTIONS)
+        .mapToObj(i -> PAGE + "-" + i)
+        .collect(Collectors.toList());
+    CyclicBarrier barrier = new CyclicBarrier(PARALLEL_CONNECTIONS);
+    ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_CONNECTIONS);
+    AtomicInteger conflicts = new AtomicInteger();
+
+    // when
+    try {
+      List<Future<Void>> updates = new ArrayList<>();
+      for (String parentPath : parentPaths) {
+        updates.add(executor.submit(() -> {
+          try (PublishedResourcesStore.Connection connection = store.open()) {
+            barrier.await();
+            IngestionTriggerJobExecutor.applyAndCommit(connection, Integer.MAX_VALUE, () -> {
+              connection.updateRelatedResources(Map.of(parentPath, Set.of(new ResourceInfo(GLOBAL_IMAGE))));
+              return null;
+            });
+          } catch (PublishedResourcesStoreException ex) {
+            conflicts.incrementAndGet();
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> update : updates) {
+        update.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // then
+    assertThat(conflicts).hasValue(0);
+    try (PublishedResourcesStore.Connection connection = store.open()) {
+      connection.removeRelatedResources(parentPaths.subList(1, parentPaths.size()).stream()
+          .map(ResourceInfo::new)
+          .collect(Collectors.toList()));
+      connection.commit();
+      assertThat(connection.isOrphaned(new ResourceInfo(GLOBAL_IMAGE))).isFalse();
+
+      connection.removeRelatedResources(List.of(new ResourceInfo(parentPaths.get(0))));
+      connection.commit();
+      assertThat(connection.isOrphaned(new ResourceInfo(GLOBAL_IMAGE))).isTrue();
+    }
+  }
+
+  private static void awaitOrphaned(PublishedResourcesStore store, ResourceInfo relatedResource)
+      throws PublishedResourcesStoreException, InterruptedException {
+    long deadline = System.currentTimeMillis() + MIGRATION_TIMEOUT_MILLIS;
+    while (true) {
+      try (PublishedResourcesStore.Connection connection = store.open()) {
+        if (connection.isOrphaned(relatedResource)) {
+          return;
+        }
+      }
+      assertThat(System.currentTimeMillis()).as("migration finished in time").isLessThan(deadline);
+      Thread.sleep(50);
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.streamx.sling.connector.PublicationAction;
+import dev.streamx.sling.connector.ResourceInfo;
+import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJob;
+import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJobManager;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.JobManager.QueryType;
+import org.apache.sling.event.jobs.NotificationConstants;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+@ExtendWith(SlingContextExtension.class)
+class PendingPublicationJobsIndexTest {
+
+  private static final String HANDLER_ID = "handler";
+  private static final String CLIENT_NAME = "client";
+
+  private final SlingContext slingContext = new SlingContext();
+  private final FakeJobManager jobManager = new FakeJobManager(Collections.emptyList());
+
+  @Test
+  void shouldRebuildIndexFromQueuedJobs() {
+    // given
+    addJob(PublicationAction.PUBLISH, "/content/page-1");
+    jobManager.addJob(PublicationJobExecutor.JOB_TOPIC, new PublicationJobProperties()
+        .withHandlerId(HANDLER_ID)
+        .withClientName(CLIENT_NAME)
+        .withAction(PublicationAction.UNPUBLISH)
+        .withResources(List.of(new ResourceInfo("/content/page-2"), new ResourceInfo("/content/page-3")))
+        .asMap());
+
+    // when
+    PendingPublicationJobsIndex index = registerIndex();
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isTrue();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.UNPUBLISH, "/content/page-2")).isTrue();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.UNPUBLISH, "/content/page-3")).isTrue();
+
+    // and
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.UNPUBLISH, "/content/page-1")).isFalse();
+    assertThat(index.isPending("other" + HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+    assertThat(index.isPending(HANDLER_ID, "other" + CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+  }
+
+  @Test
+  void shouldUpdateIndexFromJobNotificationEvents() {
+    // given
+    jobManager.setEventAdmin(slingContext.getService(EventAdmin.class));
+    PendingPublicationJobsIndex index = registerIndex();
+
+    // when
+    addJob(PublicationAction.PUBLISH, "/content/page-1");
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isTrue();
+
+    // when
+    jobManager.processAllJobs();
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+  }
+
+  @Test
+  void shouldKeepPathPendingUntilAllItsJobsAreCompleted() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job firstJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    Job secondJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    index.register(firstJob);
+    index.register(secondJob);
+
+    // when
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_FINISHED, firstJob));
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isTrue();
+
+    // when
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_CANCELLED, secondJob));
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+  }
+
+  @Test
+  void shouldNotRegisterJobThatIsAlreadyCompleted() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job job = addJob(PublicationAction.PUBLISH, "/content/page-1");
+
+    // when: completion event is delivered before the submitting thread registers the job
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_FINISHED, job));
+    index.register(job);
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+  }
+
+  @Test
+  void shouldSupersedeOlderJobsForSamePath() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job publishJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    index.register(publishJob);
+
+    // when
+    Job unpublishJob = addJob(PublicationAction.UNPUBLISH, "/content/page-1");
+    index.register(unpublishJob);
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", publishJob.getId())).isTrue();
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", unpublishJob.getId())).isFalse();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.UNPUBLISH, "/content/page-1")).isTrue();
+
+    // when: the newest job completes before the older one
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_FINISHED, unpublishJob));
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", publishJob.getId())).isTrue();
+
+    // when
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_CANCELLED, publishJob));
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.UNPUBLISH, "/content/page-1")).isFalse();
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", publishJob.getId())).isFalse();
+  }
+
+  @Test
+  void shouldNotSupersedeJobsForOtherPathsHandlersOrClients() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job publishJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    index.register(publishJob);
+
+    // when
+    index.register(addJob(PublicationAction.UNPUBLISH, "/content/page-2"));
+    index.register(jobManager.addJob(PublicationJobExecutor.JOB_TOPIC, new PublicationJobProperties()
+        .withHandlerId("other" + HANDLER_ID)
+        .withClientName(CLIENT_NAME)
+        .withAction(PublicationAction.UNPUBLISH)
+        .withResource(new ResourceInfo("/content/page-1"))
+        .asMap()));
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", publishJob.getId())).isFalse();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isTrue();
+  }
+
+  @Test
+  void shouldRebuildLatestJobsInOrderOfCreation() {
+    // given
+    Job publishJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    Job unpublishJob = addJob(PublicationAction.UNPUBLISH, "/content/page-1");
+
+    // when
+    PendingPublicationJobsIndex index = registerIndex();
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", publishJob.getId())).isTrue();
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", unpublishJob.getId())).isFalse();
+  }
+
+  @Test
+  void shouldTrackRetryJobInPlaceOfJobItContinues() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job publishJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    index.register(publishJob);
+
+    // when
+    index.registerRetry(publishJob.getId(), "retry", HANDLER_ID, CLIENT_NAME, "PUBLISH", List.of("/content/page-1"));
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_FINISHED, publishJob));
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", "retry")).isFalse();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isTrue();
+
+    // when: the retry job is added to the queue when its scheduled time comes
+    Job retryJob = jobManager.addJob(PublicationJobExecutor.JOB_TOPIC, new PublicationJobProperties()
+        .withHandlerId(HANDLER_ID)
+        .withClientName(CLIENT_NAME)
+        .withAction(PublicationAction.PUBLISH)
+        .withResource(new ResourceInfo("/content/page-1"))
+        .withPublicationId("retry")
+        .asMap());
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_ADDED, retryJob));
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", PublicationJobProperties.getPublicationId(retryJob)))
+        .isFalse();
+
+    // when
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_FINISHED, retryJob));
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+  }
+
+  @Test
+  void shouldNotLetRetryJobTakeOverFromSupersededJob() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job publishJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    Job unpublishJob = addJob(PublicationAction.UNPUBLISH, "/content/page-1");
+    index.register(publishJob);
+    index.register(unpublishJob);
+
+    // when
+    index.registerRetry(publishJob.getId(), "retry", HANDLER_ID, CLIENT_NAME, "PUBLISH", List.of("/content/page-1"));
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", "retry")).isTrue();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.UNPUBLISH, "/content/page-1")).isTrue();
+  }
+
+  @Test
+  void shouldGiveBackPlaceOfRetryJobThatCouldNotBeSubmitted() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job publishJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    index.register(publishJob);
+    index.registerRetry(publishJob.getId(), "retry", HANDLER_ID, CLIENT_NAME, "PUBLISH", List.of("/content/page-1"));
+
+    // when
+    index.unregisterRetry(publishJob.getId(), "retry", HANDLER_ID, CLIENT_NAME, List.of("/content/page-1"));
+
+    // then
+    assertThat(index.isSuperseded(HANDLER_ID, CLIENT_NAME, "/content/page-1", publishJob.getId())).isFalse();
+
+    // when
+    index.handleEvent(createNotification(NotificationConstants.TOPIC_JOB_FINISHED, publishJob));
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+  }
+
+  @Test
+  void shouldRemoveJobsCompletedWithoutNotificationEventsOnReconciliation() {
+    // given
+    PendingPublicationJobsIndex index = registerIndex();
+    Job completedJob = addJob(PublicationAction.PUBLISH, "/content/page-1");
+    Job queuedJob = addJob(PublicationAction.PUBLISH, "/content/page-2");
+    index.register(completedJob);
+    index.register(queuedJob);
+    index.registerRetry(queuedJob.getId(), "retry", HANDLER_ID, CLIENT_NAME, "PUBLISH", List.of("/content/page-3"));
+    jobManager.createJob(PublicationJobExecutor.JOB_TOPIC)
+        .properties(new PublicationJobProperties()
+            .withHandlerId(HANDLER_ID)
+            .withClientName(CLIENT_NAME)
+            .withAction(PublicationAction.PUBLISH)
+            .withResources(List.of(new ResourceInfo("/content/page-3")))
+            .withPublicationId("retry")
+            .asMap())
+        .schedule().at(new Date()).add();
+
+    // when: the job is processed by another instance, that sends the notification events only locally
+    jobManager.getJobQueue().remove(completedJob);
+    index.reconcile();
+
+    // then: the job is kept, in case it was submitted while the job storage was read
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isTrue();
+
+    // when
+    index.reconcile();
+
+    // then
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-1")).isFalse();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-2")).isTrue();
+    assertThat(index.isPending(HANDLER_ID, CLIENT_NAME, PublicationAction.PUBLISH, "/content/page-3")).isTrue();
+  }
+
+  @Test
+  void shouldDetectSameDuplicatesAsJobQueries() {
+    // given
+    IntStream.range(0, 1000).forEach(i -> addJob(PublicationAction.PUBLISH, "/content/queued/page-" + i));
+    PendingPublicationJobsIndex index = registerIndex();
+    List<Map<String, Object>> submissions = IntStream.range(0, 200)
+        .mapToObj(i -> createJobProperties(PublicationAction.PUBLISH,
+            (i % 2 == 0 ? "/content/queued/page-" : "/content/submitted/page-") + i % 50))
+        .collect(Collectors.toList());
+
+    for (Map<String, Object> jobProperties : submissions) {
+      // when
+      boolean duplicate = isAlreadySubmittedByIndex(index, jobProperties);
+
+      // then: duplicates are detected the same way as with the job queries used before the index was introduced
+      assertThat(duplicate).isEqualTo(isAlreadySubmittedByQuery(jobProperties));
+      if (!duplicate) {
+        index.register(jobManager.addJob(PublicationJobExecutor.JOB_TOPIC, jobProperties));
+      }
+    }
+  }
+
+  private boolean isAlreadySubmittedByQuery(Map<String, Object> jobProperties) {
+    for (QueryType queryType : List.of(QueryType.ACTIVE, QueryType.QUEUED)) {
+      @SuppressWarnings("unchecked")
+      Collection<Job> foundJobs = jobManager.findJobs(queryType, PublicationJobExecutor.JOB_TOPIC, 1, jobProperties);
+      if (!foundJobs.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isAlreadySubmittedByIndex(PendingPublicationJobsIndex index, Map<String, Object> jobProperties) {
+    Job job = new FakeJob(PublicationJobExecutor.JOB_TOPIC, jobProperties);
+    return index.isPending(
+        PublicationJobProperties.getHandlerId(job),
+        PublicationJobProperties.getClientName(job),
+        PublicationAction.of(PublicationJobProperties.getAction(job)).orElseThrow(),
+        PublicationJobProperties.getResourcePath(job));
+  }
+
+  private PendingPublicationJobsIndex registerIndex() {
+    slingContext.registerService(JobManager.class, jobManager);
+    return slingContext.registerInjectActivateService(PendingPublicationJobsIndex.class);
+  }
+
+  private Job addJob(PublicationAction action, String resourcePath) {
+    return jobManager.addJob(PublicationJobExecutor.JOB_TOPIC, createJobProperties(action, resourcePath));
+  }
+
+  private static Map<String, Object> createJobProperties(PublicationAction action, String resourcePath) {
+    return new PublicationJobProperties()
+        .withHandlerId(HANDLER_ID)
+        .withClientName(CLIENT_NAME)
+        .withAction(action)
+        .withResource(new ResourceInfo(resourcePath))
+        .asMap();
+  }
+
+  private static Event createNotification(String eventTopic, Job job) {
+    Map<String, Object> eventProperties = new HashMap<>();
+    job.getPropertyNames().forEach(propertyName -> eventProperties.put(propertyName, job.getProperty(propertyName)));
+    eventProperties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID, job.getId());
+    eventProperties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC, job.getTopic());
+    return new Event(eventTopic, eventProperties);
+  }
+}
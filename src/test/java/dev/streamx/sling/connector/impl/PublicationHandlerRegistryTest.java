@@ -4,9 +4,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
 import dev.streamx.sling.connector.PublicationHandler;
+import dev.streamx.sling.connector.PublishData;
+import dev.streamx.sling.connector.ResourceInfo;
+import dev.streamx.sling.connector.UnpublishData;
 import dev.streamx.sling.connector.testing.handlers.AssetPublicationHandler;
 import dev.streamx.sling.connector.testing.handlers.PagePublicationHandler;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+import org.apache.jackrabbit.JcrConstants;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
 import org.apache.sling.testing.mock.sling.junit5.SlingContext;
@@ -52,4 +58,127 @@ class PublicationHandlerRegistryTest {
     assertThat(registry.getHandlers()).isEmpty();
   }
 
-}
\ No newline at end of file
+  @Test
+  void shouldFindHandlersById() {
+    // given
+    PagePublicationHandler pagePublicationHandler = new PagePublicationHandler(resourceResolver);
+    AssetPublicationHandler assetPublicationHandler = new AssetPublicationHandler(resourceResolver);
+    BundleContext bundleContext = slingContext.bundleContext();
+    bundleContext.registerService(PublicationHandler.class, pagePublicationHandler, null);
+    bundleContext.registerService(PublicationHandler.class, assetPublicationHandler, null);
+
+    // when
+    PublicationHandlerRegistry registry = new PublicationHandlerRegistry();
+    slingContext.registerInjectActivateService(registry);
+
+    // then
+    assertThat(registry.getById(pagePublicationHandler.getId())).isSameAs(pagePublicationHandler);
+    assertThat(registry.getById(assetPublicationHandler.getId())).isSameAs(assetPublicationHandler);
+    assertThat(registry.getById("unknown")).isNull();
+  }
+
+  @Test
+  void shouldRouteResourcesByDeclaredRegexAndByCanHandle() {
+    // given
+    PathRegexPublicationHandler htmlHandler = new PathRegexPublicationHandler("html", "/content/.*\\.html");
+    AssetPublicationHandler assetPublicationHandler = new AssetPublicationHandler(resourceResolver);
+    PathRegexPublicationHandler invalidRegexHandler = new PathRegexPublicationHandler("invalid", "/content/[");
+    BundleContext bundleContext = slingContext.bundleContext();
+    bundleContext.registerService(PublicationHandler.class, htmlHandler, null);
+    bundleContext.registerService(PublicationHandler.class, assetPublicationHandler, null);
+    bundleContext.registerService(PublicationHandler.class, invalidRegexHandler, null);
+
+    PublicationHandlerRegistry registry = new PublicationHandlerRegistry();
+    slingContext.registerInjectActivateService(registry);
+
+    // expect
+    assertThat(registry.getForResource(new ResourceInfo("/content/page.html")))
+        .containsExactly(htmlHandler);
+    assertThat(registry.getForResource(new ResourceInfo("/content/page.html")))
+        .containsExactly(htmlHandler);
+    assertThat(registry.getForResource(new ResourceInfo("/content/dam/image.html", Map.of(JcrConstants.JCR_PRIMARYTYPE, "dam:Asset"))))
+        .containsExactlyInAnyOrder(htmlHandler, assetPublicationHandler);
+    assertThat(registry.getForResource(new ResourceInfo("/content/[")))
+        .containsExactly(invalidRegexHandler);
+    assertThat(htmlHandler.canHandleCalls).isZero();
+  }
+
+  @Test
+  void shouldRouteResourcesByChangedRegex() {
+    // given
+    PathRegexPublicationHandler handler = new PathRegexPublicationHandler("handler", "/content/.*");
+    ServiceRegistration<?> registration = slingContext.bundleContext()
+        .registerService(PublicationHandler.class, handler, null);
+
+    PublicationHandlerRegistry registry = new PublicationHandlerRegistry();
+    slingContext.registerInjectActivateService(registry);
+    ResourceInfo resource = new ResourceInfo("/content/page.html");
+    assertThat(registry.getForResource(resource)).containsExactly(handler);
+
+    // when: the configuration of the handler changes
+    handler.resourcePathRegex = "/apps/.*";
+
+    // then
+    assertThat(registry.getForResource(resource)).isEmpty();
+    assertThat(registry.getForResource(new ResourceInfo("/apps/page.html"))).containsExactly(handler);
+
+    // when: the handler is disabled
+    handler.resourcePathRegex = null;
+
+    // then
+    assertThat(registry.getForResource(new ResourceInfo("/apps/page.html"))).isEmpty();
+
+    // when: the handler is unbound
+    handler.resourcePathRegex = "/content/.*";
+    registration.unregister();
+
+    // then
+    assertThat(registry.getForResource(resource)).isEmpty();
+  }
+
+  private static class PathRegexPublicationHandler implements PublicationHandler<String> {
+
+    private final String id;
+    private volatile String resourcePathRegex;
+    private int canHandleCalls;
+
+    PathRegexPublicationHandler(String id, String resourcePathRegex) {
+      this.id = id;
+      this.resourcePathRegex = resourcePathRegex;
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public boolean canHandle(ResourceInfo resource) {
+      canHandleCalls++;
+      String regex = resourcePathRegex;
+      if (regex == null) {
+        return false;
+      }
+      try {
+        return resource.getPath().matches(regex);
+      } catch (PatternSyntaxException exception) {
+        return resource.getPath().equals(regex);
+      }
+    }
+
+    @Override
+    public String getResourcePathRegex() {
+      return resourcePathRegex;
+    }
+
+    @Override
+    public PublishData<String> getPublishData(ResourceInfo resource) {
+      return new PublishData<>(resource.getPath(), "channel", String.class, resource.getPath());
+    }
+
+    @Override
+    public UnpublishData<String> getUnpublishData(ResourceInfo resource) {
+      return new UnpublishData<>(resource.getPath(), "channel", String.class);
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package dev.streamx.sling.connector.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import dev.streamx.clients.ingestion.exceptions.StreamxClientException;
@@ -9,14 +12,22 @@ import dev.streamx.clients.ingestion.publisher.Publisher;
 import dev.streamx.sling.connector.PublicationAction;
 import dev.streamx.sling.connector.PublicationHandler;
 import dev.streamx.sling.connector.ResourceInfo;
+import dev.streamx.sling.connector.StreamxClientCircuitBreakers.State;
 import dev.streamx.sling.connector.testing.handlers.FakeThrowablePublicationHandler;
+import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJob;
 import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJobExecutionContext;
+import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJobManager;
 import dev.streamx.sling.connector.testing.sling.event.jobs.FakeRetriedJob;
 import dev.streamx.sling.connector.testing.streamx.clients.ingestion.FakeStreamxClient;
+import dev.streamx.sling.connector.testing.streamx.clients.ingestion.Publication;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.ScheduledJobInfo;
 import org.apache.sling.event.jobs.consumer.JobExecutionResult;
 import org.apache.sling.testing.mock.sling.junit5.SlingContext;
 import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
@@ -33,6 +44,8 @@ class PublicationJobExecutorTest {
 
   private static final String STREAMX_NAME = "fake streamx instance";
   private static final String STREAMX_URL = "/fake/streamx/instance";
+  private static final String SECOND_STREAMX_NAME = "second streamx instance";
+  private static final String SECOND_STREAMX_URL = "/second/streamx/instance";
   private static final String RESOURCE_PATH = "/resource/path/";
 
   private final SlingContext slingContext = new SlingContext();
@@ -42,10 +55,15 @@ class PublicationJobExecutorTest {
   private final FakeThrowablePublicationHandler publicationHandler = new FakeThrowablePublicationHandler();
   private final FakeStreamxClientFactory fakeStreamxClientFactory = new FakeStreamxClientFactory();
   private final FakeJobExecutionContext fakeJobExecutionContext = new FakeJobExecutionContext();
+  private final FakeJobManager fakeJobManager = new FakeJobManager(Collections.emptyList());
 
   @BeforeEach
   public void init() {
+    slingContext.registerService(JobManager.class, fakeJobManager);
+    slingContext.registerInjectActivateService(PendingPublicationJobsIndex.class);
     slingContext.registerService(StreamxClientConfig.class, streamxClientConfig);
+    slingContext.registerService(StreamxClientConfig.class,
+        new FakeStreamxClientConfig(SECOND_STREAMX_URL, Collections.singletonList(".*")));
     slingContext.registerService(PublicationHandler.class, publicationHandler);
     slingContext.registerService(StreamxClientFactory.class, fakeStreamxClientFactory);
 
@@ -112,6 +130,420 @@ class PublicationJobExecutorTest {
     assertThat(result.getRetryDelayInMs()).isEqualTo(expectedRetryDelay);
   }
 
+  @Test
+  void shouldExecuteAllPublicationsOfBatchJob() {
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeBatchJob(PublicationAction.PUBLISH, 0, "/resource/1", "/resource/2", "/resource/3"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(getPublications()).extracting("key").containsExactly("/resource/1", "/resource/2", "/resource/3");
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldSubmitNewBatchJobForFailedPublicationsOfBatchJob() {
+    publicationHandler.setThrowExceptionForPath("/resource/2");
+    long startTime = System.currentTimeMillis();
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeBatchJob(PublicationAction.PUBLISH, 0, "/resource/1", "/resource/2", "/resource/3"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.getMessage())
+        .isEqualTo("Batch of 3 resources processed: 2 succeeded, 1 failed, 0 postponed, 0 skipped, 0 superseded");
+    assertThat(getPublications()).extracting("key").containsExactly("/resource/1", "/resource/3");
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+
+    List<ScheduledJobInfo> resubmittedJobs = List.copyOf(fakeJobManager.getScheduledJobs());
+    assertThat(resubmittedJobs).hasSize(1);
+    assertThat(resubmittedJobs.get(0).getNextScheduledExecution().getTime()).isBetween(
+        startTime + 2000, System.currentTimeMillis() + 2000);
+    Job resubmittedJob = toJob(resubmittedJobs.get(0));
+    assertThat(PublicationJobProperties.getAction(resubmittedJob)).isEqualTo("PUBLISH");
+    assertThat(PublicationJobProperties.getHandlerId(resubmittedJob)).isEqualTo("fake-handler");
+    assertThat(PublicationJobProperties.getClientName(resubmittedJob)).isEqualTo(STREAMX_NAME);
+    assertThat(PublicationJobProperties.getResourcePaths(resubmittedJob)).containsExactly("/resource/2");
+    assertThat(PublicationJobProperties.getRetryCount(resubmittedJob)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRetryBatchJobSubmittedAgainWithRetryDelayOfUsedUpRetries() {
+    publicationHandler.setThrowException();
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeBatchJob(PublicationAction.PUBLISH, 0, 2, "/resource/1", "/resource/2"),
+        fakeJobExecutionContext);
+
+    assertThat(result.failed()).isTrue();
+    assertThat(result.getRetryDelayInMs()).isEqualTo(8000);
+  }
+
+  @Test
+  void shouldNotRetryFailedPublicationsOfBatchJobThatUsedUpAllRetries() {
+    publicationHandler.setThrowExceptionForPath("/resource/2");
+    Job job = new FakeRetriedJob(PublicationJobExecutor.JOB_TOPIC, new PublicationJobProperties()
+        .withResources(List.of(new ResourceInfo("/resource/1"), new ResourceInfo("/resource/2")))
+        .withHandlerId("fake-handler")
+        .withClientName(STREAMX_NAME)
+        .withAction(PublicationAction.PUBLISH)
+        .withRetryCount(9)
+        .asMap(), 1, 10);
+
+    JobExecutionResult result = publicationJobExecutor.process(job, fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(getPublications()).extracting("key").containsExactly("/resource/1");
+    assertThat(fakeJobManager.getScheduledJobs()).isEmpty();
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldRetryBatchJobIfAllPublicationsFailed() {
+    publicationHandler.setThrowException();
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeBatchJob(PublicationAction.UNPUBLISH, 1, "/resource/1", "/resource/2"),
+        fakeJobExecutionContext);
+
+    assertThat(result.failed()).isTrue();
+    assertThat(result.getRetryDelayInMs()).isEqualTo(4000);
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldSkipPublicationsOfBatchJobFailedWithRuntimeException() {
+    publicationHandler.setThrowRuntimeException();
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeBatchJob(PublicationAction.PUBLISH, 0, "/resource/1", "/resource/2"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.getMessage())
+        .isEqualTo("Batch of 2 resources processed: 0 succeeded, 0 failed, 0 postponed, 2 skipped, 0 superseded");
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldCreatePublishDataOnceForAllClientsOfFanOutJob() {
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeFanOutJob(PublicationAction.PUBLISH, "/resource/1", "/resource/2"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.getMessage())
+        .isEqualTo("Fan-out of 2 resources to 2 clients processed: 4 deliveries succeeded, 0 failed, 0 postponed, 0 skipped, 0 superseded");
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(2);
+    assertThat(getPublications(STREAMX_URL)).extracting("key").containsExactly("/resource/1", "/resource/2");
+    assertThat(getPublications(SECOND_STREAMX_URL)).extracting("key").containsExactly("/resource/1", "/resource/2");
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldSubmitNewJobForClientThatFailedToReceivePublicationsOfFanOutJob() {
+    fakeStreamxClientFactory.getFakeClient(SECOND_STREAMX_URL).setThrowException();
+    long startTime = System.currentTimeMillis();
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeFanOutJob(PublicationAction.PUBLISH, "/resource/1", "/resource/2"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.getMessage())
+        .isEqualTo("Fan-out of 2 resources to 2 clients processed: 2 deliveries succeeded, 2 failed, 0 postponed, 0 skipped, 0 superseded");
+    assertThat(getPublications(STREAMX_URL)).extracting("key").containsExactly("/resource/1", "/resource/2");
+    assertThat(getPublications(SECOND_STREAMX_URL)).isEmpty();
+
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+    List<ScheduledJobInfo> resubmittedJobs = List.copyOf(fakeJobManager.getScheduledJobs());
+    assertThat(resubmittedJobs).hasSize(1);
+    assertThat(resubmittedJobs.get(0).getNextScheduledExecution().getTime()).isBetween(
+        startTime + 2000, System.currentTimeMillis() + 2000);
+    Job resubmittedJob = toJob(resubmittedJobs.get(0));
+    assertThat(PublicationJobProperties.getClientNames(resubmittedJob)).containsExactly(SECOND_STREAMX_NAME);
+    assertThat(PublicationJobProperties.getResources(resubmittedJob)).containsExactly(
+        new ResourceInfo("/resource/1").serialize(), new ResourceInfo("/resource/2").serialize());
+    assertThat(PublicationJobProperties.getRetryCount(resubmittedJob)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotRetryClientThatFailedToReceivePublicationsOfFanOutJobThatUsedUpAllRetries() {
+    fakeStreamxClientFactory.getFakeClient(SECOND_STREAMX_URL).setThrowException();
+    Job job = new FakeRetriedJob(PublicationJobExecutor.JOB_TOPIC, new PublicationJobProperties()
+        .withResource(new ResourceInfo("/resource/1"))
+        .withHandlerId("fake-handler")
+        .withClientNames(List.of(STREAMX_NAME, SECOND_STREAMX_NAME))
+        .withAction(PublicationAction.PUBLISH)
+        .withRetryCount(9)
+        .asMap(), 1, 10);
+
+    JobExecutionResult result = publicationJobExecutor.process(job, fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(getPublications(STREAMX_URL)).extracting("key").containsExactly("/resource/1");
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+    assertThat(fakeJobManager.getScheduledJobs()).isEmpty();
+  }
+
+  @Test
+  void shouldRetryFanOutJobIfAllDeliveriesFailed() {
+    publicationHandler.setThrowException();
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeFanOutJob(PublicationAction.UNPUBLISH, "/resource/1"),
+        fakeJobExecutionContext);
+
+    assertThat(result.failed()).isTrue();
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(1);
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldSkipPublishingUnchangedResourceIfDigestsAreStored() {
+    slingContext.registerInjectActivateService(InMemoryPublicationDigestStore.class);
+
+    JobExecutionResult firstResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    JobExecutionResult secondResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+
+    assertThat(firstResult.succeeded()).isTrue();
+    assertThat(secondResult.succeeded()).isTrue();
+    assertThat(getPublications()).extracting("key").containsExactly(RESOURCE_PATH);
+    assertThat(publicationJobExecutor.getSentMessagesCount()).isEqualTo(1);
+    assertThat(publicationJobExecutor.getSkippedMessagesCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldPublishUnchangedResourceAgainAfterItWasUnpublished() {
+    slingContext.registerInjectActivateService(InMemoryPublicationDigestStore.class);
+
+    publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    publicationJobExecutor.process(getFakeJob(PublicationAction.UNPUBLISH), fakeJobExecutionContext);
+    publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+
+    assertThat(getPublications()).extracting("action").containsExactly(
+        PublicationAction.PUBLISH, PublicationAction.UNPUBLISH, PublicationAction.PUBLISH);
+    assertThat(publicationJobExecutor.getSentMessagesCount()).isEqualTo(3);
+    assertThat(publicationJobExecutor.getSkippedMessagesCount()).isZero();
+  }
+
+  @Test
+  void shouldPublishUnchangedResourceToEachClientOnceIfDigestsAreStored() {
+    slingContext.registerInjectActivateService(InMemoryPublicationDigestStore.class);
+
+    publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    publicationJobExecutor.process(getFakeFanOutJob(PublicationAction.PUBLISH, RESOURCE_PATH), fakeJobExecutionContext);
+
+    assertThat(getPublications(STREAMX_URL)).extracting("key").containsExactly(RESOURCE_PATH);
+    assertThat(getPublications(SECOND_STREAMX_URL)).extracting("key").containsExactly(RESOURCE_PATH);
+    assertThat(publicationJobExecutor.getSentMessagesCount()).isEqualTo(2);
+    assertThat(publicationJobExecutor.getSkippedMessagesCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldPublishUnchangedResourceAgainIfDigestsAreNotStored() {
+    publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+
+    assertThat(getPublications()).extracting("key").containsExactly(RESOURCE_PATH, RESOURCE_PATH);
+    assertThat(publicationJobExecutor.getSkippedMessagesCount()).isZero();
+  }
+
+  @Test
+  void shouldRescheduleJobWithoutCreatingPublishDataWhileCircuitIsOpen() {
+    slingContext.registerInjectActivateService(DefaultStreamxClientCircuitBreakers.class,
+        Map.of("enabled", true, "failure.threshold", 1, "open.duration", 60000L));
+    fakeStreamxClientFactory.getFakeClient(STREAMX_URL).setThrowException();
+
+    JobExecutionResult firstResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    long startTime = System.currentTimeMillis();
+    JobExecutionResult secondResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH, 1), fakeJobExecutionContext);
+
+    assertThat(firstResult.failed()).isTrue();
+    assertThat(firstResult.getRetryDelayInMs()).isEqualTo(2000);
+    assertThat(secondResult.succeeded()).isTrue();
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(1);
+
+    List<ScheduledJobInfo> rescheduledJobs = List.copyOf(fakeJobManager.getScheduledJobs());
+    assertThat(rescheduledJobs).hasSize(1);
+    assertThat(rescheduledJobs.get(0).getNextScheduledExecution().getTime()).isBetween(
+        startTime + 1, System.currentTimeMillis() + 60000);
+    Job rescheduledJob = toJob(rescheduledJobs.get(0));
+    assertThat(PublicationJobProperties.getResourcePath(rescheduledJob)).isEqualTo(RESOURCE_PATH);
+    assertThat(PublicationJobProperties.getRetryCount(rescheduledJob)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotOpenCircuitWhenPublicationsAreRejectedWithClientError() {
+    DefaultStreamxClientCircuitBreakers circuitBreakers = slingContext.registerInjectActivateService(
+        DefaultStreamxClientCircuitBreakers.class, Map.of("enabled", true, "failure.threshold", 1));
+    fakeStreamxClientFactory.getFakeClient(STREAMX_URL).setThrowException(
+        new StreamxClientException("Publication rejected with status code: 400"));
+
+    JobExecutionResult firstResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    JobExecutionResult secondResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+
+    assertThat(firstResult.failed()).isTrue();
+    assertThat(secondResult.failed()).isTrue();
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(2);
+    assertThat(circuitBreakers.getState(STREAMX_NAME)).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void shouldRescheduleRemainingResourcesOfBatchJobOnceCircuitOpens() {
+    slingContext.registerInjectActivateService(DefaultStreamxClientCircuitBreakers.class,
+        Map.of("enabled", true, "failure.threshold", 2, "open.duration", 60000L));
+    fakeStreamxClientFactory.getFakeClient(STREAMX_URL).setThrowException();
+
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeBatchJob(PublicationAction.PUBLISH, 0, "/resource/1", "/resource/2", "/resource/3", "/resource/4"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.getMessage())
+        .isEqualTo("Batch of 4 resources processed: 0 succeeded, 2 failed, 2 postponed, 0 skipped, 0 superseded");
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(2);
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+    assertThat(fakeJobManager.getScheduledJobs())
+        .extracting(PublicationJobExecutorTest::toJob)
+        .extracting(PublicationJobProperties::getResourcePaths, PublicationJobProperties::getRetryCount)
+        .containsExactly(
+            tuple(List.of("/resource/1", "/resource/2"), 1),
+            tuple(List.of("/resource/3", "/resource/4"), 0));
+  }
+
+  @Test
+  void shouldSubmitNewJobForClientWithOpenCircuitOfFanOutJob() throws StreamxClientException {
+    slingContext.registerInjectActivateService(DefaultStreamxClientCircuitBreakers.class,
+        Map.of("enabled", true, "failure.threshold", 1, "open.duration", 60000L));
+    fakeStreamxClientFactory.getFakeClient(SECOND_STREAMX_URL).setThrowException();
+
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeFanOutJob(PublicationAction.PUBLISH, "/resource/1", "/resource/2"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.getMessage())
+        .isEqualTo("Fan-out of 2 resources to 2 clients processed: 2 deliveries succeeded, 1 failed, 1 postponed, 0 skipped, 0 superseded");
+    assertThat(getPublications(STREAMX_URL)).extracting("key").containsExactly("/resource/1", "/resource/2");
+    verify(fakeStreamxClientFactory.getFakeClient(SECOND_STREAMX_URL).getLastPublisher(), times(1)).send(any(Message.class));
+
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+    assertThat(fakeJobManager.getScheduledJobs())
+        .extracting(PublicationJobExecutorTest::toJob)
+        .extracting(PublicationJobProperties::getClientNames, PublicationJobProperties::getResourcePaths,
+            PublicationJobProperties::getRetryCount)
+        .containsExactly(
+            tuple(List.of(SECOND_STREAMX_NAME), List.of("/resource/1"), 1),
+            tuple(List.of(SECOND_STREAMX_NAME), List.of("/resource/2"), 0));
+  }
+
+  @Test
+  void shouldDeferJobWithoutUsingUpRetryWhileConcurrencyLimitIsReached() {
+    StreamxClientConcurrencyLimits limits = slingContext.registerInjectActivateService(StreamxClientConcurrencyLimits.class,
+        Map.of("enabled", true, "initial.limit", 1, "acquire.timeout", 10L, "defer.delay", 500L));
+    limits.tryAcquire(STREAMX_NAME);
+
+    long startTime = System.currentTimeMillis();
+    JobExecutionResult deferredResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH, 1), fakeJobExecutionContext);
+
+    assertThat(deferredResult.succeeded()).isTrue();
+    assertThat(getPublications()).isEmpty();
+    List<ScheduledJobInfo> deferredJobs = List.copyOf(fakeJobManager.getScheduledJobs());
+    assertThat(deferredJobs).hasSize(1);
+    assertThat(deferredJobs.get(0).getNextScheduledExecution().getTime()).isBetween(
+        startTime + 500, System.currentTimeMillis() + 500);
+    Job deferredJob = toJob(deferredJobs.get(0));
+    assertThat(PublicationJobProperties.getRetryCount(deferredJob)).isEqualTo(1);
+
+    limits.release(STREAMX_NAME);
+    JobExecutionResult result = publicationJobExecutor.process(deferredJob, fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(getPublications()).extracting("key").containsExactly(RESOURCE_PATH);
+    assertThat(limits.tryAcquire(STREAMX_NAME)).isTrue();
+  }
+
+  @Test
+  void shouldDeferRemainingResourcesOfBatchJobOnceConcurrencyLimitIsReached() {
+    StreamxClientConcurrencyLimits limits = slingContext.registerInjectActivateService(StreamxClientConcurrencyLimits.class,
+        Map.of("enabled", true, "initial.limit", 1, "acquire.timeout", 10L, "defer.delay", 500L));
+    limits.tryAcquire(STREAMX_NAME);
+
+    JobExecutionResult result = publicationJobExecutor.process(
+        getFakeBatchJob(PublicationAction.PUBLISH, 0, "/resource/1", "/resource/2"),
+        fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.getMessage())
+        .isEqualTo("Batch of 2 resources processed: 0 succeeded, 0 failed, 2 postponed, 0 skipped, 0 superseded");
+    assertThat(getPublications()).isEmpty();
+    assertThat(fakeJobManager.getScheduledJobs())
+        .extracting(PublicationJobExecutorTest::toJob)
+        .extracting(PublicationJobProperties::getResourcePaths, PublicationJobProperties::getRetryCount)
+        .containsExactly(tuple(List.of("/resource/1", "/resource/2"), 0));
+  }
+
+  @Test
+  void shouldPostponeRetriedJobIfRetryBudgetIsExhausted() {
+    slingContext.registerInjectActivateService(PublicationRetryBudget.class,
+        Map.of("enabled", true, "min.retries.per.second", 0));
+
+    JobExecutionResult result = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    long startTime = System.currentTimeMillis();
+    JobExecutionResult retriedResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH, 1), fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(retriedResult.succeeded()).isTrue();
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(1);
+
+    List<ScheduledJobInfo> postponedJobs = List.copyOf(fakeJobManager.getScheduledJobs());
+    assertThat(postponedJobs).hasSize(1);
+    assertThat(postponedJobs.get(0).getNextScheduledExecution().getTime()).isBetween(
+        startTime + PublicationRetryBudgetConfig.DEFAULT_WINDOW / 10,
+        System.currentTimeMillis() + PublicationRetryBudgetConfig.DEFAULT_WINDOW / 10);
+    Job postponedJob = toJob(postponedJobs.get(0));
+    assertThat(PublicationJobProperties.getResourcePath(postponedJob)).isEqualTo(RESOURCE_PATH);
+    assertThat(PublicationJobProperties.getRetryCount(postponedJob)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldCancelSupersededRetriedJobEvenIfRetryBudgetIsExhausted() {
+    slingContext.registerInjectActivateService(PublicationRetryBudget.class,
+        Map.of("enabled", true, "min.retries.per.second", 0));
+    PendingPublicationJobsIndex pendingPublicationJobsIndex = slingContext.getService(PendingPublicationJobsIndex.class);
+
+    JobExecutionResult result = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    pendingPublicationJobsIndex.register(getFakeJob(PublicationAction.UNPUBLISH));
+    JobExecutionResult retriedResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH, 1), fakeJobExecutionContext);
+
+    assertThat(result.succeeded()).isTrue();
+    assertThat(retriedResult.cancelled()).isTrue();
+    assertThat(retriedResult.getMessage()).isEqualTo("Superseded by a newer publication job");
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(1);
+    assertThat(fakeJobManager.getScheduledJobs()).isEmpty();
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+  }
+
+  @Test
+  void shouldNotCountRetriesAsSentPublicationsInRetryBudget() {
+    slingContext.registerInjectActivateService(PublicationRetryBudget.class,
+        Map.of("enabled", true, "min.retries.per.second", 0, "retry.ratio", 100));
+
+    JobExecutionResult firstResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH), fakeJobExecutionContext);
+    JobExecutionResult firstRetryResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH, 1), fakeJobExecutionContext);
+    JobExecutionResult secondRetryResult = publicationJobExecutor.process(getFakeJob(PublicationAction.PUBLISH, 1), fakeJobExecutionContext);
+
+    assertThat(firstResult.succeeded()).isTrue();
+    assertThat(firstRetryResult.succeeded()).isTrue();
+    assertThat(secondRetryResult.succeeded()).isTrue();
+    assertThat(publicationHandler.getProcessedCount()).isEqualTo(2);
+    assertThat(fakeJobManager.getScheduledJobs()).hasSize(1);
+  }
+
+  private List<Publication> getPublications() {
+    return getPublications(STREAMX_URL);
+  }
+
+  private List<Publication> getPublications(String streamxUrl) {
+    return fakeStreamxClientFactory.getFakeClient(streamxUrl).getPublications();
+  }
+
   private static FakeStreamxClientConfig getFakeStreamxClientConfig() {
     return new FakeStreamxClientConfig(STREAMX_URL, Collections.singletonList(".*"));
   }
@@ -130,6 +562,38 @@ class PublicationJobExecutorTest {
     return new FakeRetriedJob(PublicationJobExecutor.JOB_TOPIC, properties, retries);
   }
 
+  private static Job getFakeBatchJob(PublicationAction action, int retries, String... paths) {
+    return getFakeBatchJob(action, retries, 0, paths);
+  }
+
+  private static Job getFakeBatchJob(PublicationAction action, int retries, int previousRetries, String... paths) {
+    Map<String, Object> properties = new PublicationJobProperties()
+        .withResources(Stream.of(paths).map(ResourceInfo::new).collect(Collectors.toList()))
+        .withHandlerId("fake-handler")
+        .withClientName(STREAMX_NAME)
+        .withAction(action)
+        .withRetryCount(previousRetries)
+        .asMap();
+    return new FakeRetriedJob(PublicationJobExecutor.JOB_TOPIC, properties, retries);
+  }
+
+  private static Job toJob(ScheduledJobInfo scheduledJob) {
+    return new FakeJob(scheduledJob.getJobTopic(), scheduledJob.getJobProperties());
+  }
+
+  private static Job getFakeFanOutJob(PublicationAction action, String... paths) {
+    PublicationJobProperties properties = new PublicationJobProperties()
+        .withHandlerId("fake-handler")
+        .withClientNames(List.of(STREAMX_NAME, SECOND_STREAMX_NAME))
+        .withAction(action);
+    if (paths.length == 1) {
+      properties.withResource(new ResourceInfo(paths[0]));
+    } else {
+      properties.withResources(Stream.of(paths).map(ResourceInfo::new).collect(Collectors.toList()));
+    }
+    return new FakeRetriedJob(PublicationJobExecutor.JOB_TOPIC, properties.asMap(), 0);
+  }
+
   private static Stream<Arguments> retryDelay() {
     return Stream.of(
         Arguments.of(0, 2000),
@@ -0,0 +1,87 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class PublicationRetryBudgetTest {
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.NONE);
+  private final AtomicLong currentTime = new AtomicLong(100_000);
+
+  @Test
+  void shouldLimitRetriesToMinimalNumberWithoutSentPublications() {
+    // given
+    PublicationRetryBudget budget = registerBudget(true);
+
+    // expect
+    assertThat(countAcquiredRetries(budget, 100)).isEqualTo(10);
+  }
+
+  @Test
+  void shouldLimitRetriesToPercentageOfSentPublications() {
+    // given
+    PublicationRetryBudget budget = registerBudget(true);
+
+    // when
+    for (int i = 0; i < 500; i++) {
+      budget.recordSend();
+    }
+
+    // then
+    assertThat(countAcquiredRetries(budget, 200)).isEqualTo(100);
+  }
+
+  @Test
+  void shouldRenewBudgetWhenWindowPasses() {
+    // given
+    PublicationRetryBudget budget = registerBudget(true);
+    countAcquiredRetries(budget, 100);
+
+    // when
+    currentTime.addAndGet(5000);
+
+    // then
+    assertThat(budget.tryAcquireRetry()).isFalse();
+
+    // when
+    currentTime.addAndGet(5000);
+
+    // then
+    assertThat(countAcquiredRetries(budget, 100)).isEqualTo(10);
+  }
+
+  @Test
+  void shouldNotLimitRetriesIfDisabled() {
+    // given
+    PublicationRetryBudget budget = registerBudget(false);
+
+    // expect
+    assertThat(countAcquiredRetries(budget, 100)).isEqualTo(100);
+  }
+
+  private PublicationRetryBudget registerBudget(boolean enabled) {
+    return slingContext.registerInjectActivateService(new PublicationRetryBudget(currentTime::get), Map.of(
+        "enabled", enabled,
+        "retry.ratio", 20,
+        "min.retries.per.second", 1,
+        "window", 10000L));
+  }
+
+  private static int countAcquiredRetries(PublicationRetryBudget budget, int attempts) {
+    int acquired = 0;
+    for (int i = 0; i < attempts; i++) {
+      if (budget.tryAcquireRetry()) {
+        acquired++;
+      }
+    }
+    return acquired;
+  }
+}
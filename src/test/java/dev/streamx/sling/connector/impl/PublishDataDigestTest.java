@@ -0,0 +1,41 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.streamx.sling.connector.PublishData;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PublishDataDigestTest {
+
+  @Test
+  void shouldComputeSameDigestForEqualPublishData() {
+    // given
+    Map<String, Object> model = new LinkedHashMap<>();
+    model.put("title", "Page");
+    model.put("content", "x".repeat(100_000));
+    Map<String, Object> reorderedModel = new LinkedHashMap<>();
+    reorderedModel.put("content", "x".repeat(100_000));
+    reorderedModel.put("title", "Page");
+
+    // when
+    String digest = PublishDataDigest.compute(new PublishData<>("/content/page", "pages", Map.class, model));
+    String reorderedDigest = PublishDataDigest.compute(
+        new PublishData<>("/content/page", "pages", Map.class, reorderedModel));
+    String changedDigest = PublishDataDigest.compute(
+        new PublishData<>("/content/page", "pages", Map.class, Map.of("title", "Changed page")));
+
+    // then
+    assertThat(digest).hasSize(64).isEqualTo(reorderedDigest).isNotEqualTo(changedDigest);
+  }
+
+  @Test
+  void shouldNotComputeDigestOfModelThatCannotBeSerialized() {
+    // when
+    String digest = PublishDataDigest.compute(new PublishData<>("/content/page", "pages", Object.class, new Object()));
+
+    // then
+    assertThat(digest).isNull();
+  }
+}
@@ -0,0 +1,152 @@
+package dev.streamx.sling.connector.impl;
+
+import static dev.streamx.sling.connector.impl.RelatedResourcesStorageLayout.HIERARCHICAL;
+import static dev.streamx.sling.connector.impl.RelatedResourcesStorageLayout.SHARDED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class PublishedRelatedResourcesIndexTest {
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.JCR_OAK);
+
+  @Test
+  void shouldLoadIndexFromTreeAndKeepItInSyncWithTree() throws RepositoryException {
+    // given
+    PublishedRelatedResourcesIndex index = slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    Session session = getSession();
+    PublishedRelatedResourcesInversedTreeManager.addData(Set.of("/content/dam/folder/image-1.png"), "/content/dam",
+        session, HIERARCHICAL, index);
+    session.save();
+
+    // expect: the index is loaded with the intermediate nodes of the tree
+    assertThat(index.contains("/content/dam/folder/image-1.png", session, HIERARCHICAL)).isTrue();
+    assertThat(index.contains("/content/dam/folder", session, HIERARCHICAL)).isTrue();
+    assertThat(index.contains("/content/dam/folder/image-2.png", session, HIERARCHICAL)).isFalse();
+
+    // when: the tree is changed without saving
+    PublishedRelatedResourcesInversedTreeManager.addData(Set.of("/content/dam/folder/image-2.png"), "/content/dam",
+        session, HIERARCHICAL, index);
+    PublishedRelatedResourcesInversedTreeManager.removeData(Set.of("/content/dam/folder/image-1.png"), "/content/dam", session,
+        HIERARCHICAL, index);
+
+    // then: the index is changed only once the changes are saved
+    assertThat(index.contains("/content/dam/folder/image-2.png", session, HIERARCHICAL)).isFalse();
+    assertThat(index.contains("/content/dam/folder/image-1.png", session, HIERARCHICAL)).isTrue();
+
+    // when
+    session.save();
+    index.applyPendingChanges(session);
+
+    // then
+    assertThat(index.contains("/content/dam/folder/image-2.png", session, HIERARCHICAL)).isTrue();
+    assertThat(index.contains("/content/dam/folder/image-1.png", session, HIERARCHICAL)).isFalse();
+    assertThat(index.contains("/content/dam/folder", session, HIERARCHICAL)).isTrue();
+
+    // when
+    PublishedRelatedResourcesInversedTreeManager.removeData(Set.of("/content/dam/folder/image-2.png"), "/content/dam", session,
+        HIERARCHICAL, index);
+    session.save();
+    index.applyPendingChanges(session);
+
+    // then: ancestors without other descendants are removed, the same as in the tree
+    assertThat(index.contains("/content/dam/folder", session, HIERARCHICAL)).isFalse();
+    assertThat(index.contains("/content", session, HIERARCHICAL)).isFalse();
+    assertThat(session.nodeExists(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH + "/content")).isFalse();
+  }
+
+  @Test
+  void shouldDropChangesOfDiscardedSession() throws RepositoryException {
+    // given
+    PublishedRelatedResourcesIndex index = slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    Session session = getSession();
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isFalse();
+
+    // when
+    PublishedRelatedResourcesInversedTreeManager.addData(Set.of("/content/dam/image.png"), "/content/page", session, SHARDED, index);
+    session.refresh(false);
+    index.discardPendingChanges(session);
+    index.applyPendingChanges(session);
+
+    // then
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isFalse();
+  }
+
+  @Test
+  void shouldNotKeepIndexLoadedWhileLocalChangeWasApplied() throws RepositoryException {
+    // given: a change saved by one session, applied while another session that didn't see it loads the index
+    PublishedRelatedResourcesIndex index = slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    Session session = getSession();
+    PublishedRelatedResourcesInversedTreeManager.addData(Set.of("/content/dam/image.png"), "/content/page", session, SHARDED, index);
+    session.save();
+    Session loadingSession = mock(Session.class);
+    when(loadingSession.nodeExists(anyString())).thenAnswer(invocation -> {
+      index.applyPendingChanges(session);
+      return false;
+    });
+
+    // when
+    boolean containedWhileLoaded = index.contains("/content/dam/image.png", loadingSession, SHARDED);
+
+    // then: the index missing the change is not kept
+    assertThat(containedWhileLoaded).isFalse();
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isTrue();
+  }
+
+  @Test
+  void shouldNotLoadIndexWithUnsavedChanges() throws RepositoryException {
+    // given
+    PublishedRelatedResourcesIndex index = slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    Session session = getSession();
+    PublishedRelatedResourcesInversedTreeManager.addData(Set.of("/content/dam/image.png"), "/content/page", session, SHARDED, index);
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isTrue();
+
+    // when
+    session.refresh(false);
+    index.discardPendingChanges(session);
+
+    // then
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isFalse();
+  }
+
+  @Test
+  void shouldLoadIndexAgainAfterExternalChange() throws RepositoryException {
+    // given
+    PublishedRelatedResourcesIndex index = slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    Session session = getSession();
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isFalse();
+    SHARDED.createNode(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH, "/content/dam/image.png", session);
+    session.save();
+
+    // when: a local change is already applied to the index
+    index.onChange(List.of(new ResourceChange(ChangeType.ADDED, "/var/any", false)));
+
+    // then
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isFalse();
+
+    // when
+    index.onChange(List.of(new ResourceChange(ChangeType.ADDED, "/var/any", true)));
+
+    // then
+    assertThat(index.contains("/content/dam/image.png", session, SHARDED)).isTrue();
+  }
+
+  private Session getSession() {
+    return Objects.requireNonNull(slingContext.resourceResolver().adaptTo(Session.class));
+  }
+}
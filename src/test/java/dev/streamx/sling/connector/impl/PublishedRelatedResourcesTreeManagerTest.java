@@ -0,0 +1,247 @@
+package dev.streamx.sling.connector.impl;
+
+import static dev.streamx.sling.connector.impl.RelatedResourcesStorageLayout.HIERARCHICAL;
+import static dev.streamx.sling.connector.impl.RelatedResourcesStorageLayout.SHARDED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.streamx.sling.connector.ResourceInfo;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class PublishedRelatedResourcesTreeManagerTest {
+
+  private static final String PAGE = "/content/my-site/page";
+  private static final String OWN_IMAGE = "/content/my-site/page/images/image.png";
+  private static final String OTHER_PAGE = "/content/my-site/other-page";
+  private static final String GLOBAL_IMAGE = "/content/dam/image.png";
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.JCR_OAK);
+  private final PublishedRelatedResourcesIndex index = new PublishedRelatedResourcesIndex();
+
+  @Test
+  void shouldTrackRelatedResourcesInShardedLayout() throws RepositoryException {
+    // given
+    Session session = getSession();
+
+    // when
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(
+        Map.of(PAGE, Set.of(new ResourceInfo(OWN_IMAGE), new ResourceInfo(GLOBAL_IMAGE))), session, SHARDED, index);
+    save(session);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(OWN_IMAGE), session, SHARDED, index)).isTrue();
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(GLOBAL_IMAGE), session, SHARDED, index)).isTrue();
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(OWN_IMAGE), session, HIERARCHICAL, index)).isFalse();
+    assertThat(getPublishedRelatedResourcePaths(session, SHARDED)).containsExactlyInAnyOrder(OWN_IMAGE, GLOBAL_IMAGE);
+    assertThat(session.nodeExists(PublishedRelatedResourcesTreeManager.BASE_NODE_PATH)).isFalse();
+    assertThat(SHARDED.getNodePath(PublishedRelatedResourcesTreeManager.BASE_NODE_PATH, PAGE))
+        .matches(PublishedRelatedResourcesTreeManager.BASE_NODE_PATH + "-sharded/\\w{2}/\\w{2}/\\w{64}");
+
+    // when
+    PublishedRelatedResourcesTreeManager.removePublishedResourcesData(List.of(new ResourceInfo(PAGE)), session, SHARDED, index);
+    save(session);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(OWN_IMAGE), session, SHARDED, index)).isFalse();
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(GLOBAL_IMAGE), session, SHARDED, index)).isTrue();
+    assertThat(getPublishedRelatedResourcePaths(session, SHARDED)).isEmpty();
+    assertThat(session.nodeExists(SHARDED.getBasePath(PublishedRelatedResourcesTreeManager.BASE_NODE_PATH))).isFalse();
+  }
+
+  @Test
+  void shouldMigrateDataBetweenLayouts() throws RepositoryException {
+    // given
+    Session session = getSession();
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(Map.of(
+        PAGE, Set.of(new ResourceInfo(OWN_IMAGE), new ResourceInfo(GLOBAL_IMAGE)),
+        PAGE + "/subpage", Set.of(new ResourceInfo(GLOBAL_IMAGE))
+    ), session, HIERARCHICAL, index);
+    save(session);
+
+    // when
+    PublishedRelatedResourcesTreeManager.migrate(HIERARCHICAL, SHARDED, session);
+
+    // then
+    assertThat(session.hasPendingChanges()).isFalse();
+    assertThat(session.nodeExists(PublishedRelatedResourcesTreeManager.BASE_NODE_PATH)).isFalse();
+    assertThat(session.nodeExists(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH)).isFalse();
+    assertThat(getPublishedRelatedResourcePaths(session, SHARDED)).containsExactlyInAnyOrder(OWN_IMAGE, GLOBAL_IMAGE);
+    assertThat(PublishedRelatedResourcesTreeManager.getPublishedRelatedResources(
+        List.of(new ResourceInfo(PAGE + "/subpage")), session, SHARDED))
+        .containsOnlyKeys(PAGE + "/subpage")
+        .extractingByKey(PAGE + "/subpage")
+        .satisfies(relatedResources -> assertThat(relatedResources).extracting(ResourceInfo::getPath).containsExactly(GLOBAL_IMAGE));
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(OWN_IMAGE), session, SHARDED, index)).isTrue();
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(GLOBAL_IMAGE), session, SHARDED, index)).isTrue();
+
+    // when
+    PublishedRelatedResourcesTreeManager.migrate(SHARDED, HIERARCHICAL, session);
+
+    // then
+    assertThat(session.nodeExists(SHARDED.getBasePath(PublishedRelatedResourcesTreeManager.BASE_NODE_PATH))).isFalse();
+    assertThat(session.nodeExists(SHARDED.getBasePath(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH))).isFalse();
+    assertThat(getPublishedRelatedResourcePaths(session, HIERARCHICAL)).containsExactlyInAnyOrder(OWN_IMAGE, GLOBAL_IMAGE);
+    assertThat(session.nodeExists(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH + GLOBAL_IMAGE)).isTrue();
+  }
+
+  @Test
+  void shouldCopyDataBetweenLayoutsAndSynchronizeParentResourcesChangedInTheMeantime() throws RepositoryException {
+    // given
+    Session session = getSession();
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(Map.of(
+        PAGE, Set.of(new ResourceInfo(OWN_IMAGE), new ResourceInfo(GLOBAL_IMAGE)),
+        OTHER_PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))
+    ), session, HIERARCHICAL, index);
+    save(session);
+
+    // when
+    PublishedRelatedResourcesTreeManager.copy(HIERARCHICAL, SHARDED, session);
+    PublishedRelatedResourcesTreeManager.recountReferences(SHARDED, session);
+    PublishedRelatedResourcesTreeManager.removePublishedResourcesData(List.of(new ResourceInfo(PAGE)), session, HIERARCHICAL, index);
+    save(session);
+
+    // then
+    assertThat(getPublishedRelatedResourcePaths(session, HIERARCHICAL)).isEmpty();
+    assertThat(getPublishedRelatedResourcePaths(session, SHARDED)).containsExactlyInAnyOrder(OWN_IMAGE, GLOBAL_IMAGE);
+
+    // when
+    PublishedRelatedResourcesTreeManager.synchronize(Set.of(PAGE), HIERARCHICAL, SHARDED, session, index);
+    PublishedRelatedResourcesTreeManager.remove(HIERARCHICAL, session);
+    PublishedRelatedResourcesTreeManager.removePublishedResourcesData(List.of(new ResourceInfo(OTHER_PAGE)), session, SHARDED, index);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.isStored(HIERARCHICAL, session)).isFalse();
+    assertThat(getPublishedRelatedResourcePaths(session, SHARDED)).isEmpty();
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(OWN_IMAGE), session, SHARDED, index)).isFalse();
+    assertThat(PublishedRelatedResourcesTreeManager.isOrphaned(new ResourceInfo(GLOBAL_IMAGE), session, SHARDED)).isTrue();
+  }
+
+  @Test
+  void shouldDetectOrphanedRelatedResourcesByReferenceCount() throws RepositoryException {
+    // given
+    Session session = getSession();
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(Map.of(
+        PAGE, Set.of(new ResourceInfo(OWN_IMAGE), new ResourceInfo(GLOBAL_IMAGE)),
+        OTHER_PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))
+    ), session, HIERARCHICAL, index);
+    save(session);
+
+    // when
+    PublishedRelatedResourcesTreeManager.removePublishedResourcesData(List.of(new ResourceInfo(PAGE)), session, HIERARCHICAL, index);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.isOrphaned(new ResourceInfo(GLOBAL_IMAGE), session, HIERARCHICAL)).isFalse();
+
+    // when
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(Map.of(OTHER_PAGE, Set.of()), session, HIERARCHICAL, index);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.isOrphaned(new ResourceInfo(GLOBAL_IMAGE), session, HIERARCHICAL)).isTrue();
+
+    // when
+    PublishedRelatedResourcesTreeManager.removeOrphaned(Set.of(new ResourceInfo(GLOBAL_IMAGE)), session, HIERARCHICAL, index);
+    save(session);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.wasPublished(new ResourceInfo(GLOBAL_IMAGE), session, HIERARCHICAL, index)).isFalse();
+    assertThat(session.getNode(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH).hasNodes()).isFalse();
+  }
+
+  @Test
+  void shouldCountReferencesOfTreeStoredWithoutCounts() throws RepositoryException {
+    // given: a tree stored by a version that didn't count the references
+    Session session = getSession();
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(Map.of(
+        PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE)),
+        OTHER_PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))
+    ), session, SHARDED, index);
+    Node node = session.getNode(SHARDED.getNodePath(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH, GLOBAL_IMAGE));
+    for (int shard = 0; shard < PublishedRelatedResourcesInversedTreeManager.REFERENCE_COUNT_SHARDS; shard++) {
+      if (node.hasProperty("referenceCount-" + shard)) {
+        node.getProperty("referenceCount-" + shard).remove();
+      }
+    }
+    session.getNode(SHARDED.getBasePath(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH))
+        .getProperty("referencesCounted").remove();
+    save(session);
+    assertThat(PublishedRelatedResourcesTreeManager.isOrphaned(new ResourceInfo(GLOBAL_IMAGE), session, SHARDED)).isTrue();
+
+    // when
+    PublishedRelatedResourcesTreeManager.countReferences(SHARDED, session);
+    PublishedRelatedResourcesTreeManager.removePublishedResourcesData(List.of(new ResourceInfo(PAGE)), session, SHARDED, index);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.isOrphaned(new ResourceInfo(GLOBAL_IMAGE), session, SHARDED)).isFalse();
+  }
+
+  @Test
+  void shouldMarkReferencesOfNewTreeAsCounted() throws RepositoryException {
+    // given
+    Session session = getSession();
+
+    // when
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(
+        Map.of(PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))), session, SHARDED, index);
+    save(session);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.areReferencesCounted(SHARDED, session)).isTrue();
+  }
+
+  @Test
+  void shouldKeepReferenceCountStoredInSingleProperty() throws RepositoryException {
+    // given: a count stored in a single property by a previous version
+    Session session = getSession();
+    PublishedRelatedResourcesTreeManager.updatePublishedResourcesData(Map.of(
+        PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE)),
+        OTHER_PAGE, Set.of(new ResourceInfo(GLOBAL_IMAGE))
+    ), session, HIERARCHICAL, index);
+    Node node = session.getNode(HIERARCHICAL.getNodePath(PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH, GLOBAL_IMAGE));
+    for (int shard = 0; shard < PublishedRelatedResourcesInversedTreeManager.REFERENCE_COUNT_SHARDS; shard++) {
+      if (node.hasProperty("referenceCount-" + shard)) {
+        node.getProperty("referenceCount-" + shard).remove();
+      }
+    }
+    node.setProperty("referenceCount", 2L);
+    save(session);
+
+    // when
+    PublishedRelatedResourcesTreeManager.removePublishedResourcesData(List.of(new ResourceInfo(PAGE)), session, HIERARCHICAL, index);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.isOrphaned(new ResourceInfo(GLOBAL_IMAGE), session, HIERARCHICAL)).isFalse();
+
+    // when
+    PublishedRelatedResourcesTreeManager.removePublishedResourcesData(List.of(new ResourceInfo(OTHER_PAGE)), session, HIERARCHICAL, index);
+
+    // then
+    assertThat(PublishedRelatedResourcesTreeManager.isOrphaned(new ResourceInfo(GLOBAL_IMAGE), session, HIERARCHICAL)).isTrue();
+  }
+
+  private void save(Session session) throws RepositoryException {
+    session.save();
+    index.applyPendingChanges(session);
+  }
+
+  private Session getSession() {
+    return Objects.requireNonNull(slingContext.resourceResolver().adaptTo(Session.class));
+  }
+
+  private static Set<String> getPublishedRelatedResourcePaths(Session session, RelatedResourcesStorageLayout layout)
+      throws RepositoryException {
+    Map<String, Set<ResourceInfo>> relatedResources = PublishedRelatedResourcesTreeManager.getPublishedRelatedResources(
+        List.of(new ResourceInfo(PAGE)), session, layout);
+    return SetUtils.mapToLinkedHashSet(relatedResources.get(PAGE), ResourceInfo::getPath);
+  }
+}
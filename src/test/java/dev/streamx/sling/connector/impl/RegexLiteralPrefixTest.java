@@ -0,0 +1,45 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class RegexLiteralPrefixTest {
+
+  @Test
+  void shouldFindLiteralPrefixesOfPatterns() {
+    assertThat(literalPrefix("(/content[^\"'\\s]*\\.coreimg\\.[^\"'\\s]*)")).isEqualTo("/content");
+    assertThat(literalPrefix("(/[^\"'\\s]*etc\\.clientlibs[^\"'\\)\\s]*)")).isEqualTo("/");
+    assertThat(literalPrefix("url\\([\"']?([^\\)\"']+)[\"']?\\)")).isEqualTo("url(");
+    assertThat(literalPrefix("(?:(/etc)\\.clientlibs)(/apps)")).isEqualTo("/etc");
+    assertThat(literalPrefix("(abc?)")).isEqualTo("ab");
+    assertThat(literalPrefix("(ab+c)")).isEqualTo("ab");
+    assertThat(literalPrefix("(ab{2})")).isEqualTo("a");
+  }
+
+  @Test
+  void shouldNotFindLiteralPrefixesOfPatternsThatCanStartDifferently() {
+    assertThat(literalPrefix("(?:(/etc)\\.clientlibs)?(/apps)")).isNull();
+    assertThat(literalPrefix("(/content|/apps)")).isNull();
+    assertThat(literalPrefix("(?i)(url)")).isNull();
+    assertThat(literalPrefix("(?<=src=\")([^\"]+)")).isNull();
+    assertThat(literalPrefix("\\b(href)")).isNull();
+    assertThat(literalPrefix("(a?)")).isNull();
+    assertThat(literalPrefix("([|])(a)")).isNull();
+    assertThat(RegexLiteralPrefix.find(Pattern.compile("(url)", Pattern.CASE_INSENSITIVE))).isNull();
+  }
+
+  @Test
+  void shouldFindLiteralPrefixesOfResourcePathPatterns() {
+    assertThat(literalPrefix("/libs/my-app/.*")).isEqualTo("/libs/my-app/");
+    assertThat(literalPrefix("/content/my-site/page\\.html")).isEqualTo("/content/my-site/page.html");
+    assertThat(literalPrefix("/.*/my-page-space/.*")).isEqualTo("/");
+    assertThat(literalPrefix(".*")).isNull();
+    assertThat(literalPrefix("^/content/.*")).isNull();
+  }
+
+  private static String literalPrefix(String regex) {
+    return RegexLiteralPrefix.find(Pattern.compile(regex));
+  }
+}
@@ -0,0 +1,107 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit5.SlingContext;
+import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(SlingContextExtension.class)
+class StreamxClientConcurrencyLimitsTest {
+
+  private final SlingContext slingContext = new SlingContext(ResourceResolverType.NONE);
+
+  @Test
+  void shouldLimitConcurrentPublicationsOfEachClient() {
+    // given
+    StreamxClientConcurrencyLimits limits = registerLimits(true);
+
+    // when
+    boolean firstAcquired = limits.tryAcquire("client-1");
+    boolean secondAcquired = limits.tryAcquire("client-1");
+    boolean thirdAcquired = limits.tryAcquire("client-1");
+    boolean otherClientAcquired = limits.tryAcquire("client-2");
+
+    // then
+    assertThat(firstAcquired).isTrue();
+    assertThat(secondAcquired).isTrue();
+    assertThat(thirdAcquired).isFalse();
+    assertThat(otherClientAcquired).isTrue();
+
+    // when
+    limits.release("client-1");
+
+    // then
+    assertThat(limits.tryAcquire("client-1")).isTrue();
+  }
+
+  @Test
+  void shouldIncreaseLimitAdditivelyWhenPublicationsAreFast() {
+    // given
+    StreamxClientConcurrencyLimits limits = registerLimits(true);
+
+    // when
+    for (int i = 0; i < 6; i++) {
+      limits.onSendCompleted("client", i, 10, false);
+    }
+
+    // then
+    assertThat(limits.getCurrentLimit("client")).isEqualTo(4);
+
+    // when
+    for (int i = 0; i < 100; i++) {
+      limits.onSendCompleted("client", i, 10, false);
+    }
+
+    // then
+    assertThat(limits.getCurrentLimit("client")).isEqualTo(8);
+  }
+
+  @Test
+  void shouldHalveLimitOnceWhenConcurrentPublicationsFailOrAreSlow() {
+    // given
+    StreamxClientConcurrencyLimits limits = registerLimits(true);
+    for (int i = 0; i < 100; i++) {
+      limits.onSendCompleted("client", i, 10, false);
+    }
+
+    // when
+    limits.onSendCompleted("client", 1000, 500, false);
+    limits.onSendCompleted("client", 1100, 10, true);
+
+    // then
+    assertThat(limits.getCurrentLimit("client")).isEqualTo(4);
+
+    // when
+    limits.onSendCompleted("client", 2000, 10, true);
+    limits.onSendCompleted("client", 3000, 10, true);
+    limits.onSendCompleted("client", 4000, 10, true);
+
+    // then
+    assertThat(limits.getCurrentLimit("client")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotLimitPublicationsIfDisabled() {
+    // given
+    StreamxClientConcurrencyLimits limits = registerLimits(false);
+
+    // expect
+    for (int i = 0; i < 10; i++) {
+      assertThat(limits.tryAcquire("client")).isTrue();
+    }
+  }
+
+  private StreamxClientConcurrencyLimits registerLimits(boolean enabled) {
+    return slingContext.registerInjectActivateService(StreamxClientConcurrencyLimits.class, Map.of(
+        "enabled", enabled,
+        "initial.limit", 2,
+        "min.limit", 1,
+        "max.limit", 8,
+        "latency.threshold", 100L,
+        "acquire.timeout", 10L));
+  }
+}
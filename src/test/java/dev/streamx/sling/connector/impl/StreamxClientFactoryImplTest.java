@@ -41,6 +41,11 @@ class StreamxClientFactoryImplTest {
             ".*"
         };
       }
+
+      @Override
+      public int warmUpConnections() {
+        return 0;
+      }
     };
 
     // when
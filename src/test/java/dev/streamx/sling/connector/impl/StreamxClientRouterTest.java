@@ -0,0 +1,110 @@
+package dev.streamx.sling.connector.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import dev.streamx.clients.ingestion.StreamxClient;
+import dev.streamx.sling.connector.ResourceInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class StreamxClientRouterTest {
+
+  private final List<StreamxInstanceClient> clients = List.of(
+      createClient("all", ".*"),
+      createClient("pages", "/content/my-site/.*", "/content/other-site/.*\\.html"),
+      createClient("assets", "/content/dam/.*", ".*\\.(png|jpg)"),
+      createClient("clientlibs", "/etc\\.clientlibs/.*", "/apps/my-site/clientlibs/.*"),
+      createClient("exact", "/content/my-site/en", "/content/my-site/de"),
+      createClient("spaces", "/.*/my-page-space/.*"),
+      createClient("case-insensitive", "(?i)/CONTENT/MY-SITE/.*"),
+      createClient("alternation", "/content/(my-site|other-site)/en/.*"),
+      createClient("invalid", "/content/[", "/content/dam/images/.*"),
+      createClient("none")
+  );
+
+  private final List<String> resourcePaths = List.of(
+      "/content/my-site/en",
+      "/content/my-site/en/page.html",
+      "/content/my-site/de",
+      "/content/my-site/deutsch",
+      "/content/other-site/en/page.html",
+      "/content/other-site/en/page.json",
+      "/content/dam/images/image.png",
+      "/content/dam/documents/doc.pdf",
+      "/etc.clientlibs/my-site/clientlibs/base.css",
+      "/etcXclientlibs/my-site/clientlibs/base.css",
+      "/apps/my-site/clientlibs/base.js",
+      "/var/my-page-space/page.html",
+      "/content/my-site/line\nbreak",
+      "/content/dam/line\nbreak.png",
+      "/"
+  );
+
+  @Test
+  void shouldRouteResourcesToTheSameClientsAsTheirPatterns() {
+    // given
+    StreamxClientRouter router = new StreamxClientRouter(clients);
+
+    for (String resourcePath : resourcePaths) {
+      // when
+      List<StreamxInstanceClient> routedClients = router.route(resourcePath);
+
+      // then
+      assertThat(routedClients)
+          .as(resourcePath)
+          .containsExactlyElementsOf(clients.stream()
+              .filter(client -> client.canProcess(new ResourceInfo(resourcePath)))
+              .collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void shouldRouteResourcesToClientsWithMatchingPatterns() {
+    // given
+    StreamxClientRouter router = new StreamxClientRouter(clients);
+
+    // expect
+    assertThat(router.route("/content/my-site/en"))
+        .extracting(StreamxInstanceClient::getName)
+        .containsExactly("all", "pages", "exact", "case-insensitive");
+    assertThat(router.route("/content/dam/images/image.png"))
+        .extracting(StreamxInstanceClient::getName)
+        .containsExactly("all", "assets", "invalid");
+    assertThat(router.route("/content/my-site/line\nbreak"))
+        .isEmpty();
+  }
+
+  @Test
+  void shouldRouteManyResourcesQuickly() {
+    // given
+    List<StreamxInstanceClient> manyClients = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      manyClients.add(createClient("client-" + i, "/content/site-" + i + "/.*", "/content/dam/site-" + i + "/.*\\.png"));
+    }
+    StreamxClientRouter router = new StreamxClientRouter(manyClients);
+    List<String> manyResourcePaths = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      manyResourcePaths.add(i % 2 == 0
+          ? "/content/site-" + (i % 10) + "/page-" + i + ".html"
+          : "/content/dam/site-" + (i % 10) + "/image-" + i + ".png");
+    }
+
+    // when
+    long startTime = System.currentTimeMillis();
+    for (String resourcePath : manyResourcePaths) {
+      assertThat(router.route(resourcePath)).hasSize(1);
+    }
+    long duration = System.currentTimeMillis() - startTime;
+
+    // then
+    assertThat(duration).isLessThan(1000);
+  }
+
+  private static StreamxInstanceClient createClient(String name, String... resourcePathPatterns) {
+    StreamxClientConfig config = new FakeStreamxClientConfig("/" + name, List.of(resourcePathPatterns));
+    return new StreamxInstanceClient(mock(StreamxClient.class), config);
+  }
+}
@@ -1,12 +1,26 @@
 package dev.streamx.sling.connector.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import dev.streamx.clients.ingestion.StreamxClient;
+import dev.streamx.clients.ingestion.publisher.Publisher;
+import dev.streamx.sling.connector.PublishData;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
 import org.apache.sling.testing.mock.sling.junit5.SlingContext;
 import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
@@ -60,16 +74,115 @@ class StreamxClientStoreImplTest {
     // then
     assertThat(store.getByName("client-1")).isNull();
     assertThat(store.getByName("client-2")).isNull();
+    verify(clientMock, times(2)).close();
+  }
+
+  @Test
+  void shouldWarmUpUpdatedClient() throws Exception {
+    // given
+    StreamxClientConfig config = new StreamxClientConfigImpl(
+        new StreamxClientConfigOcdImpl("client-1", "http://streamx-1.dev", 3)
+    );
+    StreamxClient previousClientMock = mock(StreamxClient.class);
+    doReturn(mock(Publisher.class)).when(previousClientMock).newPublisher("pages", String.class);
+    StreamxClient clientMock = mock(StreamxClient.class);
+    doReturn(mock(Publisher.class)).when(clientMock).newPublisher("pages", String.class);
+    CloseableHttpClient httpClientMock = mock(CloseableHttpClient.class);
+    CloseableHttpResponse responseMock = mock(CloseableHttpResponse.class);
+    doReturn(responseMock).when(httpClientMock).execute(any(HttpGet.class));
+
+    StreamxClientFactory clientFactory = mock(StreamxClientFactory.class);
+    StreamxInstanceClient previousClient = new StreamxInstanceClient(previousClientMock, config);
+    doReturn(previousClient, new StreamxInstanceClient(clientMock, httpClientMock, config))
+        .when(clientFactory).createStreamxClient(config);
+
+    slingContext.bundleContext().registerService(StreamxClientConfig.class, config, null);
+    StreamxClientStoreImpl store = new StreamxClientStoreImpl(clientFactory);
+    slingContext.registerInjectActivateService(store);
+    previousClient.getPublisher(new PublishData<>("/content/page", "pages", String.class, "page"));
+
+    // when
+    store.updateStreamxClientStore(config);
+
+    // then
+    verify(previousClientMock).close();
+    verify(clientMock, timeout(1000)).newPublisher("pages", String.class);
+    verify(httpClientMock, timeout(1000).times(3)).execute(any(HttpGet.class));
+    verify(responseMock, timeout(1000).times(3)).close();
+  }
+
+  @Test
+  void shouldWarmUpConnectionsConcurrentlyWithinLimitOfRoute() throws Exception {
+    // given
+    StreamxClientConfig config = new StreamxClientConfigImpl(
+        new StreamxClientConfigOcdImpl("client-1", "http://streamx-1.dev", 10)
+    );
+    CloseableHttpClient httpClientMock = mock(CloseableHttpClient.class);
+    CloseableHttpResponse responseMock = mock(CloseableHttpResponse.class);
+    CountDownLatch concurrentRequests = new CountDownLatch(3);
+    doAnswer(invocation -> {
+      concurrentRequests.countDown();
+      if (!concurrentRequests.await(5, TimeUnit.SECONDS)) {
+        throw new IOException("Requests are not sent concurrently");
+      }
+      return responseMock;
+    }).when(httpClientMock).execute(any(HttpGet.class));
+    StreamxInstanceClient client = new StreamxInstanceClient(mock(StreamxClient.class), httpClientMock, 4, config);
+
+    // when
+    int openedConnections = client.warmUpConnections(config.getWarmUpConnections());
+
+    // then: one of the connections of the route is left for the publications
+    assertThat(openedConnections).isEqualTo(3);
+    verify(httpClientMock, times(3)).execute(any(HttpGet.class));
+    verify(responseMock, times(3)).close();
+  }
+
+  @Test
+  void shouldCloseReplacedClientOncePublicationsInProgressAreCompleted() throws Exception {
+    // given
+    StreamxClientConfig config = new StreamxClientConfigImpl(
+        new StreamxClientConfigOcdImpl("client-1", "http://streamx-1.dev")
+    );
+    StreamxClient previousClientMock = mock(StreamxClient.class);
+    StreamxClientFactory clientFactory = mock(StreamxClientFactory.class);
+    StreamxInstanceClient previousClient = new StreamxInstanceClient(previousClientMock, config);
+    doReturn(previousClient, new StreamxInstanceClient(mock(StreamxClient.class), config))
+        .when(clientFactory).createStreamxClient(config);
+
+    slingContext.bundleContext().registerService(StreamxClientConfig.class, config, null);
+    StreamxClientStoreImpl store = new StreamxClientStoreImpl(clientFactory);
+    slingContext.registerInjectActivateService(store);
+    previousClient.sendStarted();
+
+    // when
+    store.updateStreamxClientStore(config);
+
+    // then
+    assertThat(store.getByName("client-1")).isNotSameAs(previousClient);
+    verify(previousClientMock, never()).close();
+
+    // when
+    previousClient.sendCompleted();
+
+    // then
+    verify(previousClientMock).close();
   }
 
   private static class StreamxClientConfigOcdImpl implements StreamxClientConfigOcd {
 
     private final String name;
     private final String streamxUrl;
+    private final int warmUpConnections;
 
     private StreamxClientConfigOcdImpl(String name, String streamxUrl) {
+      this(name, streamxUrl, 0);
+    }
+
+    private StreamxClientConfigOcdImpl(String name, String streamxUrl, int warmUpConnections) {
       this.name = name;
       this.streamxUrl = streamxUrl;
+      this.warmUpConnections = warmUpConnections;
     }
 
     @Override
@@ -98,6 +211,11 @@ class StreamxClientStoreImplTest {
           ".*"
       };
     }
+
+    @Override
+    public int warmUpConnections() {
+      return warmUpConnections;
+    }
   }
 
-}
\ No newline at end of file
+}
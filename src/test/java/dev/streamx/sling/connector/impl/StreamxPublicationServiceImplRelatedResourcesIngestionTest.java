@@ -2,7 +2,6 @@ package dev.streamx.sling.connector.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -29,10 +28,12 @@ import dev.streamx.sling.connector.testing.handlers.PagePublicationHandler;
 import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJob;
 import dev.streamx.sling.connector.testing.sling.event.jobs.FakeJobManager;
 import java.lang.annotation.Annotation;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,7 +53,6 @@ import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.engine.SlingRequestProcessor;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.JobManager;
-import org.apache.sling.event.jobs.JobManager.QueryType;
 import org.apache.sling.event.jobs.consumer.JobExecutionContext;
 import org.apache.sling.event.jobs.consumer.JobExecutionContext.ResultBuilder;
 import org.apache.sling.event.jobs.consumer.JobExecutionResult;
@@ -63,6 +63,8 @@ import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.osgi.service.event.EventAdmin;
 
 @ExtendWith(SlingContextExtension.class)
 class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
@@ -84,6 +86,7 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
   private final ResourceResolver resourceResolver = slingContext.resourceResolver();
   private final ResourceResolverFactory resourceResolverFactory = mock(ResourceResolverFactory.class);
   private final FakeJobManager jobManager = spy(new FakeJobManager(Collections.emptyList()));
+  private final PendingPublicationJobsIndex pendingPublicationJobsIndex = spy(new PendingPublicationJobsIndex());
   private final ResultBuilder resultBuilderMock = mock(ResultBuilder.class);
   private final StreamxPublicationServiceImpl publicationService = new StreamxPublicationServiceImpl();
   private final JobExecutionContext jobExecutionContext = mock(JobExecutionContext.class);
@@ -167,8 +170,12 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
       return job;
     }).when(jobManager).addJob(eq(IngestionTriggerJobExecutor.JOB_TOPIC), anyMap());
     slingContext.registerService(JobManager.class, jobManager);
+    jobManager.setEventAdmin(slingContext.getService(EventAdmin.class));
+    slingContext.registerInjectActivateService(pendingPublicationJobsIndex);
 
     slingContext.registerInjectActivateService(publicationService);
+    slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    slingContext.registerInjectActivateService(JcrPublishedResourcesStore.class);
     ingestionTriggerJobExecutor = slingContext.registerInjectActivateService(IngestionTriggerJobExecutor.class);
   }
 
@@ -179,9 +186,9 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
     StreamxInstanceClient streamxClientMock = mock(StreamxInstanceClient.class);
     doReturn(STREAMX_CLIENT_NAME).when(streamxClientMock).getName();
 
-    StreamxClientStore streamxClientStore = mock(StreamxClientStoreImpl.class);
+    StreamxClientStore streamxClientStore = mock(StreamxClientStore.class);
     doReturn(List.of(streamxClientMock)).when(streamxClientStore).getForResource(any(ResourceInfo.class));
-    slingContext.registerInjectActivateService(streamxClientStore);
+    slingContext.registerService(StreamxClientStore.class, streamxClientStore);
   }
 
   @Test
@@ -206,7 +213,7 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
   @Test
   void shouldPublishPagesAndAllRelatedResourcesThatAreConfigureToBeFound_AndUnpublishOwnCoreImagesAlongWithPage() throws Exception {
     // given: turn off skipping duplicate jobs creation
-    doReturn(Collections.emptyList()).when(jobManager).findJobs(any(QueryType.class), anyString(), anyLong(), any());
+    doReturn(false).when(pendingPublicationJobsIndex).isPending(anyString(), anyString(), any(PublicationAction.class), anyString());
 
     String page1WithImagesAndCss = registerPage(
         PAGE_1,
@@ -427,6 +434,148 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
     );
   }
 
+  @Test
+  void shouldUnpublishOwnImageOfPageThatCanNoLongerBeRendered() throws Exception {
+    // given
+    String page = registerPage(PAGE_1, CORE_IMG_FOR_PAGE_1, GLOBAL_CSS_CLIENTLIB);
+    publishPage(page);
+    assertResourcesCurrentlyOnStreamX(page, CORE_IMG_FOR_PAGE_1, GLOBAL_CSS_CLIENTLIB);
+
+    // when: related resources of the unpublished page are read from the data recorded when it was published
+    allTestResources.remove(page);
+    unpublishPage(page);
+
+    // then
+    assertUnpublishedTimes(Map.of(
+        CORE_IMG_FOR_PAGE_1, 1,
+        GLOBAL_CSS_CLIENTLIB, 0
+    ));
+
+    assertResourcesCurrentlyOnStreamX(GLOBAL_CSS_CLIENTLIB);
+
+    verifyStateOfPublishedResourcesData(
+        Collections.emptyMap(),
+        Set.of(
+            GLOBAL_CSS_CLIENTLIB
+        )
+    );
+  }
+
+  @Test
+  void shouldUnpublishSharedRelatedResourcesNoLongerReferencedByAnyPageIfEnabled() throws Exception {
+    // given
+    MockOsgi.modified(ingestionTriggerJobExecutor, slingContext.bundleContext(),
+        Map.of("unpublish.orphaned.related.resources", true));
+    String page1 = registerPage(PAGE_1, GLOBAL_CSS_CLIENTLIB, GLOBAL_JS_CLIENTLIB);
+    String page2 = registerPage(PAGE_2, GLOBAL_CSS_CLIENTLIB);
+    publishPages(page1, page2);
+
+    // when 1
+    unpublishPage(page1);
+
+    // then: the JS is no longer referenced by any page, the CSS is still referenced by page 2
+    assertUnpublishedTimes(Map.of(
+        GLOBAL_CSS_CLIENTLIB, 0,
+        GLOBAL_JS_CLIENTLIB, 1
+    ));
+
+    assertResourcesCurrentlyOnStreamX(page2, GLOBAL_CSS_CLIENTLIB);
+
+    verifyStateOfPublishedResourcesData(
+        Map.of(
+            page2, Set.of(GLOBAL_CSS_CLIENTLIB)
+        ),
+        Set.of(
+            GLOBAL_CSS_CLIENTLIB
+        )
+    );
+
+    // when 2
+    unpublishPage(page2);
+
+    // then
+    assertUnpublishedTimes(Map.of(
+        GLOBAL_CSS_CLIENTLIB, 1,
+        GLOBAL_JS_CLIENTLIB, 1
+    ));
+
+    assertResourcesCurrentlyOnStreamX();
+
+    verifyStateOfPublishedResourcesData(
+        Collections.emptyMap(),
+        Collections.emptySet()
+    );
+  }
+
+  @Test
+  void shouldSaveDataOfPublishedResourcesInBatches() throws Exception {
+    // given
+    MockOsgi.modified(ingestionTriggerJobExecutor, slingContext.bundleContext(),
+        Map.of("related.resources.save.batch.size", 1));
+    String page1 = registerPage(PAGE_1, CORE_IMG_FOR_PAGE_1, GLOBAL_CSS_CLIENTLIB);
+    String page2 = registerPage(PAGE_2, CORE_IMG_FOR_PAGE_2, GLOBAL_CSS_CLIENTLIB);
+
+    // when 1
+    publishPages(page1, page2);
+
+    // then
+    assertResourcesCurrentlyOnStreamX(page1, page2, CORE_IMG_FOR_PAGE_1, CORE_IMG_FOR_PAGE_2, GLOBAL_CSS_CLIENTLIB);
+
+    verifyStateOfPublishedResourcesData(
+        Map.of(
+            page1, Set.of(CORE_IMG_FOR_PAGE_1, GLOBAL_CSS_CLIENTLIB),
+            page2, Set.of(CORE_IMG_FOR_PAGE_2, GLOBAL_CSS_CLIENTLIB)
+        ),
+        Set.of(
+            CORE_IMG_FOR_PAGE_1,
+            CORE_IMG_FOR_PAGE_2,
+            GLOBAL_CSS_CLIENTLIB
+        )
+    );
+
+    // when 2
+    unpublishPages(page1, page2);
+
+    // then
+    assertResourcesCurrentlyOnStreamX(GLOBAL_CSS_CLIENTLIB);
+
+    verifyStateOfPublishedResourcesData(
+        Collections.emptyMap(),
+        Set.of(
+            GLOBAL_CSS_CLIENTLIB
+        )
+    );
+  }
+
+  @Test
+  void shouldTrackPublishedResourcesInFileStoreIfConfigured(@TempDir Path tempDir) throws Exception {
+    // given
+    slingContext.registerInjectActivateService(FilePublishedResourcesStore.class,
+        Map.of("file.path", tempDir.resolve("published-resources.log").toString(), "single.instance", true));
+    ingestionTriggerJobExecutor = slingContext.registerInjectActivateService(IngestionTriggerJobExecutor.class,
+        Map.of("unpublish.orphaned.related.resources", true));
+    String page1 = registerPage(PAGE_1, CORE_IMG_FOR_PAGE_1, GLOBAL_CSS_CLIENTLIB, GLOBAL_JS_CLIENTLIB);
+    String page2 = registerPage(PAGE_2, GLOBAL_CSS_CLIENTLIB);
+    publishPages(page1, page2);
+
+    // when
+    unpublishPage(page1);
+
+    // then
+    assertUnpublishedTimes(Map.of(
+        CORE_IMG_FOR_PAGE_1, 1,
+        GLOBAL_CSS_CLIENTLIB, 0,
+        GLOBAL_JS_CLIENTLIB, 1
+    ));
+
+    assertResourcesCurrentlyOnStreamX(page2, GLOBAL_CSS_CLIENTLIB);
+
+    verifyStateOfPublishedResourcesData(
+        Collections.emptyMap(),
+        Collections.emptySet()
+    );
+  }
+
   @Test
   void unpublishingPageShouldNotRemoveDataForOtherPublishedPages() throws Exception {
     // given
@@ -725,17 +874,18 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
         Pair.of("PUBLISH", GLOBAL_JS_CLIENTLIB),
         Pair.of("PUBLISH", GLOBAL_CSS_CLIENTLIB),
 
-        // expecting unpublish job for coreImg6 to not be created
+        // expecting unpublish job for coreImg6 to be created again, since the pending one is superseded by the publish job
         Pair.of("UNPUBLISH", page),
         Pair.of("UNPUBLISH", coreImg1),
         Pair.of("UNPUBLISH", coreImg2),
         Pair.of("UNPUBLISH", coreImg3),
         Pair.of("UNPUBLISH", coreImg4),
-        Pair.of("UNPUBLISH", coreImg5)
+        Pair.of("UNPUBLISH", coreImg5),
+        Pair.of("UNPUBLISH", coreImg6)
     );
 
-    // and
-    assertResourcesCurrentlyOnStreamX(coreImg6, GLOBAL_JS_CLIENTLIB, GLOBAL_CSS_CLIENTLIB);
+    // and: the page was unpublished last, so coreImg6 is unpublished despite the older pending unpublish job
+    assertResourcesCurrentlyOnStreamX(GLOBAL_JS_CLIENTLIB, GLOBAL_CSS_CLIENTLIB);
   }
 
   private Job createDummyIngestionJob(String resourcePath, PublicationAction action, String handlerId, String clientName) {
@@ -917,7 +1067,7 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
       Map<String, Set<String>> expectedParentAndRelatedResourcesInMainTree,
       Set<String> expectedRelatedResourcePathsInInversedTree) throws RepositoryException {
     verifyMainTree(expectedParentAndRelatedResourcesInMainTree);
-    verifyInversedTree(expectedRelatedResourcePathsInInversedTree);
+    verifyInversedTree(expectedRelatedResourcePathsInInversedTree, expectedParentAndRelatedResourcesInMainTree);
   }
 
   private void verifyMainTree(Map<String, Set<String>> expectedParentAndRelatedResources) throws RepositoryException {
@@ -939,20 +1089,36 @@ class StreamxPublicationServiceImplRelatedResourcesIngestionTest {
     assertThat(actualTreeNodes).containsExactlyInAnyOrderEntriesOf(expectedTreeNodes);
   }
 
-  private void verifyInversedTree(Set<String> expectedRelatedResourcePaths) throws RepositoryException {
+  private void verifyInversedTree(Set<String> expectedRelatedResourcePaths,
+      Map<String, Set<String>> expectedParentAndRelatedResourcesInMainTree) throws RepositoryException {
     String baseNodePath = PublishedRelatedResourcesInversedTreeManager.BASE_NODE_PATH;
 
     // given
+    Map<String, Map<String, Set<String>>> expectedReferenceCounts = new HashMap<>();
+    expectedParentAndRelatedResourcesInMainTree.forEach((parentPath, relatedResourcePaths) -> {
+      String referenceCountProperty = "referenceCount-"
+          + PublishedRelatedResourcesInversedTreeManager.getReferenceCountShard(parentPath);
+      for (String relatedResourcePath : relatedResourcePaths) {
+        expectedReferenceCounts.computeIfAbsent(relatedResourcePath, path -> new HashMap<>())
+            .merge(referenceCountProperty, Set.of("1"),
+                (count, one) -> Set.of(String.valueOf(Long.parseLong(count.iterator().next()) + 1)));
+      }
+    });
     Map<String, Map<String, Set<String>>> expectedTreeNodes = expectedRelatedResourcePaths
         .stream()
         .collect(Collectors.toMap(
             path -> baseNodePath + path,
-            path -> Collections.emptyMap()
+            path -> expectedReferenceCounts.getOrDefault(path, Collections.emptyMap())
         ));
     addParentNodes(expectedTreeNodes, expectedRelatedResourcePaths, baseNodePath);
 
-    // when
+    // when: random revisions of the reference counts are left out
     Map<String, Map<String, Set<String>>> actualTreeNodes = JcrTreeReader.getNestedNodes(baseNodePath, resourceResolver);
+    actualTreeNodes.values().forEach(properties -> properties.keySet().removeIf(name -> name.endsWith("-revision")));
+    if (!actualTreeNodes.isEmpty()) {
+      // the base node is kept with the marker of counted references
+      expectedTreeNodes.put(baseNodePath, Map.of("referencesCounted", Set.of("true")));
+    }
 
     // then
     assertThat(actualTreeNodes).containsExactlyInAnyOrderEntriesOf(expectedTreeNodes);
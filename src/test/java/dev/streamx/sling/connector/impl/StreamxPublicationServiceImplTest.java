@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -42,6 +43,7 @@ import org.apache.sling.testing.mock.sling.junit5.SlingContextExtension;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.osgi.service.event.EventAdmin;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -50,10 +52,12 @@ import static org.assertj.core.api.BDDAssertions.then;
 import static org.assertj.core.api.BDDAssumptions.given;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 
@@ -72,6 +76,7 @@ class StreamxPublicationServiceImplTest {
   private final JobExecutor publicationJobExecutor = new PublicationJobExecutor();
   private final FakeJobManager fakeJobManager = spy(new FakeJobManager(Collections.singletonList(publicationJobExecutor)));
   private final FakeStreamxClientFactory fakeStreamxClientFactory = new FakeStreamxClientFactory();
+  private IngestionTriggerJobExecutor ingestionTriggerJobExecutor;
 
   private final SlingRequestProcessor dummyRequestProcessor = (HttpServletRequest request, HttpServletResponse response, ResourceResolver resolver) -> {
     String requestUri = request.getRequestURI();
@@ -146,9 +151,13 @@ class StreamxPublicationServiceImplTest {
     slingContext.registerInjectActivateService(new RelatedResourcesSelectorRegistry());
 
     slingContext.registerService(JobManager.class, fakeJobManager);
+    fakeJobManager.setEventAdmin(slingContext.getService(EventAdmin.class));
+    slingContext.registerInjectActivateService(PendingPublicationJobsIndex.class);
     slingContext.registerInjectActivateService(publicationJobExecutor);
 
-    IngestionTriggerJobExecutor ingestionTriggerJobExecutor = slingContext.registerInjectActivateService(IngestionTriggerJobExecutor.class);
+    slingContext.registerInjectActivateService(PublishedRelatedResourcesIndex.class);
+    slingContext.registerInjectActivateService(JcrPublishedResourcesStore.class);
+    ingestionTriggerJobExecutor = slingContext.registerInjectActivateService(IngestionTriggerJobExecutor.class);
     doAnswer(invocationOnMock -> {
       // process the ingestion job immediately in tests
       Job job = new FakeJob(invocationOnMock.getArgument(0), invocationOnMock.getArgument(1));
@@ -191,8 +200,8 @@ class StreamxPublicationServiceImplTest {
     givenPageHierarchy("/content/my-site/page-1/page-2");
 
     whenPathIsPublished("/content/my-site/page-1");
+    whenAllJobsAreProcessed();
     whenPathIsUnpublished("/content/my-site/page-1");
-
     whenAllJobsAreProcessed();
 
     thenProcessedJobsCountIs(2);
@@ -202,6 +211,51 @@ class StreamxPublicationServiceImplTest {
     );
   }
 
+  @Test
+  void shouldSendOnlyUnpublishIfPendingPublishIsSupersededByUnpublish() {
+    givenPageHierarchy("/content/my-site/page-1/page-2");
+
+    whenPathIsPublished("/content/my-site/page-1");
+    whenPathIsUnpublished("/content/my-site/page-1");
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(2);
+    thenPublicationsContainsExactly(
+        unpublishedPage("/content/my-site/page-1.html")
+    );
+  }
+
+  @Test
+  void shouldSendOnlyPublishIfPendingUnpublishIsSupersededByPublish() {
+    givenPageHierarchy("/content/my-site/page-1/page-2");
+
+    whenPathIsPublished("/content/my-site/page-1");
+    whenPathIsUnpublished("/content/my-site/page-1");
+    whenPathIsPublished("/content/my-site/page-1");
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(3);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1.html")
+    );
+  }
+
+  @Test
+  void shouldSkipSupersededResourcesOfBatchJob() {
+    givenPageHierarchy("/content/my-site/page-1/page-2");
+    givenPublicationBatchMaxSize(10);
+
+    whenPathsArePublished("/content/my-site/page-1", "/content/my-site/page-1/page-2");
+    whenPathIsUnpublished("/content/my-site/page-1");
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(2);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1/page-2.html"),
+        unpublishedPage("/content/my-site/page-1.html")
+    );
+  }
+
   @Test
   void shouldUnpublishSinglePage() {
     givenPageHierarchy("/content/my-site/page-1/page-2/page-3");
@@ -281,6 +335,7 @@ class StreamxPublicationServiceImplTest {
     );
 
     whenPathsArePublished("/content/my-site/page-1", "/content/impostor-site/page-2");
+    whenAllJobsAreProcessed();
     whenPathsAreUnpublished("/content/my-site/page-1", "/content/impostor-site/page-2");
     whenAllJobsAreProcessed();
 
@@ -352,6 +407,47 @@ class StreamxPublicationServiceImplTest {
     );
   }
 
+  @Test
+  void shouldPublishResourcesOfSameHandlerAndClientInBatchJobs() {
+    givenPageHierarchy("/content/my-site/page-1/page-2/page-3");
+    givenAsset("/content/dam/asset-1.jpeg");
+    givenPublicationBatchMaxSize(2);
+
+    whenPathsArePublished(
+        "/content/my-site/page-1",
+        "/content/my-site/page-1/page-2",
+        "/content/dam/asset-1.jpeg",
+        "/content/my-site/page-1/page-2/page-3"
+    );
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(3);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1.html"),
+        publishedPage("/content/my-site/page-1/page-2.html"),
+        publishedAsset("/content/dam/asset-1.jpeg"),
+        publishedPage("/content/my-site/page-1/page-2/page-3.html")
+    );
+  }
+
+  @Test
+  void shouldNotSubmitBatchJobForResourcesThatAreAlreadySubmitted() {
+    givenPageHierarchy("/content/my-site/page-1/page-2/page-3");
+    givenPublicationBatchMaxSize(2);
+
+    whenPathsArePublished("/content/my-site/page-1", "/content/my-site/page-1/page-2");
+    whenPathsArePublished("/content/my-site/page-1/page-2", "/content/my-site/page-1");
+    whenPathsArePublished("/content/my-site/page-1", "/content/my-site/page-1/page-2/page-3");
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(2);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1.html"),
+        publishedPage("/content/my-site/page-1/page-2.html"),
+        publishedPage("/content/my-site/page-1/page-2/page-3.html")
+    );
+  }
+
   @Test
   void shouldNotPublishIfResourceWasRemovedAfterPublication() {
     givenPageHierarchy("/content/my-site/page-1");
@@ -382,6 +478,32 @@ class StreamxPublicationServiceImplTest {
     thenProcessedJobsCountIs(2);
   }
 
+  @Test
+  void shouldCreateSinglePublishJobForAllInstancesInFanOutMode() {
+    givenPageHierarchy("/content/my-site/page-1");
+    givenPublicationFanOut();
+
+    givenStreamxClientInstances(
+        getDefaultFakeStreamxClientConfig(),
+        getMySiteFakeStreamxClientConfig()
+    );
+
+    whenPathsArePublished(
+        "/content/my-site/page-1"
+    );
+
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(1);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1.html")
+    );
+    thenInstancePublicationsContainsExactly(
+        "/fake/my-site/instance",
+        publishedPage("/content/my-site/page-1.html")
+    );
+  }
+
   @Test
   void shouldPublishToStreamxInstanceIfPathMatchesPattern() {
     givenPageHierarchy(
@@ -535,6 +657,85 @@ class StreamxPublicationServiceImplTest {
     );
   }
 
+  @Test
+  void shouldFindRelatedResourcesInParallelKeepingOrderOfParentResources() {
+    givenPageHierarchy(
+        "/content/my-site/page-1",
+        "/content/my-site/page-2",
+        RELATED_ASSET_TO_PUBLISH,
+        OTHER_RELATED_ASSET_TO_PUBLISH
+    );
+    givenRelatedResourcesDiscoveryThreads(2);
+
+    // related resources of the first page are found after the ones of the second page
+    givenRelatedResourcesSelectors(resource -> {
+      if (resource.getPath().equals("/content/my-site/page-1")) {
+        sleep(300);
+        return List.of(new AssetResourceInfo(RELATED_ASSET_TO_PUBLISH));
+      }
+      return List.of(new AssetResourceInfo(OTHER_RELATED_ASSET_TO_PUBLISH));
+    });
+
+    whenPathsArePublished("/content/my-site/page-1", "/content/my-site/page-2");
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(4);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1.html"),
+        publishedPage("/content/my-site/page-2.html"),
+        publishedAsset(RELATED_ASSET_TO_PUBLISH),
+        publishedAsset(OTHER_RELATED_ASSET_TO_PUBLISH)
+    );
+  }
+
+  @Test
+  void shouldPublishRelatedResourcesOfOtherParentsIfSelectorFailsForOneOfThem() {
+    givenPageHierarchy(
+        "/content/my-site/page-1",
+        "/content/my-site/page-2",
+        RELATED_ASSET_TO_PUBLISH
+    );
+    givenRelatedResourcesDiscoveryThreads(2);
+    givenRelatedResourcesSelectors(resource -> {
+      if (resource.getPath().equals("/content/my-site/page-1")) {
+        throw new IllegalStateException("Cannot render " + resource.getPath());
+      }
+      return List.of(new AssetResourceInfo(RELATED_ASSET_TO_PUBLISH));
+    });
+
+    whenPathsArePublished("/content/my-site/page-1", "/content/my-site/page-2");
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(3);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1.html"),
+        publishedPage("/content/my-site/page-2.html"),
+        publishedAsset(RELATED_ASSET_TO_PUBLISH)
+    );
+  }
+
+  @Test
+  void shouldFindRelatedResourcesFasterWithMultipleDiscoveryThreads() {
+    final int pagesCount = 8;
+    final long selectorDurationMillis = 200;
+    String[] pagePaths = IntStream.rangeClosed(1, pagesCount)
+        .mapToObj(i -> "/content/my-site/page-" + i)
+        .toArray(String[]::new);
+    givenPageHierarchy(pagePaths);
+    givenRelatedResourcesDiscoveryThreads(4);
+    givenRelatedResourcesSelectors(resource -> {
+      sleep(selectorDurationMillis);
+      return List.of(new AssetResourceInfo(RELATED_ASSET_TO_PUBLISH));
+    });
+
+    long startTime = System.currentTimeMillis();
+    whenPathsArePublished(pagePaths);
+    long processingTime = System.currentTimeMillis() - startTime;
+
+    // sequential discovery would take at least pagesCount * selectorDurationMillis
+    assertThat(processingTime).isLessThan(pagesCount * selectorDurationMillis / 2);
+  }
+
   @Test
   void shouldInternallyHandleExceptionWhileAddingNewSlingJob() {
     doReturn(null).when(fakeJobManager).addJob(anyString(), anyMap());
@@ -574,6 +775,127 @@ class StreamxPublicationServiceImplTest {
         .containsExactly("{\"path\":\"path-2\",\"properties\":{\"jcr:primaryType\":\"dam:Asset\"}}");
   }
 
+  @Test
+  void shouldCoalesceIngestionRequestsForSamePath() {
+    // given
+    doCallRealMethod().when(fakeJobManager).addJob(anyString(), anyMap());
+    givenPublicationService(Map.of("coalescing.quiet.period", 60000L));
+
+    // when
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-1"), new PageResourceInfo("/content/page-2")));
+    publicationService.unpublish(List.of(new PageResourceInfo("/content/page-1")));
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-3")));
+    publicationService.unpublish(List.of(new PageResourceInfo("/content/page-2")));
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-1")));
+
+    // then
+    assertThat(fakeJobManager.getJobQueue()).isEmpty();
+
+    // when
+    publicationService.flush();
+
+    // then
+    List<FakeJob> queuedJobs = fakeJobManager.getJobQueue();
+    assertThat(queuedJobs).hasSize(2);
+    assertThat(IngestionTriggerJobProperties.getAction(queuedJobs.get(0))).isEqualTo("PUBLISH");
+    assertThat(IngestionTriggerJobExecutor.extractResourcesInfo(queuedJobs.get(0)))
+        .extracting(ResourceInfo::getPath)
+        .containsExactly("/content/page-3", "/content/page-1");
+    assertThat(IngestionTriggerJobProperties.getAction(queuedJobs.get(1))).isEqualTo("UNPUBLISH");
+    assertThat(IngestionTriggerJobExecutor.extractResourcesInfo(queuedJobs.get(1)))
+        .extracting(ResourceInfo::getPath)
+        .containsExactly("/content/page-2");
+  }
+
+  @Test
+  void shouldPublishCoalescedRequestsOnlyOnce() {
+    givenPageHierarchy("/content/my-site/page-1/page-2");
+    givenPublicationService(Map.of("coalescing.quiet.period", 60000L));
+
+    whenPathIsPublished("/content/my-site/page-1");
+    whenPathIsPublished("/content/my-site/page-1");
+    whenPathIsUnpublished("/content/my-site/page-1/page-2");
+    whenPathIsPublished("/content/my-site/page-1/page-2");
+    publicationService.flush();
+    whenAllJobsAreProcessed();
+
+    thenProcessedJobsCountIs(2);
+    thenPublicationsContainsExactly(
+        publishedPage("/content/my-site/page-1.html"),
+        publishedPage("/content/my-site/page-1/page-2.html")
+    );
+  }
+
+  @Test
+  void shouldSubmitCoalescedRequestsOnDeactivation() {
+    // given
+    doCallRealMethod().when(fakeJobManager).addJob(anyString(), anyMap());
+    givenPublicationService(Map.of("coalescing.quiet.period", 60000L));
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-1")));
+
+    // when
+    MockOsgi.deactivate(publicationService, slingContext.bundleContext());
+
+    // then
+    List<FakeJob> queuedJobs = fakeJobManager.getJobQueue();
+    assertThat(queuedJobs).hasSize(1);
+    assertThat(IngestionTriggerJobProperties.getResources(queuedJobs.get(0)))
+        .containsExactly("{\"path\":\"/content/page-1\",\"properties\":{\"jcr:primaryType\":\"cq:Page\"}}");
+  }
+
+  @Test
+  void shouldSubmitCoalescedRequestsAfterQuietPeriod() throws InterruptedException {
+    // given
+    doCallRealMethod().when(fakeJobManager).addJob(anyString(), anyMap());
+    givenPublicationService(Map.of("coalescing.quiet.period", 50L));
+
+    // when
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-1")));
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-1")));
+
+    // then
+    long deadlineMillis = System.currentTimeMillis() + 5000;
+    while (fakeJobManager.getJobQueue().isEmpty() && System.currentTimeMillis() < deadlineMillis) {
+      Thread.sleep(10);
+    }
+    assertThat(fakeJobManager.getJobQueue()).hasSize(1);
+  }
+
+  @Test
+  void shouldStopCoalescingWhenItIsSwitchedOff() {
+    // given
+    doCallRealMethod().when(fakeJobManager).addJob(anyString(), anyMap());
+    givenPublicationService(Map.of("coalescing.quiet.period", 60000L));
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-1")));
+    assertThat(publicationService.isCoalescing()).isTrue();
+
+    // when
+    givenPublicationService(Map.of("coalescing.quiet.period", 0L));
+
+    // then
+    assertThat(publicationService.isCoalescing()).isFalse();
+    assertThat(fakeJobManager.getJobQueue()).hasSize(1);
+  }
+
+  @Test
+  void shouldSubmitOtherCoalescedRequestsIfSubmittingJobFails() {
+    // given
+    doCallRealMethod().when(fakeJobManager).addJob(anyString(), anyMap());
+    doThrow(new IllegalStateException("failure")).when(fakeJobManager).addJob(anyString(),
+        argThat(properties -> "PUBLISH".equals(properties.get("streamx.ingestion.action"))));
+    givenPublicationService(Map.of("coalescing.quiet.period", 60000L));
+    publicationService.publish(List.of(new PageResourceInfo("/content/page-1")));
+    publicationService.unpublish(List.of(new PageResourceInfo("/content/page-2")));
+
+    // when
+    publicationService.flush();
+
+    // then
+    List<FakeJob> queuedJobs = fakeJobManager.getJobQueue();
+    assertThat(queuedJobs).hasSize(1);
+    assertThat(IngestionTriggerJobProperties.getAction(queuedJobs.get(0))).isEqualTo("UNPUBLISH");
+  }
+
   private void givenPageHierarchy(String... paths) {
     try {
       for (String path : paths) {
@@ -598,6 +920,30 @@ class StreamxPublicationServiceImplTest {
     MockOsgi.modified(publicationService, slingContext.bundleContext(), properties);
   }
 
+  private void givenPublicationBatchMaxSize(int publicationBatchMaxSize) {
+    MockOsgi.modified(ingestionTriggerJobExecutor, slingContext.bundleContext(),
+        Map.of("publication.batch.max.size", publicationBatchMaxSize));
+  }
+
+  private void givenPublicationFanOut() {
+    MockOsgi.modified(ingestionTriggerJobExecutor, slingContext.bundleContext(),
+        Map.of("publication.fan-out", true));
+  }
+
+  private void givenRelatedResourcesDiscoveryThreads(int threads) {
+    MockOsgi.modified(ingestionTriggerJobExecutor, slingContext.bundleContext(),
+        Map.of("related.resources.discovery.threads", threads));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ex);
+    }
+  }
+
   private void givenRelatedResourcesSelectors(RelatedResourcesSelector... selectors) {
     registerSelectors(selectors);
     registerHandlers(assetResourcePathPublicationHandler);
@@ -0,0 +1,152 @@
+package dev.streamx.sling.connector.selectors.content;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class ReferenceScannerTest {
+
+  private static final List<Pattern> DEFAULT_PATTERNS = compile(
+      "(/content[^\"'\\s]*\\.coreimg\\.[^\"'\\s]*)",
+      "(/[^\"'\\s]*etc\\.clientlibs[^\"'\\)\\s]*)",
+      "url\\([\"']?([^\\)\"']+)[\"']?\\)"
+  );
+
+  private static final List<Pattern> TRICKY_PATTERNS = compile(
+      "(/content/dam/[^\"'\\s<]*)",
+      "(?<=src=\")([^\"]+)",
+      "\\b(href)=",
+      "(?:(/etc)\\.clientlibs)?(/apps/[^\"'\\s]*)",
+      "(a?)",
+      "^(<!DOCTYPE)",
+      "(\\.png|\\.svg)",
+      "(?i)(URL)\\(",
+      "no-group-pattern",
+      "(x)*(/content)"
+  );
+
+  private static final List<String> CORPORA = Stream.of(
+      "src/test/resources/sample-page.html",
+      "src/test/resources/page-with-nested-references/content/my-site/us/en/main-page.html",
+      "src/test/resources/page-with-nested-references/etc.clientlibs/my-site/clientlibs/clientlib-base.css",
+      "src/test/resources/page-with-nested-references/etc.clientlibs/my-site/clientlibs/clientlib-base.js",
+      "src/test/resources/page-with-nested-references/etc.clientlibs/my-site/clientlibs/theme/colors-1.css"
+  ).map(path -> contentOf(new File(path), UTF_8)).collect(Collectors.toUnmodifiableList());
+
+  @Test
+  void shouldFindTheSameReferencesAsSearchingForEachPatternSeparately() {
+    for (String content : CORPORA) {
+      assertThat(new ReferenceScanner(DEFAULT_PATTERNS).scan(content))
+          .isNotEmpty()
+          .containsExactlyInAnyOrderElementsOf(findSeparately(DEFAULT_PATTERNS, content));
+      assertThat(new ReferenceScanner(TRICKY_PATTERNS).scan(content))
+          .containsExactlyInAnyOrderElementsOf(findSeparately(TRICKY_PATTERNS, content));
+    }
+  }
+
+  @Test
+  void shouldFindTheSameReferencesAsSearchingForEachPatternSeparatelyInRandomContent() {
+    Random random = new Random(42);
+    String[] fragments = {"/content", "/etc.clientlibs", "url(", "'", "\"", ")", " ", "a", ".coreimg.", "/apps/", "src=\"",
+        ".png", "é", "\n", "/"};
+    List<Pattern> patterns = new ArrayList<>(DEFAULT_PATTERNS);
+    patterns.addAll(TRICKY_PATTERNS);
+    ReferenceScanner scanner = new ReferenceScanner(patterns);
+    for (int i = 0; i < 1000; i++) {
+      StringBuilder content = new StringBuilder();
+      for (int j = random.nextInt(50); j > 0; j--) {
+        content.append(fragments[random.nextInt(fragments.length)]);
+      }
+      assertThat(scanner.scan(content.toString()))
+          .containsExactlyInAnyOrderElementsOf(findSeparately(patterns, content.toString()));
+    }
+  }
+
+  @Test
+  void shouldFindTheSameReferencesWhenContentIsScannedInParts() {
+    Random random = new Random(42);
+    List<Pattern> patterns = new ArrayList<>(DEFAULT_PATTERNS);
+    patterns.addAll(TRICKY_PATTERNS);
+    ReferenceScanner scanner = new ReferenceScanner(patterns);
+    for (String content : CORPORA) {
+      String repeatedContent = content.repeat(5);
+      for (int i = 0; i < 10; i++) {
+        ReferenceScanner.IncrementalScan scan = scanner.startIncrementalScan(ReferenceScanner.DEFAULT_MAX_PENDING_LENGTH);
+        int offset = 0;
+        while (offset < repeatedContent.length()) {
+          int length = Math.min(1 + random.nextInt(10_000), repeatedContent.length() - offset);
+          scan.write(repeatedContent, offset, length);
+          offset += length;
+        }
+        assertThat(scan.finish()).containsExactlyElementsOf(scanner.scan(repeatedContent));
+      }
+    }
+  }
+
+  @Test
+  void shouldKeepLimitedContentInMemoryWhenContentIsScannedInParts() {
+    // given
+    ReferenceScanner scanner = new ReferenceScanner(DEFAULT_PATTERNS);
+    ReferenceScanner.IncrementalScan scan = scanner.startIncrementalScan(10_000);
+    String part = "/content/dam/image.coreimg.png ".repeat(100);
+
+    // when
+    scan.write("url(");
+    for (int i = 0; i < 1000; i++) {
+      scan.write(part);
+      // then
+      assertThat(scan.getBufferedLength()).isLessThan(30_000);
+    }
+    scan.write(")");
+
+    // then: the url() that ends with the last part is too long to be kept in memory, so it's not found
+    assertThat(scan.finish())
+        .hasSize(100_000)
+        .containsOnly("/content/dam/image.coreimg.png");
+  }
+
+  @Test
+  void shouldFindTheSameReferencesAsSearchingForEachPatternSeparatelyInRandomPartsOfContent() {
+    Random random = new Random(42);
+    List<Pattern> patterns = new ArrayList<>(DEFAULT_PATTERNS);
+    patterns.addAll(TRICKY_PATTERNS);
+    ReferenceScanner scanner = new ReferenceScanner(patterns);
+    for (int i = 0; i < 200; i++) {
+      StringBuilder content = new StringBuilder();
+      for (int j = 1 + random.nextInt(10); j > 0; j--) {
+        String corpus = CORPORA.get(random.nextInt(CORPORA.size()));
+        int start = random.nextInt(corpus.length());
+        content.append(corpus, start, Math.min(corpus.length(), start + random.nextInt(2_000)));
+      }
+      assertThat(scanner.scan(content.toString()))
+          .containsExactlyInAnyOrderElementsOf(findSeparately(patterns, content.toString()));
+    }
+  }
+
+  private static List<String> findSeparately(List<Pattern> patterns, String content) {
+    List<String> result = new ArrayList<>();
+    for (Pattern pattern : patterns) {
+      Matcher matcher = pattern.matcher(content);
+      while (matcher.find()) {
+        if (matcher.groupCount() > 0) {
+          result.add(matcher.group(1));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<Pattern> compile(String... regexes) {
+    return Stream.of(regexes).map(Pattern::compile).collect(Collectors.toUnmodifiableList());
+  }
+}
@@ -10,15 +10,19 @@ import dev.streamx.sling.connector.test.util.PageResourceInfo;
 import dev.streamx.sling.connector.test.util.ResourceContentRelatedResourcesSelectorConfigImpl;
 import dev.streamx.sling.connector.test.util.ResourceResolverMocks;
 import java.io.File;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.engine.SlingRequestProcessor;
@@ -35,6 +39,7 @@ class ResourceContentRelatedResourcesSelectorRecursiveSearchTest {
   private static final File TEST_RESOURCES_ROOT_DIR = new File("src/test/resources/page-with-nested-references");
   private static final String MAIN_PAGE_RESOURCE = "/content/my-site/us/en/main-page";
   private static final String MAIN_PAGE_HTML_PATH = "/content/my-site/us/en/main-page.html";
+  private static final String PN_CQ_LAST_MODIFIED = "cq:lastModified";
 
   // key: AEM-style path, value: resource content
   private static final Map<String, String> testResourceFiles = FileUtils
@@ -49,8 +54,12 @@ class ResourceContentRelatedResourcesSelectorRecursiveSearchTest {
   private final SlingContext context = new SlingContext(ResourceResolverType.JCR_OAK);
   private final ResourceResolverFactory resourceResolverFactoryMock = mock(ResourceResolverFactory.class);
 
+  // key: request URI, value: number of requests
+  private final Map<String, Integer> requestsCount = new ConcurrentHashMap<>();
+
   private final SlingRequestProcessor basicRequestProcessor = (HttpServletRequest request, HttpServletResponse response, ResourceResolver resourceResolver) -> {
     String requestURI = request.getRequestURI();
+    requestsCount.merge(requestURI, 1, Integer::sum);
     assertThat(testResourceFiles.keySet()).contains(requestURI);
     String content = testResourceFiles.get(requestURI);
     response.setContentType("text/html");
@@ -64,8 +73,21 @@ class ResourceContentRelatedResourcesSelectorRecursiveSearchTest {
 
   @Test
   void shouldFindRelatedResources_WhenSearchingRecursivelyInCssAndJsFiles() {
+    shouldFindRelatedResources_WhenSearchingRecursivelyInCssAndJsFiles(createConfig(".*\\.(css|js)$"));
+  }
+
+  @Test
+  void shouldFindRelatedResources_WhenSearchingRecursivelyInCssAndJsFilesWithStreamingExtraction() {
+    shouldFindRelatedResources_WhenSearchingRecursivelyInCssAndJsFiles(
+        createConfig(".*\\.(css|js)$")
+            .withReferencesStreamingExtraction(true)
+            .withReferencesStreamingExtractionMaxPendingLength(64)
+    );
+  }
+
+  private void shouldFindRelatedResources_WhenSearchingRecursivelyInCssAndJsFiles(ResourceContentRelatedResourcesSelectorConfigImpl config) {
     shouldFindRelatedResources(
-        ".*\\.(css|js)$",
+        config,
         List.of(
             "/apps/my-site/clientlibs/react-app/main.chunk.js",
             "/apps/my-site/clientlibs/react-app/runtime~main.chunk.js",
@@ -90,7 +112,7 @@ class ResourceContentRelatedResourcesSelectorRecursiveSearchTest {
   @Test
   void shouldFindRelatedResources_WhenSearchingRecursivelyInCssFiles() {
     shouldFindRelatedResources(
-        ".*\\.css$",
+        createConfig(".*\\.css$"),
         List.of(
             "/content/dam/images/bg.png",
             "/etc.clientlibs/my-site/assets/colors-3.css",
@@ -112,22 +134,69 @@ class ResourceContentRelatedResourcesSelectorRecursiveSearchTest {
     );
   }
 
-  private void shouldFindRelatedResources(String relatedResourceProcessablePathRegex,
-      List<String> expectedFoundResources, List<String> expectedNotFoundResources) {
+  @Test
+  void shouldRetrieveSharedNestedRelatedResourcesOnceWhenMemoIsEnabled() {
+    // given
+    var relatedResourcesSelector = new ResourceContentRelatedResourcesSelector(
+        createConfig(".*\\.(css|js)$").withNestedReferencesMemoMaxAge(60_000),
+        basicRequestProcessor, resourceResolverFactoryMock);
+    ResourceInfo mainPageResource = new PageResourceInfo(MAIN_PAGE_RESOURCE);
+
+    // when: the same page stands for multiple parent resources sharing the same CSS and JS files
+    Collection<ResourceInfo> firstRelatedResources = relatedResourcesSelector.getRelatedResources(mainPageResource);
+    Collection<ResourceInfo> secondRelatedResources = relatedResourcesSelector.getRelatedResources(mainPageResource);
+
+    // then
+    assertThat(secondRelatedResources).isEqualTo(firstRelatedResources);
+    assertThat(requestsCount).containsEntry(MAIN_PAGE_HTML_PATH, 2);
+    assertThat(requestsCount.keySet())
+        .allSatisfy(requestURI -> assertThat(requestsCount.get(requestURI))
+            .isEqualTo(requestURI.equals(MAIN_PAGE_HTML_PATH) ? 2 : 1));
+  }
 
+  @Test
+  void shouldRetrieveNestedRelatedResourceAgainWhenItIsModified() throws PersistenceException {
     // given
-    var config = new ResourceContentRelatedResourcesSelectorConfigImpl()
-        .withReferencesSearchRegexes(
-            "(/apps/[^\"']+)",
-            "(/content/[^\"']+)",
-            "(/etc\\.clientlibs[^\"'\\)]+)",
-            "url\\([\"']?([^\\)\"']+)[\"']?\\)" // find anything that's inside the url() directive, skipping single or double quotes if given
-        )
-        .withResourcePathPostfixToAppend(".html")
-        .withResourceRequiredPathRegex("^/content/my-site/us/en/.*")
-        .withRelatedResourceProcessablePathRegex(relatedResourceProcessablePathRegex)
-        .withResourceRequiredPrimaryNodeTypeRegex("cq:Page");
+    String jsResourcePath = "/apps/my-site/clientlibs/react-app/main.chunk.js";
+    context.create().resource(jsResourcePath, PN_CQ_LAST_MODIFIED, Calendar.getInstance());
+    var relatedResourcesSelector = new ResourceContentRelatedResourcesSelector(
+        createConfig(".*\\.(css|js)$").withNestedReferencesMemoMaxAge(60_000),
+        basicRequestProcessor, resourceResolverFactoryMock);
+    ResourceInfo mainPageResource = new PageResourceInfo(MAIN_PAGE_RESOURCE);
+    relatedResourcesSelector.getRelatedResources(mainPageResource);
+
+    // when
+    ModifiableValueMap properties = context.resourceResolver().getResource(jsResourcePath).adaptTo(ModifiableValueMap.class);
+    Calendar lastModified = Calendar.getInstance();
+    lastModified.setTimeInMillis(properties.get(PN_CQ_LAST_MODIFIED, Calendar.class).getTimeInMillis() + 1000);
+    properties.put(PN_CQ_LAST_MODIFIED, lastModified);
+    context.resourceResolver().commit();
+    relatedResourcesSelector.getRelatedResources(mainPageResource);
+
+    // then
+    assertThat(requestsCount).containsEntry(jsResourcePath, 2);
+    assertThat(requestsCount).containsEntry("/etc.clientlibs/my-site/clientlibs/clientlib-base.css", 1);
+  }
+
+  @Test
+  void shouldRetrieveNestedRelatedResourcesEachTimeWhenMemoIsDisabled() {
+    // given
+    var relatedResourcesSelector = new ResourceContentRelatedResourcesSelector(
+        createConfig(".*\\.(css|js)$"), basicRequestProcessor, resourceResolverFactoryMock);
+    ResourceInfo mainPageResource = new PageResourceInfo(MAIN_PAGE_RESOURCE);
+
+    // when
+    relatedResourcesSelector.getRelatedResources(mainPageResource);
+    relatedResourcesSelector.getRelatedResources(mainPageResource);
+
+    // then
+    assertThat(requestsCount).containsEntry("/etc.clientlibs/my-site/clientlibs/clientlib-base.css", 2);
+  }
+
+  private void shouldFindRelatedResources(ResourceContentRelatedResourcesSelectorConfigImpl config,
+      List<String> expectedFoundResources, List<String> expectedNotFoundResources) {
 
+    // given
     var relatedResourcesSelector = new ResourceContentRelatedResourcesSelector(config, basicRequestProcessor, resourceResolverFactoryMock);
 
     // when
@@ -142,4 +211,18 @@ class ResourceContentRelatedResourcesSelectorRecursiveSearchTest {
             SetUtils.difference(testResourceFiles.keySet(), Set.copyOf(expectedNotFoundResources))
         );
   }
+
+  private static ResourceContentRelatedResourcesSelectorConfigImpl createConfig(String relatedResourceProcessablePathRegex) {
+    return new ResourceContentRelatedResourcesSelectorConfigImpl()
+        .withReferencesSearchRegexes(
+            "(/apps/[^\"']+)",
+            "(/content/[^\"']+)",
+            "(/etc\\.clientlibs[^\"'\\)]+)",
+            "url\\([\"']?([^\\)\"']+)[\"']?\\)" // find anything that's inside the url() directive, skipping single or double quotes if given
+        )
+        .withResourcePathPostfixToAppend(".html")
+        .withResourceRequiredPathRegex("^/content/my-site/us/en/.*")
+        .withRelatedResourceProcessablePathRegex(relatedResourceProcessablePathRegex)
+        .withResourceRequiredPrimaryNodeTypeRegex("cq:Page");
+  }
 }
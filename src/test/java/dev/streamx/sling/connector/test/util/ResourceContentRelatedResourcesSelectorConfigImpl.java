@@ -11,6 +11,9 @@ public class ResourceContentRelatedResourcesSelectorConfigImpl implements Resour
   private String resource_required$_$path_regex = "";
   private String resource_required$_$primary$_$node$_$type_regex = "";
   private String related$_$resource_processable$_$path_regex = "";
+  private long nested$_$references_memo_max$_$age = 0;
+  private boolean references_streaming$_$extraction = false;
+  private int references_streaming$_$extraction_max$_$pending$_$length = 1048576;
 
   public ResourceContentRelatedResourcesSelectorConfigImpl withReferencesSearchRegexes(String... values) {
     this.references_search$_$regexes = values;
@@ -42,6 +45,21 @@ public class ResourceContentRelatedResourcesSelectorConfigImpl implements Resour
     return this;
   }
 
+  public ResourceContentRelatedResourcesSelectorConfigImpl withNestedReferencesMemoMaxAge(long value) {
+    this.nested$_$references_memo_max$_$age = value;
+    return this;
+  }
+
+  public ResourceContentRelatedResourcesSelectorConfigImpl withReferencesStreamingExtraction(boolean value) {
+    this.references_streaming$_$extraction = value;
+    return this;
+  }
+
+  public ResourceContentRelatedResourcesSelectorConfigImpl withReferencesStreamingExtractionMaxPendingLength(int value) {
+    this.references_streaming$_$extraction_max$_$pending$_$length = value;
+    return this;
+  }
+
   @Override
   public String[] references_search$_$regexes() {
     return references_search$_$regexes;
@@ -72,6 +90,21 @@ public class ResourceContentRelatedResourcesSelectorConfigImpl implements Resour
     return related$_$resource_processable$_$path_regex;
   }
 
+  @Override
+  public long nested$_$references_memo_max$_$age() {
+    return nested$_$references_memo_max$_$age;
+  }
+
+  @Override
+  public boolean references_streaming$_$extraction() {
+    return references_streaming$_$extraction;
+  }
+
+  @Override
+  public int references_streaming$_$extraction_max$_$pending$_$length() {
+    return references_streaming$_$extraction_max$_$pending$_$length;
+  }
+
   @Override
   public Class<? extends Annotation> annotationType() {
     return ResourceContentRelatedResourcesSelectorConfig.class;
@@ -5,7 +5,9 @@ import dev.streamx.sling.connector.PublicationHandler;
 import dev.streamx.sling.connector.PublishData;
 import dev.streamx.sling.connector.StreamxPublicationException;
 import dev.streamx.sling.connector.UnpublishData;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class FakeThrowablePublicationHandler implements PublicationHandler<String> {
 
@@ -14,6 +16,8 @@ public class FakeThrowablePublicationHandler implements PublicationHandler<Strin
 
   private boolean throwException = false;
   private boolean throwRuntimeException = false;
+  private final Set<String> failingPaths = new HashSet<>();
+  private int processedCount = 0;
 
   @Override
   public String getId() {
@@ -27,7 +31,7 @@ public class FakeThrowablePublicationHandler implements PublicationHandler<Strin
 
   @Override
   public PublishData<String> getPublishData(ResourceInfo resourceInfo) throws StreamxPublicationException {
-    process();
+    process(resourceInfo);
     return new PublishData<>(
         resourceInfo.getPath(),
         CHANNEL,
@@ -39,7 +43,7 @@ public class FakeThrowablePublicationHandler implements PublicationHandler<Strin
 
   @Override
   public UnpublishData<String> getUnpublishData(ResourceInfo resourceInfo) throws StreamxPublicationException {
-    process();
+    process(resourceInfo);
     return new UnpublishData<>(
         resourceInfo.getPath(),
         CHANNEL,
@@ -56,12 +60,21 @@ public class FakeThrowablePublicationHandler implements PublicationHandler<Strin
     this.throwRuntimeException = true;
   }
 
-  private void process() throws StreamxPublicationException {
+  public void setThrowExceptionForPath(String path) {
+    this.failingPaths.add(path);
+  }
+
+  public int getProcessedCount() {
+    return processedCount;
+  }
+
+  private void process(ResourceInfo resourceInfo) throws StreamxPublicationException {
+    processedCount++;
     if (throwRuntimeException) {
       throw new RuntimeException();
     }
 
-    if (throwException) {
+    if (throwException || failingPaths.contains(resourceInfo.getPath())) {
       throw new StreamxPublicationException("Failure");
     }
   }
@@ -5,12 +5,15 @@ import static dev.streamx.sling.connector.testing.sling.event.jobs.UnsupportedEx
 import java.util.Calendar;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import org.apache.sling.event.jobs.Job;
 
 public class FakeJob implements Job {
 
   private final String topic;
   private final Map<String, Object> properties;
+  private final String id = UUID.randomUUID().toString();
+  private final Calendar created = Calendar.getInstance();
 
   public FakeJob(String topic, Map<String, Object> properties) {
     this.topic = topic;
@@ -24,7 +27,7 @@ public class FakeJob implements Job {
 
   @Override
   public String getId() {
-    return notImplementedYet();
+    return id;
   }
 
   @Override
@@ -51,7 +54,7 @@ public class FakeJob implements Job {
 
   @Override
   public int getRetryCount() {
-    return notImplementedYet();
+    return 0;
   }
 
   @Override
@@ -76,7 +79,7 @@ public class FakeJob implements Job {
 
   @Override
   public Calendar getCreated() {
-    return notImplementedYet();
+    return created;
   }
 
   @Override
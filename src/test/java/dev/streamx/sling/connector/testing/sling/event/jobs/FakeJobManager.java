@@ -4,24 +4,33 @@ import static dev.streamx.sling.connector.testing.sling.event.jobs.UnsupportedEx
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.JobBuilder;
+import org.apache.sling.event.jobs.JobBuilder.ScheduleBuilder;
 import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.NotificationConstants;
 import org.apache.sling.event.jobs.Queue;
 import org.apache.sling.event.jobs.ScheduledJobInfo;
 import org.apache.sling.event.jobs.Statistics;
 import org.apache.sling.event.jobs.TopicStatistics;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
 import org.apache.sling.event.jobs.consumer.JobExecutor;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 
 public class FakeJobManager implements JobManager {
 
   private final List<JobExecutor> executors;
   private final List<FakeJob> jobQueue = new LinkedList<>();
   private final List<FakeJob> processedJobs = new LinkedList<>();
+  private final List<ScheduledJobInfo> scheduledJobs = new LinkedList<>();
+  private EventAdmin eventAdmin;
 
   public FakeJobManager(List<JobExecutor> executors) {
     this.executors = new ArrayList<>(executors);
@@ -51,6 +60,7 @@ public class FakeJobManager implements JobManager {
   public Job addJob(String topic, Map<String, Object> properties) {
     FakeJob fakeJob = new FakeJob(topic, properties);
     jobQueue.add(fakeJob);
+    sendNotification(NotificationConstants.TOPIC_JOB_ADDED, fakeJob);
     return fakeJob;
   }
 
@@ -109,24 +119,54 @@ public class FakeJobManager implements JobManager {
   }
 
   @Override
-  public JobBuilder createJob(String s) {
-    return notImplementedYet();
+  public JobBuilder createJob(String topic) {
+    return new FakeJobBuilder(topic);
   }
 
   @Override
   public Collection<ScheduledJobInfo> getScheduledJobs() {
-    return notImplementedYet();
+    return scheduledJobs;
   }
 
   @Override
-  public Collection<ScheduledJobInfo> getScheduledJobs(String s, long l, Map<String, Object>... maps) {
-    return notImplementedYet();
+  public Collection<ScheduledJobInfo> getScheduledJobs(String topic, long limit, Map<String, Object>... templates) {
+    if (templates.length != 1 || !templates[0].isEmpty()) {
+      return notImplementedYet();
+    }
+
+    Collection<ScheduledJobInfo> foundJobs = new LinkedList<>();
+    for (ScheduledJobInfo scheduledJob : scheduledJobs) {
+      if (scheduledJob.getJobTopic().equals(topic)) {
+        foundJobs.add(scheduledJob);
+      }
+    }
+    return foundJobs;
   }
 
   /*
    *  CUSTOM METHODS
    */
 
+  /**
+   * Makes the job manager send job notification events, the way the Sling Job Manager does
+   */
+  public void setEventAdmin(EventAdmin eventAdmin) {
+    this.eventAdmin = eventAdmin;
+  }
+
+  private void sendNotification(String eventTopic, Job job) {
+    if (eventAdmin == null) {
+      return;
+    }
+    Map<String, Object> eventProperties = new HashMap<>();
+    for (String propertyName : job.getPropertyNames()) {
+      eventProperties.put(propertyName, job.getProperty(propertyName));
+    }
+    eventProperties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID, job.getId());
+    eventProperties.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC, job.getTopic());
+    eventAdmin.sendEvent(new Event(eventTopic, eventProperties));
+  }
+
   public List<FakeJob> getJobQueue() {
     return jobQueue;
   }
@@ -134,14 +174,124 @@ public class FakeJobManager implements JobManager {
   public void processAllJobs() {
     while (!jobQueue.isEmpty()) {
       FakeJob fakeJob = jobQueue.remove(0);
+      boolean succeeded = true;
       for (JobExecutor executor : executors) {
-        executor.process(fakeJob, new FakeJobExecutionContext());
+        JobExecutionResult result = executor.process(fakeJob, new FakeJobExecutionContext());
+        succeeded &= result == null || result.succeeded();
       }
       processedJobs.add(fakeJob);
+      sendNotification(succeeded ? NotificationConstants.TOPIC_JOB_FINISHED : NotificationConstants.TOPIC_JOB_CANCELLED, fakeJob);
     }
   }
 
   public int getProcessedJobsCount() {
     return processedJobs.size();
   }
+
+  /**
+   * Adds the scheduled jobs to the queue, regardless of the time for which they're scheduled
+   */
+  public void runScheduledJobs() {
+    List<ScheduledJobInfo> jobsToRun = new ArrayList<>(scheduledJobs);
+    scheduledJobs.clear();
+    for (ScheduledJobInfo scheduledJob : jobsToRun) {
+      addJob(scheduledJob.getJobTopic(), scheduledJob.getJobProperties());
+    }
+  }
+
+  private class FakeJobBuilder implements JobBuilder {
+
+    private final String topic;
+    private Map<String, Object> properties = Map.of();
+
+    private FakeJobBuilder(String topic) {
+      this.topic = topic;
+    }
+
+    @Override
+    public JobBuilder properties(Map<String, Object> properties) {
+      this.properties = properties;
+      return this;
+    }
+
+    @Override
+    public Job add() {
+      return addJob(topic, properties);
+    }
+
+    @Override
+    public Job add(List<String> errors) {
+      return add();
+    }
+
+    @Override
+    public ScheduleBuilder schedule() {
+      return new FakeScheduleBuilder(topic, properties);
+    }
+  }
+
+  private class FakeScheduleBuilder implements ScheduleBuilder {
+
+    private final String topic;
+    private final Map<String, Object> properties;
+    private Date scheduledExecution;
+
+    private FakeScheduleBuilder(String topic, Map<String, Object> properties) {
+      this.topic = topic;
+      this.properties = properties;
+    }
+
+    @Override
+    public ScheduleBuilder suspend() {
+      return notImplementedYet();
+    }
+
+    @Override
+    public ScheduleBuilder hourly(int minute) {
+      return notImplementedYet();
+    }
+
+    @Override
+    public ScheduleBuilder daily(int hour, int minute) {
+      return notImplementedYet();
+    }
+
+    @Override
+    public ScheduleBuilder weekly(int day, int hour, int minute) {
+      return notImplementedYet();
+    }
+
+    @Override
+    public ScheduleBuilder monthly(int day, int hour, int minute) {
+      return notImplementedYet();
+    }
+
+    @Override
+    public ScheduleBuilder yearly(int month, int day, int hour, int minute) {
+      return notImplementedYet();
+    }
+
+    @Override
+    public ScheduleBuilder at(Date date) {
+      this.scheduledExecution = date;
+      return this;
+    }
+
+    @Override
+    public ScheduleBuilder cron(String expression) {
+      return notImplementedYet();
+    }
+
+    @Override
+    public ScheduledJobInfo add() {
+      ScheduledJobInfo scheduledJob = new FakeScheduledJobInfo(topic, properties, scheduledExecution);
+      scheduledJobs.add(scheduledJob);
+      return scheduledJob;
+    }
+
+    @Override
+    public ScheduledJobInfo add(List<String> errors) {
+      return add();
+    }
+  }
 }
@@ -5,13 +5,25 @@ import java.util.Map;
 public class FakeRetriedJob extends FakeJob {
 
   private final int retries;
+  private final int numberOfRetries;
 
   public FakeRetriedJob(String topic, Map<String, Object> properties, int retries) {
+    this(topic, properties, retries, Integer.MAX_VALUE);
+  }
+
+  public FakeRetriedJob(String topic, Map<String, Object> properties, int retries, int numberOfRetries) {
     super(topic, properties);
     this.retries = retries;
+    this.numberOfRetries = numberOfRetries;
   }
+
   @Override
   public int getRetryCount() {
     return retries;
   }
+
+  @Override
+  public int getNumberOfRetries() {
+    return numberOfRetries;
+  }
 }
@@ -0,0 +1,68 @@
+package dev.streamx.sling.connector.testing.sling.event.jobs;
+
+import static dev.streamx.sling.connector.testing.sling.event.jobs.UnsupportedExceptionHelper.notImplementedYet;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import org.apache.sling.event.jobs.JobBuilder.ScheduleBuilder;
+import org.apache.sling.event.jobs.ScheduleInfo;
+import org.apache.sling.event.jobs.ScheduledJobInfo;
+
+public class FakeScheduledJobInfo implements ScheduledJobInfo {
+
+  private final String topic;
+  private final Map<String, Object> properties;
+  private final Date scheduledExecution;
+
+  public FakeScheduledJobInfo(String topic, Map<String, Object> properties, Date scheduledExecution) {
+    this.topic = topic;
+    this.properties = properties;
+    this.scheduledExecution = scheduledExecution;
+  }
+
+  @Override
+  public Collection<ScheduleInfo> getSchedules() {
+    return notImplementedYet();
+  }
+
+  @Override
+  public Date getNextScheduledExecution() {
+    return scheduledExecution;
+  }
+
+  @Override
+  public String getJobTopic() {
+    return topic;
+  }
+
+  @Override
+  public Map<String, Object> getJobProperties() {
+    return properties;
+  }
+
+  @Override
+  public void unschedule() {
+    notImplementedYet();
+  }
+
+  @Override
+  public ScheduleBuilder reschedule() {
+    return notImplementedYet();
+  }
+
+  @Override
+  public void suspend() {
+    notImplementedYet();
+  }
+
+  @Override
+  public void resume() {
+    notImplementedYet();
+  }
+
+  @Override
+  public boolean isSuspended() {
+    return false;
+  }
+}
@@ -1,5 +1,6 @@
 package dev.streamx.sling.connector.testing.streamx.clients.ingestion;
 
+import dev.streamx.clients.ingestion.exceptions.StreamxClientException;
 import dev.streamx.clients.ingestion.publisher.Message;
 import dev.streamx.clients.ingestion.publisher.Publisher;
 import dev.streamx.clients.ingestion.publisher.SuccessResult;
@@ -27,7 +28,11 @@ public class FakePublisher<T> implements Publisher<T> {
   }
 
   @Override
-  public SuccessResult send(Message<T> message) {
+  public SuccessResult send(Message<T> message) throws StreamxClientException {
+    StreamxClientException exception = fakeStreamxClient.getException();
+    if (exception != null) {
+      throw exception;
+    }
     if (message.getAction().equals(Message.PUBLISH_ACTION)) {
       fakeStreamxClient.recordPublish(message.getKey(), channel, message.getPayload());
     } else if (message.getAction().equals(Message.UNPUBLISH_ACTION)) {
@@ -3,8 +3,10 @@ package dev.streamx.sling.connector.testing.streamx.clients.ingestion;
 import static org.mockito.Mockito.spy;
 
 import dev.streamx.clients.ingestion.StreamxClient;
+import dev.streamx.clients.ingestion.exceptions.StreamxClientException;
 import dev.streamx.clients.ingestion.publisher.Publisher;
 import dev.streamx.sling.connector.PublicationAction;
+import java.net.ConnectException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.collections4.list.UnmodifiableList;
@@ -13,6 +15,7 @@ public class FakeStreamxClient implements StreamxClient {
 
   private final List<Publication> publications = new ArrayList<>();
   private Publisher<?> lastPublisher;
+  private StreamxClientException exception;
 
   @Override
   public <T> Publisher<T> newPublisher(String channel, Class<T> modelClass) {
@@ -38,6 +41,18 @@ public class FakeStreamxClient implements StreamxClient {
     return new UnmodifiableList<>(publications);
   }
 
+  public void setThrowException() {
+    setThrowException(new StreamxClientException("Failure", new ConnectException("Connection refused")));
+  }
+
+  public void setThrowException(StreamxClientException exception) {
+    this.exception = exception;
+  }
+
+  StreamxClientException getException() {
+    return exception;
+  }
+
   public Publisher<?> getLastPublisher() {
     return lastPublisher;
   }